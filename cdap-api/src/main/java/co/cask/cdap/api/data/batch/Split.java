@@ -31,4 +31,14 @@ public abstract class Split {
   public long getLength() {
     return 0;
   }
+
+  /**
+   * By default no locality information is available for a split.
+   *
+   * @return Optional hostnames of the nodes that hold the data of this split, in order of preference. Used by batch
+   *         jobs to schedule the processing of a split close to its data. Must not be {@code null}.
+   */
+  public String[] getLocations() {
+    return new String[0];
+  }
 }
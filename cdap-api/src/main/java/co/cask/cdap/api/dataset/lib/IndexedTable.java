@@ -221,14 +221,37 @@ public class IndexedTable extends AbstractDataset implements Table {
    */
   public Scanner scanByIndex(byte[] column, @Nullable byte[] startValue, @Nullable byte[] endValue) {
     assertIndexedColumn(column);
+    return new IndexRangeScanner(scanIndex(column, startValue, endValue), column, startValue, endValue);
+  }
+
+  /**
+   * Reads the keys of the table rows within the given secondary index key range, without reading the rows from the
+   * data table. This is cheaper than {@link #scanByIndex(byte[], byte[], byte[])} if only the row keys are needed,
+   * for example to intersect the results of lookups on multiple indexes.
+   *
+   * @param column the column to use for the index lookup
+   * @param startValue the inclusive start of the range for which rows must fall within to be returned in the scan.
+   *                   {@code null} means start from first row of the table
+   * @param endValue the exclusive end of the range for which rows must fall within to be returned in the scan
+   *                 {@code null} means end with the last row of the table
+   * @return an iterator over the keys of the rows whose stored value for the given column is within the given range.
+   *         It must be closed after use.
+   * @throws java.lang.IllegalArgumentException if the given column is not configured for indexing.
+   */
+  public CloseableIterator<byte[]> scanRowKeysByIndex(byte[] column, @Nullable byte[] startValue,
+                                                      @Nullable byte[] endValue) {
+    assertIndexedColumn(column);
+    return new IndexRowKeyIterator(scanIndex(column, startValue, endValue), column, startValue, endValue);
+  }
+
+  private Scanner scanIndex(byte[] column, @Nullable byte[] startValue, @Nullable byte[] endValue) {
     // KEY_DELIMITER is not used at the end of the rowKeys, because they are used for a range scan,
     // instead of a fixed-match lookup
     byte[] startRow = startValue == null ? Bytes.concat(column, KEY_DELIMITER) :
       Bytes.concat(column, KEY_DELIMITER, startValue);
     byte[] stopRow = endValue == null ? Bytes.stopKeyForPrefix(Bytes.concat(column, KEY_DELIMITER)) :
       Bytes.concat(column, KEY_DELIMITER, endValue);
-    Scanner indexScan = index.scan(startRow, stopRow);
-    return new IndexRangeScanner(indexScan, column, startValue, endValue);
+    return index.scan(startRow, stopRow);
   }
 
   private void assertIndexedColumn(byte[] column) {
@@ -674,4 +697,48 @@ public class IndexedTable extends AbstractDataset implements Table {
         && (end == null || Bytes.compareTo(columnValue, end) < 0);
     }
   }
+
+  // iterator over the data row keys of index entries whose column values are within a range
+  private final class IndexRowKeyIterator extends AbstractCloseableIterator<byte[]> {
+    private final Scanner baseScanner;
+    private final byte[] column;
+    private final byte[] start;
+    private final byte[] end;
+
+    private IndexRowKeyIterator(Scanner baseScanner, byte[] column, @Nullable byte[] start, @Nullable byte[] end) {
+      this.baseScanner = baseScanner;
+      this.column = column;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected byte[] computeNext() {
+      for (Row indexRow = baseScanner.next(); indexRow != null; indexRow = baseScanner.next()) {
+        byte[] rowkey = indexRow.get(IDX_COL);
+        if (rowkey == null) {
+          LOG.warn("Row of Indexed table '{}' is missing index column. Row key: {}", getName(), indexRow.getRow());
+          continue;
+        }
+        byte[] columnValue = Arrays.copyOfRange(indexRow.getRow(),
+                                                column.length + 1,
+                                                indexRow.getRow().length - rowkey.length - 1);
+        if ((start != null && Bytes.compareTo(columnValue, start) < 0)
+          || (end != null && Bytes.compareTo(columnValue, end) >= 0)) {
+          continue;
+        }
+        // see AbstractIndexScanner: with a delimiter in a column name, the data row must be checked
+        if (hasColumnWithDelimiter && !Bytes.equals(table.get(rowkey, column), columnValue)) {
+          continue;
+        }
+        return rowkey;
+      }
+      return endOfData();
+    }
+
+    @Override
+    public void close() {
+      baseScanner.close();
+    }
+  }
 }
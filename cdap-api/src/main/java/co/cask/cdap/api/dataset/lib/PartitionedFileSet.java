@@ -57,6 +57,12 @@ public interface PartitionedFileSet extends Dataset, InputFormatProvider, Output
    */
   void addPartition(PartitionKey key, String path, Map<String, String> metadata);
 
+  /**
+   * Add multiple partitions, each for a given partition key and stored at a given path (relative to the file set's
+   * base path), all with the given metadata. None of the partitions is added if any of them already exists.
+   */
+  void addPartitions(Map<PartitionKey, String> partitions, Map<String, String> metadata);
+
   /**
    * Adds a new metadata entry for a particular partition.
    * Note that existing entries cannot be updated.
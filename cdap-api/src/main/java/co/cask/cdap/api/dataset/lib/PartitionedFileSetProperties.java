@@ -18,7 +18,9 @@ package co.cask.cdap.api.dataset.lib;
 
 import co.cask.cdap.api.annotation.Beta;
 
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -37,6 +39,12 @@ public class PartitionedFileSetProperties extends FileSetProperties {
    */
   public static final String PARTITIONING_FIELD_PREFIX = "partitioning.field.";
 
+  /**
+   * The property name for the list of partitioning fields that have a secondary index, so that queries with a
+   * partition filter on these fields do not need to scan all partitions.
+   */
+  public static final String INDEXED_FIELDS = "partitioning.indexed.fields";
+
   /**
    * Read the partitioning for a PartitionedFileSet from its properties.
    *
@@ -70,6 +78,25 @@ public class PartitionedFileSetProperties extends FileSetProperties {
     return builder.build();
   }
 
+  /**
+   * Read the names of the indexed partitioning fields of a PartitionedFileSet from its properties.
+   *
+   * @param properties the dataset properties
+   * @return the names of the indexed fields found in the properties, empty if there are none
+   */
+  public static Set<String> getIndexedFields(Map<String, String> properties) {
+    String fieldList = properties.get(INDEXED_FIELDS);
+    Set<String> fieldNames = new LinkedHashSet<>();
+    if (fieldList != null) {
+      for (String fieldName : fieldList.split(",")) {
+        if (!fieldName.trim().isEmpty()) {
+          fieldNames.add(fieldName.trim());
+        }
+      }
+    }
+    return fieldNames;
+  }
+
   /**
    * @return a properties builder
    */
@@ -103,5 +130,21 @@ public class PartitionedFileSetProperties extends FileSetProperties {
       }
       return this;
     }
+
+    /**
+     * Sets the partitioning fields to be indexed. Each field must be a field of the partitioning. Note that an index
+     * only covers the partitions added after the field is indexed. If a field is indexed when the dataset already has
+     * partitions, its index is not used, and filters on that field still scan the partitions.
+     */
+    public Builder setIndexedFields(String... fieldNames) {
+      StringBuilder builder = new StringBuilder();
+      String sep = "";
+      for (String fieldName : fieldNames) {
+        builder.append(sep).append(fieldName);
+        sep = ",";
+      }
+      add(INDEXED_FIELDS, builder.toString());
+      return this;
+    }
   }
 }
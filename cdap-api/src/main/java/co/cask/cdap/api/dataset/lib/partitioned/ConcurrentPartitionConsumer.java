@@ -19,20 +19,16 @@ package co.cask.cdap.api.dataset.lib.partitioned;
 import co.cask.cdap.api.dataset.lib.PartitionDetail;
 import co.cask.cdap.api.dataset.lib.PartitionKey;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSet;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 /**
  * A {@link PartitionConsumer} that supports multiple instances consuming the same set of partitions by using a
  * working set of partitions, and keeping track of their progress state during processing of those partitions.
  */
 public class ConcurrentPartitionConsumer extends AbstractPartitionConsumer {
-  private static final Logger LOG = LoggerFactory.getLogger(ConcurrentPartitionConsumer.class);
 
   public ConcurrentPartitionConsumer(PartitionedFileSet partitionedFileSet, StatePersistor statePersistor) {
     super(partitionedFileSet, statePersistor);
@@ -116,33 +112,22 @@ public class ConcurrentPartitionConsumer extends AbstractPartitionConsumer {
    * partition if it has already been attempted the configured number of attempts.
    */
   protected void abort(ConsumerWorkingSet workingSet, List<? extends PartitionKey> partitionKeys) {
-    List<PartitionKey> discardedPartitions = new ArrayList<>();
+    List<ConsumablePartition> partitions = new ArrayList<>(partitionKeys.size());
     for (PartitionKey key : partitionKeys) {
       ConsumablePartition consumablePartition = workingSet.lookup(key);
       assertInProgress(consumablePartition);
-      // either reset its processState, or remove it from the workingSet, depending on how many tries it already has
-      if (consumablePartition.getNumFailures() < getConfiguration().getMaxRetries()) {
-        consumablePartition.retry();
-      } else {
-        discardedPartitions.add(key);
-        workingSet.lookup(key).discard();
-      }
-    }
-    if (!discardedPartitions.isEmpty()) {
-      LOG.warn("Discarded keys due to being retried {} times: {}",
-               getConfiguration().getMaxRetries(), discardedPartitions);
+      partitions.add(consumablePartition);
     }
+    // either reset their processState, or discard them, depending on how many tries they already have
+    ConsumablePartitions.retryOrDiscard(partitions, getConfiguration());
   }
 
   /**
    * ensure that caller doesn't try to commit/abort a partition that isn't in progress
-   * @throws IllegalArgumentException if the given partition is in progress
+   * @throws IllegalStateException if the given partition is not in progress
    */
   protected void assertInProgress(ConsumablePartition consumablePartition) {
-    if (!(consumablePartition.getProcessState() == ProcessState.IN_PROGRESS)) {
-      throw new IllegalStateException(String.format("Partition not in progress: %s",
-                                                    consumablePartition.getPartitionKey()));
-    }
+    ConsumablePartitions.assertInProgress(consumablePartition);
   }
 
   /**
@@ -167,9 +152,7 @@ public class ConcurrentPartitionConsumer extends AbstractPartitionConsumer {
    * are considered 'expired'.
    */
   protected long getExpiryBorder() {
-    long now = System.currentTimeMillis();
-    long expirationTimeoutMillis = TimeUnit.SECONDS.toMillis(getConfiguration().getTimeout());
-    return now - expirationTimeoutMillis;
+    return ConsumablePartitions.getExpiryBorder(getConfiguration());
   }
 
   /**
@@ -178,25 +161,12 @@ public class ConcurrentPartitionConsumer extends AbstractPartitionConsumer {
    */
   protected void doExpiry(ConsumerWorkingSet workingSet) {
     long expiryTime = getExpiryBorder();
-    List<PartitionKey> expiredPartitions = new ArrayList<>();
-    List<PartitionKey> discardedPartitions = new ArrayList<>();
+    List<ConsumablePartition> expiredPartitions = new ArrayList<>();
     for (ConsumablePartition partition : workingSet.getPartitions()) {
       if (partition.getProcessState() == ProcessState.IN_PROGRESS && partition.getTimestamp() < expiryTime) {
-        // either reset its processState, or remove it from the workingSet, depending on how many tries it already has
-        if (partition.getNumFailures() < getConfiguration().getMaxRetries()) {
-          partition.retry();
-        } else {
-          partition.discard();
-        }
-        expiredPartitions.add(partition.getPartitionKey());
-      }
-    }
-    if (!expiredPartitions.isEmpty()) {
-      LOG.warn("Expiring in progress partitions: {}", expiredPartitions);
-      if (!discardedPartitions.isEmpty()) {
-        LOG.warn("Discarded keys due to being retried {} times: {}",
-                 getConfiguration().getMaxRetries(), discardedPartitions);
+        expiredPartitions.add(partition);
       }
     }
+    ConsumablePartitions.expire(expiredPartitions, getConfiguration());
   }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.dataset.lib.partitioned;
+
+import co.cask.cdap.api.dataset.lib.PartitionKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rules for the progress of {@link ConsumablePartition}s that are shared by the partition consumers, regardless of
+ * how they store their working set.
+ */
+final class ConsumablePartitions {
+  private static final Logger LOG = LoggerFactory.getLogger(ConsumablePartitions.class);
+
+  private ConsumablePartitions() {
+  }
+
+  /**
+   * Ensures that the caller doesn't try to commit/abort a partition that isn't in progress.
+   *
+   * @throws IllegalStateException if the given partition is not in progress
+   */
+  static void assertInProgress(ConsumablePartition consumablePartition) {
+    if (!(consumablePartition.getProcessState() == ProcessState.IN_PROGRESS)) {
+      throw new IllegalStateException(String.format("Partition not in progress: %s",
+                                                    consumablePartition.getPartitionKey()));
+    }
+  }
+
+  /**
+   * @return a timestamp which determines partition expiry. Partitions with a timestamp smaller (older) than this value
+   * are considered 'expired'.
+   */
+  static long getExpiryBorder(ConsumerConfiguration configuration) {
+    long now = System.currentTimeMillis();
+    long expirationTimeoutMillis = TimeUnit.SECONDS.toMillis(configuration.getTimeout());
+    return now - expirationTimeoutMillis;
+  }
+
+  /**
+   * Resets the process state of the given partitions to AVAILABLE, or discards a partition if it has already been
+   * retried the configured number of times.
+   */
+  static void retryOrDiscard(List<? extends ConsumablePartition> partitions, ConsumerConfiguration configuration) {
+    List<PartitionKey> discardedPartitions = new ArrayList<>();
+    for (ConsumablePartition partition : partitions) {
+      if (partition.getNumFailures() < configuration.getMaxRetries()) {
+        partition.retry();
+      } else {
+        partition.discard();
+        discardedPartitions.add(partition.getPartitionKey());
+      }
+    }
+    if (!discardedPartitions.isEmpty()) {
+      LOG.warn("Discarded keys due to being retried {} times: {}", configuration.getMaxRetries(), discardedPartitions);
+    }
+  }
+
+  /**
+   * Expires the given IN_PROGRESS partitions, which are older than the expiry border. See
+   * {@link #retryOrDiscard(List, ConsumerConfiguration)}.
+   */
+  static void expire(List<? extends ConsumablePartition> partitions, ConsumerConfiguration configuration) {
+    if (partitions.isEmpty()) {
+      return;
+    }
+    List<PartitionKey> expiredPartitions = new ArrayList<>(partitions.size());
+    for (ConsumablePartition partition : partitions) {
+      expiredPartitions.add(partition.getPartitionKey());
+    }
+    LOG.warn("Expiring in progress partitions: {}", expiredPartitions);
+    retryOrDiscard(partitions, configuration);
+  }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.dataset.lib.partitioned;
+
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.api.dataset.lib.IndexedTable;
+import co.cask.cdap.api.dataset.lib.Partition;
+import co.cask.cdap.api.dataset.lib.PartitionConsumerState;
+import co.cask.cdap.api.dataset.lib.PartitionDetail;
+import co.cask.cdap.api.dataset.lib.PartitionKey;
+import co.cask.cdap.api.dataset.lib.PartitionedFileSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link PartitionConsumer} that supports multiple instances consuming the same set of partitions, like the
+ * {@link ConcurrentPartitionConsumer}, but keeps its working set in an {@link IndexedTableWorkingSet}, with a row
+ * per partition. Taking and finishing partitions only reads and writes the rows of the affected partitions, so that
+ * the cost of these operations does not grow with the size of the working set, and concurrent consumers only
+ * conflict with each other if they operate on the same partitions, or if new partitions are added to the working set.
+ *
+ * To use it in place of a {@link ConcurrentPartitionConsumer}, create an {@link IndexedTable} that indexes the
+ * {@link IndexedTableWorkingSet#INDEX_COLUMN}, and construct the consumer with that table instead of a
+ * {@link StatePersistor}:
+ *
+ * <pre><code>
+ *   // at application configuration
+ *   createDataset("consumerState", IndexedTable.class, DatasetProperties.builder()
+ *     .add(IndexedTableDefinition.INDEX_COLUMNS_CONF_KEY, IndexedTableWorkingSet.INDEX_COLUMN).build());
+ *
+ *   // in the program, within a transaction
+ *   PartitionConsumer consumer =
+ *     new IndexedTablePartitionConsumer(partitionedFileSet, consumerStateTable, "myConsumer");
+ * </code></pre>
+ *
+ * A MapReduce can opt in with {@link PartitionBatchInput#setInput(co.cask.cdap.api.mapreduce.MapReduceContext,
+ * String, String, String, ConsumerConfiguration)}.
+ * Note that the working set is not migrated from the state of a {@link ConcurrentPartitionConsumer}: a consumer
+ * with a new working set starts consuming from the beginning of the {@link PartitionedFileSet}.
+ */
+public class IndexedTablePartitionConsumer implements PartitionConsumer {
+
+  private final PartitionedFileSet partitionedFileSet;
+  private final IndexedTable stateTable;
+  private final String consumerName;
+  private final ConsumerConfiguration configuration;
+
+  /**
+   * Creates an instance of PartitionConsumer.
+   *
+   * @param partitionedFileSet the PartitionedFileSet to consume from
+   * @param stateTable the IndexedTable to keep the working set in. See {@link IndexedTableWorkingSet}.
+   * @param consumerName the name of the consumer, which determines the rows of the state table used by this consumer
+   */
+  public IndexedTablePartitionConsumer(PartitionedFileSet partitionedFileSet, IndexedTable stateTable,
+                                       String consumerName) {
+    this(partitionedFileSet, stateTable, consumerName, ConsumerConfiguration.DEFAULT);
+  }
+
+  /**
+   * Creates an instance of PartitionConsumer.
+   *
+   * @param partitionedFileSet the PartitionedFileSet to consume from
+   * @param stateTable the IndexedTable to keep the working set in. See {@link IndexedTableWorkingSet}.
+   * @param consumerName the name of the consumer, which determines the rows of the state table used by this consumer
+   * @param configuration the PartitionedConsumerConfiguration, defining parameters of consumption
+   */
+  public IndexedTablePartitionConsumer(PartitionedFileSet partitionedFileSet, IndexedTable stateTable,
+                                       String consumerName, ConsumerConfiguration configuration) {
+    this.partitionedFileSet = partitionedFileSet;
+    this.stateTable = stateTable;
+    this.consumerName = consumerName;
+    this.configuration = configuration;
+  }
+
+  public PartitionedFileSet getPartitionedFileSet() {
+    return partitionedFileSet;
+  }
+
+  public ConsumerConfiguration getConfiguration() {
+    return configuration;
+  }
+
+  @Override
+  public PartitionConsumerResult consumePartitions() {
+    return consumePartitions(Integer.MAX_VALUE);
+  }
+
+  @Override
+  public PartitionConsumerResult consumePartitions(int limit) {
+    return consumePartitions(new PartitionAcceptor.Limit(limit));
+  }
+
+  @Override
+  public PartitionConsumerResult consumePartitions(PartitionAcceptor acceptor) {
+    IndexedTableWorkingSet workingSet = getWorkingSet();
+    doExpiry(workingSet);
+    populate(workingSet);
+    List<PartitionDetail> toConsume = selectPartitions(workingSet, acceptor);
+    return new PartitionConsumerResult(toConsume, removeDiscardedPartitions(workingSet));
+  }
+
+  @Override
+  public void onFinish(List<? extends Partition> partitions, boolean succeeded) {
+    List<PartitionKey> partitionKeys = new ArrayList<>(partitions.size());
+    for (Partition partition : partitions) {
+      partitionKeys.add(partition.getPartitionKey());
+    }
+    onFinishWithKeys(partitionKeys, succeeded);
+  }
+
+  @Override
+  public void onFinishWithKeys(List<? extends PartitionKey> partitionKeys, boolean succeeded) {
+    IndexedTableWorkingSet workingSet = getWorkingSet();
+    doExpiry(workingSet);
+    if (succeeded) {
+      commit(workingSet, partitionKeys);
+    } else {
+      abort(workingSet, partitionKeys);
+    }
+  }
+
+  @Override
+  public void untake(List<? extends Partition> partitions) {
+    List<PartitionKey> partitionKeys = new ArrayList<>(partitions.size());
+    for (Partition partition : partitions) {
+      partitionKeys.add(partition.getPartitionKey());
+    }
+    untakeWithKeys(partitionKeys);
+  }
+
+  @Override
+  public void untakeWithKeys(List<? extends PartitionKey> partitionKeys) {
+    IndexedTableWorkingSet workingSet = getWorkingSet();
+    doExpiry(workingSet);
+    for (PartitionKey key : partitionKeys) {
+      ConsumablePartition consumablePartition = workingSet.lookup(key);
+      // don't need to assertInProgress because untake() already does that
+      consumablePartition.untake();
+      workingSet.update(consumablePartition);
+    }
+  }
+
+  private IndexedTableWorkingSet getWorkingSet() {
+    return new IndexedTableWorkingSet(stateTable, consumerName);
+  }
+
+  /**
+   * Adds new partitions of the PartitionedFileSet to the working set, up to the configured maximum working set size.
+   */
+  protected void populate(IndexedTableWorkingSet workingSet) {
+    int maxWorkingSetSize = configuration.getMaxWorkingSetSize();
+    int numToPopulate = maxWorkingSetSize - workingSet.size(maxWorkingSetSize);
+    if (numToPopulate <= 0) {
+      return;
+    }
+    PartitionConsumerState partitionConsumerState = workingSet.getPartitionConsumerState();
+    co.cask.cdap.api.dataset.lib.PartitionConsumerResult result =
+      partitionedFileSet.consumePartitions(partitionConsumerState, numToPopulate,
+                                           configuration.getPartitionPredicate());
+    for (PartitionDetail partition : result.getPartitions()) {
+      workingSet.addPartition(partition);
+    }
+    // only write the consumer state if it changed, to avoid conflicts between consumers that find no new partitions
+    if (!partitionConsumerState.equals(result.getPartitionConsumerState())) {
+      workingSet.setPartitionConsumerState(result.getPartitionConsumerState());
+    }
+  }
+
+  private List<PartitionDetail> selectPartitions(IndexedTableWorkingSet workingSet, PartitionAcceptor acceptor) {
+    long now = System.currentTimeMillis();
+    List<ConsumablePartition> taken = new ArrayList<>();
+    List<PartitionDetail> toConsume = new ArrayList<>();
+    try (CloseableIterator<ConsumablePartition> partitions = workingSet.getPartitions(ProcessState.AVAILABLE)) {
+      while (partitions.hasNext()) {
+        ConsumablePartition consumablePartition = partitions.next();
+        PartitionDetail partition = partitionedFileSet.getPartition(consumablePartition.getPartitionKey());
+        if (partition == null) {
+          // no longer exists
+          continue;
+        }
+        PartitionAcceptor.Return accept = acceptor.accept(partition);
+        if (accept == PartitionAcceptor.Return.STOP) {
+          break;
+        }
+        if (accept == PartitionAcceptor.Return.ACCEPT) {
+          consumablePartition.take();
+          consumablePartition.setTimestamp(now);
+          taken.add(consumablePartition);
+          toConsume.add(partition);
+        }
+      }
+    }
+    // the working set is only updated after the scan of its index is closed
+    for (ConsumablePartition consumablePartition : taken) {
+      workingSet.update(consumablePartition);
+    }
+    return toConsume;
+  }
+
+  /**
+   * Removes the given partition keys from the working set, as they have been successfully processed.
+   */
+  protected void commit(IndexedTableWorkingSet workingSet, List<? extends PartitionKey> partitionKeys) {
+    for (PartitionKey key : partitionKeys) {
+      ConsumablePartition consumablePartition = workingSet.lookup(key);
+      ConsumablePartitions.assertInProgress(consumablePartition);
+      workingSet.remove(key);
+    }
+  }
+
+  /**
+   * Resets the process state of the given partition keys, as they were not successfully processed, or discards the
+   * partition if it has already been attempted the configured number of attempts.
+   */
+  protected void abort(IndexedTableWorkingSet workingSet, List<? extends PartitionKey> partitionKeys) {
+    List<ConsumablePartition> partitions = new ArrayList<>(partitionKeys.size());
+    for (PartitionKey key : partitionKeys) {
+      ConsumablePartition consumablePartition = workingSet.lookup(key);
+      ConsumablePartitions.assertInProgress(consumablePartition);
+      partitions.add(consumablePartition);
+    }
+    // either reset their processState, or discard them, depending on how many tries they already have
+    ConsumablePartitions.retryOrDiscard(partitions, configuration);
+    for (ConsumablePartition consumablePartition : partitions) {
+      workingSet.update(consumablePartition);
+    }
+  }
+
+  /**
+   * Removes the partitions that have failed processing the configured number of times from the working set and
+   * returns them.
+   */
+  protected List<PartitionDetail> removeDiscardedPartitions(IndexedTableWorkingSet workingSet) {
+    List<PartitionKey> discardedKeys = new ArrayList<>();
+    try (CloseableIterator<ConsumablePartition> partitions = workingSet.getPartitions(ProcessState.DISCARDED)) {
+      while (partitions.hasNext()) {
+        discardedKeys.add(partitions.next().getPartitionKey());
+      }
+    }
+    List<PartitionDetail> failedPartitions = new ArrayList<>(discardedKeys.size());
+    for (PartitionKey key : discardedKeys) {
+      failedPartitions.add(partitionedFileSet.getPartition(key));
+      workingSet.remove(key);
+    }
+    return failedPartitions;
+  }
+
+  /**
+   * @return a timestamp which determines partition expiry. Partitions with a timestamp smaller (older) than this value
+   * are considered 'expired'.
+   */
+  protected long getExpiryBorder() {
+    return ConsumablePartitions.getExpiryBorder(configuration);
+  }
+
+  /**
+   * Finds the IN_PROGRESS partitions that are older than the configured timeout, using the index of the working set,
+   * and resets their state to AVAILABLE, unless they have already been retried the configured number of times, in
+   * which case they are discarded.
+   */
+  protected void doExpiry(IndexedTableWorkingSet workingSet) {
+    List<ConsumablePartition> expired = new ArrayList<>();
+    try (CloseableIterator<ConsumablePartition> partitions = workingSet.getInProgressPartitions(getExpiryBorder())) {
+      while (partitions.hasNext()) {
+        expired.add(partitions.next());
+      }
+    }
+    // the working set is only updated after the scan of its index is closed
+    ConsumablePartitions.expire(expired, configuration);
+    for (ConsumablePartition partition : expired) {
+      workingSet.update(partition);
+    }
+  }
+}
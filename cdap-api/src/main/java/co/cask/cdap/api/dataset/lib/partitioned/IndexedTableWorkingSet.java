@@ -0,0 +1,233 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.dataset.lib.partitioned;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.AbstractCloseableIterator;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.api.dataset.lib.IndexedTable;
+import co.cask.cdap.api.dataset.lib.IndexedTableDefinition;
+import co.cask.cdap.api.dataset.lib.PartitionConsumerState;
+import co.cask.cdap.api.dataset.lib.PartitionDetail;
+import co.cask.cdap.api.dataset.lib.PartitionKey;
+import co.cask.cdap.api.dataset.table.Put;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A working set of partitions that stores each {@link ConsumablePartition} in its own row of an {@link IndexedTable},
+ * rather than serializing the entire working set into a single value, as {@link ConsumerWorkingSet} does.
+ * Partitions are indexed by their {@link ProcessState} and, while IN_PROGRESS, by the time they were taken, so that
+ * taking, finishing and expiring partitions only reads and writes the rows of the affected partitions.
+ *
+ * The {@link IndexedTable} must be configured to index the {@link #INDEX_COLUMN}, by setting
+ * {@link IndexedTableDefinition#INDEX_COLUMNS_CONF_KEY} to its value. Multiple consumers can share the same table,
+ * as long as they use different consumer names.
+ */
+public class IndexedTableWorkingSet {
+
+  /**
+   * The column that must be configured for indexing in the {@link IndexedTable} used by this working set.
+   */
+  public static final String INDEX_COLUMN = "x";
+
+  private static final Gson GSON =
+    new GsonBuilder().registerTypeAdapter(PartitionKey.class, new PartitionKeyCodec()).create();
+
+  private static final byte[] INDEX_COL = Bytes.toBytes(INDEX_COLUMN);
+  private static final byte[] STATE_COL = { 's' };
+  private static final byte[] TIMESTAMP_COL = { 't' };
+  private static final byte[] NUM_FAILURES_COL = { 'f' };
+  // determines the order in which AVAILABLE partitions are taken; this is the creation time of the partition
+  private static final byte[] ORDER_COL = { 'o' };
+  private static final byte[] CONSUMER_STATE_COL = { 'c' };
+
+  private final IndexedTable table;
+  // the prefix of all row keys and index values of this consumer
+  private final byte[] prefix;
+  private final byte[] partitionRowPrefix;
+  private final byte[] metaRowKey;
+  // the order of partitions read through this working set, needed to index them when they become AVAILABLE again
+  private final Map<PartitionKey, Long> orders = new HashMap<>();
+
+  /**
+   * @param table the {@link IndexedTable} to store the working set in
+   * @param consumerName the name of the consumer, which determines the rows of the table used by this working set
+   */
+  public IndexedTableWorkingSet(IndexedTable table, String consumerName) {
+    this.table = table;
+    this.prefix = Bytes.concat(Bytes.toBytes(consumerName), new byte[] { 0 });
+    this.partitionRowPrefix = Bytes.concat(prefix, new byte[] { 'p' });
+    this.metaRowKey = Bytes.concat(prefix, new byte[] { 'm' });
+  }
+
+  /**
+   * @return the {@link PartitionConsumerState} up to which partitions have been added to the working set
+   */
+  public PartitionConsumerState getPartitionConsumerState() {
+    byte[] bytes = table.get(metaRowKey, CONSUMER_STATE_COL);
+    return bytes == null ? PartitionConsumerState.FROM_BEGINNING : PartitionConsumerState.fromBytes(bytes);
+  }
+
+  /**
+   * Sets the {@link PartitionConsumerState} up to which partitions have been added to the working set.
+   */
+  public void setPartitionConsumerState(PartitionConsumerState partitionConsumerState) {
+    table.put(metaRowKey, CONSUMER_STATE_COL, partitionConsumerState.toBytes());
+  }
+
+  /**
+   * @return the number of partitions in the working set. This only reads the keys of the index.
+   */
+  public int size() {
+    return size(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Counts the partitions in the working set, but stops counting at the given limit, so that at most that many keys
+   * of the index are read.
+   *
+   * @param limit the maximum number of partitions to count
+   * @return the number of partitions in the working set, or the limit if there are more partitions
+   */
+  public int size(int limit) {
+    int size = 0;
+    try (CloseableIterator<byte[]> rowKeys =
+           table.scanRowKeysByIndex(INDEX_COL, prefix, Bytes.stopKeyForPrefix(prefix))) {
+      while (size < limit && rowKeys.hasNext()) {
+        rowKeys.next();
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Adds a new partition to the working set, as AVAILABLE.
+   */
+  public void addPartition(PartitionDetail partition) {
+    PartitionKey partitionKey = partition.getPartitionKey();
+    orders.put(partitionKey, partition.getMetadata().getCreationTime());
+    update(new DefaultConsumablePartition(partitionKey));
+  }
+
+  /**
+   * @return the ConsumablePartition with the given PartitionKey, from the working set
+   */
+  public ConsumablePartition lookup(PartitionKey partitionKey) {
+    Row row = table.get(rowKey(partitionKey));
+    if (row.isEmpty()) {
+      throw new IllegalArgumentException("PartitionKey not found: " + partitionKey);
+    }
+    return fromRow(row);
+  }
+
+  /**
+   * Writes the state of the given partition, which must have been read from or added to this working set.
+   * Partitions that are COMPLETED are removed from the working set.
+   */
+  public void update(ConsumablePartition partition) {
+    PartitionKey partitionKey = partition.getPartitionKey();
+    if (partition.getProcessState() == ProcessState.COMPLETED) {
+      remove(partitionKey);
+      return;
+    }
+    Long order = orders.get(partitionKey);
+    if (order == null) {
+      throw new IllegalArgumentException("PartitionKey was not read from the working set: " + partitionKey);
+    }
+    long indexedTime = partition.getProcessState() == ProcessState.IN_PROGRESS ? partition.getTimestamp() : order;
+    table.put(new Put(rowKey(partitionKey))
+                .add(STATE_COL, new byte[] { partition.getProcessState().toByte() })
+                .add(TIMESTAMP_COL, partition.getTimestamp())
+                .add(NUM_FAILURES_COL, partition.getNumFailures())
+                .add(ORDER_COL, order)
+                .add(INDEX_COL, indexValue(partition.getProcessState(), indexedTime)));
+  }
+
+  /**
+   * Removes the partition with the given PartitionKey from the working set.
+   */
+  public void remove(PartitionKey partitionKey) {
+    table.delete(rowKey(partitionKey));
+    orders.remove(partitionKey);
+  }
+
+  /**
+   * Returns the partitions of the working set that are in the given state, AVAILABLE and DISCARDED partitions in the
+   * order in which the partitions were created, and IN_PROGRESS partitions in the order in which they were taken.
+   * The returned iterator must be closed after use, and the working set must not be modified before that.
+   */
+  public CloseableIterator<ConsumablePartition> getPartitions(ProcessState processState) {
+    return getPartitions(processState, Long.MAX_VALUE);
+  }
+
+  /**
+   * @return the IN_PROGRESS partitions of the working set that were taken before the given time. The returned
+   *         iterator must be closed after use, and the working set must not be modified before that.
+   */
+  public CloseableIterator<ConsumablePartition> getInProgressPartitions(long takenBefore) {
+    return getPartitions(ProcessState.IN_PROGRESS, Math.max(takenBefore, 0L));
+  }
+
+  private CloseableIterator<ConsumablePartition> getPartitions(ProcessState processState, long endTime) {
+    final Scanner scanner = table.scanByIndex(INDEX_COL, indexValue(processState, 0L),
+                                              indexValue(processState, endTime));
+    return new AbstractCloseableIterator<ConsumablePartition>() {
+      @Override
+      protected ConsumablePartition computeNext() {
+        Row row = scanner.next();
+        return row == null ? endOfData() : fromRow(row);
+      }
+
+      @Override
+      public void close() {
+        scanner.close();
+      }
+    };
+  }
+
+  private ConsumablePartition fromRow(Row row) {
+    byte[] rowKey = row.getRow();
+    int keyOffset = partitionRowPrefix.length;
+    PartitionKey partitionKey =
+      GSON.fromJson(Bytes.toString(rowKey, keyOffset, rowKey.length - keyOffset), PartitionKey.class);
+    orders.put(partitionKey, row.getLong(ORDER_COL));
+    return new DefaultConsumablePartition(partitionKey, ProcessState.fromByte(row.get(STATE_COL)[0]),
+                                          row.getLong(TIMESTAMP_COL), row.getInt(NUM_FAILURES_COL));
+  }
+
+  // the row key of a partition is its key as json, with the fields sorted by name so that it is the same for equal keys
+  private byte[] rowKey(PartitionKey partitionKey) {
+    PartitionKey.Builder builder = PartitionKey.builder();
+    for (Map.Entry<String, Comparable> field : new TreeMap<>(partitionKey.getFields()).entrySet()) {
+      builder.addField(field.getKey(), field.getValue());
+    }
+    return Bytes.concat(partitionRowPrefix, Bytes.toBytes(GSON.toJson(builder.build())));
+  }
+
+  // times are never negative, so their big-endian bytes sort in the same order as their values
+  private byte[] indexValue(ProcessState processState, long time) {
+    return Bytes.concat(prefix, new byte[] { processState.toByte() }, Bytes.toBytes(time));
+  }
+}
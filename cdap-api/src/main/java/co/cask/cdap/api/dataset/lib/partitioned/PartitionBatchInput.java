@@ -19,6 +19,7 @@ package co.cask.cdap.api.dataset.lib.partitioned;
 import co.cask.cdap.api.annotation.Beta;
 import co.cask.cdap.api.data.batch.Input;
 import co.cask.cdap.api.dataset.lib.DatasetStatePersistor;
+import co.cask.cdap.api.dataset.lib.IndexedTable;
 import co.cask.cdap.api.dataset.lib.Partition;
 import co.cask.cdap.api.dataset.lib.PartitionDetail;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSet;
@@ -66,11 +67,41 @@ public class PartitionBatchInput {
                                                  DatasetStatePersistor statePersistor,
                                                  ConsumerConfiguration consumerConfiguration) {
     PartitionedFileSet partitionedFileSet = mapreduceContext.getDataset(partitionedFileSetName);
-    final PartitionConsumer partitionConsumer =
+    PartitionConsumer partitionConsumer =
       new ConcurrentPartitionConsumer(partitionedFileSet,
                                       new DelegatingStatePersistor(mapreduceContext, statePersistor),
                                       consumerConfiguration);
+    return setInput(mapreduceContext, partitionedFileSetName, partitionConsumer);
+  }
+
+  /**
+   * Like {@link #setInput(MapReduceContext, String, DatasetStatePersistor, ConsumerConfiguration)}, but uses an
+   * {@link IndexedTablePartitionConsumer}, which keeps the working set of the consumer in an {@link IndexedTable}
+   * rather than in a single value managed by a {@link DatasetStatePersistor}.
+   *
+   * @param mapreduceContext MapReduce context used to access the PartitionedFileSet, and on which the input is
+   *                         configured
+   * @param partitionedFileSetName the name of the {@link PartitionedFileSet} to consume partitions from
+   * @param stateTableName the name of the {@link IndexedTable} to keep the working set in. It must index the
+   *                       {@link IndexedTableWorkingSet#INDEX_COLUMN}.
+   * @param consumerName the name of the consumer, which determines the rows of the state table used by the consumer
+   * @param consumerConfiguration defines parameters for the partition consumption
+   * @return a BatchPartitionCommitter used to persist the state of the partition consumer
+   */
+  public static BatchPartitionCommitter setInput(MapReduceContext mapreduceContext,
+                                                 String partitionedFileSetName,
+                                                 String stateTableName,
+                                                 String consumerName,
+                                                 ConsumerConfiguration consumerConfiguration) {
+    PartitionedFileSet partitionedFileSet = mapreduceContext.getDataset(partitionedFileSetName);
+    IndexedTable stateTable = mapreduceContext.getDataset(stateTableName);
+    PartitionConsumer partitionConsumer =
+      new IndexedTablePartitionConsumer(partitionedFileSet, stateTable, consumerName, consumerConfiguration);
+    return setInput(mapreduceContext, partitionedFileSetName, partitionConsumer);
+  }
 
+  private static BatchPartitionCommitter setInput(MapReduceContext mapreduceContext, String partitionedFileSetName,
+                                                  final PartitionConsumer partitionConsumer) {
     final List<PartitionDetail> consumedPartitions = partitionConsumer.consumePartitions().getPartitions();
 
     Map<String, String> arguments = new HashMap<>();
@@ -19,15 +19,23 @@ package co.cask.cdap.api.dataset.table;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.batch.Split;
 
+import java.util.Arrays;
+
 /**
- * Table splits are simply a start and stop key.
+ * Table splits are simply a start and stop key, optionally with the hosts that serve the keys in between.
  */
 public class TableSplit extends Split {
   private final byte[] start, stop;
+  private final String[] locations;
 
   public TableSplit(byte[] start, byte[] stop) {
+    this(start, stop, new String[0]);
+  }
+
+  public TableSplit(byte[] start, byte[] stop, String[] locations) {
     this.start = start;
     this.stop = stop;
+    this.locations = locations;
   }
 
   public byte[] getStart() {
@@ -38,11 +46,18 @@ public class TableSplit extends Split {
     return stop;
   }
 
+  @Override
+  public String[] getLocations() {
+    // splits serialized before locations were introduced have no locations field
+    return locations == null ? new String[0] : locations;
+  }
+
   @Override
   public String toString() {
     return "TableSplit{" +
       "start=" + Bytes.toStringBinary(start) +
       ", stop=" + Bytes.toStringBinary(stop) +
+      ", locations=" + Arrays.toString(getLocations()) +
       '}';
   }
 }
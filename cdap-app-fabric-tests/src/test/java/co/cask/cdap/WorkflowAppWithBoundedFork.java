@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap;
+
+import co.cask.cdap.api.app.AbstractApplication;
+import co.cask.cdap.api.workflow.AbstractWorkflow;
+import co.cask.cdap.api.workflow.AbstractWorkflowAction;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Workflow app with a fork, for testing the bound on the number of actions that run concurrently.
+ */
+public class WorkflowAppWithBoundedFork extends AbstractApplication {
+  public static final String RUNNING_DIR = "running.dir";
+  public static final String DONE_DIR = "done.dir";
+  public static final String OVERLAP_FILE = "overlap.file";
+
+  @Override
+  public void configure() {
+    setDescription("Workflow App containing a fork with three branches.");
+    addWorkflow(new WorkflowWithBoundedFork());
+  }
+
+  /**
+   * Workflow with a fork of three actions.
+   */
+  public static class WorkflowWithBoundedFork extends AbstractWorkflow {
+
+    @Override
+    public void configure() {
+      setDescription("A workflow that runs three actions in a fork.");
+      fork()
+        .addAction(new RecordingAction("branch1"))
+      .also()
+        .addAction(new RecordingAction("branch2"))
+      .also()
+        .addAction(new RecordingAction("branch3"))
+      .join();
+    }
+  }
+
+  /**
+   * Action that records whether it ran at the same time as another action, by creating a file in the running
+   * directory while it runs.
+   */
+  static final class RecordingAction extends AbstractWorkflowAction {
+
+    RecordingAction(String name) {
+      super(name);
+    }
+
+    @Override
+    public void run() {
+      String name = getContext().getSpecification().getName();
+      Map<String, String> runtimeArguments = getContext().getRuntimeArguments();
+      File runningDir = new File(runtimeArguments.get(RUNNING_DIR));
+      File runningFile = new File(runningDir, name);
+      try {
+        Preconditions.checkState(runningFile.createNewFile(), "Failed to create file '%s'", runningFile);
+        String[] running = runningDir.list();
+        if (running != null && running.length > 1) {
+          new File(runtimeArguments.get(OVERLAP_FILE)).createNewFile();
+        }
+        TimeUnit.MILLISECONDS.sleep(500);
+        Preconditions.checkState(runningFile.delete(), "Failed to delete file '%s'", runningFile);
+        File doneFile = new File(runtimeArguments.get(DONE_DIR), name);
+        Preconditions.checkState(doneFile.createNewFile(), "Failed to create file '%s'", doneFile);
+      } catch (IOException | InterruptedException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+  }
+}
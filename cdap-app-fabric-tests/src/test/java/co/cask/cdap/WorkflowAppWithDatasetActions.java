@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap;
+
+import co.cask.cdap.api.annotation.UseDataSet;
+import co.cask.cdap.api.app.AbstractApplication;
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.KeyValueTable;
+import co.cask.cdap.api.workflow.AbstractWorkflow;
+import co.cask.cdap.api.workflow.AbstractWorkflowAction;
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Workflow app with custom actions that use a dataset, where an action reads what the action before it wrote.
+ */
+public class WorkflowAppWithDatasetActions extends AbstractApplication {
+  public static final String TABLE = "WorkflowActionTable";
+  public static final String VALUE = "value";
+  public static final String OUTPUT_FILE = "output.file";
+  private static final String KEY = "key";
+
+  @Override
+  public void configure() {
+    setDescription("Workflow App containing custom actions that use a dataset.");
+    createDataset(TABLE, KeyValueTable.class);
+    addWorkflow(new WorkflowWithDatasetActions());
+  }
+
+  /**
+   * Workflow that writes a value to a dataset and reads it in the next action.
+   */
+  public static class WorkflowWithDatasetActions extends AbstractWorkflow {
+
+    @Override
+    public void configure() {
+      setDescription("A workflow with custom actions that use a dataset.");
+      addAction(new WriterAction());
+      addAction(new ReaderAction());
+    }
+  }
+
+  /**
+   * Action that writes the value from the runtime arguments to the dataset.
+   */
+  public static final class WriterAction extends AbstractWorkflowAction {
+    @UseDataSet(TABLE)
+    private KeyValueTable table;
+
+    @Override
+    public void run() {
+      table.write(KEY, getContext().getRuntimeArguments().get(VALUE));
+    }
+  }
+
+  /**
+   * Action that reads the value written by the {@link WriterAction} and writes it to the output file.
+   */
+  public static final class ReaderAction extends AbstractWorkflowAction {
+    @UseDataSet(TABLE)
+    private KeyValueTable table;
+
+    @Override
+    public void run() {
+      byte[] value = table.read(KEY);
+      Preconditions.checkState(value != null, "No value written for key '%s'", KEY);
+      try {
+        Files.write(Bytes.toString(value), new File(getContext().getRuntimeArguments().get(OUTPUT_FILE)),
+                    Charsets.UTF_8);
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+  }
+}
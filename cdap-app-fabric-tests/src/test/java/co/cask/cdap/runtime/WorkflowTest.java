@@ -23,6 +23,8 @@ import co.cask.cdap.NonUniqueProgramsInWorkflowWithForkApp;
 import co.cask.cdap.OneActionWorkflowApp;
 import co.cask.cdap.ScheduleAppWithMissingWorkflow;
 import co.cask.cdap.WorkflowApp;
+import co.cask.cdap.WorkflowAppWithBoundedFork;
+import co.cask.cdap.WorkflowAppWithDatasetActions;
 import co.cask.cdap.WorkflowSchedulesWithSameNameApp;
 import co.cask.cdap.app.program.Program;
 import co.cask.cdap.app.program.ProgramDescriptor;
@@ -32,6 +34,8 @@ import co.cask.cdap.app.runtime.ProgramRunner;
 import co.cask.cdap.app.runtime.ProgramRunnerFactory;
 import co.cask.cdap.app.store.Store;
 import co.cask.cdap.common.app.RunIds;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.internal.AppFabricTestHelper;
 import co.cask.cdap.internal.app.deploy.pipeline.ApplicationWithPrograms;
 import co.cask.cdap.internal.app.runtime.AbstractListener;
@@ -40,11 +44,14 @@ import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
 import co.cask.cdap.internal.app.runtime.SimpleProgramOptions;
 import co.cask.cdap.proto.ProgramType;
 import co.cask.cdap.test.XSlowTests;
+import com.google.common.base.Charsets;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
+import com.google.common.io.Files;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.inject.Injector;
 import org.apache.twill.common.Threads;
@@ -61,6 +68,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
@@ -260,6 +268,88 @@ public class WorkflowTest {
     Assert.assertEquals("Completed", run);
   }
 
+  @Test(timeout = 120 * 1000L)
+  public void testForkWithBoundedConcurrentActions() throws Exception {
+    CConfiguration cConf = AppFabricTestHelper.getInjector().getInstance(CConfiguration.class);
+    String maxConcurrentActions = cConf.get(Constants.AppFabric.WORKFLOW_MAX_CONCURRENT_ACTIONS);
+    cConf.setInt(Constants.AppFabric.WORKFLOW_MAX_CONCURRENT_ACTIONS, 1);
+    try {
+      File runningDir = tmpFolder.newFolder();
+      File doneDir = tmpFolder.newFolder();
+      File overlapFile = new File(tmpFolder.newFolder(), "overlap");
+      runWorkflow(WorkflowAppWithBoundedFork.class, ImmutableMap.of(
+        WorkflowAppWithBoundedFork.RUNNING_DIR, runningDir.getAbsolutePath(),
+        WorkflowAppWithBoundedFork.DONE_DIR, doneDir.getAbsolutePath(),
+        WorkflowAppWithBoundedFork.OVERLAP_FILE, overlapFile.getAbsolutePath()));
+
+      // all branches ran, one at a time
+      Assert.assertEquals(ImmutableSet.of("branch1", "branch2", "branch3"), ImmutableSet.copyOf(doneDir.list()));
+      Assert.assertFalse(overlapFile.exists());
+    } finally {
+      cConf.set(Constants.AppFabric.WORKFLOW_MAX_CONCURRENT_ACTIONS, maxConcurrentActions);
+    }
+  }
+
+  @Test(timeout = 120 * 1000L)
+  public void testCustomActionsWithDataset() throws Exception {
+    File outputFile = new File(tmpFolder.newFolder(), "output");
+    runWorkflow(WorkflowAppWithDatasetActions.class, ImmutableMap.of(
+      WorkflowAppWithDatasetActions.VALUE, "written",
+      WorkflowAppWithDatasetActions.OUTPUT_FILE, outputFile.getAbsolutePath()));
+
+    // the second action reads what the first one wrote
+    Assert.assertEquals("written", Files.toString(outputFile, Charsets.UTF_8));
+  }
+
+  /**
+   * Deploys the given application and runs its Workflow until it completes.
+   */
+  private void runWorkflow(Class<?> appClass, Map<String, String> userArgs) throws Exception {
+    ApplicationWithPrograms app = AppFabricTestHelper.deployApplicationWithManager(appClass, TEMP_FOLDER_SUPPLIER);
+    final Injector injector = AppFabricTestHelper.getInjector();
+    ProgramRunnerFactory runnerFactory = injector.getInstance(ProgramRunnerFactory.class);
+
+    ProgramDescriptor programDescriptor = Iterators.filter(
+      app.getPrograms().iterator(), new Predicate<ProgramDescriptor>() {
+        @Override
+        public boolean apply(ProgramDescriptor input) {
+          return input.getProgramId().getType() == ProgramType.WORKFLOW;
+        }
+      }).next();
+
+    ProgramRunner programRunner = runnerFactory.create(programDescriptor.getProgramId().getType());
+    final String runId = RunIds.generate().getId();
+    BasicArguments systemArgs = new BasicArguments(ImmutableMap.of(
+      ProgramOptionConstants.RUN_ID, runId,
+      ProgramOptionConstants.HOST, InetAddress.getLoopbackAddress().getCanonicalHostName()
+    ));
+
+    final Program program = AppFabricTestHelper.createProgram(programDescriptor, app.getArtifactLocation(),
+                                                              programRunner, TEMP_FOLDER_SUPPLIER);
+    ProgramOptions options = new SimpleProgramOptions(program.getName(), systemArgs, new BasicArguments(userArgs));
+
+    final SettableFuture<String> completion = SettableFuture.create();
+    programRunner.run(program, options).addListener(new AbstractListener() {
+      @Override
+      public void init(ProgramController.State currentState, @Nullable Throwable cause) {
+        injector.getInstance(Store.class).setStart(program.getId(), runId, System.currentTimeMillis());
+      }
+
+      @Override
+      public void completed() {
+        completion.set("Completed");
+      }
+
+      @Override
+      public void error(Throwable cause) {
+        LOG.info("Error", cause);
+        completion.setException(cause);
+      }
+    }, Threads.SAME_THREAD_EXECUTOR);
+
+    Assert.assertEquals("Completed", completion.get());
+  }
+
   private String createInput() throws IOException {
     File inputDir = tmpFolder.newFolder();
 
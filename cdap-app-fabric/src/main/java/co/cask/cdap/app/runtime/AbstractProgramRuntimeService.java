@@ -25,14 +25,15 @@ import co.cask.cdap.common.app.RunIds;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
-import co.cask.cdap.common.lang.jar.BundleJarUtil;
 import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.internal.app.program.ForwardingProgram;
 import co.cask.cdap.internal.app.runtime.AbstractListener;
 import co.cask.cdap.internal.app.runtime.BasicArguments;
 import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
 import co.cask.cdap.internal.app.runtime.SimpleProgramOptions;
 import co.cask.cdap.internal.app.runtime.artifact.ArtifactDetail;
 import co.cask.cdap.internal.app.runtime.artifact.ArtifactRepository;
+import co.cask.cdap.internal.app.runtime.artifact.ArtifactUnpackCache;
 import co.cask.cdap.internal.app.runtime.artifact.Artifacts;
 import co.cask.cdap.internal.app.runtime.service.SimpleRuntimeInfo;
 import co.cask.cdap.proto.Id;
@@ -49,7 +50,6 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import com.google.common.io.Closeables;
-import com.google.common.io.Files;
 import com.google.common.util.concurrent.AbstractIdleService;
 import org.apache.twill.api.RunId;
 import org.apache.twill.common.Threads;
@@ -86,14 +86,16 @@ public abstract class AbstractProgramRuntimeService extends AbstractIdleService
   private final Table<ProgramType, RunId, RuntimeInfo> runtimeInfos;
   private final ProgramRunnerFactory programRunnerFactory;
   private final ArtifactRepository artifactRepository;
+  private final ArtifactUnpackCache unpackCache;
 
   protected AbstractProgramRuntimeService(CConfiguration cConf, ProgramRunnerFactory programRunnerFactory,
-                                          ArtifactRepository artifactRepository) {
+                                          ArtifactRepository artifactRepository, ArtifactUnpackCache unpackCache) {
     this.cConf = cConf;
     this.runtimeInfosLock = new ReentrantReadWriteLock();
     this.runtimeInfos = HashBasedTable.create();
     this.programRunnerFactory = programRunnerFactory;
     this.artifactRepository = artifactRepository;
+    this.unpackCache = unpackCache;
   }
 
   @Override
@@ -136,12 +138,25 @@ public abstract class AbstractProgramRuntimeService extends AbstractIdleService
     // Take a snapshot of the JAR file to avoid program mutation
     File programJar = Locations.linkOrCopy(programJarLocation, new File(tempDir, "program.jar"));
 
-    // Unpack the JAR file
-    File unpackedDir = new File(tempDir, "unpacked");
-    unpackedDir.mkdirs();
-    BundleJarUtil.unJar(Files.newInputStreamSupplier(programJar), unpackedDir);
-
-    return Programs.create(cConf, programRunner, programDescriptor, programJarLocation, unpackedDir);
+    // Get the unpacked JAR from the cache, which is released when the program is closed
+    final ArtifactUnpackCache.Unpacked unpacked = unpackCache.acquire(Locations.toLocation(programJar));
+    try {
+      Program program = Programs.create(cConf, programRunner, programDescriptor,
+                                        programJarLocation, unpacked.getDirectory());
+      return new ForwardingProgram(program) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            unpacked.close();
+          }
+        }
+      };
+    } catch (IOException | RuntimeException e) {
+      unpacked.close();
+      throw e;
+    }
   }
 
   private Runnable createCleanupTask(final Object... resources) {
@@ -237,6 +237,23 @@ public interface Store {
    */
   Collection<ApplicationSpecification> getAllApplications(Id.Namespace id);
 
+  /**
+   * Returns the application specifications of the given applications, fetched in a single transaction.
+   *
+   * @param ids application ids
+   * @return map from application id to specification, which does not contain applications that do not exist
+   */
+  Map<Id.Application, ApplicationSpecification> getApplications(Set<Id.Application> ids);
+
+  /**
+   * Returns the number of running runs of each of the given programs, fetched in a single transaction.
+   * Suspended runs are not counted, the same as in {@link #getRuns} with {@link ProgramRunStatus#RUNNING}.
+   *
+   * @param ids program ids
+   * @return map from each of the given program ids to its number of running runs
+   */
+  Map<Id.Program, Integer> getRunningRunCounts(Set<Id.Program> ids);
+
   /**
    * Sets number of instances of specific flowlet.
    *
@@ -546,12 +546,23 @@ public class ProgramLifecycleHttpHandler extends AbstractAppFabricHttpHandler {
 
     List<BatchProgram> programs = validateAndGetBatchInput(request, BATCH_PROGRAMS_TYPE);
 
-    List<BatchProgramStatus> statuses = new ArrayList<>(programs.size());
+    List<ProgramId> programIds = new ArrayList<>(programs.size());
     for (BatchProgram program : programs) {
-      ProgramId programId =
-        Ids.namespace(namespaceId).app(program.getAppId()).program(program.getProgramType(), program.getProgramId());
+      programIds.add(
+        Ids.namespace(namespaceId).app(program.getAppId()).program(program.getProgramType(), program.getProgramId()));
+    }
+    Map<ProgramId, ProgramStatus> programStatuses = lifecycleService.getProgramStatuses(programIds);
+
+    List<BatchProgramStatus> statuses = new ArrayList<>(programs.size());
+    for (int i = 0; i < programs.size(); i++) {
+      BatchProgram program = programs.get(i);
+      ProgramId programId = programIds.get(i);
       try {
-        ProgramStatus programStatus = lifecycleService.getProgramStatus(programId);
+        ProgramStatus programStatus = programStatuses.get(programId);
+        if (programStatus == null) {
+          // the program was not found, look it up individually to report the reason
+          programStatus = lifecycleService.getProgramStatus(programId);
+        }
         statuses.add(new BatchProgramStatus(
           program, HttpResponseStatus.OK.getCode(), null, programStatus.name()));
       } catch (NotFoundException e) {
@@ -18,7 +18,7 @@ package co.cask.cdap.internal.app.runtime;
 
 import co.cask.cdap.app.runtime.ProgramOptions;
 import co.cask.cdap.app.runtime.ProgramRunner;
-import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.internal.app.runtime.artifact.ArtifactUnpackCache;
 import co.cask.cdap.internal.app.runtime.plugin.PluginInstantiator;
 
 import java.io.File;
@@ -29,10 +29,10 @@ import javax.annotation.Nullable;
  */
 public abstract class AbstractProgramRunnerWithPlugin implements ProgramRunner {
 
-  private final CConfiguration cConf;
+  private final ArtifactUnpackCache unpackCache;
 
-  public AbstractProgramRunnerWithPlugin(CConfiguration cConf) {
-    this.cConf = cConf;
+  public AbstractProgramRunnerWithPlugin(ArtifactUnpackCache unpackCache) {
+    this.unpackCache = unpackCache;
   }
 
   /**
@@ -49,6 +49,6 @@ public abstract class AbstractProgramRunnerWithPlugin implements ProgramRunner {
       return null;
     }
     return new PluginInstantiator(
-      cConf, classLoader, new File(options.getArguments().getOption(ProgramOptionConstants.PLUGIN_DIR)));
+      unpackCache, classLoader, new File(options.getArguments().getOption(ProgramOptionConstants.PLUGIN_DIR)));
   }
 }
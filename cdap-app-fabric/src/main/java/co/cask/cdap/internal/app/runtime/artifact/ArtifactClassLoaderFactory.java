@@ -19,12 +19,9 @@ package co.cask.cdap.internal.app.runtime.artifact;
 import co.cask.cdap.app.runtime.ProgramRunner;
 import co.cask.cdap.app.runtime.ProgramRunnerFactory;
 import co.cask.cdap.common.conf.CConfiguration;
-import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.lang.FilterClassLoader;
 import co.cask.cdap.common.lang.ProgramClassLoader;
 import co.cask.cdap.common.lang.ProgramClassLoaderProvider;
-import co.cask.cdap.common.lang.jar.BundleJarUtil;
-import co.cask.cdap.common.utils.DirUtils;
 import co.cask.cdap.proto.ProgramType;
 import com.google.common.io.Closeables;
 import org.apache.twill.filesystem.Location;
@@ -36,21 +33,21 @@ import java.io.File;
 import java.io.IOException;
 
 /**
- * Given an artifact, creates a {@link CloseableClassLoader} from it. Takes care of unpacking the artifact and
- * cleaning up the directory when the classloader is closed.
+ * Given an artifact, creates a {@link CloseableClassLoader} from it. Takes care of unpacking the artifact through
+ * the {@link ArtifactUnpackCache} and releasing the unpacked directory when the classloader is closed.
  */
 final class ArtifactClassLoaderFactory {
   private static final Logger LOG = LoggerFactory.getLogger(ArtifactClassLoaderFactory.class);
 
   private final CConfiguration cConf;
   private final ProgramRunnerFactory programRunnerFactory;
-  private final File tmpDir;
+  private final ArtifactUnpackCache unpackCache;
 
-  ArtifactClassLoaderFactory(CConfiguration cConf, ProgramRunnerFactory programRunnerFactory) {
+  ArtifactClassLoaderFactory(CConfiguration cConf, ProgramRunnerFactory programRunnerFactory,
+                             ArtifactUnpackCache unpackCache) {
     this.cConf = cConf;
     this.programRunnerFactory = programRunnerFactory;
-    this.tmpDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
-                           cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
+    this.unpackCache = unpackCache;
   }
 
   /**
@@ -61,11 +58,12 @@ final class ArtifactClassLoaderFactory {
    *
    * @param artifactLocation the location of the artifact to create the classloader from
    * @return a closeable classloader based off the specified artifact; on closing the returned {@link ClassLoader},
-   *         all temporary resources created for the classloader will be removed
+   *         all resources acquired for the classloader will be released
    * @throws IOException if there was an error copying or unpacking the artifact
    */
   CloseableClassLoader createClassLoader(Location artifactLocation) throws IOException {
-    final File unpackDir = BundleJarUtil.unJar(artifactLocation, DirUtils.createTempDir(tmpDir));
+    final ArtifactUnpackCache.Unpacked unpacked = unpackCache.acquire(artifactLocation);
+    File unpackDir = unpacked.getDirectory();
 
     ProgramRunner programRunner = null;
     ProgramClassLoader programClassLoader = null;
@@ -91,15 +89,11 @@ final class ArtifactClassLoaderFactory {
     return new CloseableClassLoader(programClassLoader, new Closeable() {
       @Override
       public void close() {
-        try {
-          Closeables.closeQuietly(finalProgramClassLoader);
-          if (finalProgramRunner instanceof Closeable) {
-            Closeables.closeQuietly((Closeable) finalProgramRunner);
-          }
-          DirUtils.deleteDirectoryContents(unpackDir);
-        } catch (IOException e) {
-          LOG.warn("Failed to delete directory {}", unpackDir, e);
+        Closeables.closeQuietly(finalProgramClassLoader);
+        if (finalProgramRunner instanceof Closeable) {
+          Closeables.closeQuietly((Closeable) finalProgramRunner);
         }
+        unpacked.close();
       }
     });
   }
@@ -40,15 +40,16 @@ import co.cask.cdap.common.utils.DirUtils;
 import co.cask.cdap.internal.app.runtime.plugin.PluginInstantiator;
 import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
 import co.cask.cdap.proto.Id;
-import com.google.common.base.Function;
-import com.google.common.base.Predicate;
-import com.google.common.base.Throwables;
-import com.google.common.collect.AbstractIterator;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterators;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
 import com.google.common.primitives.Primitives;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.twill.common.Threads;
 import org.apache.twill.filesystem.Location;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassReader;
@@ -69,10 +70,15 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
@@ -81,19 +87,45 @@ import javax.annotation.Nullable;
 import javax.ws.rs.Path;
 
 /**
- * Inspects a jar file to determine metadata about the artifact.
+ * Inspects a jar file to determine metadata about the artifact. Class files are scanned for plugin annotations in
+ * parallel, and inspection results are cached by the id and checksum of the artifact file and of its parent artifact.
  */
 final class ArtifactInspector {
   private static final Logger LOG = LoggerFactory.getLogger(ArtifactInspector.class);
+  private static final int MAX_CACHED_INSPECTIONS = 1000;
 
   private final CConfiguration cConf;
   private final ArtifactClassLoaderFactory artifactClassLoaderFactory;
+  private final ArtifactUnpackCache unpackCache;
   private final ReflectionSchemaGenerator schemaGenerator;
+  private final ExecutorService classScanExecutor;
+  private final Cache<String, ArtifactClasses> inspectedArtifacts;
 
-  ArtifactInspector(CConfiguration cConf, ArtifactClassLoaderFactory artifactClassLoaderFactory) {
+  ArtifactInspector(CConfiguration cConf, ArtifactClassLoaderFactory artifactClassLoaderFactory,
+                    ArtifactUnpackCache unpackCache) {
     this.cConf = cConf;
     this.artifactClassLoaderFactory = artifactClassLoaderFactory;
+    this.unpackCache = unpackCache;
     this.schemaGenerator = new ReflectionSchemaGenerator(false);
+    // Threads are only needed while artifacts are inspected, hence they terminate when idle
+    int numThreads = Runtime.getRuntime().availableProcessors();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads, numThreads, 60L, TimeUnit.SECONDS,
+                                                         new LinkedBlockingQueue<Runnable>(),
+                                                         Threads.createDaemonThreadFactory("artifact-inspector-%d"));
+    executor.allowCoreThreadTimeOut(true);
+    this.classScanExecutor = executor;
+    this.inspectedArtifacts = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_INSPECTIONS).build();
+  }
+
+  /**
+   * Inspect the given artifact to determine the classes contained in the artifact, with a parent classloader that
+   * is created from the artifact file itself.
+   *
+   * @see #inspectArtifact(Id.Artifact, File, ClassLoader, ArtifactDescriptor)
+   */
+  ArtifactClasses inspectArtifact(Id.Artifact artifactId, File artifactFile,
+                                  ClassLoader parentClassLoader) throws IOException, InvalidArtifactException {
+    return inspectArtifact(artifactId, artifactFile, parentClassLoader, null);
   }
 
   /**
@@ -103,20 +135,42 @@ final class ArtifactInspector {
    * @param artifactFile the artifact file
    * @param parentClassLoader the parent classloader to use when inspecting plugins contained in the artifact.
    *                          For example, a ProgramClassLoader created from the artifact the input artifact extends
+   * @param parentArtifact the artifact the parent classloader is created from, or {@code null} if it is created from
+   *                       the artifact file itself
    * @return metadata about the classes contained in the artifact
    * @throws IOException if there was an exception opening the jar file
    * @throws InvalidArtifactException if the artifact is invalid. For example, if the application main class is not
    *                                  actually an Application.
    */
-  ArtifactClasses inspectArtifact(Id.Artifact artifactId, File artifactFile,
-                                  ClassLoader parentClassLoader) throws IOException, InvalidArtifactException {
+  ArtifactClasses inspectArtifact(Id.Artifact artifactId, File artifactFile, ClassLoader parentClassLoader,
+                                  @Nullable ArtifactDescriptor parentArtifact)
+    throws IOException, InvalidArtifactException {
+    // Only successful inspections are cached. The artifact id is part of the key since plugin classes are
+    // inspected with the artifact id, and the parent artifact since plugin classes are loaded with its classes.
+    String cacheKey = artifactId + ":" + Files.hash(artifactFile, Hashing.md5());
+    if (parentArtifact != null) {
+      cacheKey += ":" + parentArtifact.getArtifactId() + ":"
+        + ByteStreams.hash(Locations.newInputSupplier(parentArtifact.getLocation()), Hashing.md5());
+    }
+    ArtifactClasses artifactClasses = inspectedArtifacts.getIfPresent(cacheKey);
+    if (artifactClasses != null) {
+      LOG.debug("Reusing inspection result of artifact {}", artifactId);
+      return artifactClasses;
+    }
+
+    artifactClasses = inspect(artifactId, artifactFile, parentClassLoader);
+    inspectedArtifacts.put(cacheKey, artifactClasses);
+    return artifactClasses;
+  }
 
+  private ArtifactClasses inspect(Id.Artifact artifactId, File artifactFile,
+                                  ClassLoader parentClassLoader) throws IOException, InvalidArtifactException {
     ArtifactClasses.Builder builder = inspectApplications(artifactId, ArtifactClasses.builder(),
                                                           Locations.toLocation(artifactFile));
     File tmpDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
                            cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
     File stageDir = DirUtils.createTempDir(tmpDir);
-    try (PluginInstantiator pluginInstantiator = new PluginInstantiator(cConf, parentClassLoader, stageDir)) {
+    try (PluginInstantiator pluginInstantiator = new PluginInstantiator(unpackCache, parentClassLoader, stageDir)) {
       pluginInstantiator.addArtifact(Locations.toLocation(artifactFile), artifactId.toArtifactId());
       inspectPlugins(builder, artifactFile, artifactId.toArtifactId(), pluginInstantiator);
     } finally {
@@ -209,7 +263,8 @@ final class ArtifactInspector {
 
     try {
       ClassLoader pluginClassLoader = pluginInstantiator.getArtifactClassLoader(artifactId);
-      for (Class<?> cls : getPluginClasses(exportPackages, pluginClassLoader)) {
+      for (String className : getPluginClassNames(exportPackages, pluginClassLoader)) {
+        Class<?> cls = pluginClassLoader.loadClass(className);
         Plugin pluginAnnotation = cls.getAnnotation(Plugin.class);
         if (pluginAnnotation == null) {
           continue;
@@ -246,77 +301,56 @@ final class ArtifactInspector {
   }
 
   /**
-   * Returns an {@link Iterable} of class name that are under the given list of package names that are loadable
-   * through the plugin ClassLoader.
+   * Returns the names of the classes annotated with {@link Plugin} that are under the given list of package names
+   * and are loadable through the plugin ClassLoader. Class files are inspected in parallel.
    */
-  private Iterable<Class<?>> getPluginClasses(final Iterable<String> packages, final ClassLoader pluginClassLoader) {
-    return new Iterable<Class<?>>() {
-      @Override
-      public Iterator<Class<?>> iterator() {
-        final Iterator<String> packageIterator = packages.iterator();
-
-        return new AbstractIterator<Class<?>>() {
-          Iterator<String> classIterator = ImmutableList.<String>of().iterator();
-          String currentPackage;
-
-          @Override
-          protected Class<?> computeNext() {
-            while (!classIterator.hasNext()) {
-              if (!packageIterator.hasNext()) {
-                return endOfData();
-              }
-              currentPackage = packageIterator.next();
-
-              try {
-                // Gets all package resource URL for the given package
-                String resourceName = currentPackage.replace('.', File.separatorChar);
-                Enumeration<URL> resources = pluginClassLoader.getResources(resourceName);
-                List<Iterator<String>> iterators = new ArrayList<>();
-                // Go though all available resources and collect all class names that are plugin classes.
-                while (resources.hasMoreElements()) {
-                  URL packageResource = resources.nextElement();
-
-                  // Only inspect classes in the top level jar file for Plugins.
-                  // The jar manifest may have packages in Export-Package that are loadable from the bundled jar files,
-                  // which is for classloading purpose. Those classes won't be inspected for plugin classes.
-                  // There should be exactly one of resource that match, because it maps to a directory on the FS.
-                  if (packageResource.getProtocol().equals("file")) {
-                    Iterator<String> classFiles = DirUtils.list(new File(packageResource.toURI()), "class").iterator();
-
-                    // Transform class file into class name and filter by @Plugin class only
-                    iterators.add(Iterators.filter(
-                      Iterators.transform(classFiles, new Function<String, String>() {
-                        @Override
-                        public String apply(String input) {
-                          return getClassName(currentPackage, input);
-                        }
-                      }), new Predicate<String>() {
-                        @Override
-                        public boolean apply(String className) {
-                          return isPlugin(className, pluginClassLoader);
-                        }
-                      }));
-                  }
-                }
-                if (!iterators.isEmpty()) {
-                  classIterator = Iterators.concat(iterators.iterator());
-                }
-              } catch (Exception e) {
-                // Cannot happen
-                throw Throwables.propagate(e);
-              }
-            }
-
-            try {
-              return pluginClassLoader.loadClass(classIterator.next());
-            } catch (ClassNotFoundException | NoClassDefFoundError e) {
-              // Cannot happen, since the class name is from the list of the class files under the classloader.
-              throw Throwables.propagate(e);
-            }
+  private List<String> getPluginClassNames(Iterable<String> packages,
+                                           final ClassLoader pluginClassLoader) throws Exception {
+    List<String> classNames = new ArrayList<>();
+    for (String packageName : packages) {
+      // Gets all package resource URL for the given package
+      String resourceName = packageName.replace('.', File.separatorChar);
+      Enumeration<URL> resources = pluginClassLoader.getResources(resourceName);
+      // Go though all available resources and collect all class names.
+      while (resources.hasMoreElements()) {
+        URL packageResource = resources.nextElement();
+
+        // Only inspect classes in the top level jar file for Plugins.
+        // The jar manifest may have packages in Export-Package that are loadable from the bundled jar files,
+        // which is for classloading purpose. Those classes won't be inspected for plugin classes.
+        // There should be exactly one of resource that match, because it maps to a directory on the FS.
+        if (packageResource.getProtocol().equals("file")) {
+          for (String classFile : DirUtils.list(new File(packageResource.toURI()), "class")) {
+            classNames.add(getClassName(packageName, classFile));
           }
-        };
+        }
+      }
+    }
+
+    // Filter by @Plugin class only
+    List<Future<Boolean>> isPlugin = new ArrayList<>(classNames.size());
+    for (final String className : classNames) {
+      isPlugin.add(classScanExecutor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return isPlugin(className, pluginClassLoader);
+        }
+      }));
+    }
+
+    List<String> pluginClassNames = new ArrayList<>();
+    try {
+      for (int i = 0; i < classNames.size(); i++) {
+        if (Uninterruptibles.getUninterruptibly(isPlugin.get(i))) {
+          pluginClassNames.add(classNames.get(i));
+        }
       }
-    };
+    } finally {
+      for (Future<Boolean> future : isPlugin) {
+        future.cancel(true);
+      }
+    }
+    return pluginClassNames;
   }
 
   /**
@@ -17,6 +17,7 @@
 package co.cask.cdap.internal.app.runtime.artifact;
 
 import co.cask.cdap.api.artifact.ArtifactClasses;
+import co.cask.cdap.api.plugin.PluginClass;
 import co.cask.cdap.proto.artifact.ArtifactRange;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -24,6 +25,7 @@ import com.google.common.collect.ImmutableSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Metadata about an artifact, such as what plugins are contained in the artifact, and what other artifacts can use
@@ -38,6 +40,10 @@ public class ArtifactMeta {
   // can't call this 'extends' since that's a reserved keyword
   private final Set<ArtifactRange> usableBy;
   private final Map<String, String> properties;
+  // the checksum of the artifact file and the plugins that were added to the inspected ones when it was written,
+  // null for artifacts written before they were recorded
+  private final String checksum;
+  private final Set<PluginClass> additionalPlugins;
 
   public ArtifactMeta(ArtifactClasses classes) {
     this(classes, ImmutableSet.<ArtifactRange>of());
@@ -48,9 +54,16 @@ public class ArtifactMeta {
   }
 
   public ArtifactMeta(ArtifactClasses classes, Set<ArtifactRange> usableBy, Map<String, String> properties) {
+    this(classes, usableBy, properties, null, null);
+  }
+
+  public ArtifactMeta(ArtifactClasses classes, Set<ArtifactRange> usableBy, Map<String, String> properties,
+                      @Nullable String checksum, @Nullable Set<PluginClass> additionalPlugins) {
     this.classes = classes;
     this.usableBy = usableBy;
     this.properties = ImmutableMap.copyOf(properties);
+    this.checksum = checksum;
+    this.additionalPlugins = additionalPlugins == null ? null : ImmutableSet.copyOf(additionalPlugins);
   }
 
   public ArtifactClasses getClasses() {
@@ -66,6 +79,23 @@ public class ArtifactMeta {
     return properties == null ? EMPTY_MAP : properties;
   }
 
+  /**
+   * @return the checksum of the artifact file, or {@code null} if it is not known
+   */
+  @Nullable
+  public String getChecksum() {
+    return checksum;
+  }
+
+  /**
+   * @return the plugins that were added to the plugins inspected from the artifact, or {@code null} if they are
+   *         not known
+   */
+  @Nullable
+  public Set<PluginClass> getAdditionalPlugins() {
+    return additionalPlugins;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -79,12 +109,14 @@ public class ArtifactMeta {
 
     return Objects.equals(classes, that.classes) &&
       Objects.equals(usableBy, that.usableBy) &&
-      Objects.equals(getProperties(), that.getProperties());
+      Objects.equals(getProperties(), that.getProperties()) &&
+      Objects.equals(checksum, that.checksum) &&
+      Objects.equals(additionalPlugins, that.additionalPlugins);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(classes, usableBy, getProperties());
+    return Objects.hash(classes, usableBy, getProperties(), checksum, additionalPlugins);
   }
 
   @Override
@@ -93,6 +125,8 @@ public class ArtifactMeta {
       "classes=" + classes +
       ", usableBy=" + usableBy +
       ", properties=" + getProperties() +
+      ", checksum=" + checksum +
+      ", additionalPlugins=" + additionalPlugins +
       '}';
   }
 }
@@ -56,6 +56,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
 import com.google.inject.Inject;
 import org.apache.twill.filesystem.Location;
@@ -93,10 +94,10 @@ public class ArtifactRepository {
   @Inject
   public ArtifactRepository(CConfiguration cConf, ArtifactStore artifactStore, MetadataStore metadataStore,
                             AuthorizerInstantiator authorizerInstantiator,
-                            ProgramRunnerFactory programRunnerFactory) {
+                            ProgramRunnerFactory programRunnerFactory, ArtifactUnpackCache unpackCache) {
     this.artifactStore = artifactStore;
-    this.artifactClassLoaderFactory = new ArtifactClassLoaderFactory(cConf, programRunnerFactory);
-    this.artifactInspector = new ArtifactInspector(cConf, artifactClassLoaderFactory);
+    this.artifactClassLoaderFactory = new ArtifactClassLoaderFactory(cConf, programRunnerFactory, unpackCache);
+    this.artifactInspector = new ArtifactInspector(cConf, artifactClassLoaderFactory, unpackCache);
     this.systemArtifactDirs = new ArrayList<>();
     for (String dir : cConf.get(Constants.AppFabric.SYSTEM_ARTIFACTS_DIR).split(";")) {
       File file = new File(dir);
@@ -134,6 +135,8 @@ public class ArtifactRepository {
     for (ArtifactDetail artifactDetail : artifactStore.getArtifacts(namespace)) {
       deleteArtifact(Id.Artifact.from(namespace.toId(), artifactDetail.getDescriptor().getArtifactId()));
     }
+    // deleting the artifacts leaves tombstones in the plugin versions, which are not needed once the namespace is gone
+    artifactStore.deletePluginsVersions(namespace);
   }
 
   /**
@@ -350,7 +353,7 @@ public class ArtifactRepository {
     Location artifactLocation = Locations.toLocation(artifactFile);
     ArtifactDetail artifactDetail;
     try (CloseableClassLoader parentClassLoader = createArtifactClassLoader(artifactLocation)) {
-      ArtifactClasses artifactClasses = inspectArtifact(artifactId, artifactFile, null, parentClassLoader);
+      ArtifactClasses artifactClasses = inspectArtifact(artifactId, artifactFile, null, parentClassLoader, null);
       validatePluginSet(artifactClasses.getPlugins());
       ArtifactMeta meta = new ArtifactMeta(artifactClasses, ImmutableSet.<ArtifactRange>of());
       ArtifactInfo artifactInfo = new ArtifactInfo(artifactId.toArtifactId(), artifactClasses,
@@ -466,28 +469,23 @@ public class ArtifactRepository {
     }
 
     parentArtifacts = parentArtifacts == null ? Collections.<ArtifactRange>emptySet() : parentArtifacts;
-    CloseableClassLoader parentClassLoader;
-    if (parentArtifacts.isEmpty()) {
-      parentClassLoader = createArtifactClassLoader(Locations.toLocation(artifactFile));
-    } else {
+    if (!parentArtifacts.isEmpty()) {
       validateParentSet(artifactId, parentArtifacts);
-      parentClassLoader = createParentClassLoader(artifactId, parentArtifacts);
     }
 
-    try {
-      ArtifactClasses artifactClasses = inspectArtifact(artifactId, artifactFile, additionalPlugins, parentClassLoader);
-      ArtifactMeta meta = new ArtifactMeta(artifactClasses, parentArtifacts, properties);
-      ArtifactDetail artifactDetail = artifactStore.write(artifactId, meta, Files.newInputStreamSupplier(artifactFile));
-      ArtifactDescriptor descriptor = artifactDetail.getDescriptor();
-      // info hides some fields that are available in detail, such as the location of the artifact
-      ArtifactInfo artifactInfo = new ArtifactInfo(descriptor.getArtifactId(), artifactDetail.getMeta().getClasses(),
-                                                   artifactDetail.getMeta().getProperties());
-      // add system metadata for artifacts
-      writeSystemMetadata(artifactId, artifactInfo);
-      return artifactDetail;
-    } finally {
-      parentClassLoader.close();
-    }
+    ArtifactClasses artifactClasses = inspectArtifact(artifactId, artifactFile, parentArtifacts, additionalPlugins);
+    // the checksum and additional plugins are stored to tell whether a snapshot system artifact has changed
+    String checksum = Files.hash(artifactFile, Hashing.md5()).toString();
+    additionalPlugins = additionalPlugins == null ? ImmutableSet.<PluginClass>of() : additionalPlugins;
+    ArtifactMeta meta = new ArtifactMeta(artifactClasses, parentArtifacts, properties, checksum, additionalPlugins);
+    ArtifactDetail artifactDetail = artifactStore.write(artifactId, meta, Files.newInputStreamSupplier(artifactFile));
+    ArtifactDescriptor descriptor = artifactDetail.getDescriptor();
+    // info hides some fields that are available in detail, such as the location of the artifact
+    ArtifactInfo artifactInfo = new ArtifactInfo(descriptor.getArtifactId(), artifactDetail.getMeta().getClasses(),
+                                                 artifactDetail.getMeta().getProperties());
+    // add system metadata for artifacts
+    writeSystemMetadata(artifactId, artifactInfo);
+    return artifactDetail;
   }
 
   /**
@@ -584,10 +582,38 @@ public class ArtifactRepository {
     });
   }
 
+  /**
+   * Inspects the given artifact with a parent classloader created from one of the given parent artifacts, or from
+   * the artifact itself if it has no parents.
+   */
+  private ArtifactClasses inspectArtifact(Id.Artifact artifactId, File artifactFile,
+                                          Set<ArtifactRange> parentArtifacts,
+                                          @Nullable Set<PluginClass> additionalPlugins)
+    throws IOException, InvalidArtifactException, ArtifactRangeNotFoundException {
+
+    ArtifactDescriptor parentArtifact = null;
+    CloseableClassLoader parentClassLoader;
+    if (parentArtifacts.isEmpty()) {
+      parentClassLoader = createArtifactClassLoader(Locations.toLocation(artifactFile));
+    } else {
+      parentArtifact = getParentArtifact(artifactId, parentArtifacts);
+      parentClassLoader = createArtifactClassLoader(parentArtifact.getLocation());
+    }
+
+    try {
+      return inspectArtifact(artifactId, artifactFile, additionalPlugins, parentClassLoader, parentArtifact);
+    } finally {
+      parentClassLoader.close();
+    }
+  }
+
   private ArtifactClasses inspectArtifact(Id.Artifact artifactId, File artifactFile,
                                           @Nullable Set<PluginClass> additionalPlugins,
-                                          ClassLoader parentClassLoader) throws IOException, InvalidArtifactException {
-    ArtifactClasses artifactClasses = artifactInspector.inspectArtifact(artifactId, artifactFile, parentClassLoader);
+                                          ClassLoader parentClassLoader,
+                                          @Nullable ArtifactDescriptor parentArtifact)
+    throws IOException, InvalidArtifactException {
+    ArtifactClasses artifactClasses = artifactInspector.inspectArtifact(artifactId, artifactFile,
+                                                                        parentClassLoader, parentArtifact);
     validatePluginSet(artifactClasses.getPlugins());
     if (additionalPlugins == null || additionalPlugins.isEmpty()) {
       return artifactClasses;
@@ -674,21 +700,31 @@ public class ArtifactRepository {
     }
 
     // add all parents first
+    boolean parentsAdded = false;
     for (SystemArtifactInfo systemArtifact : systemArtifacts) {
       if (parents.contains(systemArtifact.getArtifactId())) {
-        addSystemArtifact(systemArtifact);
+        parentsAdded |= addSystemArtifact(systemArtifact, true);
       }
     }
 
-    // add children next
+    // add children next. If any parent has changed, unchanged snapshot children need to be inspected again,
+    // since their plugins are inspected with the classes of their parents.
     for (SystemArtifactInfo systemArtifact : systemArtifacts) {
       if (!parents.contains(systemArtifact.getArtifactId())) {
-        addSystemArtifact(systemArtifact);
+        addSystemArtifact(systemArtifact, !parentsAdded);
       }
     }
   }
 
-  private void addSystemArtifact(SystemArtifactInfo systemArtifactInfo) throws Exception {
+  /**
+   * Adds the given system artifact.
+   *
+   * @param systemArtifactInfo the system artifact to add
+   * @param skipUnchanged whether to skip adding a snapshot artifact if its file and config are the same as the
+   *                      ones it was last added with
+   * @return whether the artifact was added
+   */
+  private boolean addSystemArtifact(SystemArtifactInfo systemArtifactInfo, boolean skipUnchanged) throws Exception {
     String fileName = systemArtifactInfo.getArtifactFile().getName();
     try {
       Id.Artifact artifactId = systemArtifactInfo.getArtifactId();
@@ -698,10 +734,13 @@ public class ArtifactRepository {
         try {
           artifactStore.getArtifact(artifactId);
           LOG.info("Artifact {} already exists, will not try loading it again.", artifactId);
-          return;
+          return false;
         } catch (ArtifactNotFoundException e) {
           // this is fine, means it doesn't exist yet and we should add it
         }
+      } else if (skipUnchanged && isUnchanged(systemArtifactInfo)) {
+        LOG.info("Artifact {} has not changed, will not try loading it again.", artifactId);
+        return false;
       }
 
       addArtifact(artifactId,
@@ -710,6 +749,7 @@ public class ArtifactRepository {
                   systemArtifactInfo.getConfig().getPlugins(),
                   systemArtifactInfo.getConfig().getProperties());
       LOG.info("Added system artifact {}.", artifactId);
+      return true;
     } catch (ArtifactAlreadyExistsException e) {
       // shouldn't happen... but if it does for some reason it's fine, it means it was added some other way already.
     } catch (ArtifactRangeNotFoundException e) {
@@ -719,6 +759,30 @@ public class ArtifactRepository {
     } catch (UnauthorizedException e) {
       LOG.warn("Could not add system artifact '{}' because of an authorization error.", fileName, e);
     }
+    return false;
+  }
+
+  /**
+   * Returns whether the given system artifact already exists with the same contents, parents, properties and
+   * additional plugins. This is decided from the checksum and additional plugins stored with the existing artifact,
+   * without reading or inspecting the stored artifact file. Artifacts stored without them are never unchanged.
+   */
+  private boolean isUnchanged(SystemArtifactInfo systemArtifactInfo) throws IOException {
+    ArtifactDetail existing;
+    try {
+      existing = artifactStore.getArtifact(systemArtifactInfo.getArtifactId());
+    } catch (ArtifactNotFoundException e) {
+      return false;
+    }
+
+    ArtifactConfig config = systemArtifactInfo.getConfig();
+    ArtifactMeta meta = existing.getMeta();
+    return meta.getChecksum() != null
+      && meta.getAdditionalPlugins() != null
+      && meta.getUsableBy().equals(config.getParents())
+      && meta.getProperties().equals(config.getProperties())
+      && meta.getAdditionalPlugins().equals(config.getPlugins())
+      && meta.getChecksum().equals(Files.hash(systemArtifactInfo.getArtifactFile(), Hashing.md5()).toString());
   }
 
   /**
@@ -753,16 +817,16 @@ public class ArtifactRepository {
   }
 
   /**
-   * Create a parent classloader using an artifact from one of the artifacts in the specified parents.
+   * Returns one of the artifacts in the specified parents, to create a parent classloader from.
    *
-   * @param artifactId the id of the artifact to create the parent classloader for
-   * @param parentArtifacts the ranges of parents to create the classloader from
-   * @return a classloader based off a parent artifact
+   * @param artifactId the id of the artifact to get the parent artifact for
+   * @param parentArtifacts the ranges of parents to get the artifact from
+   * @return the descriptor of a parent artifact
    * @throws ArtifactRangeNotFoundException if none of the parents could be found
    * @throws InvalidArtifactException if one of the parents also has parents
    * @throws IOException if there was some error reading from the store
    */
-  private CloseableClassLoader createParentClassLoader(Id.Artifact artifactId, Set<ArtifactRange> parentArtifacts)
+  private ArtifactDescriptor getParentArtifact(Id.Artifact artifactId, Set<ArtifactRange> parentArtifacts)
     throws ArtifactRangeNotFoundException, IOException, InvalidArtifactException {
 
     List<ArtifactDetail> parents = new ArrayList<>();
@@ -800,9 +864,7 @@ public class ArtifactRepository {
     }
 
     // assumes any of the parents will do
-    Location parentLocation = parents.get(0).getDescriptor().getLocation();
-
-    return createArtifactClassLoader(parentLocation);
+    return parents.get(0).getDescriptor();
   }
 
   private void addAppSummaries(List<ApplicationClassSummary> summaries, NamespaceId namespace) {
@@ -58,10 +58,17 @@ import com.google.common.base.Predicates;
 import com.google.common.base.Splitter;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.InputSupplier;
 import com.google.gson.Gson;
@@ -83,13 +90,17 @@ import java.io.OutputStream;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import javax.annotation.Nullable;
 
 /**
  * This class manages artifacts as well as metadata for each artifact. Artifacts and their metadata cannot be changed
@@ -143,12 +154,23 @@ import java.util.TreeMap;
  *
  * With this schema we can perform a scan to look up AppClasses, a scan to look up plugins that extend a specific
  * artifact, and a scan to look up artifacts.
+ *
+ * Every write of plugin rows also records the version of the plugins of each parent artifact, with
+ * rowkey v:{parent-namespace}:{parent-name}, column {artifact-namespace}:{artifact-name}:{artifact-version},
+ * and the hash of the ArtifactData of the plugin artifact as the value, or a tombstone once it is deleted.
+ * Since each plugin artifact only writes its own column, deploying different artifacts concurrently doesn't conflict.
+ * Plugins that extend an artifact are kept in memory, indexed by the namespace of the plugin artifact, plugin type
+ * and plugin name, together with the version row they were read at. Plugin lookups only read the version row of the
+ * parent artifact, and scan the plugin rows of the parent, or only of the requested type, if it has changed.
  */
 public class ArtifactStore {
   private static final String ARTIFACTS_PATH = "artifacts";
   private static final String ARTIFACT_PREFIX = "r";
   private static final String PLUGIN_PREFIX = "p";
   private static final String APPCLASS_PREFIX = "a";
+  private static final String PLUGINS_VERSION_PREFIX = "v";
+  private static final byte[] DELETED_PLUGINS_VERSION = { 0 };
+  private static final int MAX_CACHED_PLUGIN_INDEXES = 1000;
   private static final Id.DatasetInstance META_ID = Id.DatasetInstance.from(Id.Namespace.SYSTEM, "artifact.meta");
   private static final DatasetProperties META_PROPERTIES =
     DatasetProperties.builder().add(Table.PROPERTY_CONFLICT_LEVEL, ConflictDetection.COLUMN.name()).build();
@@ -157,6 +179,8 @@ public class ArtifactStore {
   private final NamespacedLocationFactory namespacedLocationFactory;
   private final Transactional<DatasetContext<Table>, Table> metaTable;
   private final Gson gson;
+  // start row of the plugin scan of a parent artifact, optionally of a plugin type -> plugins read by the scan
+  private final Cache<String, PluginIndex> pluginIndexes;
 
   @Inject
   ArtifactStore(final DatasetFramework datasetFramework,
@@ -169,6 +193,7 @@ public class ArtifactStore {
       .registerTypeAdapter(Schema.class, new SchemaTypeAdapter())
       .registerTypeAdapter(ArtifactRange.class, new ArtifactRangeCodec())
       .create();
+    this.pluginIndexes = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_PLUGIN_INDEXES).build();
     this.metaTable = Transactional.of(txExecutorFactory, new Supplier<DatasetContext<Table>>() {
       @Override
       public DatasetContext<Table> get() {
@@ -409,14 +434,7 @@ public class ArtifactStore {
             return null;
           }
 
-          // should be able to scan by column prefix as well... instead, we have to filter out by namespace
-          Scanner scanner = table.scan(scanPlugins(parentArtifactId));
-          Row row;
-          while ((row = scanner.next()) != null) {
-            addPluginsToMap(namespace, parentArtifactId, result, row);
-          }
-          scanner.close();
-
+          addPluginsToMap(getPlugins(table, namespace, parentArtifactId, null, null), result);
           return Collections.unmodifiableSortedMap(result);
         }
       });
@@ -460,13 +478,7 @@ public class ArtifactStore {
             return null;
           }
 
-          Scanner scanner = table.scan(scanPlugins(parentArtifactId, type));
-          Row row;
-          while ((row = scanner.next()) != null) {
-            addPluginsToMap(namespace, parentArtifactId, result, row);
-          }
-          scanner.close();
-
+          addPluginsToMap(getPlugins(table, namespace, parentArtifactId, type, null), result);
           return Collections.unmodifiableSortedMap(result);
         }
       });
@@ -520,18 +532,9 @@ public class ArtifactStore {
             }
           }
 
-          PluginKey pluginKey = new PluginKey(parentArtifactId.getNamespace(), parentArtifactId.getName(), type, name);
-          Row row = context.get().get(pluginKey.getRowKey());
-          if (!row.isEmpty()) {
-            // column is the artifact name and version, value is the serialized PluginClass
-            for (Map.Entry<byte[], byte[]> column : row.getColumns().entrySet()) {
-              ImmutablePair<ArtifactDescriptor, PluginClass> pluginEntry =
-                getPluginEntry(namespace, parentArtifactId, column);
-
-              if (pluginEntry != null) {
-                result.put(pluginEntry.getFirst(), pluginEntry.getSecond());
-              }
-            }
+          for (ImmutablePair<ArtifactDescriptor, PluginClass> pluginEntry
+            : getPlugins(table, namespace, parentArtifactId, type, name)) {
+            result.put(pluginEntry.getFirst(), pluginEntry.getSecond());
           }
           return result;
         }
@@ -574,7 +577,8 @@ public class ArtifactStore {
           ArtifactData old = gson.fromJson(Bytes.toString(existingMetaBytes), ArtifactData.class);
 
           ArtifactMeta updatedMeta = new ArtifactMeta(old.meta.getClasses(), old.meta.getUsableBy(),
-                                                      updateFunction.apply(old.meta.getProperties()));
+                                                      updateFunction.apply(old.meta.getProperties()),
+                                                      old.meta.getChecksum(), old.meta.getAdditionalPlugins());
           ArtifactData updatedData = new ArtifactData(locationFactory.create(old.locationURI), updatedMeta);
           // write artifact metadata
           table.put(artifactCell.rowkey, artifactCell.column, Bytes.toBytes(gson.toJson(updatedData)));
@@ -767,11 +771,78 @@ public class ArtifactStore {
         }
         scanner.close();
 
+        deletePluginsVersions(table, namespace);
         return null;
       }
     });
   }
 
+  /**
+   * Delete the plugin versions of the artifacts in the given namespace, including the tombstones left by deleting
+   * them. Called when a namespace is deleted, after all its artifacts have been deleted.
+   *
+   * @param namespace the namespace to delete plugin versions in
+   */
+  public void deletePluginsVersions(final NamespaceId namespace) {
+    metaTable.executeUnchecked(new TransactionExecutor.Function<DatasetContext<Table>, Void>() {
+      @Override
+      public Void apply(DatasetContext<Table> context) throws Exception {
+        deletePluginsVersions(context.get(), namespace);
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Returns the artifacts that have a plugin version, or a tombstone, in the version row of the given parent artifact.
+   */
+  @VisibleForTesting
+  Set<Id.Artifact> getPluginsVersionArtifacts(final Id.Namespace parentNamespace, final String parentName) {
+    return metaTable.executeUnchecked(new TransactionExecutor.Function<DatasetContext<Table>, Set<Id.Artifact>>() {
+      @Override
+      public Set<Id.Artifact> apply(DatasetContext<Table> context) throws Exception {
+        Set<Id.Artifact> artifacts = new HashSet<>();
+        Row row = context.get().get(getPluginsVersionRowKey(parentNamespace, parentName));
+        for (byte[] column : row.getColumns().keySet()) {
+          artifacts.add(ArtifactColumn.parse(column).artifactId);
+        }
+        return artifacts;
+      }
+    });
+  }
+
+  private void deletePluginsVersions(Table table, NamespaceId namespace) {
+    // delete the plugin versions of parent artifacts in the namespace
+    Scan pluginsVersionScan = new Scan(
+      Bytes.toBytes(String.format("%s:%s:", PLUGINS_VERSION_PREFIX, namespace.getNamespace())),
+      Bytes.toBytes(String.format("%s:%s;", PLUGINS_VERSION_PREFIX, namespace.getNamespace()))
+    );
+    Scanner scanner = table.scan(pluginsVersionScan);
+    Row row;
+    while ((row = scanner.next()) != null) {
+      table.delete(row.getRow());
+    }
+    scanner.close();
+
+    // delete the plugin versions of artifacts in the namespace that extend system artifacts.
+    // Deleting a version changes the version row of the parent, which invalidates its cached plugins.
+    Scan systemPluginsVersionScan = new Scan(
+      Bytes.toBytes(String.format("%s:%s:", PLUGINS_VERSION_PREFIX, Id.Namespace.SYSTEM.getId())),
+      Bytes.toBytes(String.format("%s:%s;", PLUGINS_VERSION_PREFIX, Id.Namespace.SYSTEM.getId()))
+    );
+    scanner = table.scan(systemPluginsVersionScan);
+    while ((row = scanner.next()) != null) {
+      for (byte[] versionColumn : row.getColumns().keySet()) {
+        ArtifactColumn column = ArtifactColumn.parse(versionColumn);
+        if (column.artifactId.getNamespace().equals(namespace)) {
+          table.delete(row.getRow(), versionColumn);
+        }
+      }
+    }
+    scanner.close();
+    pluginIndexes.invalidateAll();
+  }
+
   // write a new artifact snapshot and clean up the old snapshot data
   private void writeMeta(Table table, Id.Artifact artifactId, ArtifactData data) throws IOException {
     ArtifactCell artifactCell = new ArtifactCell(artifactId);
@@ -796,6 +867,13 @@ public class ArtifactStore {
         table.put(pluginKey.getRowKey(), artifactColumn, pluginDataBytes);
       }
     }
+    if (!classes.getPlugins().isEmpty()) {
+      byte[] pluginsVersion = Hashing.md5().hashBytes(Bytes.toBytes(gson.toJson(data))).asBytes();
+      for (ArtifactRange artifactRange : data.meta.getUsableBy()) {
+        table.put(getPluginsVersionRowKey(artifactRange.getNamespace(), artifactRange.getName()),
+                  artifactColumn, pluginsVersion);
+      }
+    }
 
     // write appClass metadata
     for (ApplicationClass appClass : classes.getApps()) {
@@ -824,6 +902,13 @@ public class ArtifactStore {
         table.delete(pluginKey.getRowKey(), artifactColumn);
       }
     }
+    if (!oldMeta.meta.getClasses().getPlugins().isEmpty()) {
+      // a tombstone rather than a delete, so that plugins written before versions were recorded are invalidated too
+      for (ArtifactRange artifactRange : oldMeta.meta.getUsableBy()) {
+        table.put(getPluginsVersionRowKey(artifactRange.getNamespace(), artifactRange.getName()),
+                  artifactColumn, DELETED_PLUGINS_VERSION);
+      }
+    }
 
     // delete old appclass metadata
     for (ApplicationClass appClass : oldMeta.meta.getClasses().getApps()) {
@@ -877,50 +962,87 @@ public class ArtifactStore {
     }
   }
 
-  // this method examines all plugins in the given row and checks if they extend the given parent artifact
-  // and are from an artifact in the given namespace.
-  // if so, information about the plugin artifact and the plugin details are added to the given map.
-  private void addPluginsToMap(NamespaceId namespace, Id.Artifact parentArtifactId,
-                               SortedMap<ArtifactDescriptor, Set<PluginClass>> map,
-                               Row row) throws IOException {
-    // column is the artifact namespace, name, and version. value is the serialized PluginData
-    for (Map.Entry<byte[], byte[]> column : row.getColumns().entrySet()) {
-      ImmutablePair<ArtifactDescriptor, PluginClass> pluginEntry = getPluginEntry(namespace, parentArtifactId, column);
-      if (pluginEntry != null) {
-        ArtifactDescriptor artifactDescriptor = pluginEntry.getFirst();
-        if (!map.containsKey(artifactDescriptor)) {
-          map.put(artifactDescriptor, Sets.<PluginClass>newHashSet());
+  private void addPluginsToMap(Iterable<ImmutablePair<ArtifactDescriptor, PluginClass>> pluginEntries,
+                               SortedMap<ArtifactDescriptor, Set<PluginClass>> map) {
+    for (ImmutablePair<ArtifactDescriptor, PluginClass> pluginEntry : pluginEntries) {
+      ArtifactDescriptor artifactDescriptor = pluginEntry.getFirst();
+      if (!map.containsKey(artifactDescriptor)) {
+        map.put(artifactDescriptor, Sets.<PluginClass>newHashSet());
+      }
+      map.get(artifactDescriptor).add(pluginEntry.getSecond());
+    }
+  }
+
+  /**
+   * Returns the plugins that extend the given parent artifact and are from an artifact in the system namespace or
+   * the given namespace, optionally restricted to the given plugin type and name.
+   */
+  private List<ImmutablePair<ArtifactDescriptor, PluginClass>> getPlugins(Table table, NamespaceId namespace,
+                                                                          Id.Artifact parentArtifactId,
+                                                                          @Nullable String type,
+                                                                          @Nullable String name) {
+    PluginIndex index = getPluginIndex(table, parentArtifactId, type);
+    Set<Id.Namespace> namespaces = Sets.newLinkedHashSet(Arrays.asList(Id.Namespace.SYSTEM, namespace.toId()));
+
+    List<ImmutablePair<ArtifactDescriptor, PluginClass>> result = Lists.newArrayList();
+    for (Id.Namespace artifactNamespace : namespaces) {
+      for (PluginEntry entry : index.get(artifactNamespace, type, name)) {
+        // filter out plugins that don't extend this version of the parent artifact
+        if (entry.pluginData.usableBy.versionIsInRange(parentArtifactId.getVersion())) {
+          ArtifactDescriptor artifactDescriptor = new ArtifactDescriptor(
+            entry.artifactId.toArtifactId(), locationFactory.create(entry.pluginData.artifactLocationURI));
+          result.add(ImmutablePair.of(artifactDescriptor, entry.pluginData.pluginClass));
         }
-        map.get(artifactDescriptor).add(pluginEntry.getSecond());
       }
     }
+    return result;
   }
 
   /**
-   * Decode the PluginClass from the table column if it is from an artifact in the given namespace and
-   * extends the given parent artifact. If the plugin's artifact is not in the given namespace, or it does not
-   * extend the given parent artifact, return null.
+   * Returns the {@link PluginIndex} of the plugins that extend the given parent artifact, of the given type or of all
+   * types. The cached index is used if the plugins of the parent artifact have not changed since it was read,
+   * otherwise the plugin rows of the parent artifact and type are scanned again.
    */
-  private ImmutablePair<ArtifactDescriptor, PluginClass> getPluginEntry(NamespaceId namespace,
-                                                                        Id.Artifact parentArtifactId,
-                                                                        Map.Entry<byte[], byte[]> column) {
-    // column is the artifact namespace, name, and version. value is the serialized PluginData
-    ArtifactColumn artifactColumn = ArtifactColumn.parse(column.getKey());
-    Id.Namespace artifactNamespace = artifactColumn.artifactId.getNamespace();
-    // filter out plugins whose artifacts are not in the system namespace and not in this namespace
-    if (!Id.Namespace.SYSTEM.equals(artifactNamespace) && !artifactNamespace.equals(namespace.toId())) {
-      return null;
+  private PluginIndex getPluginIndex(Table table, Id.Artifact parentArtifactId, @Nullable String type) {
+    Row versionRow = table.get(getPluginsVersionRowKey(parentArtifactId.getNamespace(), parentArtifactId.getName()));
+    SortedMap<byte[], byte[]> versionColumns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    versionColumns.putAll(versionRow.getColumns());
+    Hasher hasher = Hashing.md5().newHasher();
+    for (Map.Entry<byte[], byte[]> column : versionColumns.entrySet()) {
+      hasher.putInt(column.getKey().length).putBytes(column.getKey());
+      hasher.putInt(column.getValue().length).putBytes(column.getValue());
     }
-    PluginData pluginData = gson.fromJson(Bytes.toString(column.getValue()), PluginData.class);
+    HashCode version = hasher.hash();
 
-    // filter out plugins that don't extend this version of the parent artifact
-    if (pluginData.usableBy.versionIsInRange(parentArtifactId.getVersion())) {
-      ArtifactDescriptor artifactDescriptor = new ArtifactDescriptor(
-        artifactColumn.artifactId.toArtifactId(), locationFactory.create(pluginData.artifactLocationURI));
+    Scan scan = type == null ? scanPlugins(parentArtifactId) : scanPlugins(parentArtifactId, type);
+    String cacheKey = Bytes.toString(scan.getStartRow());
+    PluginIndex index = pluginIndexes.getIfPresent(cacheKey);
+    if (index != null && index.version.equals(version)) {
+      return index;
+    }
 
-      return ImmutablePair.of(artifactDescriptor, pluginData.pluginClass);
+    index = new PluginIndex(version);
+    Scanner scanner = table.scan(scan);
+    try {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        // column is the artifact namespace, name, and version. value is the serialized PluginData
+        for (Map.Entry<byte[], byte[]> column : row.getColumns().entrySet()) {
+          ArtifactColumn artifactColumn = ArtifactColumn.parse(column.getKey());
+          PluginData pluginData = gson.fromJson(Bytes.toString(column.getValue()), PluginData.class);
+          index.add(new PluginEntry(artifactColumn.artifactId, pluginData));
+        }
+      }
+    } finally {
+      scanner.close();
     }
-    return null;
+    pluginIndexes.put(cacheKey, index);
+    return index;
+  }
+
+  private byte[] getPluginsVersionRowKey(Id.Namespace parentArtifactNamespace, String parentArtifactName) {
+    return Bytes.toBytes(Joiner.on(':').join(PLUGINS_VERSION_PREFIX, parentArtifactNamespace.getId(),
+                                             parentArtifactName));
   }
 
   private Scan scanArtifacts(NamespaceId namespace) {
@@ -1063,6 +1185,63 @@ public class ArtifactStore {
     }
   }
   
+  // A plugin read from the plugin rows, together with the id of the artifact it is from.
+  private static final class PluginEntry {
+    private final Id.Artifact artifactId;
+    private final PluginData pluginData;
+
+    private PluginEntry(Id.Artifact artifactId, PluginData pluginData) {
+      this.artifactId = artifactId;
+      this.pluginData = pluginData;
+    }
+  }
+
+  // All plugins that extend a parent artifact, indexed by plugin artifact namespace, plugin type and plugin name.
+  private static final class PluginIndex {
+    private final HashCode version;
+    private final Map<Id.Namespace, Map<String, ListMultimap<String, PluginEntry>>> plugins;
+
+    private PluginIndex(HashCode version) {
+      this.version = version;
+      this.plugins = Maps.newHashMap();
+    }
+
+    private void add(PluginEntry entry) {
+      Id.Namespace namespace = entry.artifactId.getNamespace();
+      Map<String, ListMultimap<String, PluginEntry>> types = plugins.get(namespace);
+      if (types == null) {
+        types = Maps.newHashMap();
+        plugins.put(namespace, types);
+      }
+      PluginClass pluginClass = entry.pluginData.pluginClass;
+      ListMultimap<String, PluginEntry> names = types.get(pluginClass.getType());
+      if (names == null) {
+        names = ArrayListMultimap.create();
+        types.put(pluginClass.getType(), names);
+      }
+      names.put(pluginClass.getName(), entry);
+    }
+
+    private Collection<PluginEntry> get(Id.Namespace namespace, @Nullable String type, @Nullable String name) {
+      Map<String, ListMultimap<String, PluginEntry>> types = plugins.get(namespace);
+      if (types == null) {
+        return Collections.emptyList();
+      }
+      if (type == null) {
+        List<PluginEntry> result = Lists.newArrayList();
+        for (ListMultimap<String, PluginEntry> names : types.values()) {
+          result.addAll(names.values());
+        }
+        return result;
+      }
+      ListMultimap<String, PluginEntry> names = types.get(type);
+      if (names == null) {
+        return Collections.emptyList();
+      }
+      return name == null ? names.values() : names.get(name);
+    }
+  }
+
   // Data that will be stored for an application class.
   private static class AppData {
     private final ApplicationClass appClass;
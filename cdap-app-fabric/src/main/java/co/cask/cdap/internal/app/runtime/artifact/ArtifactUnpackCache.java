@@ -0,0 +1,330 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.artifact;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.common.lang.jar.BundleJarUtil;
+import co.cask.cdap.common.utils.DirUtils;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+
+/**
+ * A local cache of unpacked artifact jars. Jars are keyed by their name and the checksum of their content, so the
+ * same artifact is only unpacked once no matter where it is copied to. Checksums are remembered per jar file, which
+ * includes hard links of the same local file, and only recomputed when the modification time or length changes.
+ * Each unpacked directory is reference counted, and directories that are no longer referenced are evicted in least
+ * recently used order once the total size of the cache goes over the configured limit.
+ */
+@Singleton
+public final class ArtifactUnpackCache implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ArtifactUnpackCache.class);
+  private static final int MAX_CHECKSUMS = 1000;
+
+  private final File cacheDir;
+  private final long maxSize;
+  private final Cache<Object, Checksum> checksums;
+  // Entries in access order, guarded by this
+  private final Map<String, Entry> entries;
+  private final AtomicBoolean closed;
+  private final Thread shutdownHook;
+  private long totalSize;
+
+  @Inject
+  public ArtifactUnpackCache(CConfiguration cConf) {
+    this(DirUtils.createTempDir(new File(new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
+                                                  cConf.get(Constants.AppFabric.TEMP_DIR)),
+                                         "artifact.unpack.cache").getAbsoluteFile()),
+         cConf.getLong(Constants.AppFabric.ARTIFACT_UNPACK_CACHE_MAX_SIZE_MB,
+                       Constants.AppFabric.DEFAULT_ARTIFACT_UNPACK_CACHE_MAX_SIZE_MB) * 1024 * 1024);
+  }
+
+  @VisibleForTesting
+  ArtifactUnpackCache(File cacheDir, long maxSize) {
+    this.cacheDir = cacheDir;
+    this.maxSize = maxSize;
+    this.checksums = CacheBuilder.newBuilder().maximumSize(MAX_CHECKSUMS).build();
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.closed = new AtomicBoolean();
+    this.shutdownHook = new Thread(new CleanupTask(cacheDir));
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+  }
+
+  /**
+   * Returns the unpacked directory of the given jar, unpacking it if it is not in the cache yet. The returned
+   * {@link Unpacked} must be closed once the directory is no longer needed. The content of the directory must not
+   * be modified, as it is shared with other users of the same jar.
+   *
+   * @param jarLocation location of the jar to unpack
+   * @return an {@link Unpacked} for the directory that contains the unpacked jar
+   * @throws IOException if failed to read or unpack the jar
+   */
+  public Unpacked acquire(Location jarLocation) throws IOException {
+    String key = jarLocation.getName() + "." + getChecksum(jarLocation);
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry == null) {
+        entry = new Entry(key);
+        entries.put(key, entry);
+      }
+      entry.refCount++;
+    }
+
+    try {
+      return new Unpacked(entry, entry.unpack(jarLocation));
+    } catch (IOException | RuntimeException e) {
+      release(entry);
+      throw e;
+    }
+  }
+
+  /**
+   * Deletes all unpacked directories. The cache must not be used after it is closed.
+   */
+  @Override
+  public void close() {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      Runtime.getRuntime().removeShutdownHook(shutdownHook);
+    } catch (IllegalStateException e) {
+      // The process is shutting down and the hook will take care of the cleanup
+      return;
+    }
+    shutdownHook.run();
+  }
+
+  /**
+   * Returns the MD5 checksum of the given jar, which is only computed if the jar was changed since the last call.
+   */
+  private String getChecksum(Location jarLocation) throws IOException {
+    Object checksumKey = getChecksumKey(jarLocation);
+    long lastModified = jarLocation.lastModified();
+    long length = jarLocation.length();
+    Checksum checksum = checksums.getIfPresent(checksumKey);
+    if (checksum == null || checksum.lastModified != lastModified || checksum.length != length) {
+      checksum = new Checksum(lastModified, length,
+                              ByteStreams.hash(Locations.newInputSupplier(jarLocation), Hashing.md5()).toString());
+      checksums.put(checksumKey, checksum);
+    }
+    return checksum.hash;
+  }
+
+  /**
+   * Returns the key for remembering the checksum of the given jar. For local files it is the file key provided by
+   * the file system, so that hard links created for snapshots of the same jar share the same checksum.
+   */
+  private static Object getChecksumKey(Location jarLocation) {
+    URI uri = jarLocation.toURI();
+    if ("file".equals(uri.getScheme())) {
+      try {
+        Object fileKey = Files.readAttributes(Paths.get(uri), BasicFileAttributes.class).fileKey();
+        if (fileKey != null) {
+          return fileKey;
+        }
+      } catch (IOException e) {
+        // Ignore. Fallback to the URI
+      }
+    }
+    return uri;
+  }
+
+  @VisibleForTesting
+  synchronized long getTotalSize() {
+    return totalSize;
+  }
+
+  /**
+   * Decrements the reference count of the given entry, if any, and evicts unreferenced entries until the cache is
+   * within its size limit.
+   */
+  private void release(@Nullable Entry released) {
+    List<Entry> evicted = Lists.newArrayList();
+    synchronized (this) {
+      if (released != null) {
+        released.refCount--;
+        if (released.refCount == 0 && released.dir == null) {
+          // Failed to unpack, nothing to keep
+          entries.remove(released.key);
+        }
+      }
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (totalSize > maxSize && iterator.hasNext()) {
+        Entry entry = iterator.next();
+        if (entry.refCount == 0 && entry.dir != null) {
+          iterator.remove();
+          totalSize -= entry.size;
+          evicted.add(entry);
+        }
+      }
+    }
+
+    for (Entry entry : evicted) {
+      try {
+        LOG.debug("Evicting unpacked artifact {} from {}", entry.key, entry.dir);
+        DirUtils.deleteDirectoryContents(entry.dir);
+      } catch (IOException e) {
+        LOG.warn("Failed to delete directory {}", entry.dir, e);
+      }
+    }
+  }
+
+  private void added(long size) {
+    synchronized (this) {
+      totalSize += size;
+    }
+    release(null);
+  }
+
+  /**
+   * A reference to an unpacked jar in the cache. Closing it releases the reference.
+   */
+  public final class Unpacked implements Closeable {
+    private final Entry entry;
+    private final File dir;
+    private final AtomicBoolean closed;
+
+    private Unpacked(Entry entry, File dir) {
+      this.entry = entry;
+      this.dir = dir;
+      this.closed = new AtomicBoolean();
+    }
+
+    /**
+     * Returns the directory that contains the unpacked jar.
+     */
+    public File getDirectory() {
+      return dir;
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        release(entry);
+      }
+    }
+  }
+
+  /**
+   * A cache entry. The reference count is guarded by the cache, while unpacking is guarded by the entry itself.
+   */
+  private final class Entry {
+    private final String key;
+    private int refCount;
+    private volatile File dir;
+    private long size;
+
+    private Entry(String key) {
+      this.key = key;
+    }
+
+    private synchronized File unpack(Location jarLocation) throws IOException {
+      if (dir != null) {
+        return dir;
+      }
+      File unpackDir = DirUtils.createTempDir(cacheDir);
+      try {
+        BundleJarUtil.unJar(jarLocation, unpackDir);
+      } catch (IOException | RuntimeException e) {
+        DirUtils.deleteDirectoryContents(unpackDir);
+        throw e;
+      }
+      LOG.debug("Unpacked artifact {} to {}", key, unpackDir);
+      size = getSize(unpackDir);
+      dir = unpackDir;
+      added(size);
+      return unpackDir;
+    }
+  }
+
+  /**
+   * The checksum of a jar together with the modification time and length of the jar it was computed from.
+   */
+  private static final class Checksum {
+    private final long lastModified;
+    private final long length;
+    private final String hash;
+
+    private Checksum(long lastModified, long length, String hash) {
+      this.lastModified = lastModified;
+      this.length = length;
+      this.hash = hash;
+    }
+  }
+
+  private static long getSize(File file) {
+    if (!file.isDirectory()) {
+      return file.length();
+    }
+    long size = 0;
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        size += getSize(child);
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Removes the cache directory when the cache is closed or on process exit.
+   */
+  private static final class CleanupTask implements Runnable {
+    private final File cacheDir;
+
+    private CleanupTask(File cacheDir) {
+      this.cacheDir = cacheDir;
+    }
+
+    @Override
+    public void run() {
+      try {
+        DirUtils.deleteDirectoryContents(cacheDir);
+      } catch (IOException e) {
+        // It's the cleanup step. Nothing much can be done if cleanup failed.
+        LOG.warn("Failed to delete directory {}", cacheDir, e);
+      }
+    }
+  }
+}
@@ -17,7 +17,6 @@
 package co.cask.cdap.internal.app.runtime.batch.dataset.partitioned;
 
 import co.cask.cdap.api.dataset.lib.PartitionKey;
-import co.cask.cdap.api.dataset.lib.PartitionOutput;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSet;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSetArguments;
 import co.cask.cdap.api.dataset.lib.Partitioning;
@@ -26,6 +25,8 @@ import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.internal.app.runtime.batch.BasicMapReduceTaskContext;
 import co.cask.cdap.internal.app.runtime.batch.MapReduceClassLoader;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
@@ -38,22 +39,33 @@ import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * An OutputCommitter which creates partitions in a configured PartitionedFileSet dataset for all of the partitions
  * that were written to by a DynamicPartitioningOutputFormat
  * It enables this by having each job write to a job-specific temporary path within that output directory.
- * Then, upon commitJob, it moves the files to the final, parent directory if the final output directories do not
- * already exist.
+ * Then, upon commitJob, it moves the files to the final, parent directory if the final output files do not
+ * already exist. The files are checked and moved with multiple threads, and all partitions are added to the
+ * dataset with a single batch.
  */
 public class DynamicPartitioningOutputCommitter extends FileOutputCommitter {
 
@@ -81,12 +93,18 @@ public class DynamicPartitioningOutputCommitter extends FileOutputCommitter {
     PartitionedFileSet outputDataset = taskContext.getDataset(outputDatasetName);
     Partitioning partitioning = outputDataset.getPartitioning();
 
+    // We need to copy to the parent of the FileOutputFormat's outputDir, since we added a _temporary_jobId suffix to
+    // the original outputDir.
+    Path finalOutput = FileOutputFormat.getOutputPath(context);
+    FileSystem fs = finalOutput.getFileSystem(configuration);
+
     Set<PartitionKey> partitionsToAdd = new HashSet<>();
     Set<String> relativePaths = new HashSet<>();
+    // final directory -> files in the temporary directory to be moved into it
+    Multimap<Path, Path> filesToMove = ArrayListMultimap.create();
     // Go over all files in the temporary directory and keep track of partitions to add for them
     FileStatus[] allCommittedTaskPaths = getAllCommittedTaskPaths(context);
     for (FileStatus committedTaskPath : allCommittedTaskPaths) {
-      FileSystem fs = committedTaskPath.getPath().getFileSystem(configuration);
       RemoteIterator<LocatedFileStatus> fileIter = fs.listFiles(committedTaskPath.getPath(), true);
       while (fileIter.hasNext()) {
         Path path = fileIter.next().getPath();
@@ -97,65 +115,106 @@ public class DynamicPartitioningOutputCommitter extends FileOutputCommitter {
           // this shouldn't happen because each relative path should consist of at least one partition key and
           // the output file name
           LOG.warn("Skipping path '{}'. It's relative path '{}' has fewer than two parts", path, relativePath);
+          filesToMove.put(finalOutput, path);
           continue;
         }
         // relativePath = "../key1/key2/part-m-00000"
         // relativeDir = "../key1/key2"
-        // fileName = "part-m-00000"
         String relativeDir = relativePath.substring(0, lastPathSepIdx);
-        String fileName = relativePath.substring(lastPathSepIdx + 1);
 
-        Path finalDir = new Path(FileOutputFormat.getOutputPath(context), relativeDir);
-        Path finalPath = new Path(finalDir, fileName);
-        if (fs.exists(finalPath)) {
-          throw new FileAlreadyExistsException("Final output path " + finalPath + " already exists");
-        }
         PartitionKey partitionKey = getPartitionKey(partitioning, relativeDir);
         partitionsToAdd.add(partitionKey);
         relativePaths.add(relativeDir);
+        filesToMove.put(new Path(finalOutput, relativeDir), path);
       }
     }
 
-    // We need to copy to the parent of the FileOutputFormat's outputDir, since we added a _temporary_jobId suffix to
-    // the original outputDir.
-    Path finalOutput = FileOutputFormat.getOutputPath(context);
-    FileSystem fs = finalOutput.getFileSystem(configuration);
-    for (FileStatus stat : getAllCommittedTaskPaths(context)) {
-      mergePaths(fs, stat, finalOutput);
-    }
+    // checking for existing files and moving the files of many partitions is dominated by round trips to the
+    // file system, hence it is done in parallel, for one final directory at a time
+    int numThreads = configuration.getInt(Constants.Dataset.Partitioned.HCONF_ATTR_COMMIT_THREADS,
+                                          Constants.Dataset.Partitioned.DEFAULT_COMMIT_THREADS);
+    ExecutorService executor =
+      Executors.newFixedThreadPool(Math.max(1, numThreads),
+                                   Threads.createDaemonThreadFactory("dynamic-partitioning-committer-%d"));
+    try {
+      // validate all the final paths before moving any file
+      List<Callable<Void>> validations = new ArrayList<>();
+      List<Callable<Void>> moves = new ArrayList<>();
+      for (Map.Entry<Path, Collection<Path>> entry : filesToMove.asMap().entrySet()) {
+        validations.add(new ValidateFinalPaths(fs, entry.getKey(), entry.getValue()));
+        moves.add(new MoveFiles(fs, entry.getKey(), entry.getValue()));
+      }
+      runAll(executor, validations);
+      runAll(executor, moves);
 
+      // compute the metadata to be written to every output partition
+      Map<String, String> metadata =
+        ConfigurationUtil.getNamedConfigurations(this.taskContext.getConfiguration(),
+                                                 PartitionedFileSetArguments.OUTPUT_PARTITION_METADATA_PREFIX);
+
+      // create all the necessary partitions, with a single batch
+      Map<PartitionKey, String> partitions = new HashMap<>();
+      for (PartitionKey partitionKey : partitionsToAdd) {
+        partitions.put(partitionKey, outputDataset.getPartitionOutput(partitionKey).getRelativePath());
+      }
+      outputDataset.addPartitions(partitions, metadata);
+
+      // close the TaskContext, which flushes dataset operations
+      try {
+        taskContext.flushOperations();
+      } catch (Exception e) {
+        Throwables.propagateIfPossible(e, IOException.class);
+        throw new IOException(e);
+      }
 
-    // compute the metadata to be written to every output partition
-    Map<String, String> metadata =
-      ConfigurationUtil.getNamedConfigurations(this.taskContext.getConfiguration(),
-                                               PartitionedFileSetArguments.OUTPUT_PARTITION_METADATA_PREFIX);
+      // delete the job-specific _temporary folder and create a _done file in the o/p folder
+      cleanupJob(context);
 
-    // create all the necessary partitions
-    for (PartitionKey partitionKey : partitionsToAdd) {
-      PartitionOutput partitionOutput = outputDataset.getPartitionOutput(partitionKey);
-      partitionOutput.setMetadata(metadata);
-      partitionOutput.addPartition();
+      // mark all the final output paths with a _SUCCESS file, if configured to do so (default = true)
+      if (configuration.getBoolean(SUCCESSFUL_JOB_OUTPUT_DIR_MARKER, true)) {
+        List<Callable<Void>> markers = new ArrayList<>();
+        for (String relativePath : relativePaths) {
+          markers.add(new CreateMarker(fs, new Path(new Path(finalOutput, relativePath), SUCCEEDED_FILE_NAME)));
+        }
+        runAll(executor, markers);
+      }
+    } finally {
+      executor.shutdownNow();
     }
+  }
 
-    // close the TaskContext, which flushes dataset operations
+  /**
+   * Runs the given tasks and waits for all of them to complete.
+   *
+   * @throws IOException if any of the tasks failed
+   */
+  private void runAll(ExecutorService executor, List<Callable<Void>> tasks) throws IOException {
+    List<Future<Void>> futures;
     try {
-      taskContext.flushOperations();
-    } catch (Exception e) {
-      Throwables.propagateIfPossible(e, IOException.class);
-      throw new IOException(e);
+      futures = executor.invokeAll(tasks);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while committing the job");
     }
-
-    // delete the job-specific _temporary folder and create a _done file in the o/p folder
-    cleanupJob(context);
-
-    // mark all the final output paths with a _SUCCESS file, if configured to do so (default = true)
-    if (configuration.getBoolean(SUCCESSFUL_JOB_OUTPUT_DIR_MARKER, true)) {
-      for (String relativePath : relativePaths) {
-        Path pathToMark = new Path(finalOutput, relativePath);
-        Path markerPath = new Path(pathToMark, SUCCEEDED_FILE_NAME);
-        fs.createNewFile(markerPath);
+    IOException failure = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while committing the job");
+      } catch (ExecutionException e) {
+        IOException ioe = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e);
+        if (failure == null) {
+          failure = ioe;
+        } else {
+          failure.addSuppressed(ioe);
+        }
       }
     }
+    if (failure != null) {
+      throw failure;
+    }
   }
 
   private PartitionKey getPartitionKey(Partitioning partitioning, String relativePath) {
@@ -184,52 +243,6 @@ public class DynamicPartitioningOutputCommitter extends FileOutputCommitter {
     fs.delete(jobSpecificOutputPath, true);
   }
 
-  // Copied from superclass to enable usage of it, because our 'from' and 'to' locations are different.
-  /**
-   * Merge two paths together.  Anything in from will be moved into to, if there
-   * are any name conflicts while merging the files or directories in from win.
-   * @param fs the File System to use
-   * @param from the path data is coming from.
-   * @param to the path data is going to.
-   * @throws IOException on any error
-   */
-  private void mergePaths(FileSystem fs, final FileStatus from, final Path to) throws IOException {
-    if (from.isFile()) {
-      if (fs.exists(to)) {
-        if (!fs.delete(to, true)) {
-          throw new IOException("Failed to delete " + to);
-        }
-      }
-
-      if (!fs.rename(from.getPath(), to)) {
-        throw new IOException("Failed to rename " + from + " to " + to);
-      }
-    } else if (from.isDirectory()) {
-      if (fs.exists(to)) {
-        FileStatus toStat = fs.getFileStatus(to);
-        if (!toStat.isDirectory()) {
-          if (!fs.delete(to, true)) {
-            throw new IOException("Failed to delete " + to);
-          }
-          if (!fs.rename(from.getPath(), to)) {
-            throw new IOException("Failed to rename " + from + " to " + to);
-          }
-        } else {
-          //It is a directory so merge everything in the directories
-          for (FileStatus subFrom: fs.listStatus(from.getPath())) {
-            Path subTo = new Path(to, subFrom.getPath().getName());
-            mergePaths(fs, subFrom, subTo);
-          }
-        }
-      } else {
-        //it does not exist just rename
-        if (!fs.rename(from.getPath(), to)) {
-          throw new IOException("Failed to rename " + from + " to " + to);
-        }
-      }
-    }
-  }
-
   // copied from superclass
   /**
    * Get a list of all paths where output from committed tasks are stored.
@@ -253,6 +266,80 @@ public class DynamicPartitioningOutputCommitter extends FileOutputCommitter {
     return base.toUri().relativize(file.toUri()).getPath();
   }
 
+  /**
+   * Checks that none of the files to be moved into a final directory already exists there.
+   */
+  private static final class ValidateFinalPaths implements Callable<Void> {
+    private final FileSystem fs;
+    private final Path finalDir;
+    private final Collection<Path> files;
+
+    private ValidateFinalPaths(FileSystem fs, Path finalDir, Collection<Path> files) {
+      this.fs = fs;
+      this.finalDir = finalDir;
+      this.files = files;
+    }
+
+    @Override
+    public Void call() throws IOException {
+      for (Path file : files) {
+        Path finalPath = new Path(finalDir, file.getName());
+        if (fs.exists(finalPath)) {
+          throw new FileAlreadyExistsException("Final output path " + finalPath + " already exists");
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Moves files into a final directory, creating the directory if necessary.
+   */
+  private static final class MoveFiles implements Callable<Void> {
+    private final FileSystem fs;
+    private final Path finalDir;
+    private final Collection<Path> files;
+
+    private MoveFiles(FileSystem fs, Path finalDir, Collection<Path> files) {
+      this.fs = fs;
+      this.finalDir = finalDir;
+      this.files = files;
+    }
+
+    @Override
+    public Void call() throws IOException {
+      if (!fs.mkdirs(finalDir)) {
+        throw new IOException("Failed to create directory " + finalDir);
+      }
+      for (Path file : files) {
+        Path finalPath = new Path(finalDir, file.getName());
+        if (!fs.rename(file, finalPath)) {
+          throw new IOException("Failed to rename " + file + " to " + finalPath);
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Creates an empty marker file.
+   */
+  private static final class CreateMarker implements Callable<Void> {
+    private final FileSystem fs;
+    private final Path markerPath;
+
+    private CreateMarker(FileSystem fs, Path markerPath) {
+      this.fs = fs;
+      this.markerPath = markerPath;
+    }
+
+    @Override
+    public Void call() throws IOException {
+      fs.createNewFile(markerPath);
+      return null;
+    }
+  }
+
   private static class CommittedTaskFilter implements PathFilter {
     @Override
     public boolean accept(Path path) {
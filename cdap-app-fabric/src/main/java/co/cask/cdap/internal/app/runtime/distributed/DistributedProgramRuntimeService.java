@@ -38,6 +38,7 @@ import co.cask.cdap.internal.app.program.ProgramTypeMetricTag;
 import co.cask.cdap.internal.app.queue.SimpleQueueSpecificationGenerator;
 import co.cask.cdap.internal.app.runtime.AbstractResourceReporter;
 import co.cask.cdap.internal.app.runtime.artifact.ArtifactRepository;
+import co.cask.cdap.internal.app.runtime.artifact.ArtifactUnpackCache;
 import co.cask.cdap.internal.app.runtime.service.SimpleRuntimeInfo;
 import co.cask.cdap.internal.app.store.RunRecordMeta;
 import co.cask.cdap.proto.Containers;
@@ -119,8 +120,8 @@ public final class DistributedProgramRuntimeService extends AbstractProgramRunti
                                    MetricsCollectionService metricsCollectionService,
                                    Configuration hConf, CConfiguration cConf,
                                    TransactionExecutorFactory txExecutorFactory,
-                                   ArtifactRepository artifactRepository) {
-    super(cConf, programRunnerFactory, artifactRepository);
+                                   ArtifactRepository artifactRepository, ArtifactUnpackCache unpackCache) {
+    super(cConf, programRunnerFactory, artifactRepository, unpackCache);
     this.twillRunner = twillRunner;
     this.store = store;
     this.queueAdmin = queueAdmin;
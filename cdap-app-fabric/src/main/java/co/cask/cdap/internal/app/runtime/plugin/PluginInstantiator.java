@@ -25,11 +25,9 @@ import co.cask.cdap.api.plugin.PluginConfig;
 import co.cask.cdap.api.plugin.PluginProperties;
 import co.cask.cdap.api.plugin.PluginPropertyField;
 import co.cask.cdap.common.conf.CConfiguration;
-import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.lang.InstantiatorFactory;
-import co.cask.cdap.common.lang.jar.BundleJarUtil;
-import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.internal.app.runtime.artifact.ArtifactUnpackCache;
 import co.cask.cdap.internal.app.runtime.artifact.Artifacts;
 import co.cask.cdap.internal.lang.FieldVisitor;
 import co.cask.cdap.internal.lang.Fields;
@@ -57,13 +55,16 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 
 /**
  * This class helps creating new instances of plugins. It also contains a ClassLoader cache to
  * save ClassLoader creation.
  *
- * This class implements {@link Closeable} as well for cleanup of temporary directories created for the ClassLoaders.
+ * This class implements {@link Closeable} as well for releasing the unpacked artifact directories used by the
+ * ClassLoaders.
  */
 public class PluginInstantiator implements Closeable {
 
@@ -71,17 +72,35 @@ public class PluginInstantiator implements Closeable {
 
   private final LoadingCache<ArtifactId, ClassLoader> classLoaders;
   private final InstantiatorFactory instantiatorFactory;
-  private final File tmpDir;
+  private final ArtifactUnpackCache unpackCache;
+  private final boolean ownUnpackCache;
+  private final Queue<ArtifactUnpackCache.Unpacked> unpackedArtifacts;
   private final File pluginDir;
   private final ClassLoader parentClassLoader;
 
+  /**
+   * Creates an instance that unpacks plugin jars into its own {@link ArtifactUnpackCache}, which is removed when
+   * this instance is closed.
+   */
   public PluginInstantiator(CConfiguration cConf, ClassLoader parentClassLoader, File pluginDir) {
-    this.instantiatorFactory = new InstantiatorFactory(false);
-    File tmpDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
-                           cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
+    this(new ArtifactUnpackCache(cConf), true, parentClassLoader, pluginDir);
+  }
 
+  /**
+   * Creates an instance that unpacks plugin jars through the given {@link ArtifactUnpackCache}, which can be shared
+   * with other instances.
+   */
+  public PluginInstantiator(ArtifactUnpackCache unpackCache, ClassLoader parentClassLoader, File pluginDir) {
+    this(unpackCache, false, parentClassLoader, pluginDir);
+  }
+
+  private PluginInstantiator(ArtifactUnpackCache unpackCache, boolean ownUnpackCache,
+                             ClassLoader parentClassLoader, File pluginDir) {
+    this.instantiatorFactory = new InstantiatorFactory(false);
     this.pluginDir = pluginDir;
-    this.tmpDir = DirUtils.createTempDir(tmpDir);
+    this.unpackCache = unpackCache;
+    this.ownUnpackCache = ownUnpackCache;
+    this.unpackedArtifacts = new ConcurrentLinkedQueue<>();
     this.classLoaders = CacheBuilder.newBuilder()
       .removalListener(new ClassLoaderRemovalListener())
       .build(new ClassLoaderCacheLoader());
@@ -218,16 +237,18 @@ public class PluginInstantiator implements Closeable {
 
   @Override
   public void close() throws IOException {
-    // Cleanup the ClassLoader cache and the temporary directory for the expanded plugin jar.
+    // Cleanup the ClassLoader cache and release the expanded plugin jars.
     classLoaders.invalidateAll();
     if (parentClassLoader instanceof Closeable) {
       Closeables.closeQuietly((Closeable) parentClassLoader);
     }
-    try {
-      DirUtils.deleteDirectoryContents(tmpDir);
-    } catch (IOException e) {
-      // It's the cleanup step. Nothing much can be done if cleanup failed.
-      LOG.warn("Failed to delete directory {}", tmpDir);
+    ArtifactUnpackCache.Unpacked unpacked = unpackedArtifacts.poll();
+    while (unpacked != null) {
+      unpacked.close();
+      unpacked = unpackedArtifacts.poll();
+    }
+    if (ownUnpackCache) {
+      unpackCache.close();
     }
   }
 
@@ -238,10 +259,10 @@ public class PluginInstantiator implements Closeable {
 
     @Override
     public ClassLoader load(ArtifactId artifactId) throws Exception {
-      File unpackedDir = DirUtils.createTempDir(tmpDir);
       File artifact = new File(pluginDir, Artifacts.getFileName(artifactId));
-      BundleJarUtil.unJar(Locations.toLocation(artifact), unpackedDir);
-      return new PluginClassLoader(unpackedDir, parentClassLoader);
+      ArtifactUnpackCache.Unpacked unpacked = unpackCache.acquire(Locations.toLocation(artifact));
+      unpackedArtifacts.add(unpacked);
+      return new PluginClassLoader(unpacked.getDirectory(), parentClassLoader);
     }
   }
 
@@ -28,6 +28,7 @@ import co.cask.cdap.internal.app.runtime.DefaultEndpointPluginContext;
 import co.cask.cdap.internal.app.runtime.artifact.ArtifactDescriptor;
 import co.cask.cdap.internal.app.runtime.artifact.ArtifactDetail;
 import co.cask.cdap.internal.app.runtime.artifact.ArtifactRepository;
+import co.cask.cdap.internal.app.runtime.artifact.ArtifactUnpackCache;
 import co.cask.cdap.internal.app.runtime.artifact.CloseableClassLoader;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.artifact.ArtifactRange;
@@ -67,17 +68,18 @@ public class PluginService extends AbstractIdleService {
 
   private final ArtifactRepository artifactRepository;
   private final File tmpDir;
-  private final CConfiguration cConf;
+  private final ArtifactUnpackCache unpackCache;
   private final LoadingCache<ArtifactDescriptor, Instantiators> instantiators;
 
   private File stageDir;
 
   @Inject
-  public PluginService(ArtifactRepository artifactRepository, CConfiguration cConf) {
+  public PluginService(ArtifactRepository artifactRepository, CConfiguration cConf,
+                       ArtifactUnpackCache unpackCache) {
     this.artifactRepository = artifactRepository;
     this.tmpDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
                            cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
-    this.cConf = cConf;
+    this.unpackCache = unpackCache;
     this.instantiators = CacheBuilder.newBuilder()
       .removalListener(new InstantiatorsRemovalListener())
       .maximumWeight(100)
@@ -188,7 +190,7 @@ public class PluginService extends AbstractIdleService {
 
     private void addInstantiatorAndAddArtifact(ArtifactDetail artifactDetail,
                                                ArtifactId artifactId) throws IOException {
-      PluginInstantiator instantiator = new PluginInstantiator(cConf, parentClassLoader, pluginDir);
+      PluginInstantiator instantiator = new PluginInstantiator(unpackCache, parentClassLoader, pluginDir);
       instantiatorInfoMap.put(artifactDetail.getDescriptor(),
                               new InstantiatorInfo(artifactDetail.getDescriptor().getLocation(), instantiator));
       instantiator.addArtifact(artifactDetail.getDescriptor().getLocation(), artifactId);
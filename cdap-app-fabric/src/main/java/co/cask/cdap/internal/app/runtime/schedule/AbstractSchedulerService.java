@@ -71,7 +71,7 @@ public abstract class AbstractSchedulerService extends AbstractIdleService imple
     }
 
     try {
-      streamSizeScheduler.init();
+      streamSizeScheduler.init(isStreamHeartbeatsEnabled());
       streamSizeScheduler.start();
       LOG.info("Started stream size scheduler");
     } catch (Throwable t) {
@@ -80,6 +80,14 @@ public abstract class AbstractSchedulerService extends AbstractIdleService imple
     }
   }
 
+  /**
+   * Returns whether the stream writers publish heartbeats with the size of the streams, which the stream size
+   * scheduler can subscribe to. Otherwise, the stream size scheduler only relies on polling.
+   */
+  protected boolean isStreamHeartbeatsEnabled() {
+    return false;
+  }
+
   private boolean isStarted(Scheduler scheduler) {
     if (scheduler instanceof TimeScheduler) {
       return ((TimeScheduler) scheduler).isStarted();
@@ -68,6 +68,12 @@ public final class DistributedSchedulerService extends AbstractSchedulerService
     }, RetryStrategies.exponentialDelay(200, 5000, TimeUnit.MILLISECONDS));
   }
 
+  @Override
+  protected boolean isStreamHeartbeatsEnabled() {
+    // stream writers publish heartbeats only in distributed mode
+    return true;
+  }
+
   @Override
   protected void startUp() throws Exception {
     LOG.info("Starting scheduler.");
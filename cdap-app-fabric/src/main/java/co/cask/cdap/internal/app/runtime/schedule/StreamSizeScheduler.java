@@ -30,23 +30,28 @@ import co.cask.cdap.common.NotFoundException;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.stream.notification.StreamSizeNotification;
+import co.cask.cdap.data.stream.service.heartbeat.StreamWriterHeartbeat;
 import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
 import co.cask.cdap.internal.app.runtime.schedule.store.DatasetBasedStreamSizeScheduleStore;
 import co.cask.cdap.internal.app.services.ProgramLifecycleService;
 import co.cask.cdap.internal.app.services.PropertiesResolver;
 import co.cask.cdap.internal.schedule.StreamSizeSchedule;
+import co.cask.cdap.notifications.feeds.NotificationFeedException;
+import co.cask.cdap.notifications.feeds.NotificationFeedNotFoundException;
 import co.cask.cdap.notifications.service.NotificationContext;
 import co.cask.cdap.notifications.service.NotificationHandler;
 import co.cask.cdap.notifications.service.NotificationService;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.ProgramType;
 import co.cask.cdap.proto.ScheduledRuntime;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
@@ -66,6 +71,7 @@ import java.util.NavigableSet;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -76,11 +82,15 @@ import javax.annotation.Nullable;
 
 /**
  * {@link Scheduler} that triggers program executions based on data availability in streams.
+ *
+ * In distributed mode, the size of the streams is tracked in memory from the heartbeats sent by the stream writers,
+ * and confirmed by querying the stream size metric. The streams that have active schedules are also polled together,
+ * with a single metrics query, at regular intervals, which is the only polling in standalone mode, where stream
+ * writers do not send heartbeats.
  */
 @Singleton
 public class StreamSizeScheduler implements Scheduler {
   private static final Logger LOG = LoggerFactory.getLogger(StreamSizeScheduler.class);
-  private static final int STREAM_POLLING_THREAD_POOL_SIZE = 10;
   private static final int POLLING_AFTER_NOTIFICATION_RETRY = 3;
 
   private final long pollingDelay;
@@ -102,9 +112,13 @@ public class StreamSizeScheduler implements Scheduler {
   // Used to schedule polling of a stream only after a certain time - the time after which the metrics are updated
   private ScheduledExecutorService pollBookingExecutor;
 
-  // Scheduled executor used to poll stream at regular intervals, by querying the metric system
+  // Scheduled executor used to poll all streams at regular intervals, by querying the metric system
   private ScheduledExecutorService streamPollingExecutor;
 
+  // Executor used to handle the heartbeats of the stream writers
+  private ExecutorService heartbeatsExecutor;
+  private Cancellable heartbeatsSubscription;
+
   private ListeningExecutorService taskExecutorService;
   private boolean schedulerStarted;
 
@@ -125,11 +139,17 @@ public class StreamSizeScheduler implements Scheduler {
     this.schedulerStarted = false;
   }
 
-  public void init() throws SchedulerException {
+  /**
+   * Initializes the scheduler.
+   *
+   * @param subscribeToHeartbeats whether to subscribe to the heartbeats of the stream writers. Heartbeats are only
+   *                              published in distributed mode; otherwise, the streams are only polled
+   */
+  public void init(boolean subscribeToHeartbeats) throws SchedulerException {
     sendPollingInfoExecutor = Executors.newCachedThreadPool(
       Threads.createDaemonThreadFactory("stream-size-scheduler-%d"));
-    streamPollingExecutor = Executors.newScheduledThreadPool(STREAM_POLLING_THREAD_POOL_SIZE,
-                                                             Threads.createDaemonThreadFactory("stream-polling-%d"));
+    streamPollingExecutor = Executors.newSingleThreadScheduledExecutor(
+      Threads.createDaemonThreadFactory("stream-polling"));
     pollBookingExecutor = Executors.newSingleThreadScheduledExecutor(
       Threads.createDaemonThreadFactory("polling-booking-executor"));
     taskExecutorService = MoreExecutors.listeningDecorator(
@@ -138,6 +158,22 @@ public class StreamSizeScheduler implements Scheduler {
     store = storeProvider.get();
 
     initializeScheduleStore();
+
+    if (subscribeToHeartbeats) {
+      heartbeatsExecutor = Executors.newSingleThreadExecutor(
+        Threads.createDaemonThreadFactory("stream-size-heartbeats"));
+      subscribeToHeartbeats();
+    }
+    streamPollingExecutor.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          pollActiveStreams();
+        } catch (Throwable t) {
+          LOG.error("Error in scheduled polling of streams", t);
+        }
+      }
+    }, pollingDelay, pollingDelay, TimeUnit.MILLISECONDS);
   }
 
   void start() throws SchedulerException {
@@ -183,22 +219,132 @@ public class StreamSizeScheduler implements Scheduler {
     }
 
     // Poll all the Streams for active tasks
+    try {
+      pollActiveStreams();
+    } catch (IOException e) {
+      // Failing to poll should not make this init fail
+      LOG.warn("Could not poll size for streams", e);
+    }
+  }
+
+  /**
+   * Subscribe to the heartbeats of the stream writers, to keep track of the size of the streams in memory.
+   * If the heartbeats feed does not exist yet, because the stream service has not created it, the subscription is
+   * retried after the polling delay.
+   */
+  private void subscribeToHeartbeats() {
+    Id.NotificationFeed heartbeatsFeed = new Id.NotificationFeed.Builder()
+      .setNamespaceId(Id.Namespace.SYSTEM.getId())
+      .setCategory(Constants.Notification.Stream.STREAM_INTERNAL_FEED_CATEGORY)
+      .setName(Constants.Notification.Stream.STREAM_HEARTBEAT_FEED_NAME)
+      .build();
+    try {
+      heartbeatsSubscription = notificationService.subscribe(
+        heartbeatsFeed, new NotificationHandler<StreamWriterHeartbeat>() {
+          @Override
+          public Type getNotificationType() {
+            return StreamWriterHeartbeat.class;
+          }
+
+          @Override
+          public void received(StreamWriterHeartbeat heartbeat, NotificationContext notificationContext) {
+            heartbeatReceived(heartbeat);
+          }
+        }, heartbeatsExecutor);
+    } catch (NotificationFeedNotFoundException | NotificationFeedException e) {
+      LOG.debug("Unable to subscribe to stream heartbeats feed. Will retry in {} ms.", pollingDelay, e);
+      streamPollingExecutor.schedule(new Runnable() {
+        @Override
+        public void run() {
+          subscribeToHeartbeats();
+        }
+      }, pollingDelay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Passes the sizes reported in a heartbeat of a stream writer to the subscribers of the streams.
+   */
+  @VisibleForTesting
+  void heartbeatReceived(StreamWriterHeartbeat heartbeat) {
+    for (Map.Entry<Id.Stream, Long> entry : heartbeat.getStreamsSizes().entrySet()) {
+      StreamSubscriber subscriber = streamSubscribers.get(entry.getKey());
+      if (subscriber != null) {
+        subscriber.heartbeatReceived(heartbeat.getInstanceId(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Poll the size of all streams that have active schedule tasks with a single metrics query, and send the
+   * sizes to the active tasks.
+   */
+  private void pollActiveStreams() throws IOException {
+    List<StreamSubscriber> activeSubscribers = Lists.newArrayList();
     for (StreamSubscriber streamSubscriber : streamSubscribers.values()) {
-      if (streamSubscriber.getActiveTasksCount() <= 0) {
-        continue;
+      if (streamSubscriber.getActiveTasksCount() > 0) {
+        activeSubscribers.add(streamSubscriber);
       }
+    }
+    if (activeSubscribers.isEmpty()) {
+      return;
+    }
 
-      try {
-        StreamSize streamSize = streamSubscriber.pollOnce();
-        streamSubscriber.sendPollingInfoToActiveTasks(streamSize);
-      } catch (IOException e) {
-        // Failing to poll should not make this init fail
-        LOG.warn("Could not poll size for stream '{}'", streamSubscriber.getStreamId(), e);
+    Map<Id.Stream, Long> sizes = queryStreamEventsSizes();
+    long now = System.currentTimeMillis();
+    for (StreamSubscriber streamSubscriber : activeSubscribers) {
+      // No metrics means that no data has been ingested by the stream yet
+      Long size = sizes.get(streamSubscriber.getStreamId());
+      StreamSize streamSize = streamSubscriber.updatePollingInfo(new StreamSize(size == null ? 0L : size, now));
+      streamSubscriber.sendPollingInfoToActiveTasks(streamSize);
+    }
+  }
+
+  /**
+   * Query the metrics system to get the size of events ingested by all streams.
+   *
+   * @return map from stream to the size of events ingested by the stream so far. Streams that have not ingested
+   *         any data are not in the map
+   */
+  @VisibleForTesting
+  Map<Id.Stream, Long> queryStreamEventsSizes() throws IOException {
+    MetricDataQuery metricDataQuery = new MetricDataQuery(
+      0L, TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()),
+      Integer.MAX_VALUE, "system.collect.bytes",
+      AggregationFunction.SUM,
+      ImmutableMap.<String, String>of(),
+      ImmutableList.of(Constants.Metrics.Tag.NAMESPACE, Constants.Metrics.Tag.STREAM)
+    );
+
+    try {
+      Map<Id.Stream, Long> sizes = Maps.newHashMap();
+      Collection<MetricTimeSeries> metrics = metricStore.query(metricDataQuery);
+      if (metrics == null) {
+        return sizes;
+      }
+      for (MetricTimeSeries metric : metrics) {
+        String namespace = metric.getTagValues().get(Constants.Metrics.Tag.NAMESPACE);
+        String stream = metric.getTagValues().get(Constants.Metrics.Tag.STREAM);
+        List<TimeValue> timeValues = metric.getTimeValues();
+        if (namespace == null || stream == null || timeValues == null || timeValues.isEmpty()) {
+          continue;
+        }
+        if (timeValues.size() != 1) {
+          throw new IOException("Should collect exactly one time value");
+        }
+        sizes.put(Id.Stream.from(namespace, stream), timeValues.get(0).getValue());
       }
+      return sizes;
+    } catch (Exception e) {
+      Throwables.propagateIfInstanceOf(e, IOException.class);
+      throw new IOException(e);
     }
   }
 
   public void stop() {
+    if (heartbeatsSubscription != null) {
+      heartbeatsSubscription.cancel();
+    }
     for (StreamSubscriber subscriber : streamSubscribers.values()) {
       subscriber.stopAndWait();
     }
@@ -208,6 +354,9 @@ public class StreamSizeScheduler implements Scheduler {
     if (streamPollingExecutor != null) {
       streamPollingExecutor.shutdownNow();
     }
+    if (heartbeatsExecutor != null) {
+      heartbeatsExecutor.shutdownNow();
+    }
     if (taskExecutorService != null) {
       taskExecutorService.shutdownNow();
     }
@@ -453,18 +602,23 @@ public class StreamSizeScheduler implements Scheduler {
 
   /**
    * One instance of this class contains a list of {@link StreamSizeSchedule}s, which are all interested
-   * in the same stream. This instance subscribes to the size notification of the stream, and polls the
-   * stream for its size whenever the schedules it references need the information.
+   * in the same stream. This instance subscribes to the size notification of the stream, keeps track of the
+   * sizes reported by the stream writers heartbeats, and polls the stream for its size whenever the schedules
+   * it references need the information.
    * The {@link StreamSizeScheduler} communicates with this class, which in turn communicates to the schedules
    * it contains to perform operations on the schedules - suspend, resume, etc.
    */
-  private final class StreamSubscriber extends AbstractScheduledService
+  private final class StreamSubscriber extends AbstractIdleService
     implements NotificationHandler<StreamSizeNotification> {
     // Key is the schedule ID
     private final ConcurrentMap<String, StreamSizeScheduleTask> scheduleTasks;
     private final Id.Stream streamId;
     private final AtomicInteger activeTasks;
     private final Object deltaLock;
+    // Key is the stream writer instance ID, value is the size last reported by that writer in a heartbeat
+    private final ConcurrentMap<Integer, Long> writerSizes;
+    // Whether a polling triggered by a heartbeat is in progress
+    private final AtomicBoolean heartbeatPolling;
 
     private Cancellable notificationSubscription;
     private StreamSizeNotification lastNotification;
@@ -473,12 +627,17 @@ public class StreamSizeScheduler implements Scheduler {
     // delta represents the gap between notifications for the stream and the stream size metric
     private Long delta;
 
+    // heartbeatDelta represents the gap between the sum of the stream writer sizes and the stream size metric
+    private volatile Long heartbeatDelta;
+
     private StreamSubscriber(Id.Stream streamId) {
       this.streamId = streamId;
       this.scheduleTasks = Maps.newConcurrentMap();
       this.activeTasks = new AtomicInteger(0);
       this.delta = null;
       this.deltaLock = new Object();
+      this.writerSizes = Maps.newConcurrentMap();
+      this.heartbeatPolling = new AtomicBoolean(false);
     }
 
     @Override
@@ -493,32 +652,6 @@ public class StreamSizeScheduler implements Scheduler {
       }
     }
 
-    @Override
-    protected void runOneIteration() throws Exception {
-      if (activeTasks.get() == 0) {
-        return;
-      }
-
-      try {
-        StreamSize streamSize = pollOnce();
-        sendPollingInfoToActiveTasks(streamSize);
-      } catch (IOException e) {
-        LOG.error("Could not poll stream {}", streamId.getId(), e);
-      } catch (Throwable t) {
-        LOG.error("Error in scheduled polling for stream {}", streamId.getId(), t);
-      }
-    }
-
-    @Override
-    protected Scheduler scheduler() {
-      return Scheduler.newFixedRateSchedule(pollingDelay, pollingDelay, TimeUnit.MILLISECONDS);
-    }
-
-    @Override
-    protected ScheduledExecutorService executor() {
-      return streamPollingExecutor;
-    }
-
     @Override
     public Type getNotificationType() {
       return StreamSizeNotification.class;
@@ -553,10 +686,53 @@ public class StreamSizeScheduler implements Scheduler {
       }
 
       if (poll) {
-        pollAfterNotification(notification, estimate);
+        pollAfterNotification(notification, estimate, null);
       }
     }
 
+    /**
+     * Called when a stream writer reports the size of its files for the stream in a heartbeat. If the size of the
+     * stream estimated from the heartbeats will trigger one of the {@link StreamSizeScheduleTask}, the stream is
+     * polled to confirm the information. If there is no estimate yet, the stream is polled to calibrate it.
+     *
+     * @param instanceId id of the stream writer that sent the heartbeat
+     * @param size size of the files of the stream writer, in bytes
+     */
+    private void heartbeatReceived(int instanceId, long size) {
+      writerSizes.put(instanceId, size);
+
+      if (activeTasks.get() <= 0) {
+        return;
+      }
+      Long currentHeartbeatDelta = heartbeatDelta;
+      if (currentHeartbeatDelta == null) {
+        // Polling calibrates the heartbeat delta
+        if (heartbeatPolling.compareAndSet(false, true)) {
+          pollAfterNotification(null, null, heartbeatPolling);
+        }
+        return;
+      }
+
+      long estimate = getWriterSizesSum() - currentHeartbeatDelta;
+      for (StreamSizeScheduleTask streamSizeScheduleTask : scheduleTasks.values()) {
+        if (streamSizeScheduleTask.isActive() && streamSizeScheduleTask.shouldTriggerProgram(estimate)) {
+          // Only have one polling triggered by heartbeats at a time
+          if (heartbeatPolling.compareAndSet(false, true)) {
+            pollAfterNotification(null, estimate, heartbeatPolling);
+          }
+          return;
+        }
+      }
+    }
+
+    private long getWriterSizesSum() {
+      long sum = 0L;
+      for (Long size : writerSizes.values()) {
+        sum += size;
+      }
+      return sum;
+    }
+
     /**
      * @return number of active schedule tasks for this {@link StreamSubscriber}
      */
@@ -565,17 +741,20 @@ public class StreamSizeScheduler implements Scheduler {
     }
 
     /**
-     * Poll the stream size using metrics after receiving a notification, either to set the delta between metric value
-     * and notification value, or because the notification indicates that one {@link StreamSizeScheduleTask} will
-     * execute, and polling the stream is required to confirm the information.
+     * Poll the stream size using metrics after receiving a notification or a heartbeat, either to set the delta
+     * between metric value and notification value, or because the notification indicates that one
+     * {@link StreamSizeScheduleTask} will execute, and polling the stream is required to confirm the information.
      *
-     * @param notification {@link StreamSizeNotification} received which triggered polling
+     * @param notification {@link StreamSizeNotification} received which triggered polling, or {@code null} if the
+     *                     polling was triggered by a heartbeat
      * @param estimate size of data present in the stream, in bytes, which will trigger the execution of a program
      *                 in one of the {@link StreamSizeScheduleTask} present in this {@link StreamSubscriber}. It
      *                 can be null if, when receiving the {@code notification}, not enough information was present
      *                 to compute an estimate - ie, the {@code delta} was null
+     * @param inProgress if not {@code null}, set to {@code false} once the polling is done
      */
-    private void pollAfterNotification(final StreamSizeNotification notification, @Nullable final Long estimate) {
+    private void pollAfterNotification(@Nullable final StreamSizeNotification notification,
+                                       @Nullable final Long estimate, @Nullable final AtomicBoolean inProgress) {
       final AtomicBoolean firstPoll = new AtomicBoolean(true);
       final AtomicInteger pollRetry = new AtomicInteger(POLLING_AFTER_NOTIFICATION_RETRY);
       pollBookingExecutor.schedule(new Runnable() {
@@ -586,7 +765,7 @@ public class StreamSizeScheduler implements Scheduler {
             boolean estimateReached = false;
             synchronized (deltaLock) {
               streamSize = pollOnce();
-              if (firstPoll.compareAndSet(true, false)) {
+              if (firstPoll.compareAndSet(true, false) && notification != null) {
                 // The first polling will recalibrate the delta, for future use when receiving a notification
                 delta = notification.getSize() - streamSize.getSize();
               }
@@ -604,6 +783,7 @@ public class StreamSizeScheduler implements Scheduler {
             if (estimate != null && !estimateReached && pollRetry.decrementAndGet() >= 0) {
               pollBookingExecutor.schedule(this, Constants.MetricsCollector.DEFAULT_FREQUENCY_SECONDS,
                                            TimeUnit.SECONDS);
+              return;
             } else if (estimate != null && !estimateReached) {
               LOG.debug("Polling estimate {} was not reached for stream {} after {} retries",
                         estimate, streamId.getId(), POLLING_AFTER_NOTIFICATION_RETRY);
@@ -613,6 +793,9 @@ public class StreamSizeScheduler implements Scheduler {
           } catch (Throwable t) {
             LOG.error("Error when polling stream {} and sending info to active tasks", streamId.getId(), t);
           }
+          if (inProgress != null) {
+            inProgress.set(false);
+          }
         }
       }, Constants.MetricsCollector.DEFAULT_FREQUENCY_SECONDS, TimeUnit.SECONDS);
     }
@@ -809,8 +992,14 @@ public class StreamSizeScheduler implements Scheduler {
     /**
      * Poll the stream size using metrics.
      */
-    private synchronized StreamSize pollOnce() throws IOException {
-      StreamSize streamSize = queryStreamEventsSize();
+    private StreamSize pollOnce() throws IOException {
+      return updatePollingInfo(queryStreamEventsSize());
+    }
+
+    /**
+     * Record the stream size obtained from the metrics, resetting the schedule tasks if the stream was truncated.
+     */
+    private synchronized StreamSize updatePollingInfo(StreamSize streamSize) {
       if (lastPollingInfo != null && streamSize.getSize() < lastPollingInfo.getSize()) {
         delta = null;
         for (StreamSizeScheduleTask streamSizeScheduleTask : scheduleTasks.values()) {
@@ -818,6 +1007,8 @@ public class StreamSizeScheduler implements Scheduler {
         }
       }
       lastPollingInfo = streamSize;
+      // Recalibrate the gap between the heartbeats and the metric, for use when receiving a heartbeat
+      heartbeatDelta = writerSizes.isEmpty() ? null : getWriterSizesSum() - streamSize.getSize();
       return streamSize;
     }
 
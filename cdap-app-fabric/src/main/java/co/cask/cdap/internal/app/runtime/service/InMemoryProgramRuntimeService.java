@@ -24,6 +24,7 @@ import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
 import co.cask.cdap.internal.app.runtime.artifact.ArtifactRepository;
+import co.cask.cdap.internal.app.runtime.artifact.ArtifactUnpackCache;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.InMemoryProgramLiveInfo;
 import co.cask.cdap.proto.NotRunningProgramLiveInfo;
@@ -57,9 +58,9 @@ public final class InMemoryProgramRuntimeService extends AbstractProgramRuntimeS
 
   @Inject
   public InMemoryProgramRuntimeService(ProgramRunnerFactory programRunnerFactory, CConfiguration cConf,
-                                       ArtifactRepository artifactRepository,
+                                       ArtifactRepository artifactRepository, ArtifactUnpackCache unpackCache,
                                        @Named(Constants.AppFabric.SERVER_ADDRESS) InetAddress hostname) {
-    super(cConf, programRunnerFactory, artifactRepository);
+    super(cConf, programRunnerFactory, artifactRepository, unpackCache);
     this.hostname = hostname.getCanonicalHostName();
   }
 
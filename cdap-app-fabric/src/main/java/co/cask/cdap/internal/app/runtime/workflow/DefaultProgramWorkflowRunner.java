@@ -76,6 +76,11 @@ final class DefaultProgramWorkflowRunner implements ProgramWorkflowRunner {
   private final WorkflowToken token;
   private final ProgramType programType;
 
+  // Program prepared ahead of create, guarded by this
+  private String preparedName;
+  private ProgramRunner preparedRunner;
+  private Program preparedProgram;
+
   DefaultProgramWorkflowRunner(CConfiguration cConf, Program workflowProgram, ProgramOptions workflowProgramOptions,
                                ProgramRunnerFactory programRunnerFactory, WorkflowSpecification workflowSpec,
                                WorkflowToken token, String nodeId, Map<String, WorkflowNodeState> nodeStates,
@@ -94,6 +99,16 @@ final class DefaultProgramWorkflowRunner implements ProgramWorkflowRunner {
 
   @Override
   public Runnable create(String name) {
+    synchronized (this) {
+      if (name.equals(preparedName)) {
+        Runnable runnable = getProgramRunnable(name, preparedRunner, preparedProgram);
+        preparedName = null;
+        preparedRunner = null;
+        preparedProgram = null;
+        return runnable;
+      }
+    }
+
     ProgramRunner programRunner = programRunnerFactory.create(programType);
     try {
       Program program = createProgram(programRunner, name);
@@ -104,6 +119,31 @@ final class DefaultProgramWorkflowRunner implements ProgramWorkflowRunner {
     }
   }
 
+  @Override
+  public synchronized void prepare(String name) throws Exception {
+    close();
+    ProgramRunner programRunner = programRunnerFactory.create(programType);
+    try {
+      preparedProgram = createProgram(programRunner, name);
+    } catch (Exception e) {
+      closeProgramRunner(programRunner);
+      throw e;
+    }
+    preparedRunner = programRunner;
+    preparedName = name;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (preparedName == null) {
+      return;
+    }
+    Closeables.closeQuietly(createCloseable(preparedRunner, preparedProgram));
+    preparedName = null;
+    preparedRunner = null;
+    preparedProgram = null;
+  }
+
   /**
    * Gets a {@link Runnable} for the {@link Program}.
    *
@@ -18,10 +18,12 @@ package co.cask.cdap.internal.app.runtime.workflow;
 import co.cask.cdap.api.schedule.SchedulableProgramType;
 import co.cask.cdap.api.workflow.Workflow;
 
+import java.io.Closeable;
+
 /**
  * An interface for Programs which can run in a {@link Workflow}. Please see {@link SchedulableProgramType}.
  */
-interface ProgramWorkflowRunner {
+interface ProgramWorkflowRunner extends Closeable {
 
   /**
    * Programs which want to support running in Workflow should give the implementation to get a {@link Runnable} of
@@ -31,4 +33,19 @@ interface ProgramWorkflowRunner {
    * @return {@link Runnable} which will be called to execute the program
    */
   Runnable create(String name);
+
+  /**
+   * Prepares the program of the given name ahead of time, so that a later call to {@link #create(String)} for the
+   * same name does not have to. A prepared program that is never created is released by {@link #close()}.
+   *
+   * @param name name of program in workflow
+   * @throws Exception if failed to prepare the program
+   */
+  void prepare(String name) throws Exception;
+
+  /**
+   * Releases the prepared program that has not been created, if any.
+   */
+  @Override
+  void close();
 }
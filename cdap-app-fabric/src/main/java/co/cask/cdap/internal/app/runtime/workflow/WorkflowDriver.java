@@ -23,6 +23,7 @@ import co.cask.cdap.api.common.Scope;
 import co.cask.cdap.api.dataset.DatasetManagementException;
 import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.api.schedule.SchedulableProgramType;
 import co.cask.cdap.api.workflow.NodeStatus;
 import co.cask.cdap.api.workflow.ScheduleProgramInfo;
@@ -73,8 +74,10 @@ import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.PeekingIterator;
 import com.google.common.reflect.TypeToken;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -96,11 +99,10 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -108,6 +110,10 @@ import javax.annotation.Nullable;
 
 /**
  * Core of Workflow engine that drives the execution of Workflow.
+ *
+ * Fork branches and actions run on an executor shared by the whole Workflow run, and the number of actions running
+ * at the same time is bounded across all forks, including nested ones. While a node runs, the next node of the same
+ * branch is prepared in the background, so that it can start as soon as the current one completes.
  */
 final class WorkflowDriver extends AbstractExecutionThreadService {
 
@@ -137,6 +143,8 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
   private final Map<String, WorkflowNodeState> nodeStates = new ConcurrentHashMap<>();
   @Nullable
   private final PluginInstantiator pluginInstantiator;
+  private final Semaphore actionPermits;
+  private ExecutorService nodeExecutor;
 
   WorkflowDriver(Program program, ProgramOptions options, InetAddress hostname,
                  WorkflowSpecification workflowSpec, ProgramRunnerFactory programRunnerFactory,
@@ -172,6 +180,7 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
                                                          metricsCollectionService, datasetFramework, txClient,
                                                          discoveryServiceClient, nodeStates, pluginInstantiator);
     this.pluginInstantiator = pluginInstantiator;
+    this.actionPermits = new Semaphore(cConf.getInt(Constants.AppFabric.WORKFLOW_MAX_CONCURRENT_ACTIONS), true);
   }
 
   @Override
@@ -187,6 +196,8 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
       .build();
 
     httpService.startAndWait();
+    nodeExecutor = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setNameFormat("workflow-" + workflowRunId.getRun() + "-node-%d").build());
     runningThread = Thread.currentThread();
     createLocalDatasets();
     workflow = initializeWorkflow();
@@ -270,6 +281,9 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
   @Override
   protected void shutDown() throws Exception {
     httpService.stopAndWait();
+    if (nodeExecutor != null) {
+      nodeExecutor.shutdownNow();
+    }
     deleteLocalDatasets();
     destroyWorkflow();
     if (pluginInstantiator != null) {
@@ -303,39 +317,49 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
     }
   }
 
-  private void executeAction(WorkflowActionNode node, WorkflowToken token) throws Exception {
+  private void executeAction(WorkflowActionNode node, @Nullable ProgramWorkflowRunner preparedRunner,
+                             WorkflowToken token) throws Exception {
     WorkflowActionSpecification actionSpec = getActionSpecification(node, node.getProgram().getProgramType());
+    ProgramWorkflowRunner programWorkflowRunner = preparedRunner == null
+      ? createProgramWorkflowRunner(actionSpec, node, token) : preparedRunner;
     status.put(node.getNodeId(), node);
 
-    BasicWorkflowContext workflowContext = createWorkflowContext(actionSpec, token, node.getNodeId());
-    final WorkflowAction action = new ProgramWorkflowAction(node.getProgram().getProgramName(),
-                                                            node.getProgram().getProgramType());
-    action.initialize(workflowContext);
-
-    CountDownLatch executorTerminateLatch = new CountDownLatch(1);
-    ExecutorService executorService = createExecutor(1, executorTerminateLatch, "action-" + node.getNodeId() + "-%d");
-
+    NodeTask<Void> task = null;
     try {
+      BasicWorkflowContext workflowContext = createWorkflowContext(actionSpec, programWorkflowRunner,
+                                                                   token, node.getNodeId());
+      final WorkflowAction action = new ProgramWorkflowAction(node.getProgram().getProgramName(),
+                                                              node.getProgram().getProgramType());
+      action.initialize(workflowContext);
+
       // Run the action in new thread
-      Future<?> future = executorService.submit(new Callable<Void>() {
+      task = new NodeTask<>(new Callable<Void>() {
         @Override
         public Void call() throws Exception {
           action.run();
           return null;
         }
       });
-      future.get();
+      task.setFuture(nodeExecutor.submit(task));
+      task.getFuture().get();
     } catch (Throwable t) {
       Throwables.propagateIfPossible(t, Exception.class);
       throw Throwables.propagate(t);
     } finally {
-      executorService.shutdownNow();
-      executorTerminateLatch.await();
+      if (task != null) {
+        task.cancelAndAwait();
+      }
+      programWorkflowRunner.close();
       status.remove(node.getNodeId());
     }
     store.updateWorkflowToken(workflowRunId, token);
   }
 
+  private ProgramWorkflowRunner createProgramWorkflowRunner(WorkflowActionSpecification actionSpec,
+                                                            WorkflowActionNode node, WorkflowToken token) {
+    return workflowProgramRunnerFactory.getProgramWorkflowRunner(actionSpec, token, node.getNodeId(), nodeStates);
+  }
+
   private WorkflowActionSpecification getActionSpecification(WorkflowActionNode node,
                                                              SchedulableProgramType programType) {
     WorkflowActionSpecification actionSpec;
@@ -360,22 +384,23 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
                            final InstantiatorFactory instantiator, final ClassLoader classLoader,
                            final WorkflowToken token) throws Exception {
 
-    CountDownLatch executorTerminateLatch = new CountDownLatch(1);
-    ExecutorService executorService = createExecutor(fork.getBranches().size(), executorTerminateLatch,
-                                                     "fork-" + fork.getNodeId() + "-%d");
     CompletionService<Map.Entry<String, WorkflowToken>> completionService =
-      new ExecutorCompletionService<>(executorService);
+      new ExecutorCompletionService<>(nodeExecutor);
+    List<NodeTask<Map.Entry<String, WorkflowToken>>> branchTasks = Lists.newArrayList();
 
     try {
       for (final List<WorkflowNode> branch : fork.getBranches()) {
-        completionService.submit(new Callable<Map.Entry<String, WorkflowToken>>() {
-          @Override
-          public Map.Entry<String, WorkflowToken> call() throws Exception {
-            WorkflowToken copiedToken = ((BasicWorkflowToken) token).deepCopy();
-            executeAll(branch.iterator(), appSpec, instantiator, classLoader, copiedToken);
-            return Maps.immutableEntry(branch.toString(), copiedToken);
-          }
-        });
+        NodeTask<Map.Entry<String, WorkflowToken>> branchTask = new NodeTask<>(
+          new Callable<Map.Entry<String, WorkflowToken>>() {
+            @Override
+            public Map.Entry<String, WorkflowToken> call() throws Exception {
+              WorkflowToken copiedToken = ((BasicWorkflowToken) token).deepCopy();
+              executeAll(branch.iterator(), appSpec, instantiator, classLoader, copiedToken);
+              return Maps.immutableEntry(branch.toString(), copiedToken);
+            }
+          });
+        branchTask.setFuture(completionService.submit(branchTask));
+        branchTasks.add(branchTask);
       }
 
       for (int i = 0; i < fork.getBranches().size(); i++) {
@@ -403,9 +428,13 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
     } finally {
       // Update the WorkflowToken after the execution of the FORK node completes.
       store.updateWorkflowToken(workflowRunId, token);
-      executorService.shutdownNow();
-      // Wait for the executor termination
-      executorTerminateLatch.await();
+      // Stop the branches that are still running and wait for them to return
+      for (NodeTask<?> branchTask : branchTasks) {
+        branchTask.cancel();
+      }
+      for (NodeTask<?> branchTask : branchTasks) {
+        branchTask.await();
+      }
     }
   }
 
@@ -433,27 +462,130 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
     }
   }
 
-  private void executeNode(ApplicationSpecification appSpec, WorkflowNode node, InstantiatorFactory instantiator,
-                           ClassLoader classLoader, WorkflowToken token) throws Exception {
+  private void executeNode(ApplicationSpecification appSpec, WorkflowNode node,
+                           @Nullable ProgramWorkflowRunner preparedRunner,
+                           InstantiatorFactory instantiator, ClassLoader classLoader,
+                           WorkflowToken token) throws Exception {
     WorkflowNodeType nodeType = node.getType();
     ((BasicWorkflowToken) token).setCurrentNode(node.getNodeId());
-    switch (nodeType) {
-      case ACTION:
-        WorkflowActionNode actionNode = (WorkflowActionNode) node;
-        if (SchedulableProgramType.CUSTOM_ACTION == actionNode.getProgram().getProgramType()) {
-          executeCustomAction(actionNode, instantiator, classLoader, token);
-        } else {
-          executeAction(actionNode, token);
+
+    // Actions have to wait for a permit, so that the number of concurrent actions is bounded for the whole run
+    long waitStartTime = System.currentTimeMillis();
+    if (nodeType == WorkflowNodeType.ACTION) {
+      try {
+        actionPermits.acquire();
+      } catch (InterruptedException e) {
+        if (preparedRunner != null) {
+          preparedRunner.close();
         }
-        break;
-      case FORK:
-        executeFork(appSpec, (WorkflowForkNode) node, instantiator, classLoader, token);
-        break;
-      case CONDITION:
-        executeCondition(appSpec, (WorkflowConditionNode) node, instantiator, classLoader, token);
-        break;
-      default:
-        break;
+        throw e;
+      }
+    }
+    long startTime = System.currentTimeMillis();
+    try {
+      switch (nodeType) {
+        case ACTION:
+          WorkflowActionNode actionNode = (WorkflowActionNode) node;
+          if (SchedulableProgramType.CUSTOM_ACTION == actionNode.getProgram().getProgramType()) {
+            executeCustomAction(actionNode, instantiator, classLoader, token);
+          } else {
+            executeAction(actionNode, preparedRunner, token);
+          }
+          break;
+        case FORK:
+          executeFork(appSpec, (WorkflowForkNode) node, instantiator, classLoader, token);
+          break;
+        case CONDITION:
+          executeCondition(appSpec, (WorkflowConditionNode) node, instantiator, classLoader, token);
+          break;
+        default:
+          break;
+      }
+    } finally {
+      if (nodeType == WorkflowNodeType.ACTION) {
+        actionPermits.release();
+      }
+      emitNodeMetrics(node.getNodeId(), startTime - waitStartTime, System.currentTimeMillis() - startTime);
+    }
+  }
+
+  /**
+   * Emits the time that a node waited before it could start, and the time that it took to execute.
+   */
+  private void emitNodeMetrics(String nodeId, long waitMillis, long runMillis) {
+    MetricsContext programMetrics = basicWorkflowContext.getProgramMetrics();
+    if (programMetrics == null) {
+      return;
+    }
+    MetricsContext nodeMetrics = programMetrics.childContext(Constants.Metrics.Tag.NODE, nodeId);
+    nodeMetrics.gauge("workflow.node.wait.ms", waitMillis);
+    nodeMetrics.gauge("workflow.node.run.ms", runMillis);
+  }
+
+  /**
+   * Starts creating the program of the given node in the background, if it is a MapReduce or Spark action.
+   * Creating a program only reads the program jar, so it does not depend on the nodes before it. Custom actions
+   * are not prepared, since instantiating them injects datasets, which has to happen on the thread that executes
+   * the action, after the previous node completed. Preparation is best effort: if it fails, the program is created
+   * again when the node is executed.
+   *
+   * @return the task preparing the node, or {@code null} if there is nothing to prepare
+   */
+  @Nullable
+  private NodeTask<ProgramWorkflowRunner> startPreparation(WorkflowNode node, final WorkflowToken token) {
+    if (node.getType() != WorkflowNodeType.ACTION) {
+      return null;
+    }
+    final WorkflowActionNode actionNode = (WorkflowActionNode) node;
+    if (SchedulableProgramType.CUSTOM_ACTION == actionNode.getProgram().getProgramType()) {
+      return null;
+    }
+    // Create the program with the same context classloader as the thread that executes the node
+    final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+    NodeTask<ProgramWorkflowRunner> task = new NodeTask<>(new Callable<ProgramWorkflowRunner>() {
+      @Override
+      public ProgramWorkflowRunner call() throws Exception {
+        ClassLoader oldClassLoader = ClassLoaders.setContextClassLoader(contextClassLoader);
+        try {
+          WorkflowActionSpecification actionSpec =
+            getActionSpecification(actionNode, actionNode.getProgram().getProgramType());
+          ProgramWorkflowRunner programWorkflowRunner = createProgramWorkflowRunner(actionSpec, actionNode, token);
+          programWorkflowRunner.prepare(actionNode.getProgram().getProgramName());
+          return programWorkflowRunner;
+        } finally {
+          ClassLoaders.setContextClassLoader(oldClassLoader);
+        }
+      }
+    });
+    task.setFuture(nodeExecutor.submit(task));
+    return task;
+  }
+
+  /**
+   * Returns the result of the given preparation task, or {@code null} if the preparation failed.
+   */
+  @Nullable
+  private ProgramWorkflowRunner getPrepared(NodeTask<ProgramWorkflowRunner> task,
+                                            WorkflowNode node) throws InterruptedException {
+    try {
+      return task.getFuture().get();
+    } catch (ExecutionException e) {
+      LOG.debug("Failed to prepare node {} ahead of its execution.", node.getNodeId(), e.getCause());
+      return null;
+    }
+  }
+
+  /**
+   * Waits for the given preparation task and releases what it prepared, as the node is not going to be executed.
+   */
+  private void discardPreparation(@Nullable NodeTask<ProgramWorkflowRunner> task) throws InterruptedException {
+    if (task == null) {
+      return;
+    }
+    try {
+      task.getFuture().get().close();
+    } catch (ExecutionException e) {
+      // Nothing was prepared
     }
   }
 
@@ -534,18 +666,34 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
 
   private void executeAll(Iterator<WorkflowNode> iterator, ApplicationSpecification appSpec,
                           InstantiatorFactory instantiator, ClassLoader classLoader, WorkflowToken token) {
-    while (iterator.hasNext() && runningThread != null) {
-      try {
-        blockIfSuspended();
-        WorkflowNode node = iterator.next();
-        executeNode(appSpec, node, instantiator, classLoader, token);
-      } catch (Throwable t) {
-        Throwable rootCause = Throwables.getRootCause(t);
-        if (rootCause instanceof InterruptedException) {
-          LOG.error("Workflow execution aborted.", rootCause);
-          break;
+    PeekingIterator<WorkflowNode> nodes = Iterators.peekingIterator(iterator);
+    NodeTask<ProgramWorkflowRunner> preparation = null;
+    try {
+      while (nodes.hasNext() && runningThread != null) {
+        try {
+          blockIfSuspended();
+          WorkflowNode node = nodes.next();
+          ProgramWorkflowRunner preparedRunner = preparation == null ? null : getPrepared(preparation, node);
+          preparation = null;
+          // Prepare the next node while this one executes
+          if (nodes.hasNext()) {
+            preparation = startPreparation(nodes.peek(), token);
+          }
+          executeNode(appSpec, node, preparedRunner, instantiator, classLoader, token);
+        } catch (Throwable t) {
+          Throwable rootCause = Throwables.getRootCause(t);
+          if (rootCause instanceof InterruptedException) {
+            LOG.error("Workflow execution aborted.", rootCause);
+            break;
+          }
+          throw Throwables.propagate(rootCause);
         }
-        throw Throwables.propagate(rootCause);
+      }
+    } finally {
+      try {
+        discardPreparation(preparation);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
       }
     }
   }
@@ -569,9 +717,16 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
 
   private BasicWorkflowContext createWorkflowContext(WorkflowActionSpecification actionSpec,
                                                      WorkflowToken token, String nodeId) {
-    return new BasicWorkflowContext(workflowSpec, actionSpec,
-                                    workflowProgramRunnerFactory.getProgramWorkflowRunner(actionSpec, token, nodeId,
-                                                                                          nodeStates),
+    return createWorkflowContext(actionSpec,
+                                 workflowProgramRunnerFactory.getProgramWorkflowRunner(actionSpec, token, nodeId,
+                                                                                       nodeStates),
+                                 token, nodeId);
+  }
+
+  private BasicWorkflowContext createWorkflowContext(WorkflowActionSpecification actionSpec,
+                                                     @Nullable ProgramWorkflowRunner programWorkflowRunner,
+                                                     WorkflowToken token, String nodeId) {
+    return new BasicWorkflowContext(workflowSpec, actionSpec, programWorkflowRunner,
                                     new BasicArguments(runtimeArgs), token, program,
                                     RunIds.fromString(workflowRunId.getRun()), metricsCollectionService,
                                     datasetFramework, txClient, discoveryServiceClient, nodeStates,
@@ -595,27 +750,72 @@ final class WorkflowDriver extends AbstractExecutionThreadService {
     };
   }
 
+  private ClassLoader setContextCombinedClassLoader(Workflow workflow) {
+    return ClassLoaders.setContextClassLoader(
+      new CombineClassLoader(null, Arrays.asList(workflow.getClass().getClassLoader(), getClass().getClassLoader())));
+  }
+
   /**
-   * Creates an {@link ExecutorService} that has the given number of threads.
+   * A task that runs on the node executor. Unlike a plain {@link Future}, it can be waited on after it is
+   * cancelled, so that the caller knows the task is no longer running.
    *
-   * @param threads number of core threads in the executor
-   * @param terminationLatch a {@link CountDownLatch} that will be counted down when the executor terminated
-   * @param threadNameFormat name format for the {@link ThreadFactory} provided to the executor
-   * @return a new {@link ExecutorService}.
+   * @param <V> type of the task result
    */
-  private ExecutorService createExecutor(int threads, final CountDownLatch terminationLatch, String threadNameFormat) {
-    return new ThreadPoolExecutor(
-      threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
-      new ThreadFactoryBuilder().setNameFormat(threadNameFormat).build()) {
-      @Override
-      protected void terminated() {
-        terminationLatch.countDown();
+  private static final class NodeTask<V> implements Callable<V> {
+    private final Callable<V> callable;
+    private final AtomicBoolean started;
+    private final CountDownLatch finished;
+    private Future<V> future;
+
+    NodeTask(Callable<V> callable) {
+      this.callable = callable;
+      this.started = new AtomicBoolean();
+      this.finished = new CountDownLatch(1);
+    }
+
+    void setFuture(Future<V> future) {
+      this.future = future;
+    }
+
+    Future<V> getFuture() {
+      return future;
+    }
+
+    @Override
+    public V call() throws Exception {
+      if (!started.compareAndSet(false, true)) {
+        // Cancelled before it started
+        return null;
       }
-    };
-  }
+      try {
+        return callable.call();
+      } finally {
+        finished.countDown();
+      }
+    }
 
-  private ClassLoader setContextCombinedClassLoader(Workflow workflow) {
-    return ClassLoaders.setContextClassLoader(
-      new CombineClassLoader(null, Arrays.asList(workflow.getClass().getClassLoader(), getClass().getClassLoader())));
+    /**
+     * Cancels the task, interrupting it if it is running.
+     */
+    void cancel() {
+      if (started.compareAndSet(false, true)) {
+        finished.countDown();
+      }
+      if (future != null) {
+        future.cancel(true);
+      }
+    }
+
+    /**
+     * Waits for the task to return. It returns immediately if the task was cancelled before it started.
+     */
+    void await() throws InterruptedException {
+      finished.await();
+    }
+
+    void cancelAndAwait() throws InterruptedException {
+      cancel();
+      await();
+    }
   }
 }
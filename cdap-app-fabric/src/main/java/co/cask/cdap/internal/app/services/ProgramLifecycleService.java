@@ -41,6 +41,7 @@ import co.cask.cdap.internal.app.runtime.BasicArguments;
 import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
 import co.cask.cdap.internal.app.runtime.SimpleProgramOptions;
 import co.cask.cdap.internal.app.store.RunRecordMeta;
+import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.NamespaceMeta;
 import co.cask.cdap.proto.ProgramRunStatus;
 import co.cask.cdap.proto.ProgramStatus;
@@ -74,6 +75,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -184,6 +186,62 @@ public class ProgramLifecycleService extends AbstractIdleService {
     return runtimeInfo.getController().getState().getProgramStatus();
   }
 
+  /**
+   * Returns the statuses of the given programs. Unlike {@link #getProgramStatus(ProgramId)}, the application
+   * specifications and the active runs of all programs are fetched from the store in one transaction each, and the
+   * runtime service is queried once per program type.
+   *
+   * @param programIds the ids of the programs for which the status call is made
+   * @return map from program id to the status of the program, which does not contain programs that were not found
+   */
+  public Map<ProgramId, ProgramStatus> getProgramStatuses(Collection<ProgramId> programIds) {
+    Set<Id.Application> appIds = new HashSet<>();
+    for (ProgramId programId : programIds) {
+      appIds.add(programId.toId().getApplication());
+    }
+    Map<Id.Application, ApplicationSpecification> appSpecs = store.getApplications(appIds);
+
+    Map<ProgramType, Map<ProgramId, RuntimeInfo>> runtimeInfos = new HashMap<>();
+    Map<ProgramId, ProgramStatus> statuses = new HashMap<>();
+    // MapReduce and Spark programs without runtime info may be running as part of a Workflow
+    Set<Id.Program> workflowNodePrograms = new HashSet<>();
+    for (ProgramId programId : programIds) {
+      ApplicationSpecification appSpec = appSpecs.get(programId.toId().getApplication());
+      if (appSpec == null) {
+        continue;
+      }
+      Map<ProgramId, RuntimeInfo> typeRuntimeInfos = runtimeInfos.get(programId.getType());
+      if (typeRuntimeInfos == null) {
+        typeRuntimeInfos = new HashMap<>();
+        for (RuntimeInfo info : runtimeService.list(programId.getType()).values()) {
+          typeRuntimeInfos.put(info.getProgramId().toEntityId(), info);
+        }
+        runtimeInfos.put(programId.getType(), typeRuntimeInfos);
+      }
+
+      RuntimeInfo runtimeInfo = typeRuntimeInfos.get(programId);
+      if (runtimeInfo != null) {
+        statuses.put(programId, runtimeInfo.getController().getState().getProgramStatus());
+      } else if (programId.getType() == ProgramType.WEBAPP) {
+        statuses.put(programId, ProgramStatus.STOPPED);
+      } else if (getProgramSpecification(appSpec, programId) != null) {
+        if (programId.getType() == ProgramType.MAPREDUCE || programId.getType() == ProgramType.SPARK) {
+          workflowNodePrograms.add(programId.toId());
+        } else {
+          statuses.put(programId, ProgramStatus.STOPPED);
+        }
+      }
+    }
+
+    if (!workflowNodePrograms.isEmpty()) {
+      for (Map.Entry<Id.Program, Integer> entry : store.getRunningRunCounts(workflowNodePrograms).entrySet()) {
+        ProgramStatus status = entry.getValue() > 0 ? ProgramStatus.RUNNING : ProgramStatus.STOPPED;
+        statuses.put(entry.getKey().toEntityId(), status);
+      }
+    }
+    return statuses;
+  }
+
   /**
    * Returns the {@link ProgramSpecification} for the specified {@link ProgramId program}.
    *
@@ -197,7 +255,11 @@ public class ProgramLifecycleService extends AbstractIdleService {
     if (appSpec == null) {
       return null;
     }
+    return getProgramSpecification(appSpec, programId);
+  }
 
+  @Nullable
+  private ProgramSpecification getProgramSpecification(ApplicationSpecification appSpec, ProgramId programId) {
     String programName = programId.getProgram();
     ProgramType type = programId.getType();
     ProgramSpecification programSpec;
@@ -59,6 +59,7 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -83,6 +84,15 @@ public class AppMetadataStore extends MetadataStoreDataset {
   private static final String TYPE_WORKFLOW_NODE_STATE = "wns";
   private static final String TYPE_WORKFLOW_TOKEN = "wft";
   private static final String TYPE_NAMESPACE = "namespace";
+  // index of completed runs by the time buckets in which they were running
+  private static final String TYPE_RUN_RECORD_TIME_INDEX = "runTimeIdx";
+  // index of completed runs that were running in more time buckets than are indexed for one run
+  private static final String TYPE_RUN_RECORD_TIME_INDEX_LONG = "runTimeIdxLong";
+  // the stop time since which all completed runs are in the run time index
+  private static final String TYPE_RUN_RECORD_TIME_INDEX_START = "runTimeIdxStart";
+  private static final long RUN_RECORD_TIME_INDEX_BUCKET_SECS = TimeUnit.DAYS.toSeconds(1);
+  private static final int RUN_RECORD_TIME_INDEX_MAX_BUCKETS = 7;
+  private static final int RUN_RECORD_TIME_INDEX_DELETE_BATCH_SIZE = 1000;
 
   private final CConfiguration cConf;
 
@@ -322,6 +332,120 @@ public class AppMetadataStore extends MetadataStoreDataset {
       .add(pid).build();
 
     write(key, new RunRecordMeta(started, stopTs, runStatus));
+    addToRunTimeIndex(program, pid, started.getStartTs(), stopTs, runStatus);
+  }
+
+  /**
+   * Adds a completed run to the run time index under every time bucket in which the run was running. Runs that were
+   * running in more than {@link #RUN_RECORD_TIME_INDEX_MAX_BUCKETS} buckets are rare, and are indexed in a single row
+   * of the long runs index instead, which is scanned for every range.
+   */
+  private void addToRunTimeIndex(Id.Program program, String pid, long startTs, long stopTs,
+                                 ProgramRunStatus runStatus) {
+    // only the times are needed to answer range queries
+    RunRecordMeta indexed = new RunRecordMeta(pid, startTs, stopTs, runStatus, null, null, null);
+    for (MDSKey key : getRunTimeIndexKeys(program.getNamespaceId(), program.getApplicationId(),
+                                          program.getType().name(), program.getId(), pid, startTs, stopTs)) {
+      write(key, indexed);
+    }
+
+    MDSKey indexStartKey = new MDSKey.Builder().add(TYPE_RUN_RECORD_TIME_INDEX_START).build();
+    if (get(indexStartKey, Long.class) == null) {
+      // runs that completed before this one may have been recorded before the index existed
+      write(indexStartKey, stopTs);
+    }
+  }
+
+  /**
+   * Returns the keys under which a completed run is in the run time index.
+   */
+  private List<MDSKey> getRunTimeIndexKeys(String namespaceId, String appId, String programType, String programId,
+                                           String pid, long startTs, long stopTs) {
+    long firstBucket = getRunTimeBucket(startTs);
+    long lastBucket = getRunTimeBucket(stopTs);
+    if (lastBucket - firstBucket >= RUN_RECORD_TIME_INDEX_MAX_BUCKETS) {
+      return Collections.singletonList(new MDSKey.Builder()
+                                         .add(TYPE_RUN_RECORD_TIME_INDEX_LONG)
+                                         .add(namespaceId)
+                                         .add(appId)
+                                         .add(programType)
+                                         .add(programId)
+                                         .add(pid)
+                                         .build());
+    }
+    List<MDSKey> keys = new ArrayList<>();
+    for (long bucket = firstBucket; bucket <= lastBucket; bucket++) {
+      keys.add(new MDSKey.Builder()
+                 .add(TYPE_RUN_RECORD_TIME_INDEX)
+                 .add(bucket)
+                 .add(namespaceId)
+                 .add(appId)
+                 .add(programType)
+                 .add(programId)
+                 .add(pid)
+                 .build());
+    }
+    return keys;
+  }
+
+  private long getRunTimeBucket(long timeInSecs) {
+    // floor division, so that negative times fall into the preceding bucket
+    long bucket = timeInSecs / RUN_RECORD_TIME_INDEX_BUCKET_SECS;
+    return timeInSecs < 0 && timeInSecs % RUN_RECORD_TIME_INDEX_BUCKET_SECS != 0 ? bucket - 1 : bucket;
+  }
+
+  /**
+   * Removes the run time index entries of the completed runs with the given key prefix. The index keys of each run
+   * are computed from its completed run record, so that only the entries of these runs are read, in batches.
+   * This must be called before the completed run records are deleted.
+   */
+  private void deleteFromRunTimeIndex(MDSKey completedPrefix) {
+    MDSKey startKey = completedPrefix;
+    MDSKey endKey = new MDSKey(Bytes.stopKeyForPrefix(completedPrefix.getKey()));
+    while (true) {
+      RunTimeIndexKeysFunction keysFunction = new RunTimeIndexKeysFunction(RUN_RECORD_TIME_INDEX_DELETE_BATCH_SIZE);
+      scan(startKey, endKey, RunRecordMeta.class, keysFunction);
+      for (MDSKey key : keysFunction.getIndexKeys()) {
+        deleteAll(key);
+      }
+      if (keysFunction.getNumProcessed() < RUN_RECORD_TIME_INDEX_DELETE_BATCH_SIZE) {
+        return;
+      }
+      // key for next batch is the last key + 1 from the previous batch
+      startKey = new MDSKey(Bytes.stopKeyForPrefix(keysFunction.getLastKey().getKey()));
+    }
+  }
+
+  /**
+   * Returns the number of running runs of each of the given programs. Suspended runs are not counted, the same as
+   * when listing the {@link ProgramRunStatus#RUNNING} runs of a program. Scans the started run records once per
+   * application instead of once per program.
+   */
+  public Map<Id.Program, Integer> getRunningRunCounts(Set<Id.Program> programs) {
+    Map<Id.Program, Integer> counts = new HashMap<>();
+    Set<Id.Application> applications = new HashSet<>();
+    for (Id.Program program : programs) {
+      counts.put(program, 0);
+      applications.add(program.getApplication());
+    }
+    for (Id.Application application : applications) {
+      MDSKey prefix = new MDSKey.Builder()
+        .add(TYPE_RUN_RECORD_STARTED, application.getNamespaceId(), application.getId())
+        .build();
+      for (MDSKey key : listKV(prefix, RunRecordMeta.class).keySet()) {
+        MDSKey.Splitter splitter = key.split();
+        splitter.skipString();
+        splitter.skipString();
+        splitter.skipString();
+        ProgramType programType = ProgramType.valueOf(splitter.getString());
+        Id.Program program = Id.Program.from(application, programType, splitter.getString());
+        Integer count = counts.get(program);
+        if (count != null) {
+          counts.put(program, count + 1);
+        }
+      }
+    }
+    return counts;
   }
 
   public List<RunRecordMeta> getRuns(ProgramRunStatus status, Predicate<RunRecordMeta> filter) {
@@ -531,12 +655,14 @@ public class AppMetadataStore extends MetadataStoreDataset {
 
   public void deleteProgramHistory(String namespaceId, String appId) {
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_STARTED, namespaceId, appId).build());
+    deleteFromRunTimeIndex(new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId, appId).build());
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId, appId).build());
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_SUSPENDED, namespaceId, appId).build());
   }
 
   public void deleteProgramHistory(String namespaceId) {
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_STARTED, namespaceId).build());
+    deleteFromRunTimeIndex(new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId).build());
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId).build());
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_SUSPENDED, namespaceId).build());
   }
@@ -609,8 +735,15 @@ public class AppMetadataStore extends MetadataStoreDataset {
     LOG.trace("Scan timeout = {}ms", scanTimeoutMills);
 
     Set<RunId> runIds = new HashSet<>();
-    Iterables.addAll(runIds, getRunningInRangeForStatus(TYPE_RUN_RECORD_COMPLETED, startTimeInSecs, endTimeInSecs,
-                                                        scanTimeoutMills));
+    Long indexStartTime = get(new MDSKey.Builder().add(TYPE_RUN_RECORD_TIME_INDEX_START).build(), Long.class);
+    if (indexStartTime != null && startTimeInSecs >= indexStartTime) {
+      // all completed runs that stopped at or after the start time are in the index
+      Iterables.addAll(runIds, Iterables.concat(getCompletedInRangeFromIndex(startTimeInSecs, endTimeInSecs,
+                                                                             scanTimeoutMills, Ticker.systemTicker())));
+    } else {
+      Iterables.addAll(runIds, getRunningInRangeForStatus(TYPE_RUN_RECORD_COMPLETED, startTimeInSecs, endTimeInSecs,
+                                                          scanTimeoutMills));
+    }
     Iterables.addAll(runIds, getRunningInRangeForStatus(TYPE_RUN_RECORD_SUSPENDED, startTimeInSecs, endTimeInSecs,
                                                         scanTimeoutMills));
     Iterables.addAll(runIds, getRunningInRangeForStatus(TYPE_RUN_RECORD_STARTED, startTimeInSecs, endTimeInSecs,
@@ -628,6 +761,42 @@ public class AppMetadataStore extends MetadataStoreDataset {
   @VisibleForTesting
   List<Iterable<RunId>> getRunningInRangeForStatus(String statusKey, final long startTimeInSecs,
                                                    final long endTimeInSecs, long maxScanTimeMillis, Ticker ticker) {
+    MDSKey startKey = new MDSKey.Builder().add(statusKey).build();
+    MDSKey endKey = new MDSKey(Bytes.stopKeyForPrefix(startKey.getKey()));
+    return scanRunningInRange(startKey, endKey, startTimeInSecs, endTimeInSecs, maxScanTimeMillis, ticker);
+  }
+
+  /**
+   * Returns completed runs that were running between given start and end time by scanning only the time buckets
+   * of the run time index that overlap with the range, and the long runs index. A run is in several buckets, hence
+   * the result can contain duplicates.
+   */
+  @VisibleForTesting
+  List<Iterable<RunId>> getCompletedInRangeFromIndex(long startTimeInSecs, long endTimeInSecs,
+                                                     long maxScanTimeMillis, Ticker ticker) {
+    // a run that started before the end time and stopped after the start time is in a bucket between both times,
+    // even if the end time is before the start time
+    MDSKey startKey = new MDSKey.Builder()
+      .add(TYPE_RUN_RECORD_TIME_INDEX)
+      .add(getRunTimeBucket(Math.min(startTimeInSecs, endTimeInSecs)))
+      .build();
+    MDSKey lastBucketKey = new MDSKey.Builder()
+      .add(TYPE_RUN_RECORD_TIME_INDEX)
+      .add(getRunTimeBucket(Math.max(startTimeInSecs, endTimeInSecs)))
+      .build();
+    MDSKey endKey = new MDSKey(Bytes.stopKeyForPrefix(lastBucketKey.getKey()));
+    List<Iterable<RunId>> batches = new ArrayList<>();
+    batches.addAll(scanRunningInRange(startKey, endKey, startTimeInSecs, endTimeInSecs, maxScanTimeMillis, ticker));
+
+    MDSKey longStartKey = new MDSKey.Builder().add(TYPE_RUN_RECORD_TIME_INDEX_LONG).build();
+    MDSKey longEndKey = new MDSKey(Bytes.stopKeyForPrefix(longStartKey.getKey()));
+    batches.addAll(scanRunningInRange(longStartKey, longEndKey, startTimeInSecs, endTimeInSecs,
+                                      maxScanTimeMillis, ticker));
+    return batches;
+  }
+
+  private List<Iterable<RunId>> scanRunningInRange(MDSKey startKey, MDSKey endKey, final long startTimeInSecs,
+                                                   final long endTimeInSecs, long maxScanTimeMillis, Ticker ticker) {
     // Create time filter to get running programs between start and end time
     Predicate<RunRecordMeta> timeFilter = new Predicate<RunRecordMeta>() {
       @Override
@@ -641,8 +810,6 @@ public class AppMetadataStore extends MetadataStoreDataset {
 
     // Break up scans into smaller batches to prevent transaction timeout
     List<Iterable<RunId>> batches = new ArrayList<>();
-    MDSKey startKey = new MDSKey.Builder().add(statusKey).build();
-    MDSKey endKey = new MDSKey(Bytes.stopKeyForPrefix(startKey.getKey()));
     while (true) {
       ScanFunction scanFunction = new ScanFunction(timeFilter, ticker, maxScanTimeMillis);
       scanFunction.start();
@@ -658,6 +825,51 @@ public class AppMetadataStore extends MetadataStoreDataset {
     return batches;
   }
 
+  /**
+   * Collects the run time index keys of a batch of completed run records.
+   */
+  private class RunTimeIndexKeysFunction implements Function<MetadataStoreDataset.KeyValue<RunRecordMeta>, Boolean> {
+    private final int batchSize;
+    private final List<MDSKey> indexKeys = new ArrayList<>();
+    private int numProcessed = 0;
+    private MDSKey lastKey;
+
+    RunTimeIndexKeysFunction(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    public List<MDSKey> getIndexKeys() {
+      return indexKeys;
+    }
+
+    public int getNumProcessed() {
+      return numProcessed;
+    }
+
+    public MDSKey getLastKey() {
+      return lastKey;
+    }
+
+    @Override
+    public Boolean apply(MetadataStoreDataset.KeyValue<RunRecordMeta> input) {
+      ++numProcessed;
+      lastKey = input.getKey();
+      RunRecordMeta run = input.getValue();
+      if (run.getStopTs() != null) {
+        // key of a completed run record is [type, namespace, app, program type, program, inverted start time, pid]
+        MDSKey.Splitter splitter = lastKey.split();
+        splitter.skipString();
+        String namespaceId = splitter.getString();
+        String appId = splitter.getString();
+        String programType = splitter.getString();
+        String programId = splitter.getString();
+        indexKeys.addAll(getRunTimeIndexKeys(namespaceId, appId, programType, programId, run.getPid(),
+                                             run.getStartTs(), run.getStopTs()));
+      }
+      return numProcessed < batchSize;
+    }
+  }
+
   private static class ScanFunction implements Function<MetadataStoreDataset.KeyValue<RunRecordMeta>, Boolean> {
     private final Predicate<RunRecordMeta> filter;
     private final Stopwatch stopwatch;
@@ -736,6 +736,35 @@ public class DefaultStore implements Store {
       }, apps.get());
   }
 
+  @Override
+  public Map<Id.Application, ApplicationSpecification> getApplications(final Set<Id.Application> ids) {
+    return appsTx.get().executeUnchecked(
+      new TransactionExecutor.Function<AppMetadataStore, Map<Id.Application, ApplicationSpecification>>() {
+        @Override
+        public Map<Id.Application, ApplicationSpecification> apply(AppMetadataStore mds) throws Exception {
+          Map<Id.Application, ApplicationSpecification> result = Maps.newHashMap();
+          for (Id.Application id : ids) {
+            ApplicationSpecification appSpec = getApplicationSpec(mds, id);
+            if (appSpec != null) {
+              result.put(id, appSpec);
+            }
+          }
+          return result;
+        }
+      }, apps.get());
+  }
+
+  @Override
+  public Map<Id.Program, Integer> getRunningRunCounts(final Set<Id.Program> ids) {
+    return appsTx.get().executeUnchecked(
+      new TransactionExecutor.Function<AppMetadataStore, Map<Id.Program, Integer>>() {
+        @Override
+        public Map<Id.Program, Integer> apply(AppMetadataStore mds) throws Exception {
+          return mds.getRunningRunCounts(ids);
+        }
+      }, apps.get());
+  }
+
   @Override
   public Collection<ApplicationSpecification> getAllApplications(final Id.Namespace id) {
     return appsTx.get().executeUnchecked(
@@ -21,11 +21,13 @@ import co.cask.cdap.common.NotFoundException;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.metadata.MetadataRecord;
 import co.cask.cdap.proto.metadata.MetadataScope;
+import co.cask.cdap.proto.metadata.MetadataSearchResponse;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecord;
 import co.cask.cdap.proto.metadata.MetadataSearchTargetType;
 
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Interface that the {@link MetadataHttpHandler} uses to interact with Metadata.
@@ -174,4 +176,20 @@ public interface MetadataAdmin {
    */
   Set<MetadataSearchResultRecord> searchMetadata(MetadataScope scope, String namespaceId, String searchQuery,
                                                  Set<MetadataSearchTargetType> types);
+
+  /**
+   * Executes a paginated search for CDAP entities in the specified namespace that match any term of the specified
+   * search query, with an optional set of {@link MetadataSearchTargetType entity types} in both
+   * {@link MetadataScope#USER} and {@link MetadataScope#SYSTEM}.
+   *
+   * @param namespaceId The namespace to filter the search by
+   * @param searchQuery The search query
+   * @param types The types of CDAP entity to be searched. If empty all possible types will be searched
+   * @param limit The maximum number of results to return
+   * @param cursor The cursor returned by the previous search to get the next page, or {@code null} for the first page
+   * @return a {@link MetadataSearchResponse} containing the results and the cursor to the next page
+   * @throws IllegalArgumentException if the limit is not positive or the cursor is not a cursor of this search
+   */
+  MetadataSearchResponse searchMetadata(String namespaceId, String searchQuery, Set<MetadataSearchTargetType> types,
+                                        int limit, @Nullable String cursor);
 }
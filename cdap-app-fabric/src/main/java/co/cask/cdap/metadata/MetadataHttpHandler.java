@@ -24,6 +24,7 @@ import co.cask.cdap.proto.ProgramType;
 import co.cask.cdap.proto.codec.NamespacedIdCodec;
 import co.cask.cdap.proto.metadata.MetadataRecord;
 import co.cask.cdap.proto.metadata.MetadataScope;
+import co.cask.cdap.proto.metadata.MetadataSearchResponse;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecord;
 import co.cask.cdap.proto.metadata.MetadataSearchTargetType;
 import co.cask.http.AbstractHttpHandler;
@@ -51,6 +52,7 @@ import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -838,12 +840,31 @@ public class MetadataHttpHandler extends AbstractHttpHandler {
   public void searchMetadata(HttpRequest request, HttpResponder responder,
                              @PathParam("namespace-id") String namespaceId,
                              @QueryParam("query") String searchQuery,
-                             @QueryParam("target") List<String> targets) throws Exception {
+                             @QueryParam("target") List<String> targets,
+                             @QueryParam("limit") @DefaultValue("0") int limit,
+                             @QueryParam("cursor") String cursor) throws Exception {
     Set<MetadataSearchTargetType> types = ImmutableSet.of();
     if (targets != null) {
       types = ImmutableSet.copyOf(Iterables.transform(targets, STRING_TO_TARGET_TYPE));
     }
 
+    // With a limit, the search returns one page of the entities that match any term, and a cursor to the next page
+    if (limit < 0 || (cursor != null && limit == 0)) {
+      throw new BadRequestException("The limit must be a positive integer when searching with a cursor");
+    }
+    if (limit > 0) {
+      MetadataSearchResponse response;
+      try {
+        response = metadataAdmin.searchMetadata(namespaceId, URLDecoder.decode(searchQuery, "UTF-8"),
+                                                types, limit, cursor);
+      } catch (IllegalArgumentException e) {
+        // the cursor is not one returned by a previous search with the same parameters
+        throw new BadRequestException(e.getMessage());
+      }
+      responder.sendJson(HttpResponseStatus.OK, response, MetadataSearchResponse.class, GSON);
+      return;
+    }
+
     Set<MetadataSearchResultRecord> results = metadataAdmin.searchMetadata(namespaceId,
                                                                            URLDecoder.decode(searchQuery, "UTF-8"),
                                                                            types);
@@ -65,7 +65,7 @@ public class AbstractProgramRuntimeServiceTest {
     final Program program = createDummyProgram();
 
     final ProgramRuntimeService runtimeService = new AbstractProgramRuntimeService(CConfiguration.create(),
-                                                                                   runnerFactory, null) {
+                                                                                   runnerFactory, null, null) {
       @Override
       public ProgramLiveInfo getLiveInfo(Id.Program programId) {
         return new ProgramLiveInfo(programId, "runtime") { };
@@ -272,7 +272,7 @@ public class AbstractProgramRuntimeServiceTest {
 
     protected TestProgramRuntimeService(CConfiguration cConf, ProgramRunnerFactory programRunnerFactory,
                                         @Nullable ArtifactRepository artifactRepository, RuntimeInfo extraInfo) {
-      super(cConf, programRunnerFactory, artifactRepository);
+      super(cConf, programRunnerFactory, artifactRepository, null);
       this.extraInfo = extraInfo;
     }
 
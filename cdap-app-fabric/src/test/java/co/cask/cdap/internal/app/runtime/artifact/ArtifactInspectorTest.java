@@ -27,10 +27,12 @@ import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.internal.app.plugins.test.TestPlugin;
 import co.cask.cdap.internal.app.runtime.artifact.app.InvalidConfigApp;
 import co.cask.cdap.internal.app.runtime.artifact.app.inspection.InspectionApp;
 import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
 import co.cask.cdap.internal.test.AppJarHelper;
+import co.cask.cdap.internal.test.PluginJarHelper;
 import co.cask.cdap.proto.Id;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -45,7 +47,9 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 
 /**
@@ -62,8 +66,9 @@ public class ArtifactInspectorTest {
     CConfiguration cConf = CConfiguration.create();
     cConf.set(Constants.CFG_LOCAL_DATA_DIR, TMP_FOLDER.newFolder().getAbsolutePath());
 
-    classLoaderFactory = new ArtifactClassLoaderFactory(cConf, new DummyProgramRunnerFactory());
-    artifactInspector = new ArtifactInspector(cConf, classLoaderFactory);
+    ArtifactUnpackCache unpackCache = new ArtifactUnpackCache(cConf);
+    classLoaderFactory = new ArtifactClassLoaderFactory(cConf, new DummyProgramRunnerFactory(), unpackCache);
+    artifactInspector = new ArtifactInspector(cConf, classLoaderFactory, unpackCache);
   }
 
   @Test(expected = InvalidArtifactException.class)
@@ -108,6 +113,54 @@ public class ArtifactInspectorTest {
     }
   }
 
+  @Test
+  public void testInspectionCache() throws Exception {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(ManifestFields.EXPORT_PACKAGE, InspectionApp.class.getPackage().getName());
+    File parentFile =
+      createJar(InspectionApp.class, new File(TMP_FOLDER.newFolder(), "InspectionApp-1.0.0.jar"), manifest);
+    Location parentLocation = Locations.toLocation(parentFile);
+    Id.Artifact parentId = Id.Artifact.from(Id.Namespace.DEFAULT, "InspectionApp", "1.0.0");
+    ArtifactDescriptor parentArtifact = new ArtifactDescriptor(parentId.toArtifactId(), parentLocation);
+
+    // the plugin jar contains two plugins, TestPlugin and TestPlugin2, which are scanned in parallel
+    manifest = new Manifest();
+    manifest.getMainAttributes().put(ManifestFields.EXPORT_PACKAGE, TestPlugin.class.getPackage().getName());
+    File pluginFile = createPluginJar(TestPlugin.class, new File(TMP_FOLDER.newFolder(), "plugins-1.0.0.jar"),
+                                      manifest);
+    Id.Artifact pluginId = Id.Artifact.from(Id.Namespace.DEFAULT, "plugins", "1.0.0");
+
+    try (CloseableClassLoader parentClassLoader = classLoaderFactory.createClassLoader(parentLocation)) {
+      ArtifactClasses classes =
+        artifactInspector.inspectArtifact(pluginId, pluginFile, parentClassLoader, parentArtifact);
+      Set<String> pluginNames = new HashSet<>();
+      for (PluginClass pluginClass : classes.getPlugins()) {
+        pluginNames.add(pluginClass.getName());
+      }
+      Assert.assertEquals(ImmutableSet.of("TestPlugin", "TestPlugin2"), pluginNames);
+
+      // inspecting the same artifact with the same parent reuses the result
+      Assert.assertSame(classes,
+                        artifactInspector.inspectArtifact(pluginId, pluginFile, parentClassLoader, parentArtifact));
+
+      // inspecting the artifact with a different parent inspects it again
+      Id.Artifact otherParentId = Id.Artifact.from(Id.Namespace.DEFAULT, "InspectionApp", "2.0.0");
+      ArtifactDescriptor otherParentArtifact = new ArtifactDescriptor(otherParentId.toArtifactId(), parentLocation);
+      ArtifactClasses otherClasses =
+        artifactInspector.inspectArtifact(pluginId, pluginFile, parentClassLoader, otherParentArtifact);
+      Assert.assertNotSame(classes, otherClasses);
+      Assert.assertEquals(classes, otherClasses);
+
+      // inspecting the artifact after its file changed inspects it again
+      manifest.getMainAttributes().put(new Attributes.Name("Changed"), "true");
+      createPluginJar(TestPlugin.class, pluginFile, manifest);
+      ArtifactClasses changedClasses =
+        artifactInspector.inspectArtifact(pluginId, pluginFile, parentClassLoader, parentArtifact);
+      Assert.assertNotSame(classes, changedClasses);
+      Assert.assertEquals(classes, changedClasses);
+    }
+  }
+
   private static File createJar(Class<?> cls, File destFile, Manifest manifest) throws IOException {
     Location deploymentJar = AppJarHelper.createDeploymentJar(new LocalLocationFactory(TMP_FOLDER.newFolder()),
       cls, manifest);
@@ -115,4 +168,12 @@ public class ArtifactInspectorTest {
     Files.copy(Locations.newInputSupplier(deploymentJar), destFile);
     return destFile;
   }
+
+  private static File createPluginJar(Class<?> cls, File destFile, Manifest manifest) throws IOException {
+    Location pluginJar = PluginJarHelper.createPluginJar(new LocalLocationFactory(TMP_FOLDER.newFolder()),
+                                                         manifest, cls);
+    DirUtils.mkdirs(destFile.getParentFile());
+    Files.copy(Locations.newInputSupplier(pluginJar), destFile);
+    return destFile;
+  }
 }
@@ -57,6 +57,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
 import com.google.inject.Injector;
 import org.apache.twill.filesystem.LocalLocationFactory;
@@ -252,6 +253,71 @@ public class ArtifactRepositoryTest {
     }
   }
 
+  @Test
+  public void testAddUnchangedSystemArtifacts() throws Exception {
+    File systemAppJar = createAppJar(PluginTestApp.class, new File(systemArtifactsDir1, "PluginTest-1.0.0.jar"),
+      createManifest(ManifestFields.EXPORT_PACKAGE, PluginTestRunnable.class.getPackage().getName()));
+
+    // write a snapshot plugins jar, which is only added again if it changed
+    Id.Artifact pluginArtifactId = Id.Artifact.from(Id.Namespace.SYSTEM, "CPlugin", "1.0.0-SNAPSHOT");
+    Manifest manifest = createManifest(ManifestFields.EXPORT_PACKAGE, TestPlugin.class.getPackage().getName());
+    File pluginJar = createPluginJar(TestPlugin.class, new File(systemArtifactsDir1, "CPlugin-1.0.0-SNAPSHOT.jar"),
+                                     manifest);
+
+    Map<String, PluginPropertyField> emptyMap = Collections.emptyMap();
+    PluginClass manual1 = new PluginClass("typeA", "manual1", "desc", "co.cask.classname", null, emptyMap);
+    PluginClass manual2 = new PluginClass("typeB", "manual2", "desc", "co.cask.otherclassname", null, emptyMap);
+    Set<ArtifactRange> parents = ImmutableSet.of(new ArtifactRange(
+      Id.Namespace.SYSTEM, "PluginTest", new ArtifactVersion("0.9.0"), new ArtifactVersion("2.0.0")));
+    File pluginConfigFile = new File(systemArtifactsDir1, "CPlugin-1.0.0-SNAPSHOT.json");
+    try (BufferedWriter writer = Files.newWriter(pluginConfigFile, Charsets.UTF_8)) {
+      writer.write(new ArtifactConfig(parents, ImmutableSet.of(manual1, manual2),
+                                      ImmutableMap.<String, String>of()).toString());
+    }
+
+    try {
+      artifactRepository.addSystemArtifacts();
+      ArtifactDetail pluginArtifactDetail = artifactRepository.getArtifact(pluginArtifactId);
+      Assert.assertEquals(ImmutableSet.of("manual1", "manual2", "TestPlugin", "TestPlugin2"),
+                          getPluginNames(pluginArtifactDetail));
+      // the checksum and the additional plugins are stored to tell whether the artifact changed
+      Assert.assertEquals(Files.hash(pluginJar, Hashing.md5()).toString(),
+                          pluginArtifactDetail.getMeta().getChecksum());
+      Assert.assertEquals(ImmutableSet.of(manual1, manual2), pluginArtifactDetail.getMeta().getAdditionalPlugins());
+      Location pluginLocation = pluginArtifactDetail.getDescriptor().getLocation();
+
+      // the artifact is not written again if neither the jar nor the config changed
+      artifactRepository.addSystemArtifacts();
+      pluginArtifactDetail = artifactRepository.getArtifact(pluginArtifactId);
+      Assert.assertEquals(pluginLocation.toURI(), pluginArtifactDetail.getDescriptor().getLocation().toURI());
+
+      // removing a plugin from the config adds the artifact again
+      try (BufferedWriter writer = Files.newWriter(pluginConfigFile, Charsets.UTF_8)) {
+        writer.write(new ArtifactConfig(parents, ImmutableSet.of(manual1),
+                                        ImmutableMap.<String, String>of()).toString());
+      }
+      artifactRepository.addSystemArtifacts();
+      pluginArtifactDetail = artifactRepository.getArtifact(pluginArtifactId);
+      Assert.assertEquals(ImmutableSet.of("manual1", "TestPlugin", "TestPlugin2"),
+                          getPluginNames(pluginArtifactDetail));
+      Assert.assertNotEquals(pluginLocation.toURI(), pluginArtifactDetail.getDescriptor().getLocation().toURI());
+
+      // changing the properties stored with the artifact keeps its checksum and additional plugins
+      pluginLocation = pluginArtifactDetail.getDescriptor().getLocation();
+      artifactRepository.writeArtifactProperty(pluginArtifactId, "k1", "v1");
+      artifactRepository.deleteArtifactProperty(pluginArtifactId, "k1");
+      artifactRepository.addSystemArtifacts();
+      pluginArtifactDetail = artifactRepository.getArtifact(pluginArtifactId);
+      Assert.assertEquals(ImmutableSet.of(manual1), pluginArtifactDetail.getMeta().getAdditionalPlugins());
+      Assert.assertEquals(pluginLocation.toURI(), pluginArtifactDetail.getDescriptor().getLocation().toURI());
+    } finally {
+      Assert.assertTrue(systemAppJar.delete());
+      Assert.assertTrue(pluginJar.delete());
+      Assert.assertTrue(pluginConfigFile.delete());
+      artifactRepository.clear(NamespaceId.SYSTEM);
+    }
+  }
+
   @Test
   public void testExportPackage() {
     Manifest manifest = new Manifest();
@@ -489,6 +555,14 @@ public class ArtifactRepositoryTest {
     }
   }
 
+  private static Set<String> getPluginNames(ArtifactDetail artifactDetail) {
+    Set<String> pluginNames = Sets.newHashSet();
+    for (PluginClass pluginClass : artifactDetail.getMeta().getClasses().getPlugins()) {
+      pluginNames.add(pluginClass.getName());
+    }
+    return pluginNames;
+  }
+
   private static ClassLoader createAppClassLoader(File jarFile) throws IOException {
     final File unpackDir = DirUtils.createTempDir(TMP_FOLDER.newFolder());
     BundleJarUtil.unJar(Files.newInputStreamSupplier(jarFile), unpackDir);
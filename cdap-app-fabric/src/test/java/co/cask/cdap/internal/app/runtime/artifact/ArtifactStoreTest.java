@@ -926,6 +926,90 @@ public class ArtifactStoreTest {
     assertEqual(artifactId, expectedMeta, successfulWriter, info);
   }
 
+  @Category(SlowTests.class)
+  @Test
+  public void testConcurrentPluginWrites() throws Exception {
+    // start up a bunch of threads that write different plugin artifacts that extend the same parent at the same time
+    // they should not conflict with each other
+    int numThreads = 10;
+    final ArtifactRange parentArtifacts = new ArtifactRange(
+      Id.Namespace.DEFAULT, "parent", new ArtifactVersion("1.0.0"), new ArtifactVersion("2.0.0"));
+    Id.Artifact parentArtifactId = Id.Artifact.from(Id.Namespace.DEFAULT, "parent", "1.0.0");
+    writeArtifact(parentArtifactId, new ArtifactMeta(ArtifactClasses.builder().build()), "content");
+    // read the plugins once, so that the later read has to notice the new plugins
+    Assert.assertTrue(artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentArtifactId, "plugin-type").isEmpty());
+
+    final List<String> failedWriters = Collections.synchronizedList(Lists.<String>newArrayList());
+    final CyclicBarrier barrier = new CyclicBarrier(numThreads);
+    final CountDownLatch latch = new CountDownLatch(numThreads);
+    ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      final String writer = String.valueOf(i);
+      executorService.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            barrier.await();
+            ArtifactMeta meta = new ArtifactMeta(
+              ArtifactClasses.builder()
+                .addPlugin(new PluginClass("plugin-type", "plugin" + writer, "", "classname", "cfg",
+                  ImmutableMap.<String, PluginPropertyField>of()))
+                .build(),
+              ImmutableSet.of(parentArtifacts)
+            );
+            writeArtifact(Id.Artifact.from(Id.Namespace.DEFAULT, "plugins" + writer, "1.0.0"), meta, writer);
+          } catch (Exception e) {
+            failedWriters.add(writer);
+          } finally {
+            latch.countDown();
+          }
+        }
+      });
+    }
+    latch.await();
+    executorService.shutdown();
+
+    Assert.assertEquals(Collections.<String>emptyList(), failedWriters);
+    Assert.assertEquals(numThreads,
+                        artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentArtifactId, "plugin-type").size());
+  }
+
+  @Test
+  public void testDeletePluginsVersions() throws Exception {
+    Id.Artifact parentArtifactId = Id.Artifact.from(Id.Namespace.SYSTEM, "versionsparent", "1.0.0");
+    ArtifactRange parentArtifacts = new ArtifactRange(
+      Id.Namespace.SYSTEM, "versionsparent", new ArtifactVersion("1.0.0"), new ArtifactVersion("2.0.0"));
+    PluginClass plugin =
+      new PluginClass("atype", "plugin1", "", "c.c.c.plugin1", "cfg", ImmutableMap.<String, PluginPropertyField>of());
+    ArtifactMeta pluginMeta =
+      new ArtifactMeta(ArtifactClasses.builder().addPlugin(plugin).build(), ImmutableSet.of(parentArtifacts));
+    Id.Namespace namespace1 = Id.Namespace.from("versionsns1");
+    Id.Namespace namespace2 = Id.Namespace.from("versionsns2");
+    Id.Artifact deletedArtifact = Id.Artifact.from(namespace1, "plugins", "1.0.0");
+    Id.Artifact remainingArtifact = Id.Artifact.from(namespace1, "otherplugins", "1.0.0");
+    Id.Artifact otherNamespaceArtifact = Id.Artifact.from(namespace2, "plugins", "1.0.0");
+
+    writeArtifact(parentArtifactId, new ArtifactMeta(ArtifactClasses.builder().build()), "parent");
+    writeArtifact(deletedArtifact, pluginMeta, "deleted");
+    writeArtifact(remainingArtifact, pluginMeta, "remaining");
+    writeArtifact(otherNamespaceArtifact, pluginMeta, "other");
+    try {
+      // deleting an artifact leaves a tombstone in the plugin versions of its parent
+      artifactStore.delete(deletedArtifact);
+      Assert.assertEquals(ImmutableSet.of(deletedArtifact, remainingArtifact, otherNamespaceArtifact),
+                          artifactStore.getPluginsVersionArtifacts(Id.Namespace.SYSTEM, "versionsparent"));
+
+      // deleting the plugin versions of a namespace removes its versions and tombstones, but not the others
+      artifactStore.deletePluginsVersions(namespace1.toEntityId());
+      Assert.assertEquals(ImmutableSet.of(otherNamespaceArtifact),
+                          artifactStore.getPluginsVersionArtifacts(Id.Namespace.SYSTEM, "versionsparent"));
+    } finally {
+      artifactStore.clear(namespace1.toEntityId());
+      artifactStore.clear(namespace2.toEntityId());
+      artifactStore.clear(NamespaceId.SYSTEM);
+    }
+  }
+
   @Test
   public void testUpdateProperties() throws Exception {
     Id.Artifact artifactId = Id.Artifact.from(Id.Namespace.DEFAULT, "abc", "1.2.3");
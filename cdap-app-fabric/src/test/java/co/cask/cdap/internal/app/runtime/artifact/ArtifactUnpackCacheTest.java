@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.artifact;
+
+import co.cask.cdap.common.io.Locations;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Unit test for {@link ArtifactUnpackCache}.
+ */
+public class ArtifactUnpackCacheTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testSharedUnpack() throws IOException {
+    ArtifactUnpackCache cache = new ArtifactUnpackCache(TMP_FOLDER.newFolder(), Long.MAX_VALUE);
+    File jar = createJar(new File(TMP_FOLDER.newFolder(), "test-1.0.0.jar"), "content");
+    File copy = new File(TMP_FOLDER.newFolder(), jar.getName());
+    Files.copy(jar, copy);
+
+    try (
+      ArtifactUnpackCache.Unpacked first = cache.acquire(Locations.toLocation(jar));
+      ArtifactUnpackCache.Unpacked second = cache.acquire(Locations.toLocation(copy))
+    ) {
+      // Same name and content are only unpacked once
+      Assert.assertEquals(first.getDirectory(), second.getDirectory());
+      Assert.assertEquals("content", Files.toString(new File(first.getDirectory(), "file.txt"), Charsets.UTF_8));
+    }
+
+    // Different content is unpacked separately
+    File changed = createJar(new File(TMP_FOLDER.newFolder(), jar.getName()), "changed");
+    try (
+      ArtifactUnpackCache.Unpacked first = cache.acquire(Locations.toLocation(jar));
+      ArtifactUnpackCache.Unpacked second = cache.acquire(Locations.toLocation(changed))
+    ) {
+      Assert.assertNotEquals(first.getDirectory(), second.getDirectory());
+      Assert.assertEquals("changed", Files.toString(new File(second.getDirectory(), "file.txt"), Charsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testChecksumReuse() throws IOException {
+    ArtifactUnpackCache cache = new ArtifactUnpackCache(TMP_FOLDER.newFolder(), Long.MAX_VALUE);
+    File jar = createJar(new File(TMP_FOLDER.newFolder(), "test-1.0.0.jar"), "content");
+    long lastModified = jar.lastModified();
+
+    try (ArtifactUnpackCache.Unpacked first = cache.acquire(Locations.toLocation(jar))) {
+      // Overwrite the jar content, while keeping the length and modification time
+      Files.write(new byte[(int) jar.length()], jar);
+      Assert.assertTrue(jar.setLastModified(lastModified));
+
+      // The checksum is not computed again, hence the existing directory is used
+      try (ArtifactUnpackCache.Unpacked second = cache.acquire(Locations.toLocation(jar))) {
+        Assert.assertEquals(first.getDirectory(), second.getDirectory());
+      }
+
+      // Once the modification time changes, the checksum is computed again and the new content is unpacked
+      Assert.assertTrue(jar.setLastModified(lastModified + 10000));
+      try (ArtifactUnpackCache.Unpacked second = cache.acquire(Locations.toLocation(jar))) {
+        Assert.assertNotEquals(first.getDirectory(), second.getDirectory());
+      }
+    } finally {
+      cache.close();
+    }
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    // A cache that can hold nothing that is not in use
+    ArtifactUnpackCache cache = new ArtifactUnpackCache(TMP_FOLDER.newFolder(), 0L);
+    File jar = createJar(new File(TMP_FOLDER.newFolder(), "test-1.0.0.jar"), "content");
+
+    ArtifactUnpackCache.Unpacked first = cache.acquire(Locations.toLocation(jar));
+    ArtifactUnpackCache.Unpacked second = cache.acquire(Locations.toLocation(jar));
+    File dir = first.getDirectory();
+    Assert.assertTrue(cache.getTotalSize() > 0);
+
+    // Still referenced by the second one
+    first.close();
+    Assert.assertTrue(dir.isDirectory());
+
+    // Closing twice shouldn't release the reference held by the second one
+    first.close();
+    Assert.assertTrue(dir.isDirectory());
+
+    second.close();
+    Assert.assertFalse(dir.exists());
+    Assert.assertEquals(0L, cache.getTotalSize());
+  }
+
+  private File createJar(File file, String content) throws IOException {
+    try (JarOutputStream output = new JarOutputStream(new FileOutputStream(file))) {
+      output.putNextEntry(new JarEntry("file.txt"));
+      output.write(content.getBytes(Charsets.UTF_8));
+      output.closeEntry();
+    }
+    return file;
+  }
+}
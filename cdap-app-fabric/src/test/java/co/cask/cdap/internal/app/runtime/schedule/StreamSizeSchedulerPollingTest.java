@@ -22,9 +22,12 @@ import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.test.XSlowTests;
 import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -39,6 +42,23 @@ public class StreamSizeSchedulerPollingTest extends SchedulerTestBase {
     SchedulerTestBase.init();
   }
 
+  @Test
+  public void testQueryStreamEventsSizes() throws Exception {
+    // The sizes of all streams are queried at once, and aggregated per stream
+    Id.Stream stream1 = Id.Stream.from(Id.Namespace.DEFAULT, "sizeStream1");
+    Id.Stream stream2 = Id.Stream.from(Id.Namespace.DEFAULT, "sizeStream2");
+    StreamMetricsPublisher publisher1 = createMetricsPublisher(stream1);
+    StreamMetricsPublisher publisher2 = createMetricsPublisher(stream2);
+    publisher1.increment(10);
+    publisher2.increment(5);
+    publisher1.increment(20);
+
+    Map<Id.Stream, Long> sizes = injector.getInstance(StreamSizeScheduler.class).queryStreamEventsSizes();
+    Assert.assertEquals(Long.valueOf(30), sizes.get(stream1));
+    Assert.assertEquals(Long.valueOf(5), sizes.get(stream2));
+    Assert.assertNull(sizes.get(Id.Stream.from(Id.Namespace.DEFAULT, "sizeStream3")));
+  }
+
   @Override
   protected StreamMetricsPublisher createMetricsPublisher(final Id.Stream streamId) {
     return new StreamMetricsPublisher() {
@@ -35,7 +35,10 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
@@ -108,6 +111,66 @@ public class AppMetadataStoreTest {
             TimeUnit.MILLISECONDS.toSeconds(1000), TimeUnit.MILLISECONDS.toSeconds(10000));
   }
 
+  @Test
+  public void testRunningInRangeWithTimeIndex() throws Exception {
+    Id.DatasetInstance storeTable = Id.DatasetInstance.from(defaultNamespace, "testRunningInRangeWithTimeIndex");
+    datasetFramework.addInstance(Table.class.getName(), storeTable, DatasetProperties.EMPTY);
+
+    Table table = datasetFramework.getDataset(storeTable, ImmutableMap.<String, String>of(), null);
+    Assert.assertNotNull(table);
+    AppMetadataStore metadataStoreDataset = new AppMetadataStore(table, cConf);
+
+    // Add run records that span zero to three days, starting every half day, and every fifth run spans ten days
+    // so that it is in the index of long runs
+    long day = TimeUnit.DAYS.toSeconds(1);
+    Map<String, long[]> runTimes = new HashMap<>();
+    for (int i = 0; i < 20; ++i) {
+      Id.Application application = Id.Application.from(defaultNamespace, "app" + (i % 2));
+      Id.Program program = Id.Program.from(application, ProgramType.WORKFLOW, "program" + i);
+      long startTs = i * day / 2;
+      long stopTs = startTs + (i % 5 == 4 ? 10 : i % 4) * day + 10;
+      String pid = RunIds.generate(TimeUnit.SECONDS.toMillis(startTs)).getId();
+      metadataStoreDataset.recordProgramStart(program, pid, startTs, null, null, null);
+      metadataStoreDataset.recordProgramStop(program, pid, stopTs, ProgramRunStatus.COMPLETED, null);
+      runTimes.put(pid, new long[] { startTs, stopTs, i % 2 });
+    }
+
+    // The index is used for all ranges starting after the stop time of the first run
+    long[][] ranges = { {10, 20}, {day, day + 1}, {day / 2, 3 * day}, {5 * day, 4 * day}, {7 * day, 100 * day},
+                        {17 * day, 18 * day}, {100 * day, 200 * day}, {10, Long.MAX_VALUE} };
+    for (long[] range : ranges) {
+      Assert.assertEquals(getExpectedRuns(runTimes, range[0], range[1], false),
+                          toPids(metadataStoreDataset.getRunningInRange(range[0], range[1])));
+    }
+
+    // Deleting the history of an application also removes its runs from the index
+    metadataStoreDataset.deleteProgramHistory(defaultNamespace.getId(), "app0");
+    for (long[] range : ranges) {
+      Assert.assertEquals(getExpectedRuns(runTimes, range[0], range[1], true),
+                          toPids(metadataStoreDataset.getRunningInRange(range[0], range[1])));
+    }
+  }
+
+  private Set<String> getExpectedRuns(Map<String, long[]> runTimes, long startTime, long endTime,
+                                      boolean excludeApp0) {
+    Set<String> expected = new HashSet<>();
+    for (Map.Entry<String, long[]> entry : runTimes.entrySet()) {
+      long[] times = entry.getValue();
+      if (times[0] < endTime && times[1] >= startTime && !(excludeApp0 && times[2] == 0)) {
+        expected.add(entry.getKey());
+      }
+    }
+    return expected;
+  }
+
+  private Set<String> toPids(Set<RunId> runIds) {
+    Set<String> pids = new HashSet<>();
+    for (RunId runId : runIds) {
+      pids.add(runId.getId());
+    }
+    return pids;
+  }
+
   private void runScan(AppMetadataStore metadataStoreDataset, Set<Long> expected, long startTime, long stopTime) {
     // Run the scan
     Set<Long> actual = new TreeSet<>();
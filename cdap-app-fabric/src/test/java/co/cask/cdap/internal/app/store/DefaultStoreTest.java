@@ -668,6 +668,47 @@ public class DefaultStoreTest {
     Assert.assertNull(store.getApplication(appId));
   }
 
+  @Test
+  public void testBulkApplicationAndActiveRunLookups() throws Exception {
+    ApplicationSpecification spec = Specifications.from(new WordCountApp());
+    Id.Namespace namespaceId = new Id.Namespace("testBulkLookups");
+    Id.Application appId = new Id.Application(namespaceId, spec.getName());
+    Id.Application missingAppId = new Id.Application(namespaceId, "missingApp");
+    store.addApplication(appId, spec);
+
+    Map<Id.Application, ApplicationSpecification> appSpecs =
+      store.getApplications(ImmutableSet.of(appId, missingAppId));
+    Assert.assertEquals(ImmutableSet.of(appId), appSpecs.keySet());
+    Assert.assertEquals(spec.getName(), appSpecs.get(appId).getName());
+
+    Id.Program runningProgram = Id.Program.from(appId, ProgramType.WORKFLOW, "running");
+    Id.Program suspendedProgram = Id.Program.from(appId, ProgramType.WORKFLOW, "suspended");
+    Id.Program stoppedProgram = Id.Program.from(appId, ProgramType.WORKFLOW, "stopped");
+
+    RunId run1 = RunIds.generate();
+    RunId run2 = RunIds.generate();
+    store.setStart(runningProgram, run1.getId(), runIdToSecs(run1));
+    store.setStart(runningProgram, run2.getId(), runIdToSecs(run2));
+    RunId run3 = RunIds.generate();
+    store.setStart(suspendedProgram, run3.getId(), runIdToSecs(run3));
+    store.setSuspend(suspendedProgram, run3.getId());
+    RunId run4 = RunIds.generate();
+    store.setStart(stoppedProgram, run4.getId(), runIdToSecs(run4));
+    store.setStop(stoppedProgram, run4.getId(), runIdToSecs(run4) + 1, ProgramRunStatus.COMPLETED);
+
+    Assert.assertEquals(ImmutableMap.of(runningProgram, 2, suspendedProgram, 0, stoppedProgram, 0),
+                        store.getRunningRunCounts(ImmutableSet.of(runningProgram, suspendedProgram, stoppedProgram)));
+
+    // suspended runs are not counted, the same as when listing the running runs of a single program
+    Assert.assertTrue(store.getRuns(suspendedProgram, ProgramRunStatus.RUNNING, 0, Long.MAX_VALUE, 100).isEmpty());
+    store.setResume(suspendedProgram, run3.getId());
+    Assert.assertEquals(1, store.getRuns(suspendedProgram, ProgramRunStatus.RUNNING, 0, Long.MAX_VALUE, 100).size());
+    Assert.assertEquals(ImmutableMap.of(suspendedProgram, 1),
+                        store.getRunningRunCounts(ImmutableSet.of(suspendedProgram)));
+
+    store.removeAll(namespaceId);
+  }
+
   @Test
   public void testRuntimeArgsDeletion() throws Exception {
     ApplicationSpecification spec = Specifications.from(new AllProgramsApp());
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.dq.functions;
+
+import co.cask.cdap.dq.DataQualityWritable;
+import co.cask.cdap.dq.sketch.HeavyHitters;
+
+import java.util.Map;
+
+/**
+ * Aggregation function that estimates the frequencies of the most frequent values with {@link HeavyHitters}.
+ * Unlike {@link DiscreteValuesHistogram}, it uses a fixed amount of memory regardless of the number of
+ * distinct values, and only reports the {@link HeavyHitters#DEFAULT_CAPACITY} most frequent values.
+ */
+public class ApproximateDiscreteValuesHistogram
+  implements BasicAggregationFunction, CombinableAggregationFunction<Map<String, Long>> {
+  private HeavyHitters heavyHitters = new HeavyHitters();
+  private HeavyHitters aggregatedHeavyHitters;
+
+  @Override
+  public void combine(byte[] value) {
+    HeavyHitters other = HeavyHitters.fromBytes(value);
+    if (aggregatedHeavyHitters == null) {
+      aggregatedHeavyHitters = other;
+    } else {
+      aggregatedHeavyHitters.merge(other);
+    }
+  }
+
+  @Override
+  public Map<String, Long> deserialize(byte[] valueBytes) {
+    return HeavyHitters.fromBytes(valueBytes).getTopValues();
+  }
+
+  @Override
+  public Map<String, Long> retrieveAggregation() {
+    return aggregatedHeavyHitters == null ? null : aggregatedHeavyHitters.getTopValues();
+  }
+
+  @Override
+  public void add(DataQualityWritable value) {
+    heavyHitters.add(value.get().toString());
+  }
+
+  @Override
+  public byte[] aggregate() {
+    return heavyHitters.toBytes();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.dq.functions;
+
+import co.cask.cdap.dq.DataQualityWritable;
+import co.cask.cdap.dq.sketch.KllSketch;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aggregation function that estimates a histogram of numerical values with a {@link KllSketch}. The values are
+ * split into {@link #NUM_BUCKETS} buckets of the same width between the smallest and the largest value. Unlike
+ * {@link HistogramWithBucketing}, it does not keep all the values in memory and the aggregations can be combined.
+ */
+public class ApproximateHistogram
+  implements BasicAggregationFunction, CombinableAggregationFunction<Map<Map.Entry<Double, Double>, Long>> {
+  public static final int NUM_BUCKETS = 10;
+
+  private KllSketch sketch = new KllSketch();
+  private KllSketch aggregatedSketch;
+
+  @Override
+  public void combine(byte[] value) {
+    KllSketch other = KllSketch.fromBytes(value);
+    if (aggregatedSketch == null) {
+      aggregatedSketch = other;
+    } else {
+      aggregatedSketch.merge(other);
+    }
+  }
+
+  @Override
+  public Map<Map.Entry<Double, Double>, Long> deserialize(byte[] valueBytes) {
+    return getHistogram(KllSketch.fromBytes(valueBytes));
+  }
+
+  @Override
+  public Map<Map.Entry<Double, Double>, Long> retrieveAggregation() {
+    return aggregatedSketch == null ? null : getHistogram(aggregatedSketch);
+  }
+
+  @Override
+  public void add(DataQualityWritable value) {
+    sketch.add(Double.parseDouble(value.get().toString()));
+  }
+
+  @Override
+  public byte[] aggregate() {
+    return sketch.toBytes();
+  }
+
+  private Map<Map.Entry<Double, Double>, Long> getHistogram(KllSketch kllSketch) {
+    if (kllSketch.getCount() == 0) {
+      return null;
+    }
+    Map<Map.Entry<Double, Double>, Long> histogram = new LinkedHashMap<>();
+    double min = kllSketch.getMin();
+    double max = kllSketch.getMax();
+    if (min == max) {
+      histogram.put(new AbstractMap.SimpleEntry<>(min, max), kllSketch.getCount());
+      return histogram;
+    }
+    double width = (max - min) / NUM_BUCKETS;
+    long lowerRank = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      double lower = min + i * width;
+      // the last bucket includes the largest value
+      double upper = i == NUM_BUCKETS - 1 ? max : lower + width;
+      long upperRank = i == NUM_BUCKETS - 1 ? kllSketch.getCount() : kllSketch.getRank(upper);
+      histogram.put(new AbstractMap.SimpleEntry<>(lower, upper), upperRank - lowerRank);
+      lowerRank = upperRank;
+    }
+    return histogram;
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.dq.functions;
+
+import co.cask.cdap.dq.DataQualityWritable;
+import co.cask.cdap.dq.sketch.KllSketch;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregation function that estimates quantiles of numerical values with a {@link KllSketch}.
+ * The aggregation maps each of {@link #FRACTIONS} to the estimated value at that fraction of the sorted values.
+ */
+public class ApproximateQuantiles
+  implements BasicAggregationFunction, CombinableAggregationFunction<Map<Double, Double>> {
+  public static final double[] FRACTIONS = { 0.0, 0.01, 0.05, 0.25, 0.5, 0.75, 0.95, 0.99, 1.0 };
+
+  private KllSketch sketch = new KllSketch();
+  private KllSketch aggregatedSketch;
+
+  @Override
+  public void combine(byte[] value) {
+    KllSketch other = KllSketch.fromBytes(value);
+    if (aggregatedSketch == null) {
+      aggregatedSketch = other;
+    } else {
+      aggregatedSketch.merge(other);
+    }
+  }
+
+  @Override
+  public Map<Double, Double> deserialize(byte[] valueBytes) {
+    return getQuantiles(KllSketch.fromBytes(valueBytes));
+  }
+
+  @Override
+  public Map<Double, Double> retrieveAggregation() {
+    return aggregatedSketch == null ? null : getQuantiles(aggregatedSketch);
+  }
+
+  @Override
+  public void add(DataQualityWritable value) {
+    sketch.add(Double.parseDouble(value.get().toString()));
+  }
+
+  @Override
+  public byte[] aggregate() {
+    return sketch.toBytes();
+  }
+
+  private Map<Double, Double> getQuantiles(KllSketch kllSketch) {
+    if (kllSketch.getCount() == 0) {
+      return null;
+    }
+    Map<Double, Double> quantiles = new TreeMap<>();
+    for (double fraction : FRACTIONS) {
+      quantiles.put(fraction, kllSketch.getQuantile(fraction));
+    }
+    return quantiles;
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.dq.functions;
+
+import co.cask.cdap.dq.DataQualityWritable;
+import co.cask.cdap.dq.sketch.HyperLogLog;
+
+/**
+ * Aggregation function that estimates the number of unique values with a {@link HyperLogLog} sketch.
+ * Unlike {@link UniqueValues}, it uses a fixed amount of memory regardless of the number of unique values.
+ */
+public class ApproximateUniqueValues implements BasicAggregationFunction, CombinableAggregationFunction<Long> {
+  private HyperLogLog sketch = new HyperLogLog();
+  private HyperLogLog aggregatedSketch;
+
+  @Override
+  public Long retrieveAggregation() {
+    return aggregatedSketch == null ? null : aggregatedSketch.estimate();
+  }
+
+  @Override
+  public Long deserialize(byte[] valueBytes) {
+    return HyperLogLog.fromBytes(valueBytes).estimate();
+  }
+
+  @Override
+  public void combine(byte[] value) {
+    HyperLogLog other = HyperLogLog.fromBytes(value);
+    if (aggregatedSketch == null) {
+      aggregatedSketch = other;
+    } else {
+      aggregatedSketch.merge(other);
+    }
+  }
+
+  @Override
+  public void add(DataQualityWritable value) {
+    sketch.add(value.get().toString());
+  }
+
+  @Override
+  public byte[] aggregate() {
+    return sketch.toBytes();
+  }
+}
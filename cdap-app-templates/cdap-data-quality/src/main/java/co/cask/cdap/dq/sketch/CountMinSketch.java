@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.dq.sketch;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Count-min sketch for estimating the frequencies of values with a fixed amount of memory. Estimates never
+ * underestimate the real frequency, and overestimate it by at most {@code e / width} of the total count with
+ * probability {@code 1 - e^-depth}. Two sketches of the same dimensions can be merged by adding their counters.
+ */
+public final class CountMinSketch {
+
+  private final int depth;
+  private final int width;
+  private final long[][] counters;
+  private long totalCount;
+
+  public CountMinSketch(int depth, int width) {
+    Preconditions.checkArgument(depth > 0 && width > 0, "Depth and width must be positive: %s, %s", depth, width);
+    this.depth = depth;
+    this.width = width;
+    this.counters = new long[depth][width];
+  }
+
+  /**
+   * Adds the given count for a value.
+   */
+  public void add(String value, long count) {
+    long[] hash = SketchHashing.hash(value);
+    for (int row = 0; row < depth; row++) {
+      counters[row][index(hash, row)] += count;
+    }
+    totalCount += count;
+  }
+
+  /**
+   * @return the estimated frequency of the given value
+   */
+  public long estimate(String value) {
+    long[] hash = SketchHashing.hash(value);
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counters[row][index(hash, row)]);
+    }
+    return estimate;
+  }
+
+  /**
+   * @return the sum of all the counts added to the sketch
+   */
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  /**
+   * Merges the given sketch into this one.
+   */
+  public void merge(CountMinSketch other) {
+    Preconditions.checkArgument(depth == other.depth && width == other.width,
+                                "Cannot merge sketches of dimensions %sx%s and %sx%s",
+                                depth, width, other.depth, other.width);
+    for (int row = 0; row < depth; row++) {
+      for (int column = 0; column < width; column++) {
+        counters[row][column] += other.counters[row][column];
+      }
+    }
+    totalCount += other.totalCount;
+  }
+
+  void write(DataOutput out) throws IOException {
+    WritableUtils.writeVInt(out, depth);
+    WritableUtils.writeVInt(out, width);
+    WritableUtils.writeVLong(out, totalCount);
+    // most counters are small or zero, hence variable length longs
+    for (long[] row : counters) {
+      for (long counter : row) {
+        WritableUtils.writeVLong(out, counter);
+      }
+    }
+  }
+
+  static CountMinSketch read(DataInput in) throws IOException {
+    CountMinSketch sketch = new CountMinSketch(WritableUtils.readVInt(in), WritableUtils.readVInt(in));
+    sketch.totalCount = WritableUtils.readVLong(in);
+    for (long[] row : sketch.counters) {
+      for (int column = 0; column < row.length; column++) {
+        row[column] = WritableUtils.readVLong(in);
+      }
+    }
+    return sketch;
+  }
+
+  private int index(long[] hash, int row) {
+    // derives the hash of each row from two hashes, as described by Kirsch and Mitzenmacher
+    long combined = hash[0] + row * hash[1];
+    return (int) ((combined & Long.MAX_VALUE) % width);
+  }
+}
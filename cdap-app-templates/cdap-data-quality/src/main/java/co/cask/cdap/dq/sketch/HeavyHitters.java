@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.dq.sketch;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the most frequent values with a fixed amount of memory. Frequencies are estimated with a
+ * {@link CountMinSketch}, and up to {@code capacity} values with the highest estimates are kept as candidates.
+ * Two instances can be merged, in which case the candidates of both are re-estimated against the merged sketch.
+ */
+public final class HeavyHitters {
+
+  public static final int DEFAULT_CAPACITY = 100;
+  public static final int DEFAULT_DEPTH = 4;
+  public static final int DEFAULT_WIDTH = 1024;
+
+  private final int capacity;
+  private final CountMinSketch sketch;
+  // candidate value -> estimated frequency when the value was last added
+  private final Map<String, Long> candidates;
+  // candidate with the lowest frequency, computed lazily
+  private String minCandidate;
+
+  public HeavyHitters() {
+    this(DEFAULT_CAPACITY, new CountMinSketch(DEFAULT_DEPTH, DEFAULT_WIDTH));
+  }
+
+  public HeavyHitters(int capacity, CountMinSketch sketch) {
+    Preconditions.checkArgument(capacity > 0, "Capacity must be positive: %s", capacity);
+    this.capacity = capacity;
+    this.sketch = sketch;
+    this.candidates = new HashMap<>();
+  }
+
+  /**
+   * Adds an occurrence of the given value.
+   */
+  public void add(String value) {
+    sketch.add(value, 1);
+    long estimate = sketch.estimate(value);
+    if (candidates.size() < capacity || candidates.containsKey(value)) {
+      candidates.put(value, estimate);
+      if (value.equals(minCandidate)) {
+        minCandidate = null;
+      }
+      return;
+    }
+    String min = getMinCandidate();
+    if (estimate > candidates.get(min)) {
+      candidates.remove(min);
+      candidates.put(value, estimate);
+      minCandidate = null;
+    }
+  }
+
+  /**
+   * Merges the given instance into this one.
+   */
+  public void merge(HeavyHitters other) {
+    sketch.merge(other.sketch);
+    Set<String> values = new HashSet<>(candidates.keySet());
+    values.addAll(other.candidates.keySet());
+    candidates.clear();
+    for (Map.Entry<String, Long> entry : estimateAll(values)) {
+      if (candidates.size() == capacity) {
+        break;
+      }
+      candidates.put(entry.getKey(), entry.getValue());
+    }
+    minCandidate = null;
+  }
+
+  /**
+   * @return the most frequent values with their estimated frequencies, from the most to the least frequent
+   */
+  public Map<String, Long> getTopValues() {
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (Map.Entry<String, Long> entry : estimateAll(candidates.keySet())) {
+      result.put(entry.getKey(), entry.getValue());
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of occurrences added
+   */
+  public long getTotalCount() {
+    return sketch.getTotalCount();
+  }
+
+  public byte[] toBytes() {
+    try {
+      DataOutputBuffer out = new DataOutputBuffer();
+      WritableUtils.writeVInt(out, capacity);
+      sketch.write(out);
+      // frequencies of the candidates are re-estimated from the sketch when reading
+      WritableUtils.writeVInt(out, candidates.size());
+      for (String value : candidates.keySet()) {
+        Text.writeString(out, value);
+      }
+      return Arrays.copyOf(out.getData(), out.getLength());
+    } catch (IOException e) {
+      // Cannot happen when writing to a buffer
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public static HeavyHitters fromBytes(byte[] bytes) {
+    try {
+      DataInputBuffer in = new DataInputBuffer();
+      in.reset(bytes, bytes.length);
+      int capacity = WritableUtils.readVInt(in);
+      HeavyHitters heavyHitters = new HeavyHitters(capacity, CountMinSketch.read(in));
+      int size = WritableUtils.readVInt(in);
+      for (int i = 0; i < size; i++) {
+        String value = Text.readString(in);
+        heavyHitters.candidates.put(value, heavyHitters.sketch.estimate(value));
+      }
+      return heavyHitters;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid serialized HeavyHitters", e);
+    }
+  }
+
+  private String getMinCandidate() {
+    if (minCandidate == null) {
+      long min = Long.MAX_VALUE;
+      for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+        if (entry.getValue() < min) {
+          min = entry.getValue();
+          minCandidate = entry.getKey();
+        }
+      }
+    }
+    return minCandidate;
+  }
+
+  /**
+   * Estimates the frequencies of the given values, sorted from the most to the least frequent.
+   */
+  private List<Map.Entry<String, Long>> estimateAll(Set<String> values) {
+    List<Map.Entry<String, Long>> estimates = new ArrayList<>(values.size());
+    for (String value : values) {
+      estimates.add(new AbstractMap.SimpleImmutableEntry<>(value, sketch.estimate(value)));
+    }
+    Collections.sort(estimates, new Comparator<Map.Entry<String, Long>>() {
+      @Override
+      public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+        return Long.compare(o2.getValue(), o1.getValue());
+      }
+    });
+    return estimates;
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.dq.sketch;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog sketch for estimating the number of distinct values with a fixed amount of memory.
+ * Two sketches of the same precision can be merged, giving the sketch of the union of their values.
+ *
+ * The registers are serialized as they are, or as (index delta, register) pairs if only few registers are set.
+ */
+public final class HyperLogLog {
+
+  public static final int DEFAULT_PRECISION = 14;
+
+  private static final byte DENSE = 0;
+  private static final byte SPARSE = 1;
+
+  private final int precision;
+  private final byte[] registers;
+
+  public HyperLogLog() {
+    this(DEFAULT_PRECISION);
+  }
+
+  /**
+   * @param precision number of bits of the hash used to pick a register. The sketch has 2^precision registers
+   *                  and a standard error of about 1.04 / sqrt(2^precision).
+   */
+  public HyperLogLog(int precision) {
+    Preconditions.checkArgument(precision >= 4 && precision <= 18, "Precision must be between 4 and 18: %s", precision);
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  /**
+   * Adds a value to the sketch.
+   */
+  public void add(String value) {
+    addHash(SketchHashing.hash(value)[0]);
+  }
+
+  void addHash(long hash) {
+    int index = (int) (hash >>> (64 - precision));
+    // rank of the first set bit in the remaining bits, which is at most 64 - precision + 1
+    int rank = Math.min(Long.numberOfLeadingZeros(hash << precision) + 1, 64 - precision + 1);
+    if (rank > registers[index]) {
+      registers[index] = (byte) rank;
+    }
+  }
+
+  /**
+   * Merges the given sketch into this one.
+   */
+  public void merge(HyperLogLog other) {
+    Preconditions.checkArgument(precision == other.precision,
+                                "Cannot merge sketches of precision %s and %s", precision, other.precision);
+    for (int i = 0; i < registers.length; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /**
+   * @return the estimated number of distinct values added to the sketch
+   */
+  public long estimate() {
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    double estimate = alpha(m) * m * m / sum;
+    // small range correction with linear counting
+    if (estimate <= 2.5 * m && zeros > 0) {
+      estimate = m * Math.log((double) m / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  public byte[] toBytes() {
+    int nonZero = 0;
+    for (byte register : registers) {
+      if (register != 0) {
+        nonZero++;
+      }
+    }
+    try {
+      DataOutputBuffer out = new DataOutputBuffer();
+      out.writeByte(precision);
+      // a sparse entry takes at least two bytes, so only use it if it is smaller than all the registers
+      if (nonZero * 3 < registers.length) {
+        out.writeByte(SPARSE);
+        WritableUtils.writeVInt(out, nonZero);
+        int previous = 0;
+        for (int i = 0; i < registers.length; i++) {
+          if (registers[i] != 0) {
+            WritableUtils.writeVInt(out, i - previous);
+            out.writeByte(registers[i]);
+            previous = i;
+          }
+        }
+      } else {
+        out.writeByte(DENSE);
+        out.write(registers);
+      }
+      return Arrays.copyOf(out.getData(), out.getLength());
+    } catch (IOException e) {
+      // Cannot happen when writing to a buffer
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public static HyperLogLog fromBytes(byte[] bytes) {
+    try {
+      DataInputBuffer in = new DataInputBuffer();
+      in.reset(bytes, bytes.length);
+      HyperLogLog sketch = new HyperLogLog(in.readByte());
+      byte format = in.readByte();
+      if (format == DENSE) {
+        in.readFully(sketch.registers);
+      } else if (format == SPARSE) {
+        int entries = WritableUtils.readVInt(in);
+        int index = 0;
+        for (int i = 0; i < entries; i++) {
+          index += WritableUtils.readVInt(in);
+          sketch.registers[index] = in.readByte();
+        }
+      } else {
+        throw new IllegalArgumentException("Unknown HyperLogLog format " + format);
+      }
+      return sketch;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid serialized HyperLogLog", e);
+    }
+  }
+
+  private static double alpha(int m) {
+    switch (m) {
+      case 16:
+        return 0.673;
+      case 32:
+        return 0.697;
+      case 64:
+        return 0.709;
+      default:
+        return 0.7213 / (1 + 1.079 / m);
+    }
+  }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.dq.sketch;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * KLL quantiles sketch (Karnin, Lang and Liberty) for estimating the distribution of numbers with a fixed amount
+ * of memory. Items are kept in levels of compactors, where an item in level {@code h} stands for {@code 2^h}
+ * added values. When a level is full, it is sorted and every other item is promoted to the next level. The rank
+ * error is about {@code 1.65 / k} of the number of values. Two sketches of the same {@code k} can be merged.
+ */
+public final class KllSketch {
+
+  public static final int DEFAULT_K = 200;
+
+  private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+  private final int k;
+  private final Random random = new Random();
+  private final List<Level> levels = new ArrayList<>();
+  private long count;
+  private double min = Double.NaN;
+  private double max = Double.NaN;
+
+  public KllSketch() {
+    this(DEFAULT_K);
+  }
+
+  public KllSketch(int k) {
+    Preconditions.checkArgument(k >= 8, "k must be at least 8: %s", k);
+    this.k = k;
+    this.levels.add(new Level());
+  }
+
+  /**
+   * Adds a value to the sketch.
+   */
+  public void add(double value) {
+    levels.get(0).add(value);
+    updateStats(1, value, value);
+    compress();
+  }
+
+  /**
+   * Merges the given sketch into this one.
+   */
+  public void merge(KllSketch other) {
+    Preconditions.checkArgument(k == other.k, "Cannot merge sketches with k %s and %s", k, other.k);
+    if (other.count == 0) {
+      return;
+    }
+    for (int h = 0; h < other.levels.size(); h++) {
+      if (h == levels.size()) {
+        levels.add(new Level());
+      }
+      Level otherLevel = other.levels.get(h);
+      for (int i = 0; i < otherLevel.size; i++) {
+        levels.get(h).add(otherLevel.items[i]);
+      }
+    }
+    updateStats(other.count, other.min, other.max);
+    compress();
+  }
+
+  /**
+   * @return the number of values added to the sketch
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return the smallest value added to the sketch, or {@link Double#NaN} if the sketch is empty
+   */
+  public double getMin() {
+    return min;
+  }
+
+  /**
+   * @return the largest value added to the sketch, or {@link Double#NaN} if the sketch is empty
+   */
+  public double getMax() {
+    return max;
+  }
+
+  /**
+   * @return the estimated value at the given fraction, between 0 and 1, of the sorted values,
+   *         or {@link Double#NaN} if the sketch is empty
+   */
+  public double getQuantile(double fraction) {
+    Preconditions.checkArgument(fraction >= 0 && fraction <= 1, "Fraction must be between 0 and 1: %s", fraction);
+    if (count == 0) {
+      return Double.NaN;
+    }
+    if (fraction == 0) {
+      return min;
+    }
+    if (fraction == 1) {
+      return max;
+    }
+    SortedView view = sortedView();
+    double target = fraction * count;
+    for (int i = 0; i < view.values.length; i++) {
+      if (view.cumulativeWeights[i] >= target) {
+        return view.values[i];
+      }
+    }
+    return max;
+  }
+
+  /**
+   * @return the estimated number of values that are smaller than the given one
+   */
+  public long getRank(double value) {
+    long rank = 0;
+    for (int h = 0; h < levels.size(); h++) {
+      Level level = levels.get(h);
+      for (int i = 0; i < level.size; i++) {
+        if (level.items[i] < value) {
+          rank += 1L << h;
+        }
+      }
+    }
+    return rank;
+  }
+
+  public byte[] toBytes() {
+    try {
+      DataOutputBuffer out = new DataOutputBuffer();
+      WritableUtils.writeVInt(out, k);
+      WritableUtils.writeVLong(out, count);
+      out.writeDouble(min);
+      out.writeDouble(max);
+      WritableUtils.writeVInt(out, levels.size());
+      for (Level level : levels) {
+        WritableUtils.writeVInt(out, level.size);
+        for (int i = 0; i < level.size; i++) {
+          out.writeDouble(level.items[i]);
+        }
+      }
+      return Arrays.copyOf(out.getData(), out.getLength());
+    } catch (IOException e) {
+      // Cannot happen when writing to a buffer
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public static KllSketch fromBytes(byte[] bytes) {
+    try {
+      DataInputBuffer in = new DataInputBuffer();
+      in.reset(bytes, bytes.length);
+      KllSketch sketch = new KllSketch(WritableUtils.readVInt(in));
+      sketch.count = WritableUtils.readVLong(in);
+      sketch.min = in.readDouble();
+      sketch.max = in.readDouble();
+      sketch.levels.clear();
+      int numLevels = WritableUtils.readVInt(in);
+      for (int h = 0; h < numLevels; h++) {
+        Level level = new Level();
+        int size = WritableUtils.readVInt(in);
+        for (int i = 0; i < size; i++) {
+          level.add(in.readDouble());
+        }
+        sketch.levels.add(level);
+      }
+      return sketch;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid serialized KllSketch", e);
+    }
+  }
+
+  private void updateStats(long addedCount, double addedMin, double addedMax) {
+    if (count == 0) {
+      min = addedMin;
+      max = addedMax;
+    } else {
+      min = Math.min(min, addedMin);
+      max = Math.max(max, addedMax);
+    }
+    count += addedCount;
+  }
+
+  /**
+   * Compacts levels until they are all below their capacity. Lower levels have smaller capacities.
+   */
+  private void compress() {
+    boolean compacted;
+    do {
+      compacted = false;
+      for (int h = 0; h < levels.size(); h++) {
+        if (levels.get(h).size >= capacity(h)) {
+          if (h + 1 == levels.size()) {
+            levels.add(new Level());
+          }
+          compact(levels.get(h), levels.get(h + 1));
+          compacted = true;
+        }
+      }
+    } while (compacted);
+  }
+
+  private int capacity(int level) {
+    int depth = levels.size() - 1 - level;
+    return Math.max(2, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+  }
+
+  /**
+   * Promotes every other item of the given level, starting at a random one, to the next level. If the level has
+   * an odd number of items, the largest one stays in the level so that the total weight is unchanged.
+   */
+  private void compact(Level level, Level next) {
+    Arrays.sort(level.items, 0, level.size);
+    int promoted = level.size - (level.size % 2);
+    for (int i = random.nextBoolean() ? 1 : 0; i < promoted; i += 2) {
+      next.add(level.items[i]);
+    }
+    if (promoted < level.size) {
+      level.items[0] = level.items[promoted];
+      level.size = 1;
+    } else {
+      level.size = 0;
+    }
+  }
+
+  private SortedView sortedView() {
+    int size = 0;
+    for (Level level : levels) {
+      size += level.size;
+    }
+    double[] values = new double[size];
+    long[] weights = new long[size];
+    int[] positions = new int[levels.size()];
+    List<double[]> sortedLevels = new ArrayList<>(levels.size());
+    for (Level level : levels) {
+      double[] items = Arrays.copyOf(level.items, level.size);
+      Arrays.sort(items);
+      sortedLevels.add(items);
+    }
+    // merge the sorted levels, accumulating the weights
+    long cumulative = 0;
+    for (int i = 0; i < size; i++) {
+      int minLevel = -1;
+      for (int h = 0; h < sortedLevels.size(); h++) {
+        double[] items = sortedLevels.get(h);
+        if (positions[h] < items.length
+          && (minLevel < 0 || items[positions[h]] < sortedLevels.get(minLevel)[positions[minLevel]])) {
+          minLevel = h;
+        }
+      }
+      values[i] = sortedLevels.get(minLevel)[positions[minLevel]++];
+      cumulative += 1L << minLevel;
+      weights[i] = cumulative;
+    }
+    return new SortedView(values, weights);
+  }
+
+  /**
+   * Growable array of the items of one level.
+   */
+  private static final class Level {
+    private double[] items = new double[16];
+    private int size;
+
+    void add(double item) {
+      if (size == items.length) {
+        items = Arrays.copyOf(items, size * 2);
+      }
+      items[size++] = item;
+    }
+  }
+
+  /**
+   * All the items of a sketch in sorted order, with the total weight of the items up to each of them.
+   */
+  private static final class SortedView {
+    private final double[] values;
+    private final long[] cumulativeWeights;
+
+    SortedView(double[] values, long[] cumulativeWeights) {
+      this.values = values;
+      this.cumulativeWeights = cumulativeWeights;
+    }
+  }
+}
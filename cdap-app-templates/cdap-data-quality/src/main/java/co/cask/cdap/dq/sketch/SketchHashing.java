@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.dq.sketch;
+
+import co.cask.cdap.api.common.Bytes;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Hashing of values shared by the sketches.
+ */
+final class SketchHashing {
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private SketchHashing() {
+    // no-op to prevent instantiation of a helper class
+  }
+
+  /**
+   * @return the two 64 bits halves of the 128 bits murmur3 hash of the given value
+   */
+  static long[] hash(String value) {
+    byte[] hash = HASH_FUNCTION.hashBytes(Bytes.toBytes(value)).asBytes();
+    return new long[] { Bytes.toLong(hash, 0), Bytes.toLong(hash, Bytes.SIZEOF_LONG) };
+  }
+}
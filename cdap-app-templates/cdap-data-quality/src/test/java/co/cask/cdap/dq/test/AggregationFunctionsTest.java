@@ -18,6 +18,10 @@ package co.cask.cdap.dq.test;
 
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.dq.DataQualityWritable;
+import co.cask.cdap.dq.functions.ApproximateDiscreteValuesHistogram;
+import co.cask.cdap.dq.functions.ApproximateHistogram;
+import co.cask.cdap.dq.functions.ApproximateQuantiles;
+import co.cask.cdap.dq.functions.ApproximateUniqueValues;
 import co.cask.cdap.dq.functions.DiscreteValuesHistogram;
 import co.cask.cdap.dq.functions.HistogramWithBucketing;
 import co.cask.cdap.dq.functions.Mean;
@@ -35,6 +39,7 @@ import org.junit.Test;
 import java.lang.reflect.Type;
 import java.util.AbstractMap;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -207,5 +212,113 @@ public class AggregationFunctionsTest {
 
     Assert.assertEquals(histogramWithBucketing.histogram, expectedMap);
   }
-}
 
+  @Test
+  public void approximateUniqueValuesTest() throws Exception {
+    ApproximateUniqueValues first = new ApproximateUniqueValues();
+    ApproximateUniqueValues second = new ApproximateUniqueValues();
+    for (int i = 0; i < 10000; i++) {
+      first.add(textWritable("value" + i));
+      // half of the values are the same as the first ones
+      second.add(textWritable("value" + (i + 5000)));
+    }
+    byte[] firstOutput = first.aggregate();
+    Assert.assertEquals(10000, first.deserialize(firstOutput), 400);
+
+    ApproximateUniqueValues combined = new ApproximateUniqueValues();
+    Assert.assertNull(combined.retrieveAggregation());
+    combined.combine(firstOutput);
+    combined.combine(second.aggregate());
+    Assert.assertEquals(15000, combined.retrieveAggregation(), 600);
+  }
+
+  @Test
+  public void approximateDiscreteValuesHistogramTest() throws Exception {
+    ApproximateDiscreteValuesHistogram first = new ApproximateDiscreteValuesHistogram();
+    ApproximateDiscreteValuesHistogram second = new ApproximateDiscreteValuesHistogram();
+    for (int i = 0; i < 10000; i++) {
+      first.add(textWritable(i % 2 == 0 ? "frequent" : "rare" + i));
+      second.add(textWritable(i % 4 == 0 ? "frequent" : "rare" + i));
+    }
+    byte[] firstOutput = first.aggregate();
+    Map<String, Long> firstHistogram = first.deserialize(firstOutput);
+    Assert.assertEquals("frequent", firstHistogram.keySet().iterator().next());
+    Assert.assertTrue(firstHistogram.get("frequent") >= 5000);
+    Assert.assertTrue(firstHistogram.size() <= 100);
+
+    ApproximateDiscreteValuesHistogram combined = new ApproximateDiscreteValuesHistogram();
+    combined.combine(firstOutput);
+    combined.combine(second.aggregate());
+    Map<String, Long> combinedHistogram = combined.retrieveAggregation();
+    Assert.assertEquals("frequent", combinedHistogram.keySet().iterator().next());
+    // count-min estimates never underestimate, and overestimate by at most a small fraction of the total
+    Assert.assertEquals(7500, combinedHistogram.get("frequent"), 200);
+  }
+
+  @Test
+  public void approximateQuantilesTest() throws Exception {
+    ApproximateQuantiles first = new ApproximateQuantiles();
+    ApproximateQuantiles second = new ApproximateQuantiles();
+    for (int i = 0; i < 10000; i++) {
+      first.add(doubleWritable(i));
+      second.add(doubleWritable(i + 10000));
+    }
+    byte[] firstOutput = first.aggregate();
+    Map<Double, Double> quantiles = first.deserialize(firstOutput);
+    Assert.assertEquals(0.0, quantiles.get(0.0), 0);
+    Assert.assertEquals(5000.0, quantiles.get(0.5), 500);
+    Assert.assertEquals(9999.0, quantiles.get(1.0), 0);
+
+    ApproximateQuantiles combined = new ApproximateQuantiles();
+    combined.combine(firstOutput);
+    combined.combine(second.aggregate());
+    quantiles = combined.retrieveAggregation();
+    Assert.assertEquals(0.0, quantiles.get(0.0), 0);
+    Assert.assertEquals(5000.0, quantiles.get(0.25), 500);
+    Assert.assertEquals(10000.0, quantiles.get(0.5), 500);
+    Assert.assertEquals(19999.0, quantiles.get(1.0), 0);
+  }
+
+  @Test
+  public void approximateHistogramTest() throws Exception {
+    ApproximateHistogram first = new ApproximateHistogram();
+    ApproximateHistogram second = new ApproximateHistogram();
+    for (int i = 0; i < 10000; i++) {
+      first.add(doubleWritable(i % 100));
+      second.add(doubleWritable(i % 100));
+    }
+    ApproximateHistogram combined = new ApproximateHistogram();
+    combined.combine(first.aggregate());
+    combined.combine(second.aggregate());
+    Map<Map.Entry<Double, Double>, Long> histogram = combined.retrieveAggregation();
+    Assert.assertEquals(ApproximateHistogram.NUM_BUCKETS, histogram.size());
+
+    long total = 0;
+    Iterator<Map.Entry<Map.Entry<Double, Double>, Long>> iterator = histogram.entrySet().iterator();
+    Map.Entry<Map.Entry<Double, Double>, Long> bucket = iterator.next();
+    Assert.assertEquals(0.0, bucket.getKey().getKey(), 0);
+    Assert.assertEquals(9.9, bucket.getKey().getValue(), 0.001);
+    // values are uniformly distributed, so each bucket has about a tenth of the values
+    Assert.assertEquals(2000, bucket.getValue(), 500);
+    total += bucket.getValue();
+    while (iterator.hasNext()) {
+      bucket = iterator.next();
+      Assert.assertEquals(2000, bucket.getValue(), 500);
+      total += bucket.getValue();
+    }
+    Assert.assertEquals(99.0, bucket.getKey().getValue(), 0);
+    Assert.assertEquals(20000, total);
+  }
+
+  private DataQualityWritable textWritable(String value) {
+    DataQualityWritable writable = new DataQualityWritable();
+    writable.set(new Text(value));
+    return writable;
+  }
+
+  private DataQualityWritable doubleWritable(double value) {
+    DataQualityWritable writable = new DataQualityWritable();
+    writable.set(new DoubleWritable(value));
+    return writable;
+  }
+}
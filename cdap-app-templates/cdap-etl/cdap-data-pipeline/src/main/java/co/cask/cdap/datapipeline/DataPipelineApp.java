@@ -31,6 +31,7 @@ import co.cask.cdap.etl.batch.BatchPipelineSpecGenerator;
 import co.cask.cdap.etl.common.Constants;
 import co.cask.cdap.etl.planner.PipelinePlan;
 import co.cask.cdap.etl.planner.PipelinePlanner;
+import co.cask.cdap.etl.proto.Engine;
 import co.cask.cdap.etl.proto.v2.ETLBatchConfig;
 import co.cask.cdap.etl.spec.PipelineSpecGenerator;
 import com.google.common.collect.ImmutableSet;
@@ -70,9 +71,11 @@ public class DataPipelineApp extends AbstractApplication<ETLBatchConfig> {
         .build());
     BatchPipelineSpec spec = specGenerator.generateSpec(config);
 
+    // Spark can run multiple aggregators in the same program, so there is no need to write to connectors between them
     PipelinePlanner planner = new PipelinePlanner(supportedPluginTypes,
                                                   ImmutableSet.of(BatchAggregator.PLUGIN_TYPE),
-                                                  ImmutableSet.of(SparkCompute.PLUGIN_TYPE, SparkSink.PLUGIN_TYPE));
+                                                  ImmutableSet.of(SparkCompute.PLUGIN_TYPE, SparkSink.PLUGIN_TYPE),
+                                                  config.getEngine() == Engine.SPARK);
     PipelinePlan plan = planner.plan(spec);
 
     addWorkflow(new SmartWorkflow(spec, plan, getConfigurer(), config.getEngine()));
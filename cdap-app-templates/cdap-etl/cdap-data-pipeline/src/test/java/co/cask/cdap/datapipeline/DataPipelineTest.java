@@ -430,6 +430,82 @@ public class DataPipelineTest extends HydratorTestBase {
     validateMetric(5, appId, "sink2.records.in");
   }
 
+  @Test
+  public void testSparkChainedAggregators() throws Exception {
+    String sourceName = "chainedAggInput";
+    String sink1Name = "chainedAggOutput1";
+    String sink2Name = "chainedAggOutput2";
+    /*
+                 |--> agg1 --> agg2 --> sink1
+        source --|
+                 |--> sink2
+
+        With Spark, this is a single phase, where the output of agg1 is grouped again by agg2
+     */
+    ETLBatchConfig etlConfig = ETLBatchConfig.builder("* * * * *")
+      .setEngine(Engine.SPARK)
+      .addStage(new ETLStage("source", MockSource.getPlugin(sourceName)))
+      .addStage(new ETLStage("sink1", MockSink.getPlugin(sink1Name)))
+      .addStage(new ETLStage("sink2", MockSink.getPlugin(sink2Name)))
+      .addStage(new ETLStage("agg1", FieldCountAggregator.getPlugin("user", "string")))
+      .addStage(new ETLStage("agg2", FieldCountAggregator.getPlugin("user", "string")))
+      .addConnection("source", "agg1")
+      .addConnection("source", "sink2")
+      .addConnection("agg1", "agg2")
+      .addConnection("agg2", "sink1")
+      .build();
+
+    AppRequest<ETLBatchConfig> appRequest = new AppRequest<>(APP_ARTIFACT, etlConfig);
+    Id.Application appId = Id.Application.from(Id.Namespace.DEFAULT, "ChainedAggApp");
+    ApplicationManager appManager = deployApplication(appId, appRequest);
+
+    Schema inputSchema = Schema.recordOf(
+      "testRecord",
+      Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("item", Schema.of(Schema.Type.LONG))
+    );
+    List<StructuredRecord> input = ImmutableList.of(
+      StructuredRecord.builder(inputSchema).set("user", "samuel").set("item", 1L).build(),
+      StructuredRecord.builder(inputSchema).set("user", "samuel").set("item", 2L).build(),
+      StructuredRecord.builder(inputSchema).set("user", "samuel").set("item", 3L).build(),
+      StructuredRecord.builder(inputSchema).set("user", "john").set("item", 4L).build(),
+      StructuredRecord.builder(inputSchema).set("user", "john").set("item", 5L).build()
+    );
+    DataSetManager<Table> inputManager = getDataset(Id.Namespace.DEFAULT, sourceName);
+    MockSource.writeInput(inputManager, input);
+
+    WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
+    workflowManager.start();
+    workflowManager.waitForFinish(5, TimeUnit.MINUTES);
+
+    // agg1 outputs (all, 5), (samuel, 3) and (john, 2). agg2 groups those by user again, and puts all of them
+    // in the 'all' group too, which has the 'all' record twice
+    Schema outputSchema = Schema.recordOf(
+      "user.count",
+      Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("ct", Schema.of(Schema.Type.LONG))
+    );
+    DataSetManager<Table> sinkManager = getDataset(sink1Name);
+    Set<StructuredRecord> expected = ImmutableSet.of(
+      StructuredRecord.builder(outputSchema).set("user", "all").set("ct", 4L).build(),
+      StructuredRecord.builder(outputSchema).set("user", "samuel").set("ct", 1L).build(),
+      StructuredRecord.builder(outputSchema).set("user", "john").set("ct", 1L).build());
+    Set<StructuredRecord> actual = Sets.newHashSet(MockSink.readOutput(sinkManager));
+    Assert.assertEquals(expected, actual);
+
+    sinkManager = getDataset(sink2Name);
+    Assert.assertEquals(Sets.newHashSet(input), Sets.newHashSet(MockSink.readOutput(sinkManager)));
+
+    validateMetric(5, appId, "source.records.out");
+    validateMetric(5, appId, "agg1.records.in");
+    validateMetric(3, appId, "agg1.records.out");
+    validateMetric(3, appId, "agg2.records.in");
+    validateMetric(3, appId, "agg2.aggregator.groups");
+    validateMetric(3, appId, "agg2.records.out");
+    validateMetric(3, appId, "sink1.records.in");
+    validateMetric(5, appId, "sink2.records.in");
+  }
+
   @Test
   public void testSparkSinkAndCompute() throws Exception {
     // use the SparkSink to train a model
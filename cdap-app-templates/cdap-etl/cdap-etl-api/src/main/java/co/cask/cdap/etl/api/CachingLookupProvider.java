@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.api;
+
+import co.cask.cdap.api.annotation.Beta;
+
+/**
+ * A {@link LookupProvider} that can cache the values of the {@link Lookup} instances it provides. Not every
+ * {@link LookupProvider} implements this interface, so callers should check for it before using it, for example
+ * {@code context instanceof CachingLookupProvider} for a {@link TransformContext}.
+ */
+@Beta
+public interface CachingLookupProvider extends LookupProvider {
+
+  /**
+   * @param table the name of the {@link Lookup} table
+   * @param config configuration of the {@link Lookup} table, with the arguments for initializing it and
+   *               how its values are cached
+   * @param <T> the type of value returned by the {@link Lookup}
+   * @return a {@link Lookup} instance
+   */
+  <T> Lookup<T> provide(String table, LookupTableConfig config);
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.etl.api.batch;
+
+import co.cask.cdap.api.annotation.Beta;
+import co.cask.cdap.etl.api.Emitter;
+
+import java.util.Iterator;
+
+/**
+ * A {@link BatchAggregator} whose group values can be combined before they are grouped. In mapreduce, values of the
+ * same group are combined in memory on the map side, so that only one value per group and mapper is shuffled
+ * instead of every input value. This is useful for aggregations like counts or sums, where a group of values can be
+ * replaced by a single value that is aggregated to the same result.
+ *
+ * Values may be combined any number of times and in any order, or not at all. Calling
+ * {@link #aggregate(Object, Iterator, Emitter)} on combined values must give the same output as calling it on the
+ * original values. Group values are held in memory until they are combined, so they must not be reused by stages
+ * before the aggregator.
+ *
+ * @param <GROUP_KEY> group key type. Must be a supported type
+ * @param <GROUP_VALUE> group value type. Must be a supported type
+ * @param <OUT> output object type
+ */
+@Beta
+public abstract class CombinableBatchAggregator<GROUP_KEY, GROUP_VALUE, OUT>
+  extends BatchAggregator<GROUP_KEY, GROUP_VALUE, OUT> {
+
+  /**
+   * Combine two values of the same group into a single value.
+   *
+   * @param groupKey the key for the group
+   * @param value1 the first value to combine. It is either a value that was grouped, or the result of a combine
+   * @param value2 the second value to combine. It is either a value that was grouped, or the result of a combine
+   * @return a value that will be aggregated the same way as both values
+   * @throws Exception if there is some error combining the values
+   */
+  public abstract GROUP_VALUE combine(GROUP_KEY groupKey, GROUP_VALUE value1, GROUP_VALUE value2) throws Exception;
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.data.schema.SchemaHash;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Objects;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/**
+ * Registry of the schemas of records serialized by {@link StructuredRecordCodec}, which only writes the hash of the
+ * schema of each record.
+ *
+ * Schemas are kept in memory by their hash, which resolves all records that are read in the JVM that wrote them.
+ * For records that are read in another JVM, such as by a reducer or by another Spark executor, each schema is also
+ * written once to a file named by its hash in the registry directory, and read from there the first time a record
+ * with that schema hash is read. The directory must be on a file system that is shared by all tasks of the job.
+ */
+public final class RecordSchemaRegistry {
+
+  /**
+   * Configuration key for the registry directory. If it is not set, a directory in the job directory of a
+   * MapReduce is used.
+   */
+  public static final String DIRECTORY = "cdap.etl.schema.registry.dir";
+
+  // Schema hash -> schema, for all schemas written or read in this JVM
+  private static final Cache<SchemaHash, Schema> SCHEMAS = CacheBuilder.newBuilder().maximumSize(1000).build();
+  // Schema hashes that have been written to the current registry directory by this JVM
+  private static final Cache<SchemaHash, Boolean> STORED = CacheBuilder.newBuilder().maximumSize(1000).build();
+
+  private static volatile Store store;
+
+  private RecordSchemaRegistry() {
+    // no-op to prevent instantiation of a helper class
+  }
+
+  /**
+   * Sets the registry directory from the given configuration of a MapReduce task. See {@link #DIRECTORY}.
+   */
+  public static void configure(Configuration hConf) {
+    String directory = hConf.get(DIRECTORY);
+    if (directory == null) {
+      String jobDir = hConf.get(MRJobConfig.MAPREDUCE_JOB_DIR);
+      directory = jobDir == null ? null : new Path(jobDir, "schemas").toString();
+    }
+    setDirectory(directory, hConf);
+  }
+
+  /**
+   * Sets the registry directory, or only keeps schemas in memory if the directory is {@code null}.
+   */
+  public static synchronized void setDirectory(@Nullable String directory, Configuration hConf) {
+    Path path = directory == null ? null : new Path(directory);
+    if (store != null && Objects.equals(store.directory, path)) {
+      return;
+    }
+    STORED.invalidateAll();
+    store = path == null ? null : new Store(path, hConf);
+  }
+
+  /**
+   * Registers the schema of a record that is about to be written.
+   */
+  static void register(Schema schema) throws IOException {
+    SchemaHash hash = schema.getSchemaHash();
+    if (SCHEMAS.getIfPresent(hash) == null) {
+      SCHEMAS.put(hash, schema);
+    }
+    Store currentStore = store;
+    if (currentStore != null && STORED.getIfPresent(hash) == null) {
+      currentStore.write(hash, schema);
+      STORED.put(hash, Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Returns the schema of the given hash.
+   *
+   * @throws IOException if the schema has neither been registered in this JVM nor in the registry directory
+   */
+  static Schema get(SchemaHash hash) throws IOException {
+    Schema schema = SCHEMAS.getIfPresent(hash);
+    if (schema != null) {
+      return schema;
+    }
+    Store currentStore = store;
+    if (currentStore == null) {
+      throw new IOException("Schema with hash " + hash + " is not registered, and there is no registry directory.");
+    }
+    schema = currentStore.read(hash);
+    SCHEMAS.put(hash, schema);
+    return schema;
+  }
+
+  /**
+   * Forgets the schemas kept in memory, so that they are read from the registry directory again.
+   */
+  @VisibleForTesting
+  static void invalidateCache() {
+    SCHEMAS.invalidateAll();
+  }
+
+  /**
+   * The files of a registry directory.
+   */
+  private static final class Store {
+    private final Path directory;
+    private final Configuration hConf;
+
+    private Store(Path directory, Configuration hConf) {
+      this.directory = directory;
+      this.hConf = hConf;
+    }
+
+    private void write(SchemaHash hash, Schema schema) throws IOException {
+      Path path = new Path(directory, hash.toString());
+      FileSystem fs = path.getFileSystem(hConf);
+      if (fs.exists(path)) {
+        return;
+      }
+      // write to a temporary file and rename it, so that a schema file is never read while it is partially written
+      Path tmpPath = new Path(directory, hash.toString() + "." + UUID.randomUUID() + ".tmp");
+      try (FSDataOutputStream out = fs.create(tmpPath)) {
+        out.write(Bytes.toBytes(schema.toString()));
+      }
+      if (!fs.rename(tmpPath, path)) {
+        fs.delete(tmpPath, false);
+        // another task may have registered the same schema concurrently
+        if (!fs.exists(path)) {
+          throw new IOException("Failed to register schema with hash " + hash + " at " + path);
+        }
+      }
+    }
+
+    private Schema read(SchemaHash hash) throws IOException {
+      Path path = new Path(directory, hash.toString());
+      FileSystem fs = path.getFileSystem(hConf);
+      try (FSDataInputStream in = fs.open(path)) {
+        return Schema.parseJson(new InputStreamReader(in, Charsets.UTF_8));
+      } catch (FileNotFoundException e) {
+        throw new IOException("Schema with hash " + hash + " is not registered in " + directory, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.data.schema.SchemaHash;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Binary encoding of {@link StructuredRecord} used for shuffling records between mappers and reducers.
+ *
+ * A record is written as the 16 bytes hash of its schema, followed by the field values in schema order. The schema
+ * itself is not written; it is resolved from its hash by the {@link RecordSchemaRegistry} when the record is read.
+ *
+ * Values are written with variable length integers and without field names, and the same record always has the
+ * same bytes. Map entries are written in the order of their serialized bytes, rather than in the iteration order of
+ * the map, so that equal maps have the same bytes too. This allows serialized records to be compared byte by byte.
+ */
+final class StructuredRecordCodec {
+
+  private static final int SCHEMA_HASH_LENGTH = 16;
+
+  private StructuredRecordCodec() {
+    // no-op to prevent instantiation of a helper class
+  }
+
+  /**
+   * Writes the given record, including the hash of its schema, to the given output.
+   */
+  static void write(DataOutput out, StructuredRecord record) throws IOException {
+    Schema schema = record.getSchema();
+    RecordSchemaRegistry.register(schema);
+    out.write(schema.getSchemaHash().toByteArray());
+    writeRecord(out, schema, record);
+  }
+
+  /**
+   * Reads a record written by {@link #write(DataOutput, StructuredRecord)}.
+   */
+  static StructuredRecord read(DataInput in) throws IOException {
+    byte[] hash = new byte[SCHEMA_HASH_LENGTH];
+    in.readFully(hash);
+    Schema schema = RecordSchemaRegistry.get(new SchemaHash(ByteBuffer.wrap(hash)));
+    return (StructuredRecord) readValue(in, schema);
+  }
+
+  private static void writeValue(DataOutput out, Schema schema, @Nullable Object value) throws IOException {
+    if (value == null && schema.getType() != Schema.Type.NULL && schema.getType() != Schema.Type.UNION) {
+      throw new IOException("Null value is not valid for schema " + schema);
+    }
+    switch (schema.getType()) {
+      case NULL:
+        break;
+      case BOOLEAN:
+        out.writeBoolean((Boolean) value);
+        break;
+      case INT:
+        WritableUtils.writeVInt(out, ((Number) value).intValue());
+        break;
+      case LONG:
+        WritableUtils.writeVLong(out, ((Number) value).longValue());
+        break;
+      case FLOAT:
+        out.writeFloat(((Number) value).floatValue());
+        break;
+      case DOUBLE:
+        out.writeDouble(((Number) value).doubleValue());
+        break;
+      case BYTES:
+        writeBytes(out, value);
+        break;
+      case STRING:
+        Text.writeString(out, (String) value);
+        break;
+      case ENUM:
+        String symbol = value instanceof Enum ? ((Enum) value).name() : value.toString();
+        int idx = schema.getEnumIndex(symbol);
+        if (idx < 0) {
+          throw new IOException("Value " + symbol + " is not a symbol of enum " + schema);
+        }
+        WritableUtils.writeVInt(out, idx);
+        break;
+      case ARRAY:
+        writeArray(out, schema.getComponentSchema(), value);
+        break;
+      case MAP:
+        writeMap(out, schema.getMapSchema(), value);
+        break;
+      case RECORD:
+        if (!(value instanceof StructuredRecord)) {
+          throw new IOException("Expects StructuredRecord. Got: " + value.getClass());
+        }
+        writeRecord(out, schema, (StructuredRecord) value);
+        break;
+      case UNION:
+        int unionIdx = findUnionIndex(schema, value);
+        WritableUtils.writeVInt(out, unionIdx);
+        writeValue(out, schema.getUnionSchema(unionIdx), value);
+        break;
+    }
+  }
+
+  private static void writeBytes(DataOutput out, Object value) throws IOException {
+    if (value instanceof ByteBuffer) {
+      ByteBuffer buffer = (ByteBuffer) value;
+      WritableUtils.writeVInt(out, buffer.remaining());
+      out.write(Bytes.toBytes(buffer));
+    } else if (value instanceof byte[]) {
+      byte[] bytes = (byte[]) value;
+      WritableUtils.writeVInt(out, bytes.length);
+      out.write(bytes);
+    } else {
+      throw new IOException("Expects either ByteBuffer or byte[]. Got " + value.getClass());
+    }
+  }
+
+  private static void writeArray(DataOutput out, Schema elementSchema, Object value) throws IOException {
+    if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      WritableUtils.writeVInt(out, collection.size());
+      for (Object element : collection) {
+        writeValue(out, elementSchema, element);
+      }
+    } else if (value instanceof Object[]) {
+      Object[] array = (Object[]) value;
+      WritableUtils.writeVInt(out, array.length);
+      for (Object element : array) {
+        writeValue(out, elementSchema, element);
+      }
+    } else {
+      throw new IOException("Expects either Collection or array. Got: " + value.getClass());
+    }
+  }
+
+  private static void writeMap(DataOutput out, Map.Entry<Schema, Schema> mapSchema, Object value) throws IOException {
+    if (!(value instanceof Map)) {
+      throw new IOException("Expects Map. Got: " + value.getClass());
+    }
+    Map<?, ?> map = (Map<?, ?>) value;
+    WritableUtils.writeVInt(out, map.size());
+    if (map.size() == 1) {
+      Map.Entry<?, ?> entry = map.entrySet().iterator().next();
+      writeValue(out, mapSchema.getKey(), entry.getKey());
+      writeValue(out, mapSchema.getValue(), entry.getValue());
+      return;
+    }
+    // Sort the serialized entries, since maps that are equal can iterate their entries in different orders
+    List<byte[]> entries = new ArrayList<>(map.size());
+    DataOutputBuffer buffer = new DataOutputBuffer();
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      buffer.reset();
+      writeValue(buffer, mapSchema.getKey(), entry.getKey());
+      writeValue(buffer, mapSchema.getValue(), entry.getValue());
+      entries.add(Arrays.copyOf(buffer.getData(), buffer.getLength()));
+    }
+    Collections.sort(entries, Bytes.BYTES_COMPARATOR);
+    for (byte[] entry : entries) {
+      out.write(entry);
+    }
+  }
+
+  private static void writeRecord(DataOutput out, Schema schema, StructuredRecord record) throws IOException {
+    for (Schema.Field field : schema.getFields()) {
+      writeValue(out, field.getSchema(), record.get(field.getName()));
+    }
+  }
+
+  private static int findUnionIndex(Schema unionSchema, @Nullable Object value) throws IOException {
+    List<Schema> schemas = unionSchema.getUnionSchemas();
+    // A record matches the union schema that is the same as the record schema before any other record schema
+    if (value instanceof StructuredRecord) {
+      int idx = schemas.indexOf(((StructuredRecord) value).getSchema());
+      if (idx >= 0) {
+        return idx;
+      }
+    }
+    for (int i = 0; i < schemas.size(); i++) {
+      if (isOfType(schemas.get(i).getType(), value)) {
+        return i;
+      }
+    }
+    throw new IOException("Value type " + (value == null ? null : value.getClass()) +
+                            " not valid in union: " + unionSchema);
+  }
+
+  private static boolean isOfType(Schema.Type type, @Nullable Object value) {
+    switch (type) {
+      case NULL:
+        return value == null;
+      case BOOLEAN:
+        return value instanceof Boolean;
+      case INT:
+        return value instanceof Integer || value instanceof Short || value instanceof Byte;
+      case LONG:
+        return value instanceof Long;
+      case FLOAT:
+        return value instanceof Float;
+      case DOUBLE:
+        return value instanceof Double;
+      case BYTES:
+        return value instanceof byte[] || value instanceof ByteBuffer;
+      case STRING:
+        return value instanceof String;
+      case ENUM:
+        return value instanceof Enum || value instanceof String;
+      case ARRAY:
+        return value instanceof Collection || value instanceof Object[];
+      case MAP:
+        return value instanceof Map;
+      case RECORD:
+        return value instanceof StructuredRecord;
+    }
+    return false;
+  }
+
+  @Nullable
+  private static Object readValue(DataInput in, Schema schema) throws IOException {
+    switch (schema.getType()) {
+      case NULL:
+        return null;
+      case BOOLEAN:
+        return in.readBoolean();
+      case INT:
+        return WritableUtils.readVInt(in);
+      case LONG:
+        return WritableUtils.readVLong(in);
+      case FLOAT:
+        return in.readFloat();
+      case DOUBLE:
+        return in.readDouble();
+      case BYTES:
+        byte[] bytes = new byte[WritableUtils.readVInt(in)];
+        in.readFully(bytes);
+        return bytes;
+      case STRING:
+        return Text.readString(in);
+      case ENUM:
+        // Currently there is no standard container to represent enum type
+        return schema.getEnumValue(WritableUtils.readVInt(in));
+      case ARRAY:
+        int size = WritableUtils.readVInt(in);
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readValue(in, schema.getComponentSchema()));
+        }
+        return list;
+      case MAP:
+        int entries = WritableUtils.readVInt(in);
+        Map<Object, Object> map = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+          Object key = readValue(in, schema.getMapSchema().getKey());
+          map.put(key, readValue(in, schema.getMapSchema().getValue()));
+        }
+        return map;
+      case RECORD:
+        StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+        for (Schema.Field field : schema.getFields()) {
+          Object fieldValue = readValue(in, field.getSchema());
+          if (fieldValue != null) {
+            builder.set(field.getName(), fieldValue);
+          }
+        }
+        return builder.build();
+      case UNION:
+        return readValue(in, schema.getUnionSchema(WritableUtils.readVInt(in)));
+    }
+    throw new IOException("Unsupported schema: " + schema);
+  }
+}
@@ -16,11 +16,10 @@
 
 package co.cask.cdap.etl.batch;
 
-import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.format.StructuredRecord;
-import co.cask.cdap.api.data.schema.Schema;
-import co.cask.cdap.format.StructuredRecordStringConverter;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -29,9 +28,14 @@ import java.util.Objects;
 
 /**
  * Wrapper around a {@link StructuredRecord} so that it can be used as the output key and/or value of a mapper.
- * This is not very performant and must be improved soon (CDAP-5347).
+ * Records are serialized with the compact binary encoding of {@link StructuredRecordCodec}, and keys are sorted and
+ * grouped by comparing their serialized bytes, without deserializing them.
  */
 public class StructuredRecordWritable implements WritableComparable<StructuredRecordWritable> {
+  static {
+    WritableComparator.define(StructuredRecordWritable.class, new Comparator());
+  }
+
   private StructuredRecord record;
 
   // required by Hadoop
@@ -51,35 +55,32 @@ public class StructuredRecordWritable implements WritableComparable<StructuredRe
     return record;
   }
 
-  @SuppressWarnings("ConstantConditions")
   @Override
   public void write(DataOutput out) throws IOException {
-    String schemaStr = record.getSchema().toString();
-    String recordStr = StructuredRecordStringConverter.toJsonString(record);
-    out.writeInt(schemaStr.length());
-    out.write(Bytes.toBytes(schemaStr));
-    out.writeInt(recordStr.length());
-    out.write(Bytes.toBytes(recordStr));
+    StructuredRecordCodec.write(out, record);
   }
 
   @Override
   public void readFields(DataInput in) throws IOException {
-    int schemaLen = in.readInt();
-    byte[] schemaBytes = new byte[schemaLen];
-    in.readFully(schemaBytes, 0, schemaLen);
-    String schemaStr = Bytes.toString(schemaBytes);
-    Schema schema = Schema.parseJson(schemaStr);
-
-    int recordLen = in.readInt();
-    byte[] recordBytes = new byte[recordLen];
-    in.readFully(recordBytes, 0, recordLen);
-    String recordStr = Bytes.toString(recordBytes);
-    this.record = StructuredRecordStringConverter.fromJsonString(recordStr, schema);
+    this.record = StructuredRecordCodec.read(in);
   }
 
+  /**
+   * Compares the serialized bytes of the records, to be consistent with the {@link Comparator} used by Hadoop.
+   */
   @Override
   public int compareTo(StructuredRecordWritable o) {
-    return Integer.compare(hashCode(), o.hashCode());
+    try {
+      DataOutputBuffer buffer = new DataOutputBuffer();
+      write(buffer);
+      DataOutputBuffer otherBuffer = new DataOutputBuffer();
+      o.write(otherBuffer);
+      return WritableComparator.compareBytes(buffer.getData(), 0, buffer.getLength(),
+                                             otherBuffer.getData(), 0, otherBuffer.getLength());
+    } catch (IOException e) {
+      // Writing to an in memory buffer doesn't throw unless the record doesn't match its schema
+      throw new IllegalStateException("Failed to serialize record for comparison", e);
+    }
   }
 
   @Override
@@ -100,4 +101,21 @@ public class StructuredRecordWritable implements WritableComparable<StructuredRe
   public int hashCode() {
     return record != null ? record.hashCode() : 0;
   }
+
+  /**
+   * Raw comparator for {@link StructuredRecordWritable}, so that the shuffle can sort and group records without
+   * deserializing them. Equal records of the same schema always have the same serialized bytes, including records
+   * with map fields, whose entries are serialized in a canonical order by {@link StructuredRecordCodec}.
+   */
+  public static final class Comparator extends WritableComparator {
+
+    public Comparator() {
+      super(StructuredRecordWritable.class);
+    }
+
+    @Override
+    public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+      return compareBytes(b1, s1, l1, b2, s2, l2);
+    }
+  }
 }
@@ -71,7 +71,15 @@ public abstract class TransformExecutorFactory<T> {
       }
     }
 
-    return new TransformExecutor<>(transformations, pipeline.getSources());
+    return new TransformExecutor<>(transformations, pipeline.getSources(), getMetricsFlushIterations());
+  }
+
+  /**
+   * Returns the number of iterations after which the created executors emit the metrics accumulated by the stages.
+   * Executors that are not guaranteed to be destroyed once done must flush after every iteration.
+   */
+  protected int getMetricsFlushIterations() {
+    return 1;
   }
 
   /**
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.etl.batch.mapreduce;
+
+import co.cask.cdap.api.dataset.lib.KeyValue;
+import co.cask.cdap.etl.api.batch.CombinableBatchAggregator;
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In memory buffer that combines the values of each group with a {@link CombinableBatchAggregator}. It holds at most
+ * a fixed number of groups, and groups of at most a fixed total size in bytes, as estimated by a {@link Weigher},
+ * after which the buffered groups have to be drained and written out before more values can be added. This way the
+ * memory used by the buffer is bounded even if the combined values grow, and values are still combined well when
+ * there are few groups or when values of the same group are close to each other in the input.
+ *
+ * @param <GROUP_KEY> type of group key
+ * @param <GROUP_VAL> type of group value
+ */
+class CombiningBuffer<GROUP_KEY, GROUP_VAL> {
+  private final CombinableBatchAggregator<GROUP_KEY, GROUP_VAL, ?> aggregator;
+  private final int maxGroups;
+  private final long maxBytes;
+  private final Weigher<GROUP_KEY, GROUP_VAL> weigher;
+  // group key, or a ByteBuffer wrapping it for byte[] group keys -> group key, combined value and its size
+  private Map<Object, Group<GROUP_KEY, GROUP_VAL>> groups;
+  private long bytes;
+
+  CombiningBuffer(CombinableBatchAggregator<GROUP_KEY, GROUP_VAL, ?> aggregator, int maxGroups) {
+    this(aggregator, maxGroups, Long.MAX_VALUE, new Weigher<GROUP_KEY, GROUP_VAL>() {
+      @Override
+      public int weigh(GROUP_KEY groupKey, GROUP_VAL value) {
+        return 0;
+      }
+    });
+  }
+
+  CombiningBuffer(CombinableBatchAggregator<GROUP_KEY, GROUP_VAL, ?> aggregator, int maxGroups, long maxBytes,
+                  Weigher<GROUP_KEY, GROUP_VAL> weigher) {
+    Preconditions.checkArgument(maxGroups > 0, "The maximum number of groups must be positive: %s", maxGroups);
+    Preconditions.checkArgument(maxBytes > 0, "The maximum number of bytes must be positive: %s", maxBytes);
+    this.aggregator = aggregator;
+    this.maxGroups = maxGroups;
+    this.maxBytes = maxBytes;
+    this.weigher = weigher;
+    this.groups = new HashMap<>();
+  }
+
+  /**
+   * Adds a value to a group, combining it with the value already buffered for the group if there is one.
+   *
+   * @return whether the buffer is full and must be drained before adding more values
+   */
+  boolean add(GROUP_KEY groupKey, GROUP_VAL value) throws Exception {
+    // arrays don't implement equals and hashCode
+    Object bufferKey = groupKey instanceof byte[] ? ByteBuffer.wrap((byte[]) groupKey) : groupKey;
+    Group<GROUP_KEY, GROUP_VAL> group = groups.get(bufferKey);
+    GROUP_VAL combined = group == null ? value : aggregator.combine(groupKey, group.value, value);
+    int weight = weigher.weigh(groupKey, combined);
+    bytes += group == null ? weight : weight - group.weight;
+    groups.put(bufferKey, new Group<>(groupKey, combined, weight));
+    return groups.size() >= maxGroups || bytes >= maxBytes;
+  }
+
+  /**
+   * Removes all the buffered groups.
+   *
+   * @return the group keys with their combined values
+   */
+  List<KeyValue<GROUP_KEY, GROUP_VAL>> drain() {
+    List<KeyValue<GROUP_KEY, GROUP_VAL>> drained = new ArrayList<>(groups.size());
+    for (Group<GROUP_KEY, GROUP_VAL> group : groups.values()) {
+      drained.add(new KeyValue<>(group.key, group.value));
+    }
+    // a new map instead of clear(), which would keep the capacity of the largest map
+    groups = new HashMap<>();
+    bytes = 0;
+    return drained;
+  }
+
+  boolean isEmpty() {
+    return groups.isEmpty();
+  }
+
+  /**
+   * Estimates the number of bytes used by a group key and its combined value.
+   *
+   * @param <GROUP_KEY> type of group key
+   * @param <GROUP_VAL> type of group value
+   */
+  interface Weigher<GROUP_KEY, GROUP_VAL> {
+    int weigh(GROUP_KEY groupKey, GROUP_VAL value) throws Exception;
+  }
+
+  private static final class Group<GROUP_KEY, GROUP_VAL> {
+    private final GROUP_KEY key;
+    private final GROUP_VAL value;
+    private final int weight;
+
+    private Group(GROUP_KEY key, GROUP_VAL value, int weight) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+}
@@ -36,6 +36,7 @@ import co.cask.cdap.etl.batch.CompositeFinisher;
 import co.cask.cdap.etl.batch.Finisher;
 import co.cask.cdap.etl.batch.LoggedBatchConfigurable;
 import co.cask.cdap.etl.batch.PipelinePluginInstantiator;
+import co.cask.cdap.etl.batch.RecordSchemaRegistry;
 import co.cask.cdap.etl.batch.conversion.WritableConversion;
 import co.cask.cdap.etl.batch.conversion.WritableConversions;
 import co.cask.cdap.etl.common.Constants;
@@ -57,6 +58,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.slf4j.Logger;
@@ -78,6 +80,12 @@ public class ETLMapReduce extends AbstractMapReduce {
   static final String SINK_OUTPUTS_KEY = "cdap.etl.sink.outputs";
   static final String GROUP_KEY_CLASS = "cdap.etl.aggregator.group.key.class";
   static final String GROUP_VAL_CLASS = "cdap.etl.aggregator.group.val.class";
+  // maximum number of groups buffered by a mapper for a CombinableBatchAggregator, can be set as a runtime argument
+  public static final String COMBINE_BUFFER_SIZE = "cdap.etl.aggregator.combine.buffer.size";
+  static final int DEFAULT_COMBINE_BUFFER_SIZE = 10000;
+  // maximum serialized size in bytes of the groups buffered by a mapper, can be set as a runtime argument
+  public static final String COMBINE_BUFFER_BYTES = "cdap.etl.aggregator.combine.buffer.bytes";
+  static final long DEFAULT_COMBINE_BUFFER_BYTES = 32 * 1024 * 1024;
   static final Type RUNTIME_ARGS_TYPE = new TypeToken<Map<String, Map<String, String>>>() { }.getType();
   static final Type SINK_OUTPUTS_TYPE = new TypeToken<Map<String, SinkOutput>>() { }.getType();
   private static final Logger LOG = LoggerFactory.getLogger(ETLMapReduce.class);
@@ -262,6 +270,15 @@ public class ETLMapReduce extends AbstractMapReduce {
 
       job.setMapOutputKeyClass(outputKeyClass);
       job.setMapOutputValueClass(outputValClass);
+
+      String combineBufferSize = context.getRuntimeArguments().get(COMBINE_BUFFER_SIZE);
+      if (combineBufferSize != null) {
+        hConf.setInt(COMBINE_BUFFER_SIZE, Integer.parseInt(combineBufferSize));
+      }
+      String combineBufferBytes = context.getRuntimeArguments().get(COMBINE_BUFFER_BYTES);
+      if (combineBufferBytes != null) {
+        hConf.setLong(COMBINE_BUFFER_BYTES, Long.parseLong(combineBufferBytes));
+      }
     } else {
       job.setNumReduceTasks(0);
     }
@@ -293,6 +310,9 @@ public class ETLMapReduce extends AbstractMapReduce {
       if (Boolean.valueOf(properties.get(Constants.STAGE_LOGGING_ENABLED))) {
         LogStageInjector.start();
       }
+      // records shuffled to the reducers only carry the hash of their schema
+      JobContext jobContext = context.getHadoopContext();
+      RecordSchemaRegistry.configure(jobContext.getConfiguration());
       transformRunner = new TransformRunner<>(context, mapperMetrics);
     }
 
@@ -305,6 +325,16 @@ public class ETLMapReduce extends AbstractMapReduce {
       }
     }
 
+    @Override
+    protected void cleanup(Mapper.Context context) throws IOException, InterruptedException {
+      // write out what is still buffered, while the outputs are still open
+      try {
+        transformRunner.flush();
+      } catch (Exception e) {
+        Throwables.propagate(e);
+      }
+    }
+
     @Override
     public void destroy() {
       transformRunner.destroy();
@@ -328,6 +358,9 @@ public class ETLMapReduce extends AbstractMapReduce {
       if (Boolean.valueOf(properties.get(Constants.STAGE_LOGGING_ENABLED))) {
         LogStageInjector.start();
       }
+      // resolves the schemas of the shuffled records that were registered by the mappers
+      JobContext jobContext = context.getHadoopContext();
+      RecordSchemaRegistry.configure(jobContext.getConfiguration());
       transformRunner = new TransformRunner<>(context, reducerMetrics);
     }
 
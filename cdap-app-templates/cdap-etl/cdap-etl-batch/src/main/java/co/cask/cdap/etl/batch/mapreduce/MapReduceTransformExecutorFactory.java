@@ -25,6 +25,7 @@ import co.cask.cdap.etl.api.StageMetrics;
 import co.cask.cdap.etl.api.Transformation;
 import co.cask.cdap.etl.api.batch.BatchAggregator;
 import co.cask.cdap.etl.api.batch.BatchRuntimeContext;
+import co.cask.cdap.etl.api.batch.CombinableBatchAggregator;
 import co.cask.cdap.etl.batch.PipelinePluginInstantiator;
 import co.cask.cdap.etl.batch.TransformExecutorFactory;
 import co.cask.cdap.etl.batch.conversion.WritableConversion;
@@ -36,13 +37,17 @@ import co.cask.cdap.etl.common.TrackedTransform;
 import com.google.common.base.Function;
 import com.google.common.collect.Iterators;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.Mapper;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 
@@ -52,11 +57,18 @@ import javax.annotation.Nullable;
  * @param <T> the type of input for the created transform executors
  */
 public class MapReduceTransformExecutorFactory<T> extends TransformExecutorFactory<T> {
+  // executors are destroyed when the task finishes, which flushes the remaining metrics
+  private static final int METRICS_FLUSH_ITERATIONS = 1000;
+
   private final Map<String, Map<String, String>> pluginRuntimeArgs;
   private final MapReduceTaskContext taskContext;
   private final String mapOutputKeyClassName;
   private final String mapOutputValClassName;
   private final boolean isMapper;
+  private final int combineBufferSize;
+  private final long combineBufferBytes;
+  // only set in the mapper, if the aggregator is combinable
+  private CombiningMapperAggregatorTransformation<?, ?, ?, ?> combiningTransformation;
 
   public MapReduceTransformExecutorFactory(MapReduceTaskContext taskContext,
                                            PipelinePluginInstantiator pluginInstantiator,
@@ -70,6 +82,21 @@ public class MapReduceTransformExecutorFactory<T> extends TransformExecutorFacto
     this.mapOutputKeyClassName = hConf.get(ETLMapReduce.GROUP_KEY_CLASS);
     this.mapOutputValClassName = hConf.get(ETLMapReduce.GROUP_VAL_CLASS);
     this.isMapper = hadoopContext instanceof Mapper.Context;
+    this.combineBufferSize = hConf.getInt(ETLMapReduce.COMBINE_BUFFER_SIZE, ETLMapReduce.DEFAULT_COMBINE_BUFFER_SIZE);
+    this.combineBufferBytes = hConf.getLong(ETLMapReduce.COMBINE_BUFFER_BYTES,
+                                            ETLMapReduce.DEFAULT_COMBINE_BUFFER_BYTES);
+  }
+
+  /**
+   * Removes the groups buffered by the map side combining of the aggregator, if it is combinable.
+   *
+   * @return the groups as map output key and value
+   */
+  public List<KeyValue<Object, Object>> drainCombinedGroups() {
+    if (combiningTransformation == null) {
+      return Collections.emptyList();
+    }
+    return combiningTransformation.drain();
   }
 
   @Override
@@ -82,6 +109,11 @@ public class MapReduceTransformExecutorFactory<T> extends TransformExecutorFacto
                                        stageName, stageRuntimeArgs);
   }
 
+  @Override
+  protected int getMetricsFlushIterations() {
+    return METRICS_FLUSH_ITERATIONS;
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   protected TrackedTransform getTransformation(String pluginType, String stageName) throws Exception {
@@ -90,7 +122,14 @@ public class MapReduceTransformExecutorFactory<T> extends TransformExecutorFacto
       BatchRuntimeContext runtimeContext = createRuntimeContext(stageName);
       batchAggregator.initialize(runtimeContext);
       StageMetrics stageMetrics = new DefaultStageMetrics(metrics, stageName);
-      if (isMapper) {
+      if (isMapper && batchAggregator instanceof CombinableBatchAggregator) {
+        combiningTransformation =
+          new CombiningMapperAggregatorTransformation((CombinableBatchAggregator) batchAggregator,
+                                                      mapOutputKeyClassName,
+                                                      mapOutputValClassName,
+                                                      combineBufferSize, combineBufferBytes);
+        return getTrackedGroupStep(combiningTransformation, stageMetrics);
+      } else if (isMapper) {
         return getTrackedGroupStep(new MapperAggregatorTransformation(batchAggregator,
                                                                       mapOutputKeyClassName,
                                                                       mapOutputValClassName),
@@ -146,6 +185,81 @@ public class MapReduceTransformExecutorFactory<T> extends TransformExecutorFacto
     }
   }
 
+  /**
+   * A Transformation that uses an aggregator's groupBy method, like {@link MapperAggregatorTransformation}, but
+   * combines the values of each group in a {@link CombiningBuffer} instead of emitting every value. The buffered
+   * groups are emitted whenever the buffer is full, and the remaining ones must be drained when the mapper is done.
+   *
+   * @param <GROUP_KEY> type of group key output by the aggregator
+   * @param <GROUP_VAL> type of group value used by the aggregator
+   * @param <OUT_KEY> type of output key for mapreduce. Must implement WritableComparable
+   * @param <OUT_VAL> type of output value for mapreduce. Must implement Writable
+   */
+  private static class CombiningMapperAggregatorTransformation<GROUP_KEY, GROUP_VAL, OUT_KEY extends Writable,
+    OUT_VAL extends Writable> implements Transformation<GROUP_VAL, KeyValue<OUT_KEY, OUT_VAL>> {
+    private final CombinableBatchAggregator<GROUP_KEY, GROUP_VAL, ?> aggregator;
+    private final DefaultEmitter<GROUP_KEY> groupKeyEmitter;
+    private final CombiningBuffer<GROUP_KEY, GROUP_VAL> buffer;
+    private final WritableConversion<GROUP_KEY, OUT_KEY> keyConversion;
+    private final WritableConversion<GROUP_VAL, OUT_VAL> valConversion;
+
+    public CombiningMapperAggregatorTransformation(CombinableBatchAggregator<GROUP_KEY, GROUP_VAL, ?> aggregator,
+                                                   String groupKeyClassName,
+                                                   String groupValClassName,
+                                                   int bufferSize, long bufferBytes) {
+      this.aggregator = aggregator;
+      this.groupKeyEmitter = new DefaultEmitter<>();
+      WritableConversion<GROUP_KEY, OUT_KEY> keyConversion = WritableConversions.getConversion(groupKeyClassName);
+      WritableConversion<GROUP_VAL, OUT_VAL> valConversion = WritableConversions.getConversion(groupValClassName);
+      // if the conversion is null, it means the user is using a Writable already
+      this.keyConversion = keyConversion == null ? new CastConversion<GROUP_KEY, OUT_KEY>() : keyConversion;
+      this.valConversion = valConversion == null ? new CastConversion<GROUP_VAL, OUT_VAL>() : valConversion;
+      this.buffer = new CombiningBuffer<>(aggregator, bufferSize, bufferBytes, new MapOutputWeigher());
+    }
+
+    @Override
+    public void transform(GROUP_VAL input, Emitter<KeyValue<OUT_KEY, OUT_VAL>> emitter) throws Exception {
+      groupKeyEmitter.reset();
+      aggregator.groupBy(input, groupKeyEmitter);
+      for (GROUP_KEY groupKey : groupKeyEmitter.getEntries()) {
+        if (buffer.add(groupKey, input)) {
+          for (KeyValue<GROUP_KEY, GROUP_VAL> group : buffer.drain()) {
+            emitter.emit(new KeyValue<>(keyConversion.toWritable(group.getKey()),
+                                        valConversion.toWritable(group.getValue())));
+          }
+        }
+      }
+    }
+
+    /**
+     * Weighs a group by the size of its map output, which the mapper would have written for every value without
+     * combining, so that measuring it does not cost more than not combining.
+     */
+    private final class MapOutputWeigher implements CombiningBuffer.Weigher<GROUP_KEY, GROUP_VAL> {
+      private final DataOutputBuffer sizeBuffer = new DataOutputBuffer();
+
+      @Override
+      public int weigh(GROUP_KEY groupKey, GROUP_VAL value) throws Exception {
+        sizeBuffer.reset();
+        keyConversion.toWritable(groupKey).write(sizeBuffer);
+        valConversion.toWritable(value).write(sizeBuffer);
+        return sizeBuffer.getLength();
+      }
+    }
+
+    /**
+     * Removes the buffered groups, converted to map output keys and values.
+     */
+    List<KeyValue<Object, Object>> drain() {
+      List<KeyValue<Object, Object>> groups = new ArrayList<>();
+      for (KeyValue<GROUP_KEY, GROUP_VAL> group : buffer.drain()) {
+        groups.add(new KeyValue<Object, Object>(keyConversion.toWritable(group.getKey()),
+                                                valConversion.toWritable(group.getValue())));
+      }
+      return groups;
+    }
+  }
+
   /**
    * A Transformation that uses an aggregator's aggregate method. Supports applying a function to the types
    * send as input to the aggregator. These functions are used when the aggregator takes group keys that are not
@@ -24,7 +24,6 @@ import co.cask.cdap.etl.api.Transform;
 import co.cask.cdap.etl.api.batch.BatchAggregator;
 import co.cask.cdap.etl.batch.BatchPhaseSpec;
 import co.cask.cdap.etl.batch.PipelinePluginInstantiator;
-import co.cask.cdap.etl.batch.TransformExecutorFactory;
 import co.cask.cdap.etl.common.Constants;
 import co.cask.cdap.etl.common.Destroyables;
 import co.cask.cdap.etl.common.PipelinePhase;
@@ -64,7 +63,10 @@ public class TransformRunner<KEY, VALUE> {
   private final Set<String> transformsWithoutErrorDataset;
   private final Map<String, ErrorOutputWriter<Object, Object>> transformErrorSinkMap;
   private final TransformExecutor<KeyValue<KEY, VALUE>> transformExecutor;
+  private final MapReduceTransformExecutorFactory<KeyValue<KEY, VALUE>> transformExecutorFactory;
   private final OutputWriter<Object, Object> outputWriter;
+  // the aggregator of the phase, if there is one
+  private final String aggregatorName;
 
   public TransformRunner(MapReduceTaskContext<Object, Object> context,
                          Metrics metrics) throws Exception {
@@ -84,8 +86,8 @@ public class TransformRunner<KEY, VALUE> {
 
     PipelinePhase phase = phaseSpec.getPhase();
     Set<StageInfo> aggregators = phase.getStagesOfType(BatchAggregator.PLUGIN_TYPE);
-    if (!aggregators.isEmpty()) {
-      String aggregatorName = aggregators.iterator().next().getName();
+    this.aggregatorName = aggregators.isEmpty() ? null : aggregators.iterator().next().getName();
+    if (aggregatorName != null) {
       // if we're in the mapper, get the part of the pipeline starting from sources and ending at aggregator
       if (jobContext instanceof Mapper.Context) {
         phase = phase.subsetTo(ImmutableSet.of(aggregatorName));
@@ -94,7 +96,7 @@ public class TransformRunner<KEY, VALUE> {
         phase = phase.subsetFrom(ImmutableSet.of(aggregatorName));
       }
     }
-    TransformExecutorFactory<KeyValue<KEY, VALUE>> transformExecutorFactory =
+    this.transformExecutorFactory =
       new MapReduceTransformExecutorFactory<>(context, pluginInstantiator, metrics, runtimeArgs);
     this.transformExecutor = transformExecutorFactory.create(phase);
 
@@ -179,6 +181,16 @@ public class TransformRunner<KEY, VALUE> {
     transformExecutor.resetEmitter();
   }
 
+  /**
+   * Writes out the groups that are still buffered by the map side combining of the aggregator, if there is any.
+   * This must be called once all the input has been transformed.
+   */
+  public void flush() throws Exception {
+    for (KeyValue<Object, Object> group : transformExecutorFactory.drainCombinedGroups()) {
+      outputWriter.write(aggregatorName, group);
+    }
+  }
+
   public void destroy() {
     Destroyables.destroyQuietly(transformExecutor);
   }
@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.spark;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.etl.batch.RecordSchemaRegistry;
+import com.esotericsoftware.kryo.Kryo;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.spark.SparkEnv;
+import org.apache.spark.serializer.KryoRegistrator;
+
+/**
+ * {@link KryoRegistrator} used by {@link ETLSpark} when records are kept compact, so that {@link StructuredRecord}
+ * are serialized with the {@link StructuredRecordKryoSerializer} when they are shuffled or cached. It also points the
+ * {@link RecordSchemaRegistry} of the executor to the directory that the executors share the record schemas in.
+ */
+public class ETLKryoRegistrator implements KryoRegistrator {
+
+  @Override
+  public void registerClasses(Kryo kryo) {
+    SparkEnv env = SparkEnv.get();
+    String schemaRegistryDir = env == null ? null : env.conf().get(ETLSpark.SCHEMA_REGISTRY_DIR, null);
+    RecordSchemaRegistry.setDirectory(schemaRegistryDir, new Configuration());
+    kryo.register(StructuredRecord.class, new StructuredRecordKryoSerializer());
+  }
+}
@@ -28,15 +28,19 @@ import co.cask.cdap.etl.batch.BatchPhaseSpec;
 import co.cask.cdap.etl.batch.CompositeFinisher;
 import co.cask.cdap.etl.batch.Finisher;
 import co.cask.cdap.etl.batch.PipelinePluginInstantiator;
+import co.cask.cdap.etl.batch.RecordSchemaRegistry;
 import co.cask.cdap.etl.common.Constants;
 import co.cask.cdap.etl.common.DatasetContextLookupProvider;
 import co.cask.cdap.etl.common.SetMultimapCodec;
 import co.cask.cdap.etl.planner.StageInfo;
-import com.google.common.base.Joiner;
 import com.google.common.collect.SetMultimap;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.spark.SparkConf;
+import org.apache.spark.serializer.KryoSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,12 +53,23 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Configures and sets up runs of {@link ETLSparkProgram}.
  */
 public class ETLSpark extends AbstractSpark {
+  /**
+   * Runtime argument to keep records compact while they are shuffled and cached, by serializing them with Kryo and
+   * the binary encoding of their schema, and by caching intermediate results in serialized form.
+   */
+  public static final String COMPACT_RECORDS = "cdap.etl.spark.compact.records";
+
+  /**
+   * Spark configuration for the directory in which the {@link RecordSchemaRegistry} of the executors keeps the
+   * schemas of compact records.
+   */
+  static final String SCHEMA_REGISTRY_DIR = "spark." + RecordSchemaRegistry.DIRECTORY;
+
   private static final Logger LOG = LoggerFactory.getLogger(ETLSpark.class);
   private static final Gson GSON = new GsonBuilder()
     .registerTypeAdapter(SetMultimap.class, new SetMultimapCodec<>()).create();
@@ -62,6 +77,7 @@ public class ETLSpark extends AbstractSpark {
   private final BatchPhaseSpec phaseSpec;
   private Finisher finisher;
   private List<File> cleanupFiles;
+  private Path schemaRegistryDir;
 
   public ETLSpark(BatchPhaseSpec phaseSpec) {
     this.phaseSpec = phaseSpec;
@@ -98,6 +114,15 @@ public class ETLSpark extends AbstractSpark {
     SparkConf sparkConf = new SparkConf();
     sparkConf.set("spark.driver.extraJavaOptions", "-XX:MaxPermSize=256m");
     sparkConf.set("spark.executor.extraJavaOptions", "-XX:MaxPermSize=256m");
+    if (Boolean.parseBoolean(context.getRuntimeArguments().get(COMPACT_RECORDS))) {
+      sparkConf.set("spark.serializer", KryoSerializer.class.getName());
+      sparkConf.set("spark.kryo.registrator", ETLKryoRegistrator.class.getName());
+      // compact records only carry the hash of their schema, so executors share the schemas through a directory
+      FileSystem fs = FileSystem.get(new Configuration());
+      schemaRegistryDir = fs.makeQualified(new Path(fs.getHomeDirectory(),
+                                                    ".cdap-etl-schemas/" + context.getRunId().getId()));
+      sparkConf.set(SCHEMA_REGISTRY_DIR, schemaRegistryDir.toString());
+    }
     context.setSparkConf(sparkConf);
     Map<String, String> properties = context.getSpecification().getProperties();
     BatchPhaseSpec phaseSpec = GSON.fromJson(properties.get(Constants.PIPELINEID), BatchPhaseSpec.class);
@@ -135,21 +160,17 @@ public class ETLSpark extends AbstractSpark {
       }
     }
 
-    Set<StageInfo> aggregators = phaseSpec.getPhase().getStagesOfType(BatchAggregator.PLUGIN_TYPE);
-    Integer numPartitions = null;
-    if (!aggregators.isEmpty()) {
-      if (aggregators.size() > 1) {
-        throw new IllegalArgumentException(String.format(
-          "There was an error during planning. Phase %s has multiple aggregators %s.",
-          phaseSpec.getPhaseName(), Joiner.on(',').join(aggregators)));
-      }
-      String aggregatorName = aggregators.iterator().next().getName();
+    // a phase can contain multiple aggregators, each with its own number of partitions
+    Map<String, Integer> numPartitions = new HashMap<>();
+    for (StageInfo aggregatorInfo : phaseSpec.getPhase().getStagesOfType(BatchAggregator.PLUGIN_TYPE)) {
+      String aggregatorName = aggregatorInfo.getName();
       BatchAggregator aggregator = pluginInstantiator.newPluginInstance(aggregatorName);
       AbstractAggregatorContext aggregatorContext =
         new SparkAggregatorContext(context, new DatasetContextLookupProvider(context), aggregatorName);
       aggregator.prepareRun(aggregatorContext);
       finishers.add(aggregator, aggregatorContext);
-      numPartitions = aggregatorContext.getNumPartitions();
+      Integer aggregatorPartitions = aggregatorContext.getNumPartitions();
+      numPartitions.put(aggregatorName, aggregatorPartitions == null ? -1 : aggregatorPartitions);
     }
 
     File configFile = File.createTempFile("ETLSpark", ".config");
@@ -158,7 +179,11 @@ public class ETLSpark extends AbstractSpark {
       sourceFactory.serialize(os);
       sinkFactory.serialize(os);
       DataOutput dataOutput = new DataOutputStream(os);
-      dataOutput.writeInt(numPartitions == null ? -1 : numPartitions);
+      dataOutput.writeInt(numPartitions.size());
+      for (Map.Entry<String, Integer> entry : numPartitions.entrySet()) {
+        dataOutput.writeUTF(entry.getKey());
+        dataOutput.writeInt(entry.getValue());
+      }
     }
 
     finisher = finishers.build();
@@ -173,6 +198,12 @@ public class ETLSpark extends AbstractSpark {
         LOG.warn("Failed to clean up resource {} ", file);
       }
     }
+    if (schemaRegistryDir != null) {
+      FileSystem fs = schemaRegistryDir.getFileSystem(new Configuration());
+      if (!fs.delete(schemaRegistryDir, true) && fs.exists(schemaRegistryDir)) {
+        LOG.warn("Failed to clean up schema registry directory {}", schemaRegistryDir);
+      }
+    }
   }
 
 }
@@ -37,23 +37,31 @@ import co.cask.cdap.etl.common.TransformExecutor;
 import co.cask.cdap.etl.common.TransformResponse;
 import co.cask.cdap.etl.planner.StageInfo;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.StorageLevels;
 import org.apache.spark.api.java.function.Function;
 import org.apache.spark.api.java.function.PairFlatMapFunction;
+import org.apache.spark.storage.StorageLevel;
 import scala.Tuple2;
 
 import java.io.DataInputStream;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -70,11 +78,15 @@ public class ETLSparkProgram implements JavaSparkMain, TxRunnable {
 
   private transient JavaSparkContext jsc;
   private transient JavaSparkExecutionContext sec;
+  private transient StorageLevel storageLevel;
 
   @Override
   public void run(final JavaSparkExecutionContext sec) throws Exception {
     this.jsc = new JavaSparkContext();
     this.sec = sec;
+    // with compact records, intermediate results are cached serialized, which is only compact with Kryo
+    this.storageLevel = Boolean.parseBoolean(sec.getRuntimeArguments().get(ETLSpark.COMPACT_RECORDS)) ?
+      StorageLevels.MEMORY_ONLY_SER : StorageLevels.MEMORY_ONLY;
 
     // Execution the whole pipeline in one long transaction. This is because the Spark execution
     // currently share the same contract and API as the MapReduce one.
@@ -87,24 +99,23 @@ public class ETLSparkProgram implements JavaSparkMain, TxRunnable {
 
     BatchPhaseSpec phaseSpec = GSON.fromJson(sec.getSpecification().getProperty(Constants.PIPELINEID),
                                              BatchPhaseSpec.class);
-    Set<StageInfo> aggregators = phaseSpec.getPhase().getStagesOfType(BatchAggregator.PLUGIN_TYPE);
-    String aggregatorName = null;
-    if (!aggregators.isEmpty()) {
-      aggregatorName = aggregators.iterator().next().getName();
-    }
 
     SparkBatchSourceFactory sourceFactory;
     SparkBatchSinkFactory sinkFactory;
-    Integer numPartitions;
+    Map<String, Integer> numPartitions = new HashMap<>();
     try (InputStream is = new FileInputStream(sec.getLocalizationContext().getLocalFile("ETLSpark.config"))) {
       sourceFactory = SparkBatchSourceFactory.deserialize(is);
       sinkFactory = SparkBatchSinkFactory.deserialize(is);
-      numPartitions = new DataInputStream(is).readInt();
+      DataInputStream dataInput = new DataInputStream(is);
+      int numAggregators = dataInput.readInt();
+      for (int i = 0; i < numAggregators; i++) {
+        String aggregatorName = dataInput.readUTF();
+        numPartitions.put(aggregatorName, dataInput.readInt());
+      }
     }
 
     JavaPairRDD<Object, Object> rdd = sourceFactory.createRDD(sec, jsc, Object.class, Object.class);
-    JavaPairRDD<String, Object> resultRDD = doTransform(sec, jsc, datasetContext, phaseSpec, rdd,
-                                                        aggregatorName, numPartitions);
+    JavaPairRDD<String, Object> resultRDD = doTransform(sec, jsc, datasetContext, phaseSpec, rdd, numPartitions);
 
     Set<StageInfo> stagesOfTypeSparkSink = phaseSpec.getPhase().getStagesOfType(SparkSink.PLUGIN_TYPE);
     Set<String> namesOfTypeSparkSink = new HashSet<>();
@@ -147,20 +158,12 @@ public class ETLSparkProgram implements JavaSparkMain, TxRunnable {
   private JavaPairRDD<String, Object> doTransform(JavaSparkExecutionContext sec, JavaSparkContext jsc,
                                                   DatasetContext datasetContext, BatchPhaseSpec phaseSpec,
                                                   JavaPairRDD<Object, Object> input,
-                                                  String aggregatorName, int numPartitions) throws Exception {
+                                                  Map<String, Integer> numPartitions) throws Exception {
 
     Set<StageInfo> sparkComputes = phaseSpec.getPhase().getStagesOfType(SparkCompute.PLUGIN_TYPE);
     if (sparkComputes.isEmpty()) {
       // if this is not a phase with SparkCompute, do regular transform logic
-      if (aggregatorName != null) {
-        JavaPairRDD<Object, Object> preGroupRDD =
-          input.flatMapToPair(new PreGroupFunction(sec, aggregatorName));
-        JavaPairRDD<Object, Iterable<Object>> groupedRDD =
-          numPartitions < 0 ? preGroupRDD.groupByKey() : preGroupRDD.groupByKey(numPartitions);
-        return groupedRDD.flatMapToPair(new MapFunction<Iterable<Object>>(sec, null, aggregatorName, false)).cache();
-      } else {
-        return input.flatMapToPair(new MapFunction<>(sec, null, null, false)).cache();
-      }
+      return doAggregations(sec, phaseSpec, input, numPartitions);
     }
 
     // otherwise, special casing for SparkCompute type:
@@ -199,7 +202,7 @@ public class ETLSparkProgram implements JavaSparkMain, TxRunnable {
                                      phaseSpec.isStageLoggingEnabled(), phaseSpec.getConnectorDatasets()));
 
     JavaPairRDD<String, Object> sourceTransformed =
-      input.flatMapToPair(new MapFunction<>(sec, sourcePipelineStr, null, true)).cache();
+      input.flatMapToPair(new MapFunction<>(sec, sourcePipelineStr, true)).persist(storageLevel);
 
     SparkCompute sparkCompute =
       new PipelinePluginInstantiator(sec.getPluginContext(), phaseSpec).newPluginInstance(sparkComputeName);
@@ -214,10 +217,129 @@ public class ETLSparkProgram implements JavaSparkMain, TxRunnable {
                                      phaseSpec.isStageLoggingEnabled(), phaseSpec.getConnectorDatasets()));
 
     JavaPairRDD<String, Object> sinkTransformedValues =
-      sparkComputed.flatMapToPair(new SingleTypeRDDMapFunction(sec, sinkPipelineStr)).cache();
+      sparkComputed.flatMapToPair(new SingleTypeRDDMapFunction(sec, sinkPipelineStr)).persist(storageLevel);
     return sinkTransformedValues;
   }
 
+  /**
+   * Runs a phase without SparkCompute, which can contain any number of aggregators. The phase is run in segments,
+   * one starting at the source and one starting at each aggregator, each going up to the sinks and the next
+   * aggregators. Every segment outputs tuples whose first item is the name of the sink or aggregator that the record
+   * is for. The records for an aggregator are grouped and fed to the segment starting at that aggregator, so that
+   * the whole phase runs in one program without writing to any connector in between aggregators.
+   *
+   * @return tuples whose first item is the name of the stage that the record is for, and second item is the record
+   */
+  private JavaPairRDD<String, Object> doAggregations(JavaSparkExecutionContext sec, BatchPhaseSpec phaseSpec,
+                                                     JavaPairRDD<Object, Object> input,
+                                                     Map<String, Integer> numPartitions) {
+    PipelinePhase phase = phaseSpec.getPhase();
+    Set<String> aggregators = new HashSet<>();
+    for (StageInfo aggregatorInfo : phase.getStagesOfType(BatchAggregator.PLUGIN_TYPE)) {
+      aggregators.add(aggregatorInfo.getName());
+    }
+
+    // segment starting at each aggregator, and the number of segments that output to each aggregator
+    Map<String, PipelinePhase> segments = new HashMap<>();
+    Map<String, Integer> pendingInputs = new HashMap<>();
+    PipelinePhase sourceSegment = phase.subsetTo(aggregators);
+    countAggregatorInputs(sourceSegment, aggregators, pendingInputs);
+    for (String aggregator : aggregators) {
+      Set<String> otherAggregators = Sets.difference(aggregators, ImmutableSet.of(aggregator));
+      PipelinePhase segment = phase.subsetFrom(ImmutableSet.of(aggregator), otherAggregators);
+      segments.put(aggregator, segment);
+      countAggregatorInputs(segment, aggregators, pendingInputs);
+    }
+
+    JavaPairRDD<String, Object> result =
+      input.flatMapToPair(new MapFunction<>(sec, toPipelineStr(phaseSpec, sourceSegment), false))
+        .persist(storageLevel);
+    // outputs of the segments that an aggregator gets its input from
+    SetMultimap<String, JavaPairRDD<String, Object>> aggregatorInputs = HashMultimap.create();
+    addAggregatorInputs(sourceSegment, aggregators, result, aggregatorInputs);
+
+    // go through the aggregators once all segments that output to them have been set up
+    Deque<String> ready = new ArrayDeque<>();
+    for (String aggregator : aggregators) {
+      if (!pendingInputs.containsKey(aggregator)) {
+        ready.add(aggregator);
+      }
+    }
+    while (!ready.isEmpty()) {
+      String aggregator = ready.poll();
+      JavaPairRDD<Object, Object> preGroupRDD = null;
+      for (JavaPairRDD<String, Object> segmentOutput : aggregatorInputs.get(aggregator)) {
+        JavaPairRDD<Object, Object> groupInput = segmentOutput.flatMapToPair(new GroupInputFunction(aggregator));
+        preGroupRDD = preGroupRDD == null ? groupInput : preGroupRDD.union(groupInput);
+      }
+      if (preGroupRDD == null) {
+        continue;
+      }
+
+      Integer aggregatorPartitions = numPartitions.get(aggregator);
+      JavaPairRDD<Object, Iterable<Object>> groupedRDD = aggregatorPartitions == null || aggregatorPartitions < 0 ?
+        preGroupRDD.groupByKey() : preGroupRDD.groupByKey(aggregatorPartitions);
+      PipelinePhase segment = segments.get(aggregator);
+      JavaPairRDD<String, Object> segmentOutput = groupedRDD.flatMapToPair(
+        new MapFunction<Iterable<Object>>(sec, toPipelineStr(phaseSpec, segment), false)).persist(storageLevel);
+      result = result.union(segmentOutput);
+
+      addAggregatorInputs(segment, aggregators, segmentOutput, aggregatorInputs);
+      for (String nextAggregator : Sets.intersection(segment.getSinks(), aggregators)) {
+        int pending = pendingInputs.get(nextAggregator) - 1;
+        if (pending == 0) {
+          pendingInputs.remove(nextAggregator);
+          ready.add(nextAggregator);
+        } else {
+          pendingInputs.put(nextAggregator, pending);
+        }
+      }
+    }
+    return result;
+  }
+
+  private void countAggregatorInputs(PipelinePhase segment, Set<String> aggregators,
+                                     Map<String, Integer> pendingInputs) {
+    for (String aggregator : Sets.intersection(segment.getSinks(), aggregators)) {
+      Integer count = pendingInputs.get(aggregator);
+      pendingInputs.put(aggregator, count == null ? 1 : count + 1);
+    }
+  }
+
+  private void addAggregatorInputs(PipelinePhase segment, Set<String> aggregators,
+                                   JavaPairRDD<String, Object> segmentOutput,
+                                   SetMultimap<String, JavaPairRDD<String, Object>> aggregatorInputs) {
+    for (String aggregator : Sets.intersection(segment.getSinks(), aggregators)) {
+      aggregatorInputs.put(aggregator, segmentOutput);
+    }
+  }
+
+  private String toPipelineStr(BatchPhaseSpec phaseSpec, PipelinePhase phase) {
+    return GSON.toJson(new BatchPhaseSpec(phaseSpec.getPhaseName(), phase, phaseSpec.getResources(),
+                                          phaseSpec.isStageLoggingEnabled(), phaseSpec.getConnectorDatasets()));
+  }
+
+  /**
+   * Selects the records output for an aggregator, which are tuples of group key and group value
+   * emitted by the group step of the aggregator.
+   */
+  private static final class GroupInputFunction implements PairFlatMapFunction<Tuple2<String, Object>, Object, Object> {
+    private final String aggregatorName;
+
+    private GroupInputFunction(String aggregatorName) {
+      this.aggregatorName = aggregatorName;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Iterable<Tuple2<Object, Object>> call(Tuple2<String, Object> input) throws Exception {
+      if (!aggregatorName.equals(input._1())) {
+        return ImmutableList.of();
+      }
+      return ImmutableList.of((Tuple2<Object, Object>) input._2());
+    }
+  }
+
   /**
    * Base function that knows how to set up a transform executor and run it.
    * Subclasses are responsible for massaging the output of the transform executor into the expected output,
@@ -274,64 +396,19 @@ public class ETLSparkProgram implements JavaSparkMain, TxRunnable {
   }
 
   /**
-   * Performs all transforms before an aggregator plugin. Outputs tuples whose keys are the group key and values
-   * are the group values that result by calling the aggregator's groupBy method.
-   */
-  public static final class PreGroupFunction
-    extends TransformExecutorFunction<Tuple2<Object, Object>, KeyValue<Object, Object>, Object, Object> {
-    private final String aggregatorName;
-
-    public PreGroupFunction(JavaSparkExecutionContext sec, @Nullable String aggregatorName) {
-      super(sec, null);
-      this.aggregatorName = aggregatorName;
-    }
-
-    @Override
-    protected Iterable<Tuple2<Object, Object>> getOutput(TransformResponse transformResponse) {
-      List<Tuple2<Object, Object>> result = new ArrayList<>();
-      for (Map.Entry<String, Collection<Object>> transformedEntry : transformResponse.getSinksResults().entrySet()) {
-        for (Object output : transformedEntry.getValue()) {
-          result.add((Tuple2<Object, Object>) output);
-        }
-      }
-      return result;
-    }
-
-    @Override
-    protected TransformExecutor<KeyValue<Object, Object>> initialize(BatchPhaseSpec phaseSpec,
-                                                                     PipelinePluginInstantiator pluginInstantiator)
-      throws Exception {
-
-      TransformExecutorFactory<KeyValue<Object, Object>> transformExecutorFactory =
-        new SparkTransformExecutorFactory<>(pluginContext, pluginInstantiator, metrics,
-                                            logicalStartTime, runtimeArgs, true);
-      PipelinePhase pipelinePhase = phaseSpec.getPhase().subsetTo(ImmutableSet.of(aggregatorName));
-      return transformExecutorFactory.create(pipelinePhase);
-    }
-
-    @Override
-    protected KeyValue<Object, Object> computeInputForExecutor(Tuple2<Object, Object> input) {
-      return new KeyValue<>(input._1(), input._2());
-    }
-  }
-
-  /**
-   * Performs all transforms that happen after an aggregator, or if there is no aggregator at all.
-   * Outputs tuples whose first item is the name of the sink that is being written to, and second item is
-   * the key-value that should be written to that sink
+   * Performs the transforms of a pipeline that starts at a source or at an aggregator.
+   * Outputs tuples whose first item is the name of the sink or aggregator that is being written to,
+   * and second item is the record for that stage. Records for a sink are the key-values that should be written
+   * to that sink, and records for an aggregator are tuples of group key and group value.
    *
    * @param <T> type of the map output value
    */
   public static final class MapFunction<T> extends SingleTypeRDDMapFunction<Tuple2<Object, T>, KeyValue<Object, T>> {
 
-    @Nullable
-    private final String aggregatorName;
     private final boolean isBeforeBreak;
 
-    public MapFunction(JavaSparkExecutionContext sec, String pipelineStr, String aggregatorName,
-                       boolean isBeforeBreak) {
+    public MapFunction(JavaSparkExecutionContext sec, @Nullable String pipelineStr, boolean isBeforeBreak) {
       super(sec, pipelineStr);
-      this.aggregatorName = aggregatorName;
       this.isBeforeBreak = isBeforeBreak;
     }
 
@@ -343,12 +420,7 @@ public class ETLSparkProgram implements JavaSparkMain, TxRunnable {
         new SparkTransformExecutorFactory<>(pluginContext, pluginInstantiator, metrics,
                                             logicalStartTime, runtimeArgs, isBeforeBreak);
 
-      PipelinePhase pipelinePhase = phaseSpec.getPhase();
-      if (aggregatorName != null) {
-        pipelinePhase = pipelinePhase.subsetFrom(ImmutableSet.of(aggregatorName));
-      }
-
-      return transformExecutorFactory.create(pipelinePhase);
+      return transformExecutorFactory.create(phaseSpec.getPhase());
     }
 
     @Override
@@ -31,10 +31,13 @@ import co.cask.cdap.etl.batch.PipelinePluginInstantiator;
 import co.cask.cdap.etl.batch.TransformExecutorFactory;
 import co.cask.cdap.etl.common.DefaultEmitter;
 import co.cask.cdap.etl.common.DefaultStageMetrics;
+import co.cask.cdap.etl.common.PipelinePhase;
 import co.cask.cdap.etl.common.TrackedTransform;
+import co.cask.cdap.etl.common.TransformExecutor;
 import scala.Tuple2;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Creates transform executors for spark programs.
@@ -52,8 +55,10 @@ public class SparkTransformExecutorFactory<T> extends TransformExecutorFactory<T
   private final PluginContext pluginContext;
   private final long logicalStartTime;
   private final Map<String, String> runtimeArgs;
-  // whether this is before the group step of an aggregator, or before a spark compute stage
+  // whether this is before a spark compute stage
   private final boolean isFirstHalf;
+  // sinks of the pipeline being created. Aggregators that are sinks run their group step, others their aggregate step
+  private Set<String> pipelineSinks;
 
   public SparkTransformExecutorFactory(PluginContext pluginContext,
                                        PipelinePluginInstantiator pluginInstantiator,
@@ -67,6 +72,12 @@ public class SparkTransformExecutorFactory<T> extends TransformExecutorFactory<T
     this.isFirstHalf = isFirstHalf;
   }
 
+  @Override
+  public TransformExecutor<T> create(PipelinePhase pipeline) throws Exception {
+    pipelineSinks = pipeline.getSinks();
+    return super.create(pipeline);
+  }
+
   @Override
   protected BatchRuntimeContext createRuntimeContext(String stageName) {
     return new SparkBatchRuntimeContext(pluginContext, metrics, logicalStartTime, runtimeArgs, stageName);
@@ -80,7 +91,7 @@ public class SparkTransformExecutorFactory<T> extends TransformExecutorFactory<T
       BatchAggregator<?, ?, ?> batchAggregator = pluginInstantiator.newPluginInstance(stageName);
       BatchRuntimeContext runtimeContext = createRuntimeContext(stageName);
       batchAggregator.initialize(runtimeContext);
-      if (isFirstHalf) {
+      if (pipelineSinks.contains(stageName)) {
         return getTrackedGroupStep(new PreGroupAggregatorTransformation(batchAggregator), stageMetrics);
       } else {
         return getTrackedAggregateStep(new PostGroupAggregatorTransformation(batchAggregator), stageMetrics);
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.spark;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.etl.batch.StructuredRecordWritable;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Kryo {@link Serializer} for {@link StructuredRecord}, which uses the same compact, schema based binary encoding
+ * as {@link StructuredRecordWritable} instead of serializing the record and its schema object by object.
+ */
+public class StructuredRecordKryoSerializer extends Serializer<StructuredRecord> {
+
+  @Override
+  public void write(Kryo kryo, Output output, StructuredRecord record) {
+    try {
+      new StructuredRecordWritable(record).write(new DataOutputStream(output));
+    } catch (IOException e) {
+      throw new KryoException(e);
+    }
+  }
+
+  @Override
+  public StructuredRecord read(Kryo kryo, Input input, Class<StructuredRecord> type) {
+    try {
+      StructuredRecordWritable writable = new StructuredRecordWritable();
+      writable.readFields(new DataInputStream(input));
+      return writable.get();
+    } catch (IOException e) {
+      throw new KryoException(e);
+    }
+  }
+}
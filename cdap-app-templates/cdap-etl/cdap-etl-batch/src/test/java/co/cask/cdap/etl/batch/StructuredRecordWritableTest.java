@@ -0,0 +1,229 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableComparator;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tests for serialization and comparison of {@link StructuredRecordWritable}.
+ */
+public class StructuredRecordWritableTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static final Schema INNER_SCHEMA = Schema.recordOf(
+    "inner",
+    Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("bool", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("int", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("long", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("float", Schema.of(Schema.Type.FLOAT)),
+    Schema.Field.of("double", Schema.of(Schema.Type.DOUBLE)),
+    Schema.Field.of("bytes", Schema.of(Schema.Type.BYTES)),
+    Schema.Field.of("string", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("nullable", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("enum", Schema.enumWith("A", "B")),
+    Schema.Field.of("array", Schema.arrayOf(Schema.of(Schema.Type.LONG))),
+    Schema.Field.of("map", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.INT))),
+    Schema.Field.of("inner", INNER_SCHEMA));
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    StructuredRecord record = createRecord("abc", 5L);
+    StructuredRecordWritable copy = roundTrip(new StructuredRecordWritable(record));
+
+    StructuredRecord copied = copy.get();
+    Assert.assertEquals(SCHEMA, copied.getSchema());
+    Assert.assertEquals(true, copied.get("bool"));
+    Assert.assertEquals(-7, copied.get("int"));
+    Assert.assertEquals(Long.MAX_VALUE, copied.get("long"));
+    Assert.assertEquals(1.5f, copied.get("float"));
+    Assert.assertEquals(-2.5d, copied.get("double"));
+    Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) copied.get("bytes"));
+    Assert.assertEquals("abc", copied.get("string"));
+    Assert.assertNull(copied.get("nullable"));
+    Assert.assertEquals("B", copied.get("enum"));
+    Assert.assertEquals(ImmutableList.of(1L, 2L, 5L), copied.get("array"));
+    Assert.assertEquals(ImmutableMap.of("k", 1), copied.get("map"));
+    Assert.assertEquals(3, ((StructuredRecord) copied.get("inner")).get("x"));
+
+    // Reading into a reused writable of a schema seen before
+    StructuredRecord other = StructuredRecord.builder(SCHEMA)
+      .set("bool", false).set("int", 0).set("long", 0L).set("float", 0f).set("double", 0d)
+      .set("bytes", new byte[0]).set("string", "").set("nullable", "x").set("enum", "A")
+      .set("array", ImmutableList.of()).set("map", ImmutableMap.of())
+      .set("inner", StructuredRecord.builder(INNER_SCHEMA).set("x", 0).build())
+      .build();
+    DataOutputBuffer out = new DataOutputBuffer();
+    new StructuredRecordWritable(other).write(out);
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(out.getData(), out.getLength());
+    copy.readFields(in);
+    Assert.assertEquals("x", copy.get().get("nullable"));
+    Assert.assertEquals("A", copy.get().get("enum"));
+  }
+
+  @Test
+  public void testSchemaFromRegistry() throws IOException {
+    StructuredRecord record = StructuredRecord.builder(INNER_SCHEMA).set("x", 3).build();
+    RecordSchemaRegistry.setDirectory(TMP_FOLDER.newFolder().getAbsolutePath(), new Configuration());
+    try {
+      // only the schema hash is written, followed by the single byte of the int field
+      DataOutputBuffer out = new DataOutputBuffer();
+      new StructuredRecordWritable(record).write(out);
+      Assert.assertEquals(17, out.getLength());
+
+      // a JVM that has not seen the schema reads it from the registry directory
+      RecordSchemaRegistry.invalidateCache();
+      DataInputBuffer in = new DataInputBuffer();
+      in.reset(out.getData(), out.getLength());
+      StructuredRecordWritable copy = new StructuredRecordWritable();
+      copy.readFields(in);
+      Assert.assertEquals(record, copy.get());
+
+      // without a registry directory, an unknown schema cannot be resolved
+      RecordSchemaRegistry.setDirectory(null, new Configuration());
+      RecordSchemaRegistry.invalidateCache();
+      in.reset(out.getData(), out.getLength());
+      try {
+        copy.readFields(in);
+        Assert.fail("Expected the schema to be unknown");
+      } catch (IOException expected) {
+      }
+    } finally {
+      RecordSchemaRegistry.setDirectory(null, new Configuration());
+    }
+  }
+
+  @Test
+  public void testRawComparison() throws IOException {
+    StructuredRecordWritable first = new StructuredRecordWritable(createRecord("abc", 5L));
+    StructuredRecordWritable same = new StructuredRecordWritable(createRecord("abc", 5L));
+    StructuredRecordWritable different = new StructuredRecordWritable(createRecord("abd", 5L));
+
+    WritableComparator comparator = WritableComparator.get(StructuredRecordWritable.class);
+    Assert.assertTrue(comparator instanceof StructuredRecordWritable.Comparator);
+
+    Assert.assertEquals(0, rawCompare(comparator, first, same));
+    Assert.assertEquals(0, first.compareTo(same));
+
+    int rawResult = rawCompare(comparator, first, different);
+    Assert.assertNotEquals(0, rawResult);
+    Assert.assertEquals(Integer.signum(rawResult), Integer.signum(first.compareTo(different)));
+    Assert.assertEquals(-Integer.signum(rawResult), Integer.signum(rawCompare(comparator, different, first)));
+  }
+
+  @Test
+  public void testMapValuedGroupKey() throws IOException {
+    Schema keySchema = Schema.recordOf(
+      "key",
+      Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("attributes", Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                                 Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                                              Schema.of(Schema.Type.INT)))));
+
+    // Equal maps that iterate their entries in opposite orders, also in the nested maps
+    Map<String, Map<String, Integer>> ascending = new TreeMap<>();
+    Map<String, Map<String, Integer>> descending = new TreeMap<>(Collections.reverseOrder());
+    for (String key : ImmutableList.of("a", "b", "c")) {
+      Map<String, Integer> ascendingValue = new TreeMap<>();
+      Map<String, Integer> descendingValue = new TreeMap<>(Collections.reverseOrder());
+      for (int i = 0; i < 3; i++) {
+        ascendingValue.put(key + i, i);
+        descendingValue.put(key + i, i);
+      }
+      ascending.put(key, ascendingValue);
+      descending.put(key, descendingValue);
+    }
+    Assert.assertEquals(ascending, descending);
+    Assert.assertNotEquals(ImmutableList.copyOf(ascending.keySet()), ImmutableList.copyOf(descending.keySet()));
+
+    StructuredRecordWritable first = new StructuredRecordWritable(
+      StructuredRecord.builder(keySchema).set("name", "n").set("attributes", ascending).build());
+    StructuredRecordWritable second = new StructuredRecordWritable(
+      StructuredRecord.builder(keySchema).set("name", "n").set("attributes", descending).build());
+
+    // Equal group keys must be in the same reduce group
+    WritableComparator comparator = WritableComparator.get(StructuredRecordWritable.class);
+    Assert.assertEquals(0, rawCompare(comparator, first, second));
+    Assert.assertEquals(0, first.compareTo(second));
+    Assert.assertEquals(ascending, roundTrip(second).get().get("attributes"));
+
+    // A different map value is still a different group
+    Map<String, Map<String, Integer>> changed = new TreeMap<>(ascending);
+    changed.put("b", ImmutableMap.of("b0", 0));
+    StructuredRecordWritable third = new StructuredRecordWritable(
+      StructuredRecord.builder(keySchema).set("name", "n").set("attributes", changed).build());
+    Assert.assertNotEquals(0, rawCompare(comparator, first, third));
+  }
+
+  private StructuredRecord createRecord(String str, long arrayElement) {
+    return StructuredRecord.builder(SCHEMA)
+      .set("bool", true)
+      .set("int", -7)
+      .set("long", Long.MAX_VALUE)
+      .set("float", 1.5f)
+      .set("double", -2.5d)
+      .set("bytes", new byte[] { 1, 2, 3 })
+      .set("string", str)
+      .set("enum", "B")
+      .set("array", ImmutableList.of(1L, 2L, arrayElement))
+      .set("map", ImmutableMap.of("k", 1))
+      .set("inner", StructuredRecord.builder(INNER_SCHEMA).set("x", 3).build())
+      .build();
+  }
+
+  private StructuredRecordWritable roundTrip(StructuredRecordWritable writable) throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    writable.write(out);
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(out.getData(), out.getLength());
+    StructuredRecordWritable copy = new StructuredRecordWritable();
+    copy.readFields(in);
+    Assert.assertEquals(0, in.available());
+    return copy;
+  }
+
+  private int rawCompare(WritableComparator comparator,
+                         StructuredRecordWritable first, StructuredRecordWritable second) throws IOException {
+    DataOutputBuffer out1 = new DataOutputBuffer();
+    first.write(out1);
+    DataOutputBuffer out2 = new DataOutputBuffer();
+    second.write(out2);
+    return comparator.compare(out1.getData(), 0, out1.getLength(), out2.getData(), 0, out2.getLength());
+  }
+}
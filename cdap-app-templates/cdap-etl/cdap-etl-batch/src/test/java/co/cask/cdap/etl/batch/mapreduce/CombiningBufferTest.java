@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.mapreduce;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.KeyValue;
+import co.cask.cdap.etl.api.Emitter;
+import co.cask.cdap.etl.api.batch.CombinableBatchAggregator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link CombiningBuffer}.
+ */
+public class CombiningBufferTest {
+
+  @Test
+  public void testCombine() throws Exception {
+    CombiningBuffer<String, Long> buffer = new CombiningBuffer<>(new SumAggregator<String>(), 3);
+    Assert.assertFalse(buffer.add("a", 1L));
+    Assert.assertFalse(buffer.add("b", 2L));
+    Assert.assertFalse(buffer.add("a", 3L));
+    Assert.assertFalse(buffer.add("a", 4L));
+    Assert.assertFalse(buffer.add("b", 5L));
+    // the buffer is full once it has as many groups as its maximum
+    Assert.assertTrue(buffer.add("c", 6L));
+
+    Map<String, Long> expected = new HashMap<>();
+    expected.put("a", 8L);
+    expected.put("b", 7L);
+    expected.put("c", 6L);
+    Assert.assertEquals(expected, toMap(buffer.drain()));
+    Assert.assertTrue(buffer.isEmpty());
+
+    Assert.assertFalse(buffer.add("a", 1L));
+    Map<String, Long> remaining = new HashMap<>();
+    remaining.put("a", 1L);
+    Assert.assertEquals(remaining, toMap(buffer.drain()));
+  }
+
+  @Test
+  public void testByteArrayKeys() throws Exception {
+    CombiningBuffer<byte[], Long> buffer = new CombiningBuffer<>(new SumAggregator<byte[]>(), 10);
+    // different arrays with the same contents are the same group
+    buffer.add(Bytes.toBytes("a"), 1L);
+    buffer.add(Bytes.toBytes("a"), 2L);
+    buffer.add(Bytes.toBytes("b"), 3L);
+
+    List<KeyValue<byte[], Long>> groups = buffer.drain();
+    Assert.assertEquals(2, groups.size());
+    Map<String, Long> actual = new HashMap<>();
+    for (KeyValue<byte[], Long> group : groups) {
+      actual.put(Bytes.toString(group.getKey()), group.getValue());
+    }
+    Map<String, Long> expected = new HashMap<>();
+    expected.put("a", 3L);
+    expected.put("b", 3L);
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testMaxBytes() throws Exception {
+    // weighs each group by the length of its key plus the number of values combined into it
+    CombiningBuffer<String, Long> buffer =
+      new CombiningBuffer<>(new SumAggregator<String>(), 100, 10, new CombiningBuffer.Weigher<String, Long>() {
+        @Override
+        public int weigh(String groupKey, Long value) {
+          return groupKey.length() + value.intValue();
+        }
+      });
+    Assert.assertFalse(buffer.add("a", 1L));
+    Assert.assertFalse(buffer.add("bb", 1L));
+    // combining a value replaces the size of the group: "a" now weighs 1 + 3, "bb" weighs 2 + 1
+    Assert.assertFalse(buffer.add("a", 2L));
+    // a group that grows past the limit fills the buffer, even though there are few groups
+    Assert.assertTrue(buffer.add("a", 3L));
+
+    Map<String, Long> expected = new HashMap<>();
+    expected.put("a", 6L);
+    expected.put("bb", 1L);
+    Assert.assertEquals(expected, toMap(buffer.drain()));
+
+    // draining resets the size of the buffer
+    Assert.assertFalse(buffer.add("a", 1L));
+  }
+
+  private <K, V> Map<K, V> toMap(List<KeyValue<K, V>> groups) {
+    Map<K, V> map = new HashMap<>();
+    for (KeyValue<K, V> group : groups) {
+      Assert.assertNull(map.put(group.getKey(), group.getValue()));
+    }
+    return map;
+  }
+
+  /**
+   * Sums the values of each group.
+   */
+  private static class SumAggregator<K> extends CombinableBatchAggregator<K, Long, Long> {
+
+    @Override
+    public Long combine(K groupKey, Long value1, Long value2) {
+      return value1 + value2;
+    }
+
+    @Override
+    public void groupBy(Long groupValue, Emitter<K> emitter) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void aggregate(K groupKey, Iterator<Long> groupValues, Emitter<Long> emitter) {
+      long sum = 0;
+      while (groupValues.hasNext()) {
+        sum += groupValues.next();
+      }
+      emitter.emit(sum);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.spark;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link StructuredRecordKryoSerializer}.
+ */
+public class StructuredRecordKryoSerializerTest {
+
+  private static final Schema INNER_SCHEMA = Schema.recordOf(
+    "inner",
+    Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("count", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("nullable", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("array", Schema.arrayOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("inner", INNER_SCHEMA));
+
+  @Test
+  public void testRoundTrip() {
+    Kryo kryo = new Kryo();
+    new ETLKryoRegistrator().registerClasses(kryo);
+
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("name", "abc")
+      .set("count", 5L)
+      .set("array", ImmutableList.of(1.5d, -2d))
+      .set("inner", StructuredRecord.builder(INNER_SCHEMA).set("x", 3).build())
+      .build();
+
+    Output output = new Output(4096, -1);
+    kryo.writeObject(output, record);
+    // records nested in other objects, such as the grouped values of an aggregator, use the serializer too
+    kryo.writeClassAndObject(output, new ArrayList<>(Arrays.asList(record, record)));
+
+    Input input = new Input(output.toBytes());
+    assertRecord(kryo.readObject(input, StructuredRecord.class));
+    List<?> records = (List<?>) kryo.readClassAndObject(input);
+    Assert.assertEquals(2, records.size());
+    for (Object copy : records) {
+      assertRecord((StructuredRecord) copy);
+    }
+  }
+
+  private void assertRecord(StructuredRecord record) {
+    Assert.assertEquals(SCHEMA, record.getSchema());
+    Assert.assertEquals("abc", record.get("name"));
+    Assert.assertEquals(5L, record.get("count"));
+    Assert.assertNull(record.get("nullable"));
+    Assert.assertEquals(ImmutableList.of(1.5d, -2d), record.get("array"));
+    Assert.assertEquals(3, ((StructuredRecord) record.get("inner")).get("x"));
+  }
+}
@@ -17,8 +17,9 @@ package co.cask.cdap.etl.common;
 
 import co.cask.cdap.api.dataset.Dataset;
 import co.cask.cdap.api.dataset.lib.KeyValueTable;
+import co.cask.cdap.etl.api.CachingLookupProvider;
 import co.cask.cdap.etl.api.Lookup;
-import co.cask.cdap.etl.api.LookupProvider;
+import co.cask.cdap.etl.api.LookupTableConfig;
 import co.cask.cdap.etl.api.lookup.KeyValueTableLookup;
 
 import javax.annotation.Nullable;
@@ -26,7 +27,13 @@ import javax.annotation.Nullable;
 /**
  * {@link Lookup} that provides common functionality.
  */
-public abstract class AbstractLookupProvider implements LookupProvider {
+public abstract class AbstractLookupProvider implements CachingLookupProvider {
+
+  @Override
+  public <T> Lookup<T> provide(String table, LookupTableConfig config) {
+    return CachingLookup.wrap(this.<T>provide(table, config.getDatasetProperties()), table, config,
+                              NoopMetrics.INSTANCE);
+  }
 
   @SuppressWarnings("unchecked")
   protected <T> Lookup<T> getLookup(String table, @Nullable Dataset dataset) {
@@ -19,8 +19,10 @@ package co.cask.cdap.etl.common;
 import co.cask.cdap.api.metrics.Metrics;
 import co.cask.cdap.api.plugin.PluginContext;
 import co.cask.cdap.api.plugin.PluginProperties;
+import co.cask.cdap.etl.api.CachingLookupProvider;
 import co.cask.cdap.etl.api.Lookup;
 import co.cask.cdap.etl.api.LookupProvider;
+import co.cask.cdap.etl.api.LookupTableConfig;
 import co.cask.cdap.etl.api.StageMetrics;
 import co.cask.cdap.etl.api.TransformContext;
 import co.cask.cdap.etl.log.LogContext;
@@ -34,7 +36,7 @@ import java.util.concurrent.Callable;
  * This context scopes plugin ids by the id of the stage. This allows multiple transforms to use plugins with
  * the same id without clobbering each other.
  */
-public abstract class AbstractTransformContext implements TransformContext {
+public abstract class AbstractTransformContext implements TransformContext, CachingLookupProvider {
 
   private final PluginContext pluginContext;
   private final String stageName;
@@ -112,4 +114,13 @@ public abstract class AbstractTransformContext implements TransformContext {
   public <T> Lookup<T> provide(String table, Map<String, String> arguments) {
     return lookup.provide(table, arguments);
   }
+
+  /**
+   * Provides the {@link Lookup} with the arguments of the given config, caching its values for this stage
+   * if caching is enabled.
+   */
+  @Override
+  public <T> Lookup<T> provide(String table, LookupTableConfig config) {
+    return CachingLookup.wrap(this.<T>provide(table, config.getDatasetProperties()), table, config, metrics);
+  }
 }
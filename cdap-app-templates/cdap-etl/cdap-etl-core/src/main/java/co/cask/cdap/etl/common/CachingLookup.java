@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.common;
+
+import co.cask.cdap.etl.api.CacheConfig;
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.LookupTableConfig;
+import co.cask.cdap.etl.api.StageMetrics;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Lookup} that caches the values of another {@link Lookup} as configured by a {@link CacheConfig}.
+ * Keys that are not found are cached as well. Batch lookups only go to the underlying {@link Lookup} for the keys
+ * that are not in the cache, with a single batch lookup. The number of cache hits and misses is emitted as the
+ * {@code lookup.<table>.cache.hits} and {@code lookup.<table>.cache.misses} metrics of the stage.
+ *
+ * @param <T> the type of object that will be returned for a lookup
+ */
+public class CachingLookup<T> implements Lookup<T> {
+
+  private final Lookup<T> delegate;
+  private final Cache<String, Optional<T>> cache;
+  private final StageMetrics metrics;
+  private final String hitsMetric;
+  private final String missesMetric;
+
+  /**
+   * Returns a {@link Lookup} that caches the values of the given one if caching is enabled in the given config,
+   * or the given {@link Lookup} otherwise.
+   */
+  public static <T> Lookup<T> wrap(Lookup<T> lookup, String table, LookupTableConfig config, StageMetrics metrics) {
+    if (!config.isCacheEnabled()) {
+      return lookup;
+    }
+    return new CachingLookup<>(lookup, table, config.getCacheConfig(), metrics);
+  }
+
+  public CachingLookup(Lookup<T> delegate, String table, CacheConfig cacheConfig, StageMetrics metrics) {
+    this.delegate = delegate;
+    this.metrics = metrics;
+    this.hitsMetric = "lookup." + table + ".cache.hits";
+    this.missesMetric = "lookup." + table + ".cache.misses";
+
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+    if (cacheConfig.getMaxSize() > 0) {
+      builder.maximumSize(cacheConfig.getMaxSize());
+    }
+    if (cacheConfig.getExpirySeconds() > 0) {
+      builder.expireAfterWrite(cacheConfig.getExpirySeconds(), TimeUnit.SECONDS);
+    }
+    this.cache = builder.build();
+  }
+
+  @Override
+  public T lookup(String key) {
+    Optional<T> cached = cache.getIfPresent(key);
+    if (cached != null) {
+      metrics.count(hitsMetric, 1);
+      return cached.orNull();
+    }
+    metrics.count(missesMetric, 1);
+    T value = delegate.lookup(key);
+    cache.put(key, Optional.fromNullable(value));
+    return value;
+  }
+
+  @Override
+  public Map<String, T> lookup(String... keys) {
+    return lookup(ImmutableSet.copyOf(keys));
+  }
+
+  @Override
+  public Map<String, T> lookup(Set<String> keys) {
+    Map<String, T> result = new HashMap<>();
+    Set<String> missing = new HashSet<>();
+    for (String key : keys) {
+      Optional<T> cached = cache.getIfPresent(key);
+      if (cached == null) {
+        missing.add(key);
+      } else if (cached.isPresent()) {
+        result.put(key, cached.get());
+      }
+    }
+
+    int hits = keys.size() - missing.size();
+    if (hits > 0) {
+      metrics.count(hitsMetric, hits);
+    }
+    if (missing.isEmpty()) {
+      return result;
+    }
+
+    metrics.count(missesMetric, missing.size());
+    Map<String, T> found = delegate.lookup(missing);
+    for (String key : missing) {
+      T value = found.get(key);
+      cache.put(key, Optional.fromNullable(value));
+      if (value != null) {
+        result.put(key, value);
+      }
+    }
+    return result;
+  }
+}
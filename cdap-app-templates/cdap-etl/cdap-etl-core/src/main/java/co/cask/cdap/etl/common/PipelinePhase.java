@@ -99,6 +99,18 @@ public class PipelinePhase implements Iterable<StageInfo> {
     return getSubset(dag.subsetFrom(newSources));
   }
 
+  /**
+   * Get a subset of the pipeline phase, starting from the specified new sources and going to the current sinks,
+   * without going past any of the specified stop nodes. Stop nodes that are reached become sinks of the subset.
+   *
+   * @param newSources the new sources to start from
+   * @param stopNodes the nodes to stop at
+   * @return subset of the pipeline, starting from specified new sources and going to the current sinks or stop nodes
+   */
+  public PipelinePhase subsetFrom(Set<String> newSources, Set<String> stopNodes) {
+    return getSubset(dag.subsetFrom(newSources, stopNodes));
+  }
+
   private PipelinePhase getSubset(final Dag subsetDag) {
     Map<String, Set<StageInfo>> subsetStages = new HashMap<>();
     for (Map.Entry<String, Set<StageInfo>> stagesEntry : stages.entrySet()) {
@@ -21,14 +21,17 @@ import co.cask.cdap.etl.api.InvalidEntry;
 import co.cask.cdap.etl.api.StageMetrics;
 
 /**
- * Wrapper around another emitter that tracks how many records were emitted.
+ * Wrapper around another emitter that tracks how many records were emitted. The counts are accumulated locally
+ * and only added to the stage metrics when {@link #flushMetrics()} is called.
  *
  * @param <T> the type of object to emit
  */
 public class TrackedEmitter<T> implements Emitter<T> {
-  private final Emitter<T> delegate;
   private final StageMetrics stageMetrics;
   private final String emitMetricName;
+  private Emitter<T> delegate;
+  private int emitted;
+  private int errors;
 
   public TrackedEmitter(Emitter<T> delegate, StageMetrics stageMetrics, String emitMetricName) {
     this.delegate = delegate;
@@ -39,12 +42,30 @@ public class TrackedEmitter<T> implements Emitter<T> {
   @Override
   public void emit(T value) {
     delegate.emit(value);
-    stageMetrics.count(emitMetricName, 1);
+    emitted++;
   }
 
   @Override
   public void emitError(InvalidEntry<T> value) {
     delegate.emitError(value);
-    stageMetrics.count("records.error", 1);
+    errors++;
+  }
+
+  /**
+   * Adds the counts accumulated since the last flush to the stage metrics.
+   */
+  public void flushMetrics() {
+    if (emitted > 0) {
+      stageMetrics.count(emitMetricName, emitted);
+      emitted = 0;
+    }
+    if (errors > 0) {
+      stageMetrics.count("records.error", errors);
+      errors = 0;
+    }
+  }
+
+  void setDelegate(Emitter<T> delegate) {
+    this.delegate = delegate;
   }
 }
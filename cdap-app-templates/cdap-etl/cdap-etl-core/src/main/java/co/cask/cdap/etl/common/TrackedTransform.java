@@ -25,7 +25,8 @@ import javax.annotation.Nullable;
 
 /**
  * A {@link Transformation} that delegates transform operations while emitting metrics
- * around how many records were input into the transform and output by it.
+ * around how many records were input into the transform and output by it. The counts are accumulated locally
+ * and only added to the stage metrics when {@link #flushMetrics()} is called.
  *
  * @param <IN> Type of input object
  * @param <OUT> Type of output object
@@ -36,7 +37,8 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
   private final Transformation<IN, OUT> transform;
   private final StageMetrics metrics;
   private final String metricInName;
-  private final String metricOutName;
+  private final TrackedEmitter<OUT> trackedEmitter;
+  private int inputs;
 
   public TrackedTransform(Transformation<IN, OUT> transform, StageMetrics metrics) {
     this(transform, metrics, RECORDS_IN, RECORDS_OUT);
@@ -47,16 +49,32 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
     this.transform = transform;
     this.metrics = metrics;
     this.metricInName = metricInName;
-    this.metricOutName = metricOutName;
+    this.trackedEmitter = metricOutName == null ? null : new TrackedEmitter<OUT>(null, metrics, metricOutName);
   }
 
-
   @Override
   public void transform(IN input, Emitter<OUT> emitter) throws Exception {
-    if (metricInName != null) {
-      metrics.count(metricInName, 1);
+    inputs++;
+    if (trackedEmitter == null) {
+      transform.transform(input, emitter);
+      return;
+    }
+    // the same tracked emitter is reused for every record, to avoid creating one per record
+    trackedEmitter.setDelegate(emitter);
+    transform.transform(input, trackedEmitter);
+  }
+
+  /**
+   * Adds the counts accumulated since the last flush to the stage metrics.
+   */
+  public void flushMetrics() {
+    if (metricInName != null && inputs > 0) {
+      metrics.count(metricInName, inputs);
+    }
+    inputs = 0;
+    if (trackedEmitter != null) {
+      trackedEmitter.flushMetrics();
     }
-    transform.transform(input, metricOutName == null ? emitter : new TrackedEmitter<>(emitter, metrics, metricOutName));
   }
 
   @Override
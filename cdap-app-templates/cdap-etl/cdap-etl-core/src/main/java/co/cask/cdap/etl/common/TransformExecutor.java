@@ -19,10 +19,13 @@ package co.cask.cdap.etl.common;
 import co.cask.cdap.etl.api.Destroyable;
 import co.cask.cdap.etl.api.InvalidEntry;
 import co.cask.cdap.etl.api.Transformation;
-import com.google.common.collect.ImmutableList;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -31,22 +34,73 @@ import java.util.Set;
  * Executes Transforms one iteration at a time, tracking how many records were input into and output from
  * each transform.
  *
+ * The DAG of transforms is compiled once into an array of stages in topological order. Each iteration runs every
+ * stage once over the batch of records emitted to it by all of its previous stages, so no per record lookup by stage
+ * name or recursion is needed. The counts of {@link TrackedTransform} stages are accumulated locally and added to the
+ * metrics every given number of iterations, and when the executor is destroyed.
+ *
  * @param <IN> the type of input object to the first transform
  *
  */
 public class TransformExecutor<IN> implements Destroyable {
 
-  private final Set<String> startingPoints;
   private final Map<String, TransformDetail> transformDetailMap;
+  private final Stage[] stages;
+  private final Stage[] startStages;
+  private final int metricsFlushIterations;
+  private int iterations;
 
   public TransformExecutor(Map<String, TransformDetail> transformDetailMap, Set<String> startingPoints) {
+    this(transformDetailMap, startingPoints, 1);
+  }
+
+  /**
+   * @param transformDetailMap the stages to execute
+   * @param startingPoints the stages that receive the input of each iteration
+   * @param metricsFlushIterations the number of iterations after which the accumulated metrics are emitted
+   */
+  public TransformExecutor(Map<String, TransformDetail> transformDetailMap, Set<String> startingPoints,
+                           int metricsFlushIterations) {
     this.transformDetailMap = transformDetailMap;
-    this.startingPoints = startingPoints;
+    this.metricsFlushIterations = metricsFlushIterations;
+
+    Map<String, Stage> compiled = new LinkedHashMap<>();
+    List<Stage> order = new ArrayList<>();
+    Set<String> visiting = new HashSet<>();
+    for (String stageName : startingPoints) {
+      compile(stageName, compiled, visiting, order);
+    }
+    // DFS gives stages in reverse topological order
+    this.stages = new Stage[order.size()];
+    for (int i = 0; i < stages.length; i++) {
+      stages[i] = order.get(order.size() - 1 - i);
+    }
+    this.startStages = new Stage[startingPoints.size()];
+    int i = 0;
+    for (String stageName : startingPoints) {
+      startStages[i++] = compiled.get(stageName);
+    }
   }
 
   public TransformResponse runOneIteration(IN input) throws Exception {
-    for (String stageName : startingPoints) {
-      executeTransformation(stageName, ImmutableList.of(input));
+    for (Stage stage : startStages) {
+      stage.input.add(input);
+    }
+
+    try {
+      for (Stage stage : stages) {
+        stage.run();
+      }
+    } catch (Exception e) {
+      // drop the records of the failed iteration so that they are not processed by the next one
+      for (Stage stage : stages) {
+        stage.clear();
+      }
+      throw e;
+    }
+
+    if (++iterations >= metricsFlushIterations) {
+      flushMetrics();
     }
 
     Map<String, Collection<Object>> terminalNodeEntriesMap = new HashMap<>();
@@ -68,28 +122,16 @@ public class TransformExecutor<IN> implements Destroyable {
     return new TransformResponse(terminalNodeEntriesMap, errors);
   }
 
-  private <T> void executeTransformation(final String stageName, Collection<T> input) throws Exception {
-    if (input == null) {
-      return;
-    }
-
-    TransformDetail transformDetail = transformDetailMap.get(stageName);
-    Transformation<T, Object> transformation = transformDetail.getTransformation();
-
-
-    // clear old data for this stageName if its not a terminal node
-    if (!transformDetail.getNextStages().isEmpty()) {
-      transformDetail.getEntries().clear();
-    }
-
-    for (T inputEntry : input) {
-      transformation.transform(inputEntry, transformDetail);
-    }
-
-    for (String nextStage : transformDetail.getNextStages()) {
-      executeTransformation(nextStage, transformDetail.getEntries());
+  /**
+   * Emits the metrics accumulated by the stages since the last flush.
+   */
+  public void flushMetrics() {
+    iterations = 0;
+    for (Stage stage : stages) {
+      if (stage.transformation instanceof TrackedTransform) {
+        ((TrackedTransform) stage.transformation).flushMetrics();
+      }
     }
-
   }
 
   public void resetEmitter() {
@@ -100,8 +142,78 @@ public class TransformExecutor<IN> implements Destroyable {
 
   @Override
   public void destroy() {
+    flushMetrics();
     for (TransformDetail transformDetailEntry : transformDetailMap.values()) {
       transformDetailEntry.destroy();
     }
   }
+
+  private Stage compile(String stageName, Map<String, Stage> compiled, Set<String> visiting, List<Stage> order) {
+    Stage stage = compiled.get(stageName);
+    if (stage != null) {
+      return stage;
+    }
+    if (!visiting.add(stageName)) {
+      throw new IllegalArgumentException("Cycle detected in transforms at stage " + stageName);
+    }
+    TransformDetail transformDetail = transformDetailMap.get(stageName);
+    if (transformDetail == null) {
+      throw new IllegalArgumentException("No transform found for stage " + stageName);
+    }
+    Collection<String> nextStageNames = transformDetail.getNextStages();
+    Stage[] nextStages = new Stage[nextStageNames.size()];
+    int i = 0;
+    for (String nextStage : nextStageNames) {
+      nextStages[i++] = compile(nextStage, compiled, visiting, order);
+    }
+    stage = new Stage(transformDetail, nextStages);
+    compiled.put(stageName, stage);
+    order.add(stage);
+    return stage;
+  }
+
+  /**
+   * A compiled stage, with the records emitted to it in the current iteration.
+   */
+  private static final class Stage {
+    private final TransformDetail transformDetail;
+    private final Transformation<Object, Object> transformation;
+    private final Stage[] nextStages;
+    private final List<Object> input;
+
+    @SuppressWarnings("unchecked")
+    private Stage(TransformDetail transformDetail, Stage[] nextStages) {
+      this.transformDetail = transformDetail;
+      this.transformation = transformDetail.getTransformation();
+      this.nextStages = nextStages;
+      this.input = new ArrayList<>();
+    }
+
+    private void run() throws Exception {
+      if (input.isEmpty()) {
+        return;
+      }
+      for (int i = 0; i < input.size(); i++) {
+        transformation.transform(input.get(i), transformDetail);
+      }
+      input.clear();
+      if (nextStages.length == 0) {
+        return;
+      }
+
+      // pass the output of this stage to the next stages, and clear it for the next iteration
+      Collection<Object> entries = transformDetail.getEntries();
+      for (Stage nextStage : nextStages) {
+        nextStage.input.addAll(entries);
+      }
+      entries.clear();
+    }
+
+    private void clear() {
+      input.clear();
+      if (nextStages.length != 0) {
+        transformDetail.getEntries().clear();
+      }
+    }
+  }
 }
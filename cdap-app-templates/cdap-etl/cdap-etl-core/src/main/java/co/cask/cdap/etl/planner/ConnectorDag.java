@@ -40,15 +40,18 @@ public class ConnectorDag extends Dag {
   private final Set<String> reduceNodes;
   private final Set<String> isolationNodes;
   private final Set<String> connectors;
+  private final boolean chainReduceNodes;
 
   private ConnectorDag(Collection<Connection> connections,
                        Set<String> reduceNodes,
                        Set<String> isolationNodes,
-                       Set<String> connectors) {
+                       Set<String> connectors,
+                       boolean chainReduceNodes) {
     super(connections);
     this.reduceNodes = ImmutableSet.copyOf(reduceNodes);
     this.isolationNodes = ImmutableSet.copyOf(isolationNodes);
     this.connectors = new HashSet<>(connectors);
+    this.chainReduceNodes = chainReduceNodes;
   }
 
   /**
@@ -63,6 +66,11 @@ public class ConnectorDag extends Dag {
    * A connector is also inserted in front of any node if the inputs into the node come from multiple sources.
    * A connector is also inserted in front of a reduce node that has another reduce node as its input.
    *
+   * If reduce nodes can be chained, which is the case for engines like Spark that can group more than once
+   * in a single program, connectors are not inserted in front of reduce nodes. A single subdag can then
+   * write to both sinks and reduce nodes, and contain reduce nodes that have other reduce nodes as their input.
+   * Connectors are still inserted for isolation nodes and nodes with inputs from multiple sources.
+   *
    * After splitting, the result will be a collection of subdags, with each subdag representing a single
    * mapreduce job (or possibly map-only job). Or in spark, each subdag would be a series of operations from
    * one rdd to another rdd.
@@ -107,20 +115,22 @@ public class ConnectorDag extends Dag {
         once we see a reduce node or a connector. Otherwise, every single reduce node would end up
         with a connector in front of it.
      */
-    for (String node : getTopologicalOrder()) {
-      if (!sources.contains(node) && !connectors.contains(node)) {
-        continue;
-      }
+    if (!chainReduceNodes) {
+      for (String node : getTopologicalOrder()) {
+        if (!sources.contains(node) && !connectors.contains(node)) {
+          continue;
+        }
 
-      Set<String> accessibleByNode = accessibleFrom(node, Sets.union(connectors, reduceNodes));
-      Set<String> sinksAndReduceNodes = Sets.intersection(
-        accessibleByNode, Sets.union(connectors, Sets.union(sinks, reduceNodes)));
-      // don't count this node
-      sinksAndReduceNodes = Sets.difference(sinksAndReduceNodes, ImmutableSet.of(node));
+        Set<String> accessibleByNode = accessibleFrom(node, Sets.union(connectors, reduceNodes));
+        Set<String> sinksAndReduceNodes = Sets.intersection(
+          accessibleByNode, Sets.union(connectors, Sets.union(sinks, reduceNodes)));
+        // don't count this node
+        sinksAndReduceNodes = Sets.difference(sinksAndReduceNodes, ImmutableSet.of(node));
 
-      if (sinksAndReduceNodes.size() > 1) {
-        for (String reduceNodeConnector : Sets.intersection(sinksAndReduceNodes, reduceNodes)) {
-          addConnectorInFrontOf(reduceNodeConnector, addedAlready);
+        if (sinksAndReduceNodes.size() > 1) {
+          for (String reduceNodeConnector : Sets.intersection(sinksAndReduceNodes, reduceNodes)) {
+            addConnectorInFrontOf(reduceNodeConnector, addedAlready);
+          }
         }
       }
     }
@@ -200,14 +210,16 @@ public class ConnectorDag extends Dag {
 
           source ---> reduce1 ---> reduce2.connector      =>     reduce2.connector ---> reduce2 ---> sink
      */
-    for (String reduceNode : reduceNodes) {
-      Set<String> accessibleByNode = accessibleFrom(reduceNode, Sets.union(connectors, reduceNodes));
-      Set<String> accessibleReduceNodes = Sets.intersection(accessibleByNode, reduceNodes);
-
-      // Sets.difference because we don't want to add ourselves
-      accessibleReduceNodes = Sets.difference(accessibleReduceNodes, ImmutableSet.of(reduceNode));
-      for (String accessibleReduceNode : accessibleReduceNodes) {
-        addConnectorInFrontOf(accessibleReduceNode, addedAlready);
+    if (!chainReduceNodes) {
+      for (String reduceNode : reduceNodes) {
+        Set<String> accessibleByNode = accessibleFrom(reduceNode, Sets.union(connectors, reduceNodes));
+        Set<String> accessibleReduceNodes = Sets.intersection(accessibleByNode, reduceNodes);
+
+        // Sets.difference because we don't want to add ourselves
+        accessibleReduceNodes = Sets.difference(accessibleReduceNodes, ImmutableSet.of(reduceNode));
+        for (String accessibleReduceNode : accessibleReduceNodes) {
+          addConnectorInFrontOf(accessibleReduceNode, addedAlready);
+        }
       }
     }
 
@@ -392,6 +404,7 @@ public class ConnectorDag extends Dag {
     private final Set<String> reduceNodes;
     private final Set<String> isolationNodes;
     private final Set<String> connectors;
+    private boolean chainReduceNodes;
 
     private Builder() {
       this.connections = new HashSet<>();
@@ -400,6 +413,11 @@ public class ConnectorDag extends Dag {
       this.connectors = new HashSet<>();
     }
 
+    public Builder setChainReduceNodes(boolean chainReduceNodes) {
+      this.chainReduceNodes = chainReduceNodes;
+      return this;
+    }
+
     public Builder addReduceNodes(String... nodes) {
       Collections.addAll(reduceNodes, nodes);
       return this;
@@ -441,7 +459,7 @@ public class ConnectorDag extends Dag {
     }
 
     public ConnectorDag build() {
-      return new ConnectorDag(connections, reduceNodes, isolationNodes, connectors);
+      return new ConnectorDag(connections, reduceNodes, isolationNodes, connectors, chainReduceNodes);
     }
   }
 }
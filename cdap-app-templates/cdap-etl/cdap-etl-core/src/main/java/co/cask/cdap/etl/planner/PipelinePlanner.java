@@ -39,11 +39,28 @@ public class PipelinePlanner {
   private final Set<String> reduceTypes;
   private final Set<String> isolationTypes;
   private final Set<String> supportedPluginTypes;
+  private final boolean chainReduceNodes;
 
   public PipelinePlanner(Set<String> supportedPluginTypes, Set<String> reduceTypes, Set<String> isolationTypes) {
+    this(supportedPluginTypes, reduceTypes, isolationTypes, false);
+  }
+
+  /**
+   * Creates a planner.
+   *
+   * @param supportedPluginTypes plugin types supported in a phase
+   * @param reduceTypes plugin types that require a reduce
+   * @param isolationTypes plugin types that must be in a phase by themselves
+   * @param chainReduceNodes whether a phase can contain multiple reduce nodes, as well as write to sinks
+   *                         and reduce nodes at the same time. This is true for engines like Spark, which
+   *                         avoids writing to connector datasets in between reduce nodes.
+   */
+  public PipelinePlanner(Set<String> supportedPluginTypes, Set<String> reduceTypes, Set<String> isolationTypes,
+                         boolean chainReduceNodes) {
     this.reduceTypes = ImmutableSet.copyOf(reduceTypes);
     this.isolationTypes = ImmutableSet.copyOf(isolationTypes);
     this.supportedPluginTypes = ImmutableSet.copyOf(supportedPluginTypes);
+    this.chainReduceNodes = chainReduceNodes;
   }
 
   /**
@@ -88,6 +105,7 @@ public class PipelinePlanner {
       .addConnections(spec.getConnections())
       .addReduceNodes(reduceNodes)
       .addIsolationNodes(isolationNodes)
+      .setChainReduceNodes(chainReduceNodes)
       .build();
     cdag.insertConnectors();
     Set<String> connectorNodes = cdag.getConnectors();
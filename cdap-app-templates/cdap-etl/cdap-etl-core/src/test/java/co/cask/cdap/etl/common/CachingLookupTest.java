@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.common;
+
+import co.cask.cdap.etl.api.CacheConfig;
+import co.cask.cdap.etl.api.CachingLookupProvider;
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.LookupProvider;
+import co.cask.cdap.etl.api.LookupTableConfig;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for {@link CachingLookup}.
+ */
+public class CachingLookupTest {
+
+  @Test
+  public void testCaching() {
+    CountingLookup delegate = new CountingLookup(ImmutableMap.of("k1", "v1", "k2", "v2", "k3", "v3"));
+    MockMetrics mockMetrics = new MockMetrics();
+    Lookup<String> lookup = new CachingLookup<>(delegate, "table", new CacheConfig(0, 100),
+                                                new DefaultStageMetrics(mockMetrics, "stage"));
+
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    // missing keys are cached too
+    Assert.assertNull(lookup.lookup("missing"));
+    Assert.assertNull(lookup.lookup("missing"));
+    Assert.assertEquals(2, delegate.singleLookups);
+    Assert.assertEquals(2, mockMetrics.getCount("stage.lookup.table.cache.hits"));
+    Assert.assertEquals(2, mockMetrics.getCount("stage.lookup.table.cache.misses"));
+
+    // only keys that are not cached are looked up, with a single batch lookup
+    Assert.assertEquals(ImmutableMap.of("k1", "v1", "k2", "v2", "k3", "v3"),
+                        lookup.lookup("k1", "k2", "k3", "missing"));
+    Assert.assertEquals(1, delegate.batchLookups);
+    Assert.assertEquals(ImmutableSet.of("k2", "k3"), delegate.lastBatch);
+    Assert.assertEquals(4, mockMetrics.getCount("stage.lookup.table.cache.hits"));
+    Assert.assertEquals(4, mockMetrics.getCount("stage.lookup.table.cache.misses"));
+
+    // everything is cached now
+    Assert.assertEquals(ImmutableMap.of("k2", "v2", "k3", "v3"), lookup.lookup(ImmutableSet.of("k2", "k3")));
+    Assert.assertEquals("v3", lookup.lookup("k3"));
+    Assert.assertEquals(1, delegate.batchLookups);
+    Assert.assertEquals(2, delegate.singleLookups);
+  }
+
+  @Test
+  public void testMaxSize() {
+    CountingLookup delegate = new CountingLookup(ImmutableMap.of("k1", "v1", "k2", "v2"));
+    Lookup<String> lookup = new CachingLookup<>(delegate, "table", new CacheConfig(0, 1), NoopMetrics.INSTANCE);
+
+    lookup.lookup("k1");
+    lookup.lookup("k2");
+    lookup.lookup("k1");
+    Assert.assertEquals(3, delegate.singleLookups);
+  }
+
+  @Test
+  public void testCacheDisabled() {
+    CountingLookup delegate = new CountingLookup(ImmutableMap.of("k1", "v1"));
+    LookupTableConfig config = new LookupTableConfig(LookupTableConfig.TableType.DATASET);
+    Assert.assertSame(delegate, CachingLookup.wrap(delegate, "table", config, NoopMetrics.INSTANCE));
+  }
+
+  @Test
+  public void testCachingThroughContext() {
+    final CountingLookup delegate = new CountingLookup(ImmutableMap.of("k1", "v1"));
+    LookupProvider lookupProvider = new LookupProvider() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public <T> Lookup<T> provide(String table, Map<String, String> arguments) {
+        return (Lookup<T>) delegate;
+      }
+    };
+    MockMetrics mockMetrics = new MockMetrics();
+    AbstractTransformContext context = new AbstractTransformContext(null, mockMetrics, lookupProvider, "stage") { };
+    Assert.assertTrue(context instanceof CachingLookupProvider);
+
+    // the lookup provided by the context of a stage caches as configured, and emits metrics for the stage
+    LookupTableConfig config = new LookupTableConfig(LookupTableConfig.TableType.DATASET, new CacheConfig(0, 10),
+                                                     ImmutableMap.<String, String>of(), true);
+    Lookup<String> lookup = ((CachingLookupProvider) context).provide("table", config);
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals(1, delegate.singleLookups);
+    Assert.assertEquals(1, mockMetrics.getCount("stage.lookup.table.cache.hits"));
+    Assert.assertEquals(1, mockMetrics.getCount("stage.lookup.table.cache.misses"));
+
+    // without caching, the lookup of the provider is used as it is
+    lookup = ((CachingLookupProvider) context).provide("table",
+                                                       new LookupTableConfig(LookupTableConfig.TableType.DATASET));
+    Assert.assertSame(delegate, lookup);
+  }
+
+  private static final class CountingLookup implements Lookup<String> {
+    private final Map<String, String> data;
+    private int singleLookups;
+    private int batchLookups;
+    private Set<String> lastBatch;
+
+    private CountingLookup(Map<String, String> data) {
+      this.data = data;
+    }
+
+    @Override
+    public String lookup(String key) {
+      singleLookups++;
+      return data.get(key);
+    }
+
+    @Override
+    public Map<String, String> lookup(String... keys) {
+      return lookup(ImmutableSet.copyOf(keys));
+    }
+
+    @Override
+    public Map<String, String> lookup(Set<String> keys) {
+      batchLookups++;
+      lastBatch = ImmutableSet.copyOf(keys);
+      Map<String, String> result = new HashMap<>();
+      for (String key : keys) {
+        if (data.containsKey(key)) {
+          result.put(key, data.get(key));
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -271,6 +271,48 @@ public class TransformExecutorTest {
     Assert.assertEquals(3, mockMetrics.getCount("sink3.records.out"));
   }
 
+  @Test
+  public void testMetricsFlush() throws Exception {
+    MockMetrics mockMetrics = new MockMetrics();
+    Map<String, TransformDetail> transformationMap = new HashMap<>();
+
+    transformationMap.put("conversion",
+                          new TransformDetail(
+                            new TrackedTransform<>(new IntToDouble(),
+                                                   new DefaultStageMetrics(mockMetrics, "conversion")),
+                            ImmutableList.of("sink")));
+
+    transformationMap.put("sink",
+                          new TransformDetail(
+                            new TrackedTransform<>(new DoubleToString(),
+                                                   new DefaultStageMetrics(mockMetrics, "sink")),
+                            ImmutableList.<String>of()));
+
+    TransformExecutor<Integer> executor = new TransformExecutor<>(transformationMap,
+                                                                  ImmutableSet.of("conversion"), 2);
+
+    // metrics are accumulated until the second iteration
+    executor.runOneIteration(1);
+    executor.resetEmitter();
+    Assert.assertEquals(0, mockMetrics.getCount("conversion.records.in"));
+    Assert.assertEquals(0, mockMetrics.getCount("sink.records.out"));
+
+    TransformResponse transformResponse = executor.runOneIteration(2);
+    assertResults(transformResponse.getSinksResults(), ImmutableMap.of("sink", 3));
+    executor.resetEmitter();
+    Assert.assertEquals(2, mockMetrics.getCount("conversion.records.in"));
+    Assert.assertEquals(6, mockMetrics.getCount("conversion.records.out"));
+    Assert.assertEquals(6, mockMetrics.getCount("sink.records.in"));
+    Assert.assertEquals(6, mockMetrics.getCount("sink.records.out"));
+
+    // the remaining metrics are flushed when the executor is destroyed
+    executor.runOneIteration(3);
+    Assert.assertEquals(2, mockMetrics.getCount("conversion.records.in"));
+    executor.destroy();
+    Assert.assertEquals(3, mockMetrics.getCount("conversion.records.in"));
+    Assert.assertEquals(9, mockMetrics.getCount("sink.records.out"));
+  }
+
   private <T> void assertResults(Map<String, Collection<T>> results, Map<String, Integer> expectedListsSize) {
     Assert.assertEquals(expectedListsSize.size(), results.size());
     for (Map.Entry<String, Integer> entry : expectedListsSize.entrySet()) {
@@ -273,6 +273,50 @@ public class ConnectorDagTest {
     Assert.assertEquals(expected, cdag);
   }
 
+  @Test
+  public void testChainedReduceNodes() {
+    /*
+             |--- n2
+        n1 --|
+             |--- n3(r) --- n4(r) --- n5
+     */
+    // reduce nodes can be chained, so no connector is needed in front of n3 or n4
+    ConnectorDag cdag = ConnectorDag.builder()
+      .addConnection("n1", "n2")
+      .addConnection("n1", "n3")
+      .addConnection("n3", "n4")
+      .addConnection("n4", "n5")
+      .addReduceNodes("n3", "n4")
+      .setChainReduceNodes(true)
+      .build();
+    cdag.insertConnectors();
+    Assert.assertTrue(cdag.getConnectors().isEmpty());
+
+    /*
+        n1 --- n3(r) --|
+                       |--- n4
+        n2 ------------|
+     */
+    // n4 still needs a connector, since it has input from multiple sources
+    cdag = ConnectorDag.builder()
+      .addConnection("n1", "n3")
+      .addConnection("n3", "n4")
+      .addConnection("n2", "n4")
+      .addReduceNodes("n3")
+      .setChainReduceNodes(true)
+      .build();
+    cdag.insertConnectors();
+    ConnectorDag expected = ConnectorDag.builder()
+      .addConnection("n1", "n3")
+      .addConnection("n3", "n4.connector")
+      .addConnection("n2", "n4.connector")
+      .addConnection("n4.connector", "n4")
+      .addReduceNodes("n3")
+      .addConnectors("n4.connector")
+      .build();
+    Assert.assertEquals(expected, cdag);
+  }
+
   @Test
   public void testSplitDag() {
     /*
@@ -43,6 +43,13 @@ import java.util.Set;
 public class PipelinePlannerTest {
   private static final String NODE = "node";
   private static final String AGGREGATOR = "aggregator";
+  private static final ArtifactId ARTIFACT_ID =
+    new ArtifactId("dummy", new ArtifactVersion("1.0.0"), ArtifactScope.SYSTEM);
+  private static final PluginSpec NODE_PLUGIN =
+    new PluginSpec(NODE, "mock", ImmutableMap.<String, String>of(), ARTIFACT_ID);
+  private static final PluginSpec REDUCE_PLUGIN =
+    new PluginSpec(AGGREGATOR, "mock", ImmutableMap.<String, String>of(), ARTIFACT_ID);
+  private static final Schema SCHEMA = Schema.recordOf("stuff", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
 
   @Test
   public void testGeneratePlan() {
@@ -53,93 +60,11 @@ public class PipelinePlannerTest {
              |                    |                                    |-- n11
              |--- n4(r) ----------|
      */
-    // create the spec for this pipeline
-    ArtifactId artifactId = new ArtifactId("dummy", new ArtifactVersion("1.0.0"), ArtifactScope.SYSTEM);
-    Map<String, String> empty = ImmutableMap.of();
-    PluginSpec nodePlugin = new PluginSpec(NODE, "mock", empty, artifactId);
-    PluginSpec reducePlugin = new PluginSpec(AGGREGATOR, "mock", empty, artifactId);
-    Schema schema = Schema.recordOf("stuff", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
-    Set<StageSpec> stageSpecs = ImmutableSet.of(
-      StageSpec.builder("n1", nodePlugin)
-        .setOutputSchema(schema)
-        .addOutputs("n2", "n3", "n4")
-        .build(),
-      StageSpec.builder("n2", reducePlugin)
-        .setInputSchema(schema)
-        .setOutputSchema(schema)
-        .addInputs("n1")
-        .addOutputs("n6")
-        .build(),
-      StageSpec.builder("n3", reducePlugin)
-        .setInputSchema(schema)
-        .setOutputSchema(schema)
-        .addInputs("n1")
-        .addOutputs("n5")
-        .build(),
-      StageSpec.builder("n4", reducePlugin)
-        .setInputSchema(schema)
-        .setOutputSchema(schema)
-        .addInputs("n1")
-        .addOutputs("n6")
-        .build(),
-      StageSpec.builder("n5", nodePlugin)
-        .setInputSchema(schema)
-        .setOutputSchema(schema)
-        .addInputs("n3")
-        .addOutputs("n6")
-        .build(),
-      StageSpec.builder("n6", nodePlugin)
-        .setInputSchema(schema)
-        .setOutputSchema(schema)
-        .addInputs("n2", "n5", "n4")
-        .addOutputs("n7")
-        .build(),
-      StageSpec.builder("n7", reducePlugin)
-        .setInputSchema(schema)
-        .setOutputSchema(schema)
-        .addInputs("n6")
-        .addOutputs("n8")
-        .build(),
-      StageSpec.builder("n8", nodePlugin)
-        .setInputSchema(schema)
-        .setOutputSchema(schema)
-        .addInputs("n7")
-        .addOutputs("n9")
-        .build(),
-      StageSpec.builder("n9", reducePlugin)
-        .setInputSchema(schema)
-        .setOutputSchema(schema)
-        .addInputs("n8")
-        .addOutputs("n10", "n11")
-        .build(),
-      StageSpec.builder("n10", nodePlugin)
-        .setInputSchema(schema)
-        .addInputs("n9")
-        .build(),
-      StageSpec.builder("n11", nodePlugin)
-        .setInputSchema(schema)
-        .addInputs("n9")
-        .build()
-    );
-    Set<Connection> connections = ImmutableSet.of(
-      new Connection("n1", "n2"),
-      new Connection("n1", "n3"),
-      new Connection("n1", "n4"),
-      new Connection("n2", "n6"),
-      new Connection("n3", "n5"),
-      new Connection("n4", "n6"),
-      new Connection("n5", "n6"),
-      new Connection("n6", "n7"),
-      new Connection("n7", "n8"),
-      new Connection("n8", "n9"),
-      new Connection("n9", "n10"),
-      new Connection("n9", "n11")
-    );
     Set<String> pluginTypes = ImmutableSet.of(NODE, AGGREGATOR, Constants.CONNECTOR_TYPE);
     Set<String> reduceTypes = ImmutableSet.of(AGGREGATOR);
     Set<String> isolationTypes = ImmutableSet.of();
     PipelinePlanner planner = new PipelinePlanner(pluginTypes, reduceTypes, isolationTypes);
-    PipelineSpec pipelineSpec = new PipelineSpec(stageSpecs, connections, new Resources(), true);
+    PipelineSpec pipelineSpec = createMultiReducePipeline();
 
     Map<String, PipelinePhase> phases = new HashMap<>();
     /*
@@ -252,6 +177,190 @@ public class PipelinePlannerTest {
     Assert.assertEquals(expected, actual);
   }
 
+  @Test
+  public void testChainedReduceNodes() {
+    /*
+             |--- n2(r) --- n3 --- n4(r) --- n5
+        n1 --|
+             |--- n6
+     */
+    Set<StageSpec> stageSpecs = ImmutableSet.of(
+      StageSpec.builder("n1", NODE_PLUGIN)
+        .setOutputSchema(SCHEMA)
+        .addOutputs("n2", "n6")
+        .build(),
+      StageSpec.builder("n2", REDUCE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .setOutputSchema(SCHEMA)
+        .addInputs("n1")
+        .addOutputs("n3")
+        .build(),
+      StageSpec.builder("n3", NODE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .setOutputSchema(SCHEMA)
+        .addInputs("n2")
+        .addOutputs("n4")
+        .build(),
+      StageSpec.builder("n4", REDUCE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .setOutputSchema(SCHEMA)
+        .addInputs("n3")
+        .addOutputs("n5")
+        .build(),
+      StageSpec.builder("n5", NODE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .addInputs("n4")
+        .build(),
+      StageSpec.builder("n6", NODE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .addInputs("n1")
+        .build()
+    );
+    Set<Connection> connections = ImmutableSet.of(
+      new Connection("n1", "n2"),
+      new Connection("n1", "n6"),
+      new Connection("n2", "n3"),
+      new Connection("n3", "n4"),
+      new Connection("n4", "n5")
+    );
+    Set<String> pluginTypes = ImmutableSet.of(NODE, AGGREGATOR, Constants.CONNECTOR_TYPE);
+    PipelinePlanner planner = new PipelinePlanner(pluginTypes, ImmutableSet.of(AGGREGATOR),
+                                                  ImmutableSet.<String>of(), true);
+    PipelineSpec pipelineSpec = new PipelineSpec(stageSpecs, connections, new Resources(), true);
+
+    // the source writes to a sink and an aggregator, and the aggregators are chained, all in a single phase
+    PipelinePhase phase = PipelinePhase.builder(pluginTypes)
+      .addStages(NODE, ImmutableSet.of(new StageInfo("n1"), new StageInfo("n3"), new StageInfo("n5"),
+                                       new StageInfo("n6")))
+      .addStages(AGGREGATOR, ImmutableSet.of(new StageInfo("n2"), new StageInfo("n4")))
+      .addConnections("n1", ImmutableSet.of("n2", "n6"))
+      .addConnection("n2", "n3")
+      .addConnection("n3", "n4")
+      .addConnection("n4", "n5")
+      .build();
+    Map<String, PipelinePhase> phases = ImmutableMap.of(getPhaseName("n1", "n5", "n6"), phase);
+
+    PipelinePlan expected = new PipelinePlan(phases, ImmutableSet.<Connection>of());
+    Assert.assertEquals(expected, planner.plan(pipelineSpec));
+  }
+
+  @Test
+  public void testChainedReduceNodesWithMultiInput() {
+    /*
+        The pipeline of testGeneratePlan, where n6 has inputs from multiple aggregators that all have n1 as their
+        source, so n6 is run after each of them and no connector is needed in front of it:
+
+             |--- n2(r) ----------|
+             |                    |                                    |-- n10
+        n1 --|--- n3(r) --- n5 ---|--- n6 --- n7(r) --- n8 --- n9(r) --|
+             |                    |                                    |-- n11
+             |--- n4(r) ----------|
+     */
+    Set<String> pluginTypes = ImmutableSet.of(NODE, AGGREGATOR, Constants.CONNECTOR_TYPE);
+    PipelinePlanner planner = new PipelinePlanner(pluginTypes, ImmutableSet.of(AGGREGATOR),
+                                                  ImmutableSet.<String>of(), true);
+
+    PipelinePhase phase = PipelinePhase.builder(pluginTypes)
+      .addStages(NODE, ImmutableSet.of(new StageInfo("n1"), new StageInfo("n5"), new StageInfo("n6"),
+                                       new StageInfo("n8"), new StageInfo("n10"), new StageInfo("n11")))
+      .addStages(AGGREGATOR, ImmutableSet.of(new StageInfo("n2"), new StageInfo("n3"), new StageInfo("n4"),
+                                             new StageInfo("n7"), new StageInfo("n9")))
+      .addConnections("n1", ImmutableSet.of("n2", "n3", "n4"))
+      .addConnection("n2", "n6")
+      .addConnection("n3", "n5")
+      .addConnection("n4", "n6")
+      .addConnection("n5", "n6")
+      .addConnection("n6", "n7")
+      .addConnection("n7", "n8")
+      .addConnection("n8", "n9")
+      .addConnections("n9", ImmutableSet.of("n10", "n11"))
+      .build();
+    Map<String, PipelinePhase> phases = ImmutableMap.of(getPhaseName("n1", "n10", "n11"), phase);
+
+    PipelinePlan expected = new PipelinePlan(phases, ImmutableSet.<Connection>of());
+    Assert.assertEquals(expected, planner.plan(createMultiReducePipeline()));
+  }
+
+  private static PipelineSpec createMultiReducePipeline() {
+    Set<StageSpec> stageSpecs = ImmutableSet.of(
+      StageSpec.builder("n1", NODE_PLUGIN)
+        .setOutputSchema(SCHEMA)
+        .addOutputs("n2", "n3", "n4")
+        .build(),
+      StageSpec.builder("n2", REDUCE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .setOutputSchema(SCHEMA)
+        .addInputs("n1")
+        .addOutputs("n6")
+        .build(),
+      StageSpec.builder("n3", REDUCE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .setOutputSchema(SCHEMA)
+        .addInputs("n1")
+        .addOutputs("n5")
+        .build(),
+      StageSpec.builder("n4", REDUCE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .setOutputSchema(SCHEMA)
+        .addInputs("n1")
+        .addOutputs("n6")
+        .build(),
+      StageSpec.builder("n5", NODE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .setOutputSchema(SCHEMA)
+        .addInputs("n3")
+        .addOutputs("n6")
+        .build(),
+      StageSpec.builder("n6", NODE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .setOutputSchema(SCHEMA)
+        .addInputs("n2", "n5", "n4")
+        .addOutputs("n7")
+        .build(),
+      StageSpec.builder("n7", REDUCE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .setOutputSchema(SCHEMA)
+        .addInputs("n6")
+        .addOutputs("n8")
+        .build(),
+      StageSpec.builder("n8", NODE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .setOutputSchema(SCHEMA)
+        .addInputs("n7")
+        .addOutputs("n9")
+        .build(),
+      StageSpec.builder("n9", REDUCE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .setOutputSchema(SCHEMA)
+        .addInputs("n8")
+        .addOutputs("n10", "n11")
+        .build(),
+      StageSpec.builder("n10", NODE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .addInputs("n9")
+        .build(),
+      StageSpec.builder("n11", NODE_PLUGIN)
+        .setInputSchema(SCHEMA)
+        .addInputs("n9")
+        .build()
+    );
+    Set<Connection> connections = ImmutableSet.of(
+      new Connection("n1", "n2"),
+      new Connection("n1", "n3"),
+      new Connection("n1", "n4"),
+      new Connection("n2", "n6"),
+      new Connection("n3", "n5"),
+      new Connection("n4", "n6"),
+      new Connection("n5", "n6"),
+      new Connection("n6", "n7"),
+      new Connection("n7", "n8"),
+      new Connection("n8", "n9"),
+      new Connection("n9", "n10"),
+      new Connection("n9", "n11")
+    );
+    return new PipelineSpec(stageSpecs, connections, new Resources(), true);
+  }
+
   private static String getPhaseName(String source, String... sinks) {
     Set<String> sources = ImmutableSet.of(source);
     Set<String> sinkNames = new HashSet<>();
@@ -76,17 +76,22 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Worker driver for Realtime ETL Applications.
  */
 public class ETLWorker extends AbstractWorker {
   public static final String NAME = ETLWorker.class.getSimpleName();
+  // Runtime argument for the number of polled batches that can wait to be processed while the source is polled
+  // again. Polling and processing are done one after the other if it is not set or not positive.
+  public static final String PIPELINED_BATCHES = "pipelined.batches";
   private static final Logger LOG = LoggerFactory.getLogger(ETLWorker.class);
   private static final Gson GSON = new GsonBuilder()
     .registerTypeAdapter(Schema.class, new SchemaTypeAdapter())
@@ -118,6 +123,9 @@ public class ETLWorker extends AbstractWorker {
   private byte[] stateStoreKeyBytes;
   private String appName;
   private Map<String, String> tranformIdToDatasetName;
+  private Map<String, List<Object>> dataToSink;
+  private Map<String, List<InvalidEntry>> transformIdToErrorRecords;
+  private Set<String> transformErrorsWithoutDataset;
   private volatile boolean stopped;
 
   public ETLWorker(ETLRealtimeConfig config) {
@@ -220,7 +228,8 @@ public class ETLWorker extends AbstractWorker {
     initializeSinks(context, transformationMap, pipeline);
     Set<String> startStages = new HashSet<>();
     startStages.addAll(pipeline.getStageOutputs(sourceStageName));
-    transformExecutor = new TransformExecutor(transformationMap, startStages);
+    // metrics are flushed after processing the records of each poll
+    transformExecutor = new TransformExecutor(transformationMap, startStages, Integer.MAX_VALUE);
   }
 
   private void initializeSource(WorkerContext context, PipelinePhase pipeline) throws Exception {
@@ -301,11 +310,9 @@ public class ETLWorker extends AbstractWorker {
   @Override
   public void run() {
     final SourceState currentState = new SourceState();
-    final SourceState nextState = new SourceState();
-    final Map<String, List<Object>> dataToSink = new HashMap<>();
-    boolean hasData = false;
-    final Map<String, List<InvalidEntry>> transformIdToErrorRecords = intializeTransformIdToErrorsList();
-    Set<String> transformErrorsWithoutDataset = Sets.newHashSet();
+    dataToSink = new HashMap<>();
+    transformIdToErrorRecords = intializeTransformIdToErrorsList();
+    transformErrorsWithoutDataset = Sets.newHashSet();
     // Fetch SourceState from State Table.
     // Only required at the beginning since we persist the state if there is a change.
     getContext().execute(new TxRunnable() {
@@ -320,6 +327,20 @@ public class ETLWorker extends AbstractWorker {
       }
     });
 
+    String pipelinedBatches = getContext().getRuntimeArguments().get(PIPELINED_BATCHES);
+    int maxPipelinedBatches = pipelinedBatches == null ? 0 : Integer.parseInt(pipelinedBatches);
+    if (maxPipelinedBatches > 0) {
+      runPipelined(currentState, maxPipelinedBatches);
+    } else {
+      runSequential(currentState);
+    }
+  }
+
+  /**
+   * Polls the source, then processes the polled records, one batch after another on the worker thread.
+   */
+  private void runSequential(SourceState currentState) {
+    SourceState nextState = new SourceState(currentState);
     DefaultEmitter<Object> sourceEmitter = new DefaultEmitter<>();
     TrackedEmitter<Object> trackedSourceEmitter =
       new TrackedEmitter<>(sourceEmitter,
@@ -337,108 +358,168 @@ public class ETLWorker extends AbstractWorker {
         LOG.warn("Exception thrown during polling of Source for data", e);
         sourceEmitter.reset();
         continue;
+      } finally {
+        trackedSourceEmitter.flushMetrics();
       }
 
-      // For each object emitted by the source, invoke the transformExecutor and collect all the data
-      // to be persisted in the sink.
-      for (Object sourceData : sourceEmitter.getEntries()) {
-        try {
-          TransformResponse transformResponse = transformExecutor.runOneIteration(sourceData);
-
-          for (Map.Entry<String, Collection<Object>> transformedValues :
-            transformResponse.getSinksResults().entrySet()) {
-            dataToSink.put(transformedValues.getKey(), new ArrayList<>());
-            Iterator emitterIterator = transformedValues.getValue().iterator();
-            while (emitterIterator.hasNext()) {
-              if (!hasData) {
-                hasData = true;
-              }
-              dataToSink.get(transformedValues.getKey()).add(emitterIterator.next());
-            }
+      if (processBatch(sourceEmitter.getEntries(), currentState, nextState)) {
+        // Update the in-memory copy of the state only if the transaction succeeded.
+        currentState.setState(nextState);
+      } else {
+        // poll the source with the old state again
+        nextState.setState(currentState);
+      }
+      sourceEmitter.reset();
+    }
+  }
+
+  /**
+   * Polls the source on a separate thread while the previously polled batches are processed on the worker thread.
+   * At most the given number of polled batches wait to be processed. Batches are processed in the order they were
+   * polled, and the state of the source is only persisted together with the output of the batch that led to it.
+   * If a batch fails to be processed, all batches polled after it are discarded and the source is polled again
+   * from the last persisted state.
+   */
+  private void runPipelined(SourceState currentState, int maxPipelinedBatches) {
+    BlockingQueue<PolledBatch> batches = new ArrayBlockingQueue<>(maxPipelinedBatches);
+    SourcePoller poller = new SourcePoller(currentState, batches);
+    Thread pollerThread = new Thread(poller, "etl-source-poller-" + getContext().getInstanceId());
+    pollerThread.setDaemon(true);
+    pollerThread.start();
+
+    try {
+      while (!stopped) {
+        PolledBatch batch = batches.poll(1, TimeUnit.SECONDS);
+        if (batch == null || batch.generation != poller.getGeneration()) {
+          // nothing polled, or polled from a state that was discarded
+          continue;
+        }
+        if (processBatch(batch.records, currentState, batch.state)) {
+          currentState.setState(batch.state);
+        } else {
+          poller.rewind(currentState);
+          batches.clear();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      pollerThread.interrupt();
+      try {
+        pollerThread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Transforms the given records, then writes the results to the sinks and the error datasets and persists the
+   * next state of the source if it changed, all in one transaction.
+   *
+   * @return whether the results and state were persisted
+   */
+  private boolean processBatch(Collection<Object> records, final SourceState currentState,
+                               final SourceState nextState) {
+    boolean hasData = false;
+
+    // For each object emitted by the source, invoke the transformExecutor and collect all the data
+    // to be persisted in the sink.
+    for (Object sourceData : records) {
+      try {
+        TransformResponse transformResponse = transformExecutor.runOneIteration(sourceData);
+
+        for (Map.Entry<String, Collection<Object>> transformedValues :
+          transformResponse.getSinksResults().entrySet()) {
+          if (transformedValues.getValue().isEmpty()) {
+            continue;
           }
+          hasData = true;
+          List<Object> sinkData = dataToSink.get(transformedValues.getKey());
+          if (sinkData == null) {
+            sinkData = new ArrayList<>();
+            dataToSink.put(transformedValues.getKey(), sinkData);
+          }
+          sinkData.addAll(transformedValues.getValue());
+        }
 
-          for (Map.Entry<String, Collection<InvalidEntry<Object>>> transformErrorsEntry :
-            transformResponse.getMapTransformIdToErrorEmitter().entrySet()) {
+        for (Map.Entry<String, Collection<InvalidEntry<Object>>> transformErrorsEntry :
+          transformResponse.getMapTransformIdToErrorEmitter().entrySet()) {
 
-            if (!transformErrorsWithoutDataset.contains(transformErrorsEntry.getKey())) {
+          if (!transformErrorsWithoutDataset.contains(transformErrorsEntry.getKey())) {
 
-              if (!tranformIdToDatasetName.containsKey(transformErrorsEntry.getKey())
-                && !transformErrorsEntry.getValue().isEmpty()) {
-                transformErrorsWithoutDataset.add(transformErrorsEntry.getKey());
-                LOG.warn("Error records were emitted in transform {}, " +
-                           "but error dataset is not configured for this transform", transformErrorsEntry.getKey());
-              }
-              if (tranformIdToDatasetName.containsKey(transformErrorsEntry.getKey())
-                && !transformErrorsEntry.getValue().isEmpty()) {
-                // add the errors
-                if (!hasData && transformErrorsEntry.getValue().size() > 0) {
-                  hasData = true;
-                }
-                transformIdToErrorRecords.get(transformErrorsEntry.getKey()).addAll(transformErrorsEntry.getValue());
-              }
+            if (!tranformIdToDatasetName.containsKey(transformErrorsEntry.getKey())
+              && !transformErrorsEntry.getValue().isEmpty()) {
+              transformErrorsWithoutDataset.add(transformErrorsEntry.getKey());
+              LOG.warn("Error records were emitted in transform {}, " +
+                         "but error dataset is not configured for this transform", transformErrorsEntry.getKey());
+            }
+            if (tranformIdToDatasetName.containsKey(transformErrorsEntry.getKey())
+              && !transformErrorsEntry.getValue().isEmpty()) {
+              // add the errors
+              hasData = true;
+              transformIdToErrorRecords.get(transformErrorsEntry.getKey()).addAll(transformErrorsEntry.getValue());
             }
           }
-        } catch (Exception e) {
-          LOG.warn("Exception thrown while processing data {}", sourceData, e);
         }
+      } catch (Exception e) {
+        LOG.warn("Exception thrown while processing data {}", sourceData, e);
+      } finally {
+        // the outputs of this record have been collected
+        transformExecutor.resetEmitter();
       }
-      sourceEmitter.reset();
-
-      // Start a Transaction if there is data to persist or if the Source state has changed.
-      try {
-        if (hasData || (!nextState.equals(currentState))) {
-          getContext().execute(new TxRunnable() {
-            @Override
-            public void run(DatasetContext context) throws Exception {
-
-              // Invoke the sink's write method if there is any object to be written.
-              if (!dataToSink.isEmpty()) {
-                DefaultDataWriter defaultDataWriter = new DefaultDataWriter(getContext(), context);
-                for (Map.Entry<String, List<Object>> sinkEntry : dataToSink.entrySet()) {
-                  sinks.get(sinkEntry.getKey()).write(sinkEntry.getValue(), defaultDataWriter);
-                }
-              }
-
-              for (Map.Entry<String, List<InvalidEntry>> errorRecordEntry : transformIdToErrorRecords.entrySet()) {
-                String transformId = errorRecordEntry.getKey();
-                final String datasetName = tranformIdToDatasetName.get(transformId);
-                Table errorTable = context.getDataset(datasetName);
-                long timeInMillis = System.currentTimeMillis();
-                byte[] currentTime = Bytes.toBytes(timeInMillis);
-                String transformIdentifier = appName + SEPARATOR + transformId;
-                for (InvalidEntry invalidEntry : errorRecordEntry.getValue()) {
-                  // using random uuid as we want to write each record uniquely,
-                  // but we are not concerned about the uuid while scanning later.
-                  byte[] rowKey = Bytes.concat(currentTime,
-                                               Bytes.toBytes(transformIdentifier), Bytes.toBytes(UUID.randomUUID()));
-                  Put errorPut = constructErrorPut(rowKey, invalidEntry, timeInMillis);
-                  errorTable.write(rowKey, errorPut);
-                }
+    }
+    transformExecutor.flushMetrics();
+
+    // Start a Transaction if there is data to persist or if the Source state has changed.
+    try {
+      if (hasData || (!nextState.equals(currentState))) {
+        getContext().execute(new TxRunnable() {
+          @Override
+          public void run(DatasetContext context) throws Exception {
+
+            // Invoke the sink's write method if there is any object to be written.
+            if (!dataToSink.isEmpty()) {
+              DefaultDataWriter defaultDataWriter = new DefaultDataWriter(getContext(), context);
+              for (Map.Entry<String, List<Object>> sinkEntry : dataToSink.entrySet()) {
+                sinks.get(sinkEntry.getKey()).write(sinkEntry.getValue(), defaultDataWriter);
               }
+            }
 
-              // Persist nextState if it is different from currentState
-              if (!nextState.equals(currentState)) {
-                KeyValueTable stateTable = context.getDataset(ETLRealtimeApplication.STATE_TABLE);
-                stateTable.write(stateStoreKey, GSON.toJson(nextState));
+            for (Map.Entry<String, List<InvalidEntry>> errorRecordEntry : transformIdToErrorRecords.entrySet()) {
+              String transformId = errorRecordEntry.getKey();
+              final String datasetName = tranformIdToDatasetName.get(transformId);
+              Table errorTable = context.getDataset(datasetName);
+              long timeInMillis = System.currentTimeMillis();
+              byte[] currentTime = Bytes.toBytes(timeInMillis);
+              String transformIdentifier = appName + SEPARATOR + transformId;
+              for (InvalidEntry invalidEntry : errorRecordEntry.getValue()) {
+                // using random uuid as we want to write each record uniquely,
+                // but we are not concerned about the uuid while scanning later.
+                byte[] rowKey = Bytes.concat(currentTime,
+                                             Bytes.toBytes(transformIdentifier), Bytes.toBytes(UUID.randomUUID()));
+                Put errorPut = constructErrorPut(rowKey, invalidEntry, timeInMillis);
+                errorTable.write(rowKey, errorPut);
               }
-
-              // after running one iteration and succesfully writing to sinks and error datasets, reset the emitters.
-              transformExecutor.resetEmitter();
             }
-          });
 
-          // Update the in-memory copy of the state only if the transaction succeeded.
-          currentState.setState(nextState);
-        }
-      } catch (Exception e) {
-        LOG.warn("Exception thrown during persisting of data", e);
-      } finally {
-        // Clear the persisted sink data (in case transaction failure occurred, we will poll the source with old state)
-        hasData = false;
-        dataToSink.clear();
-        for (List<InvalidEntry> invalidEntryList : transformIdToErrorRecords.values()) {
-          invalidEntryList.clear();
-        }
+            // Persist nextState if it is different from currentState
+            if (!nextState.equals(currentState)) {
+              KeyValueTable stateTable = context.getDataset(ETLRealtimeApplication.STATE_TABLE);
+              stateTable.write(stateStoreKey, GSON.toJson(nextState));
+            }
+          }
+        });
+      }
+      return true;
+    } catch (Exception e) {
+      LOG.warn("Exception thrown during persisting of data", e);
+      return false;
+    } finally {
+      // Clear the persisted sink data (in case transaction failure occurred, we will poll the source with old state)
+      dataToSink.clear();
+      for (List<InvalidEntry> invalidEntryList : transformIdToErrorRecords.values()) {
+        invalidEntryList.clear();
       }
     }
   }
@@ -482,4 +563,93 @@ public class ETLWorker extends AbstractWorker {
       Destroyables.destroyQuietly(sink);
     }
   }
+
+  /**
+   * Records polled from the source, with the state of the source after polling them.
+   */
+  private static final class PolledBatch {
+    private final int generation;
+    private final Collection<Object> records;
+    private final SourceState state;
+
+    private PolledBatch(int generation, Collection<Object> records, SourceState state) {
+      this.generation = generation;
+      this.records = records;
+      this.state = state;
+    }
+  }
+
+  /**
+   * Polls the source continuously, queuing the polled batches for processing. Each poll starts from the state
+   * returned by the previous one, unless the poller is rewound to the last persisted state, which also starts a new
+   * generation of batches.
+   */
+  private final class SourcePoller implements Runnable {
+    private final BlockingQueue<PolledBatch> batches;
+    private SourceState pollState;
+    // guarded by this
+    private SourceState rewindState;
+    private volatile int generation;
+
+    private SourcePoller(SourceState currentState, BlockingQueue<PolledBatch> batches) {
+      this.batches = batches;
+      this.pollState = new SourceState(currentState);
+    }
+
+    int getGeneration() {
+      return generation;
+    }
+
+    synchronized void rewind(SourceState state) {
+      rewindState = new SourceState(state);
+      generation++;
+    }
+
+    @Override
+    public void run() {
+      DefaultEmitter<Object> sourceEmitter = new DefaultEmitter<>();
+      TrackedEmitter<Object> trackedSourceEmitter =
+        new TrackedEmitter<>(sourceEmitter,
+                             new DefaultStageMetrics(metrics, sourceStageName),
+                             TrackedTransform.RECORDS_OUT);
+      while (!stopped && !Thread.currentThread().isInterrupted()) {
+        int pollGeneration;
+        synchronized (this) {
+          if (rewindState != null) {
+            pollState = rewindState;
+            rewindState = null;
+          }
+          pollGeneration = generation;
+        }
+
+        SourceState newState;
+        try {
+          newState = source.poll(trackedSourceEmitter, new SourceState(pollState));
+        } catch (Exception e) {
+          // Continue since the source threw an exception. No point in processing records and state is not changed.
+          LOG.warn("Exception thrown during polling of Source for data", e);
+          sourceEmitter.reset();
+          continue;
+        } finally {
+          trackedSourceEmitter.flushMetrics();
+        }
+
+        if (sourceEmitter.getEntries().isEmpty() && (newState == null || newState.equals(pollState))) {
+          // nothing to process or persist
+          continue;
+        }
+        if (newState != null) {
+          pollState = new SourceState(newState);
+        }
+        try {
+          batches.put(new PolledBatch(pollGeneration, new ArrayList<>(sourceEmitter.getEntries()),
+                                      new SourceState(pollState)));
+        } catch (InterruptedException e) {
+          break;
+        } finally {
+          sourceEmitter.reset();
+        }
+      }
+    }
+  }
 }
@@ -58,6 +58,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import javax.annotation.Nullable;
 
 /**
  * Tests for {@link ETLWorker}.
@@ -123,6 +124,44 @@ public class ETLWorkerTest extends HydratorTestBase {
     validateMetric(2, appId, "sink.records.in");
   }
 
+  @Test
+  @Category(SlowTests.class)
+  public void testPipelined() throws Exception {
+    Schema schema = Schema.recordOf(
+      "test",
+      Schema.Field.of("id", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("name", Schema.of(Schema.Type.STRING))
+    );
+    List<StructuredRecord> input = new ArrayList<>();
+    input.add(StructuredRecord.builder(schema).set("id", "123").set("name", "samuel").build());
+    input.add(StructuredRecord.builder(schema).set("id", "456").set("name", "jackson").build());
+
+    File tmpDir = TMP_FOLDER.newFolder();
+    ETLRealtimeConfig etlConfig = ETLRealtimeConfig.builder()
+      .addStage(new ETLStage("source", MockSource.getPlugin(input)))
+      .addStage(new ETLStage("sink", MockSink.getPlugin(tmpDir)))
+      .addConnection("source", "sink")
+      .build();
+
+    Id.Application appId = Id.Application.from(Id.Namespace.DEFAULT, "pipelinedApp");
+    AppRequest<ETLRealtimeConfig> appRequest = new AppRequest<>(APP_ARTIFACT, etlConfig);
+    ApplicationManager appManager = deployApplication(appId, appRequest);
+
+    WorkerManager workerManager = appManager.getWorkerManager(ETLWorker.NAME);
+    workerManager.start(ImmutableMap.of(ETLWorker.PIPELINED_BATCHES, "2"));
+    workerManager.waitForStatus(true, 10, 1);
+
+    try {
+      List<StructuredRecord> written = MockSink.getRecords(tmpDir, 0, 10, TimeUnit.SECONDS);
+      Assert.assertEquals(input, written);
+    } finally {
+      stopWorker(workerManager);
+    }
+
+    validateMetric(2, appId, "source.records.out");
+    validateMetric(2, appId, "sink.records.in");
+  }
+
   @Test
   public void testEmptyProperties() throws Exception {
     // Set properties to null to test if ETLTemplate can handle it.
@@ -150,19 +189,30 @@ public class ETLWorkerTest extends HydratorTestBase {
 
   @Test
   public void testLookup() throws Exception {
-    addDatasetInstance(KeyValueTable.class.getName(), "lookupTable");
-    DataSetManager<KeyValueTable> lookupTable = getDataset("lookupTable");
+    testLookup("lookupTable", null);
+  }
+
+  @Test
+  public void testCachedLookup() throws Exception {
+    Id.Application appId = testLookup("cachedLookupTable", 10);
+    // both fields are looked up once, and not found in the cache
+    validateMetric(2, appId, "source.lookup.cachedLookupTable.cache.misses");
+  }
+
+  private Id.Application testLookup(String tableName, @Nullable Integer cacheSize) throws Exception {
+    addDatasetInstance(KeyValueTable.class.getName(), tableName);
+    DataSetManager<KeyValueTable> lookupTable = getDataset(tableName);
     lookupTable.get().write("Bob".getBytes(Charsets.UTF_8), "123".getBytes(Charsets.UTF_8));
     lookupTable.flush();
 
     File outDir = TMP_FOLDER.newFolder();
     ETLRealtimeConfig etlConfig = ETLRealtimeConfig.builder()
-      .addStage(new ETLStage("source", LookupSource.getPlugin(ImmutableSet.of("Bob", "Bill"), "lookupTable")))
+      .addStage(new ETLStage("source", LookupSource.getPlugin(ImmutableSet.of("Bob", "Bill"), tableName, cacheSize)))
       .addStage(new ETLStage("sink", MockSink.getPlugin(outDir)))
       .addConnection("source", "sink")
       .build();
 
-    Id.Application appId = Id.Application.from(Id.Namespace.DEFAULT, "lookupTestApp");
+    Id.Application appId = Id.Application.from(Id.Namespace.DEFAULT, tableName + "TestApp");
     AppRequest<ETLRealtimeConfig> appRequest = new AppRequest<>(APP_ARTIFACT, etlConfig);
     ApplicationManager appManager = deployApplication(appId, appRequest);
 
@@ -185,6 +235,7 @@ public class ETLWorkerTest extends HydratorTestBase {
     }
     validateMetric(1, appId, "source.records.out");
     validateMetric(1, appId, "sink.records.in");
+    return appId;
   }
 
   @Test
@@ -23,8 +23,11 @@ import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.plugin.PluginClass;
 import co.cask.cdap.api.plugin.PluginConfig;
 import co.cask.cdap.api.plugin.PluginPropertyField;
+import co.cask.cdap.etl.api.CacheConfig;
+import co.cask.cdap.etl.api.CachingLookupProvider;
 import co.cask.cdap.etl.api.Emitter;
 import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.LookupTableConfig;
 import co.cask.cdap.etl.api.realtime.RealtimeContext;
 import co.cask.cdap.etl.api.realtime.RealtimeSource;
 import co.cask.cdap.etl.api.realtime.SourceState;
@@ -42,7 +45,8 @@ import javax.annotation.Nullable;
 
 /**
  * Source used to test lookup functionality. Takes a set of fields as config and emits a single record with
- * each field value being the result of lookup for that field.
+ * each field value being the result of lookup for that field. If a cache size is configured, the lookup is
+ * provided with a {@link LookupTableConfig} that caches its values.
  */
 @Plugin(type = RealtimeSource.PLUGIN_TYPE)
 @Name("Lookup")
@@ -67,7 +71,14 @@ public class LookupSource extends RealtimeSource<StructuredRecord> {
       schemaFields.add(Schema.Field.of(fieldName, Schema.nullableOf(Schema.of(Schema.Type.STRING))));
     }
     schema = Schema.recordOf("lookupRecord", schemaFields);
-    lookup = context.provide(config.lookupName, new HashMap<String, String>());
+    if (config.cacheSize != null && context instanceof CachingLookupProvider) {
+      CacheConfig cacheConfig = new CacheConfig(0, config.cacheSize);
+      LookupTableConfig tableConfig = new LookupTableConfig(LookupTableConfig.TableType.DATASET, cacheConfig,
+                                                            new HashMap<String, String>(), true);
+      lookup = ((CachingLookupProvider) context).provide(config.lookupName, tableConfig);
+    } else {
+      lookup = context.provide(config.lookupName, new HashMap<String, String>());
+    }
   }
 
   @Nullable
@@ -91,12 +102,21 @@ public class LookupSource extends RealtimeSource<StructuredRecord> {
   public static class Config extends PluginConfig {
     private String fields;
     private String lookupName;
+    @Nullable
+    private Integer cacheSize;
   }
 
   public static ETLPlugin getPlugin(Set<String> fields, String lookupName) {
+    return getPlugin(fields, lookupName, null);
+  }
+
+  public static ETLPlugin getPlugin(Set<String> fields, String lookupName, @Nullable Integer cacheSize) {
     Map<String, String> properties = new HashMap<>();
     properties.put("fields", Joiner.on(',').join(fields));
     properties.put("lookupName", lookupName);
+    if (cacheSize != null) {
+      properties.put("cacheSize", String.valueOf(cacheSize));
+    }
     return new ETLPlugin("Lookup", RealtimeSource.PLUGIN_TYPE, properties, null);
   }
 
@@ -104,6 +124,7 @@ public class LookupSource extends RealtimeSource<StructuredRecord> {
     Map<String, PluginPropertyField> properties = new HashMap<>();
     properties.put("fields", new PluginPropertyField("fields", "", "string", true));
     properties.put("lookupName", new PluginPropertyField("lookupName", "", "string", true));
+    properties.put("cacheSize", new PluginPropertyField("cacheSize", "", "int", false));
     return new PluginClass(RealtimeSource.PLUGIN_TYPE, "Lookup", "", LookupSource.class.getName(),
                            "config", properties);
   }
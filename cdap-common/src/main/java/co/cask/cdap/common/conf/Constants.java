@@ -119,6 +119,7 @@ public final class Constants {
     public static final String SERVER_ADDRESS = "app.bind.address";
     public static final String OUTPUT_DIR = "app.output.dir";
     public static final String TEMP_DIR = "app.temp.dir";
+    public static final String ARTIFACT_UNPACK_CACHE_MAX_SIZE_MB = "app.artifact.unpack.cache.max.size.mb";
     public static final String REST_PORT = "app.rest.port";
     public static final String PROGRAM_JVM_OPTS = "app.program.jvm.opts";
     public static final String BACKLOG_CONNECTIONS = "app.connection.backlog";
@@ -146,6 +147,7 @@ public final class Constants {
     public static final int DEFAULT_EXEC_THREADS = 20;
     public static final int DEFAULT_BOSS_THREADS = 1;
     public static final int DEFAULT_WORKER_THREADS = 10;
+    public static final long DEFAULT_ARTIFACT_UNPACK_CACHE_MAX_SIZE_MB = 1024;
 
     /**
      * Query parameter to indicate start time.
@@ -174,6 +176,11 @@ public final class Constants {
      */
     public static final String WORKFLOW_TOKEN_MAX_SIZE_MB = "workflow.token.max.size.mb";
 
+    /**
+     * Configuration setting to set the maximum number of workflow actions that can run concurrently in a workflow
+     */
+    public static final String WORKFLOW_MAX_CONCURRENT_ACTIONS = "workflow.max.concurrent.actions";
+
     /**
      * Name of the property used to identify whether the dataset is local or not.
      */
@@ -252,6 +259,9 @@ public final class Constants {
     public static final class Partitioned {
       public static final String HCONF_ATTR_OUTPUT_DATASET = "output.dataset.name";
       public static final String HCONF_ATTR_OUTPUT_FORMAT_CLASS_NAME = "output.format.class.name";
+      // number of threads used to move the output files of dynamic partitioning when the job is committed
+      public static final String HCONF_ATTR_COMMIT_THREADS = "output.dataset.commit.threads";
+      public static final int DEFAULT_COMMIT_THREADS = 16;
     }
 
     /**
@@ -415,6 +425,7 @@ public final class Constants {
     public static final String CLIENT_BOSS_THREADS = "router.client.boss.threads";
     public static final String CLIENT_WORKER_THREADS = "router.client.worker.threads";
     public static final String CONNECTION_TIMEOUT_SECS = "router.connection.idle.timeout.secs";
+    public static final String CONNECTION_POOL_MAX_IDLE_PER_ENDPOINT = "router.connection.pool.max.idle.per.endpoint";
 
     /**
      * Defaults.
@@ -776,6 +787,9 @@ public final class Constants {
     public static final String VIEW_NAME = "explore.view.name";
     public static final String STREAM_NAME = "explore.stream.name";
     public static final String STREAM_NAMESPACE = "explore.stream.namespace";
+    // number of stream events read at once by a Hive query, can be set in the Hive session
+    public static final String STREAM_READ_BATCH_SIZE = "explore.stream.read.batch.size";
+    public static final int DEFAULT_STREAM_READ_BATCH_SIZE = 1000;
     public static final String EXPLORE_CLASSPATH = "explore.classpath";
     public static final String EXPLORE_CONF_FILES = "explore.conf.files";
     public static final String PREVIEWS_DIR_NAME = "explore.previews.dir";
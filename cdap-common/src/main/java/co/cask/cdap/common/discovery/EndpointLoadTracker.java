@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.common.discovery;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of the load on endpoints, in terms of the number of in-flight requests and an exponentially
+ * weighted moving average (EWMA) of the request latency. It is used by {@link LoadAwareEndpointStrategy}
+ * to pick the least loaded endpoint. This class is thread safe.
+ */
+public final class EndpointLoadTracker {
+
+  /**
+   * Default weight given to a new latency sample in the EWMA.
+   */
+  public static final double DEFAULT_DECAY = 0.3d;
+
+  private final double decay;
+  private final LoadingCache<InetSocketAddress, EndpointLoad> loads;
+
+  public EndpointLoadTracker() {
+    this(DEFAULT_DECAY);
+  }
+
+  /**
+   * Creates a tracker with the given EWMA decay, which must be in the range of (0, 1].
+   */
+  public EndpointLoadTracker(double decay) {
+    if (decay <= 0d || decay > 1d) {
+      throw new IllegalArgumentException("Decay must be in the range of (0, 1]: " + decay);
+    }
+    this.decay = decay;
+    // Expires endpoints that are not used anymore so that the cache doesn't grow with endpoints that are gone.
+    this.loads = CacheBuilder.newBuilder()
+      .expireAfterAccess(1, TimeUnit.HOURS)
+      .build(new CacheLoader<InetSocketAddress, EndpointLoad>() {
+        @Override
+        public EndpointLoad load(InetSocketAddress key) throws Exception {
+          return new EndpointLoad();
+        }
+      });
+  }
+
+  /**
+   * Records the start of a request to the given endpoint.
+   */
+  public void requestStarted(InetSocketAddress endpoint) {
+    loads.getUnchecked(endpoint).inFlight.incrementAndGet();
+  }
+
+  /**
+   * Records the completion of a request to the given endpoint.
+   *
+   * @param endpoint the endpoint address
+   * @param latencyNanos the request latency in nanoseconds; a negative value means the request didn't complete
+   *                     normally and the latency is not being sampled
+   */
+  public void requestCompleted(InetSocketAddress endpoint, long latencyNanos) {
+    EndpointLoad load = loads.getUnchecked(endpoint);
+    load.decrementInFlight();
+    if (latencyNanos >= 0) {
+      load.sample(latencyNanos, decay);
+    }
+  }
+
+  /**
+   * Returns the number of in-flight requests to the given endpoint.
+   */
+  public int getInFlight(InetSocketAddress endpoint) {
+    EndpointLoad load = loads.getIfPresent(endpoint);
+    return load == null ? 0 : load.inFlight.get();
+  }
+
+  /**
+   * Returns the latency EWMA in nanoseconds of the given endpoint or {@code -1} if there was no latency sampled.
+   */
+  public double getLatencyEWMA(InetSocketAddress endpoint) {
+    EndpointLoad load = loads.getIfPresent(endpoint);
+    return load == null ? -1d : load.ewma;
+  }
+
+  /**
+   * Compares the load of two endpoints.
+   *
+   * @return a negative integer, zero, or a positive integer if the first endpoint is less loaded, equally loaded,
+   *         or more loaded than the second one
+   */
+  int compare(InetSocketAddress first, InetSocketAddress second) {
+    EndpointLoad firstLoad = loads.getIfPresent(first);
+    EndpointLoad secondLoad = loads.getIfPresent(second);
+
+    int firstInFlight = firstLoad == null ? 0 : firstLoad.inFlight.get();
+    int secondInFlight = secondLoad == null ? 0 : secondLoad.inFlight.get();
+    double firstEWMA = firstLoad == null ? -1d : firstLoad.ewma;
+    double secondEWMA = secondLoad == null ? -1d : secondLoad.ewma;
+
+    // If latency is not known for either of them, only the number of outstanding requests is used
+    if (firstEWMA < 0 || secondEWMA < 0) {
+      return Integer.compare(firstInFlight, secondInFlight);
+    }
+    // Cost is the expected time to serve one more request
+    return Double.compare(firstEWMA * (firstInFlight + 1), secondEWMA * (secondInFlight + 1));
+  }
+
+  /**
+   * Load information of one endpoint.
+   */
+  private static final class EndpointLoad {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double ewma = -1d;
+
+    private void decrementInFlight() {
+      // Never go below zero, which can happen if the tracker entry was expired while there were requests in-flight
+      int count = inFlight.get();
+      while (count > 0 && !inFlight.compareAndSet(count, count - 1)) {
+        count = inFlight.get();
+      }
+    }
+
+    private synchronized void sample(long latencyNanos, double decay) {
+      ewma = ewma < 0 ? latencyNanos : ewma + decay * (latencyNanos - ewma);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.common.discovery;
+
+import com.google.common.collect.Lists;
+import org.apache.twill.discovery.Discoverable;
+import org.apache.twill.discovery.ServiceDiscovered;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An {@link EndpointStrategy} that uses the power of two choices to pick an endpoint. Two endpoints are
+ * randomly selected and the one that is less loaded, based on the in-flight request count and latency
+ * recorded in the {@link EndpointLoadTracker}, is picked.
+ *
+ * Comparing to {@link RandomEndpointStrategy}, it avoids sending requests to slow or unresponsive endpoints,
+ * while still spreading requests across endpoints without the herding behavior of always picking the least loaded
+ * one.
+ */
+public final class LoadAwareEndpointStrategy extends AbstractEndpointStrategy {
+
+  private final EndpointLoadTracker loadTracker;
+
+  /**
+   * Constructs a load aware endpoint strategy with the given {@link ServiceDiscovered} and the
+   * {@link EndpointLoadTracker} that tracks the load of the endpoints.
+   */
+  public LoadAwareEndpointStrategy(ServiceDiscovered serviceDiscovered, EndpointLoadTracker loadTracker) {
+    super(serviceDiscovered);
+    this.loadTracker = loadTracker;
+  }
+
+  @Override
+  public Discoverable pick() {
+    List<Discoverable> endpoints = Lists.newArrayList(serviceDiscovered);
+    int size = endpoints.size();
+    if (size == 0) {
+      return null;
+    }
+    if (size == 1) {
+      return endpoints.get(0);
+    }
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(size);
+    // Pick the second one from the remaining endpoints so that the two choices are always distinct
+    int second = random.nextInt(size - 1);
+    if (second >= first) {
+      second++;
+    }
+
+    Discoverable firstEndpoint = endpoints.get(first);
+    Discoverable secondEndpoint = endpoints.get(second);
+    return loadTracker.compare(firstEndpoint.getSocketAddress(), secondEndpoint.getSocketAddress()) <= 0
+      ? firstEndpoint : secondEndpoint;
+  }
+}
@@ -36,6 +36,15 @@ public final class StickyEndpointStrategy extends AbstractEndpointStrategy {
     this.picker = new RandomEndpointStrategy(serviceDiscovered);
   }
 
+  /**
+   * Creates a sticky strategy that uses {@link LoadAwareEndpointStrategy} to pick a new endpoint
+   * whenever the previously picked one is no longer valid.
+   */
+  public StickyEndpointStrategy(ServiceDiscovered serviceDiscovered, EndpointLoadTracker loadTracker) {
+    super(serviceDiscovered);
+    this.picker = new LoadAwareEndpointStrategy(serviceDiscovered, loadTracker);
+  }
+
   @Override
   public Discoverable pick() {
     Discoverable lastPick = this.lastPick;
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.common.discovery;
+
+import org.apache.twill.discovery.Discoverable;
+import org.apache.twill.discovery.InMemoryDiscoveryService;
+import org.apache.twill.discovery.ServiceDiscovered;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test for {@link LoadAwareEndpointStrategy}.
+ */
+public class LoadAwareEndpointStrategyTest {
+
+  @Test
+  public void testPickLeastLoaded() {
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    InetSocketAddress busy = new InetSocketAddress("localhost", 10001);
+    InetSocketAddress idle = new InetSocketAddress("localhost", 10002);
+    discoveryService.register(createDiscoverable("test", busy));
+    discoveryService.register(createDiscoverable("test", idle));
+
+    ServiceDiscovered serviceDiscovered = discoveryService.discover("test");
+    EndpointLoadTracker loadTracker = new EndpointLoadTracker();
+    EndpointStrategy strategy = new LoadAwareEndpointStrategy(serviceDiscovered, loadTracker);
+    Assert.assertNotNull(strategy.pick(5, TimeUnit.SECONDS));
+
+    // Without latency information, the one with less in-flight requests is picked
+    loadTracker.requestStarted(busy);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(idle, strategy.pick().getSocketAddress());
+    }
+
+    // With latency information, the cost is latency multiplied by outstanding requests
+    loadTracker.requestCompleted(busy, TimeUnit.MILLISECONDS.toNanos(1));
+    loadTracker.requestStarted(idle);
+    loadTracker.requestCompleted(idle, TimeUnit.SECONDS.toNanos(1));
+    Assert.assertEquals(0, loadTracker.getInFlight(busy));
+    Assert.assertEquals(0, loadTracker.getInFlight(idle));
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(busy, strategy.pick().getSocketAddress());
+    }
+
+    // Failed requests are not sampled, but are no longer in-flight
+    loadTracker.requestStarted(busy);
+    loadTracker.requestCompleted(busy, -1L);
+    Assert.assertEquals(0, loadTracker.getInFlight(busy));
+    Assert.assertEquals((double) TimeUnit.MILLISECONDS.toNanos(1), loadTracker.getLatencyEWMA(busy), 0.0001d);
+  }
+
+  @Test
+  public void testSingleEndpoint() {
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    ServiceDiscovered serviceDiscovered = discoveryService.discover("single");
+    EndpointStrategy strategy = new LoadAwareEndpointStrategy(serviceDiscovered, new EndpointLoadTracker());
+    Assert.assertNull(strategy.pick());
+
+    InetSocketAddress address = new InetSocketAddress("localhost", 10003);
+    discoveryService.register(createDiscoverable("single", address));
+    Discoverable discoverable = strategy.pick(5, TimeUnit.SECONDS);
+    Assert.assertNotNull(discoverable);
+    Assert.assertEquals(address, discoverable.getSocketAddress());
+  }
+
+  private Discoverable createDiscoverable(final String name, final InetSocketAddress address) {
+    return new Discoverable() {
+      @Override
+      public String getName() {
+        return name;
+      }
+
+      @Override
+      public InetSocketAddress getSocketAddress() {
+        return address;
+      }
+    };
+  }
+}
@@ -17,6 +17,7 @@
 package co.cask.cdap.data2.dataset2.lib.table.hbase;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.batch.Split;
 import co.cask.cdap.api.dataset.DatasetAdmin;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetProperties;
@@ -25,6 +26,7 @@ import co.cask.cdap.api.dataset.table.ConflictDetection;
 import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Put;
 import co.cask.cdap.api.dataset.table.Table;
+import co.cask.cdap.api.dataset.table.TableSplit;
 import co.cask.cdap.api.dataset.table.Tables;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.data.hbase.HBaseTestBase;
@@ -215,6 +217,55 @@ public class HBaseTableTest extends BufferingTableTest<BufferingTable> {
     }
   }
 
+  @Test
+  public void testGetSplits() throws Exception {
+    byte[][] splits = new byte[][] {Bytes.toBytes("a"), Bytes.toBytes("b"), Bytes.toBytes("c")};
+    DatasetProperties props = DatasetProperties.builder().add("hbase.splits", new Gson().toJson(splits)).build();
+    String splitTable = "splits";
+    HBaseTableAdmin admin = getTableAdmin(CONTEXT1, splitTable, props);
+    admin.create();
+    try (BufferingTable table = getTable(CONTEXT1, splitTable, ConflictDetection.COLUMN)) {
+      // one split per region
+      verifySplits(table.getSplits(4, null, null), null, b("a"), b("b"), b("c"), null);
+      // adjacent regions are grouped
+      verifySplits(table.getSplits(2, null, null), null, b("b"), null);
+      // only the regions in the key range are used, bounded by the key range
+      verifySplits(table.getSplits(2, b("aa"), b("c")), b("aa"), b("b"), b("c"));
+
+      // regions are divided if more splits are requested than there are regions
+      List<Split> dividedSplits = table.getSplits(8, null, null);
+      Assert.assertEquals(8, dividedSplits.size());
+      Assert.assertNull(((TableSplit) dividedSplits.get(0)).getStart());
+      Assert.assertNull(((TableSplit) dividedSplits.get(7)).getStop());
+      for (int i = 0; i < dividedSplits.size(); i++) {
+        TableSplit split = (TableSplit) dividedSplits.get(i);
+        Assert.assertEquals(1, split.getLocations().length);
+        if (i > 0) {
+          Assert.assertArrayEquals(((TableSplit) dividedSplits.get(i - 1)).getStop(), split.getStart());
+        }
+      }
+      // each region is divided in two
+      Assert.assertArrayEquals(b("a"), ((TableSplit) dividedSplits.get(1)).getStop());
+      Assert.assertArrayEquals(b("b"), ((TableSplit) dividedSplits.get(3)).getStop());
+      Assert.assertArrayEquals(b("c"), ((TableSplit) dividedSplits.get(5)).getStop());
+    } finally {
+      admin.drop();
+    }
+  }
+
+  /**
+   * Verifies that the given splits have the given boundaries, and that each has the location of its region server.
+   */
+  private void verifySplits(List<Split> splits, byte[]... boundaries) {
+    Assert.assertEquals(boundaries.length - 1, splits.size());
+    for (int i = 0; i < splits.size(); i++) {
+      TableSplit split = (TableSplit) splits.get(i);
+      Assert.assertArrayEquals(boundaries[i], split.getStart());
+      Assert.assertArrayEquals(boundaries[i + 1], split.getStop());
+      Assert.assertEquals(1, split.getLocations().length);
+    }
+  }
+
   @Test
   public void testEnableIncrements() throws Exception {
     // setup a table with increments disabled and with it enabled
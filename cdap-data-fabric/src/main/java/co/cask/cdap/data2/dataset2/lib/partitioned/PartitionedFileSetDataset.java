@@ -23,7 +23,9 @@ import co.cask.cdap.api.dataset.DataSetException;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetSpecification;
 import co.cask.cdap.api.dataset.PartitionNotFoundException;
+import co.cask.cdap.api.dataset.lib.AbstractCloseableIterator;
 import co.cask.cdap.api.dataset.lib.AbstractDataset;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
 import co.cask.cdap.api.dataset.lib.FileSet;
 import co.cask.cdap.api.dataset.lib.FileSetArguments;
 import co.cask.cdap.api.dataset.lib.FileSetProperties;
@@ -38,8 +40,10 @@ import co.cask.cdap.api.dataset.lib.PartitionMetadata;
 import co.cask.cdap.api.dataset.lib.PartitionOutput;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSet;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSetArguments;
+import co.cask.cdap.api.dataset.lib.PartitionedFileSetProperties;
 import co.cask.cdap.api.dataset.lib.Partitioning;
 import co.cask.cdap.api.dataset.lib.Partitioning.FieldType;
+import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Put;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
@@ -66,6 +70,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -86,6 +91,17 @@ public class PartitionedFileSetDataset extends AbstractDataset implements Partit
   protected static final byte[] METADATA_PREFIX = { 'm', '.' };
   protected static final byte[] CREATION_TIME_COL = { 'c' };
   protected static final byte[] WRITE_PTR_COL = { 'w' };
+  protected static final byte[] INDEX_PREFIX = { 'i', '.' };
+  protected static final byte[] INDEX_STATE_PREFIX = { 's', '.' };
+
+  // The row that records for each indexed field whether its index covers all partitions. A single \0 byte can not be
+  // parsed as a partition key, no matter what the partitioning is.
+  protected static final byte[] INDEX_STATE_ROW = { 0 };
+  private static final byte[] INDEX_COMPLETE = { 1 };
+  private static final byte[] INDEX_INCOMPLETE = { 0 };
+
+  // number of partition rows read with a single batch get, when the rows are found through the indexes
+  private static final int ROWS_PER_BATCH = 1000;
 
   protected final FileSet files;
   protected final IndexedTable partitionsTable;
@@ -97,6 +113,8 @@ public class PartitionedFileSetDataset extends AbstractDataset implements Partit
   protected boolean ignoreInvalidRowsSilently = false;
 
   private final Id.DatasetInstance datasetInstanceId;
+  // indexed partitioning field -> column that holds the sortable encoding of its value
+  private final Map<String, byte[]> indexColumns;
 
   // In this map we keep track of the partitions that were added in the same transaction.
   // If the exact same partition is added again, we will not throw an error but only log a message that
@@ -128,6 +146,10 @@ public class PartitionedFileSetDataset extends AbstractDataset implements Partit
     this.partitioning = partitioning;
     this.exploreFacadeProvider = exploreFacadeProvider;
     this.datasetInstanceId = Id.DatasetInstance.from(datasetContext.getNamespaceId(), name);
+    this.indexColumns = new LinkedHashMap<>();
+    for (String fieldName : PartitionedFileSetProperties.getIndexedFields(spec.getProperties())) {
+      indexColumns.put(fieldName, indexColumn(fieldName));
+    }
   }
 
   @Override
@@ -244,39 +266,174 @@ public class PartitionedFileSetDataset extends AbstractDataset implements Partit
   protected void addPartition(PartitionKey key, String path, boolean explorable, Map<String, String> metadata) {
     byte[] rowKey = generateRowKey(key, partitioning);
     Row row = partitionsTable.get(rowKey);
-    if (!row.isEmpty()) {
-      if (key.equals(partitionsAddedInSameTx.get(path))) {
-        LOG.warn("Dataset {} already added a partition with key {} in this transaction. " +
-                   "Partitions no longer need to be added in the onFinish() of MapReduce. Please check your app. ",
-                 getName(), key.toString());
-        return;
-      }
-      throw new DataSetException(String.format("Dataset '%s' already has a partition with the same key: %s",
-                                               getName(), key.toString()));
+    if (isAlreadyAdded(key, path, row)) {
+      return;
     }
     LOG.debug("Adding partition with key {} and path {} to dataset {}", key, path, getName());
+    updateIndexStates();
+    partitionsTable.put(createPartitionPut(rowKey, key, path, metadata, Bytes.toBytes(System.currentTimeMillis())));
+    partitionsAddedInSameTx.put(path, key);
+    operationsInThisTx.add(new PathOperation(path, PathOperation.OperationType.CREATE));
+
+
+    if (explorable) {
+      addPartitionToExplore(key, path);
+      // TODO: make DDL operations transactional [CDAP-1393]
+    }
+  }
+
+  @Override
+  public void addPartitions(Map<PartitionKey, String> partitions, Map<String, String> metadata) {
+    addPartitions(partitions, true, metadata);
+  }
+
+  /**
+   * Add multiple partitions, each for a given partition key and stored at a given path (relative to the file set's
+   * base path), all with the given metadata. All partitions are validated with a single batch read of the
+   * partitions table before any of them is added, and they are added to explore with a single statement.
+   *
+   * @param partitions a map from partition key to the path of the partition.
+   * @param explorable whether to add the partitions to explore
+   * @param metadata the metadata associated with each of the partitions.
+   */
+  protected void addPartitions(Map<PartitionKey, String> partitions, boolean explorable,
+                               Map<String, String> metadata) {
+    List<byte[]> rowKeys = new ArrayList<>(partitions.size());
+    List<Get> gets = new ArrayList<>(partitions.size());
+    for (PartitionKey key : partitions.keySet()) {
+      byte[] rowKey = generateRowKey(key, partitioning);
+      rowKeys.add(rowKey);
+      gets.add(new Get(rowKey));
+    }
+    List<Row> rows = partitionsTable.get(gets);
+
+    Map<PartitionKey, String> partitionsToAdd = new LinkedHashMap<>();
+    Iterator<Row> rowIterator = rows.iterator();
+    for (Map.Entry<PartitionKey, String> partition : partitions.entrySet()) {
+      if (!isAlreadyAdded(partition.getKey(), partition.getValue(), rowIterator.next())) {
+        partitionsToAdd.put(partition.getKey(), partition.getValue());
+      }
+    }
+    LOG.debug("Adding {} partitions to dataset {}", partitionsToAdd.size(), getName());
+    if (!partitionsToAdd.isEmpty()) {
+      updateIndexStates();
+    }
+
+    byte[] nowInMillis = Bytes.toBytes(System.currentTimeMillis());
+    Iterator<byte[]> rowKeyIterator = rowKeys.iterator();
+    for (Map.Entry<PartitionKey, String> partition : partitions.entrySet()) {
+      byte[] rowKey = rowKeyIterator.next();
+      if (!partitionsToAdd.containsKey(partition.getKey())) {
+        continue;
+      }
+      String path = partition.getValue();
+      partitionsTable.put(createPartitionPut(rowKey, partition.getKey(), path, metadata, nowInMillis));
+      partitionsAddedInSameTx.put(path, partition.getKey());
+      operationsInThisTx.add(new PathOperation(path, PathOperation.OperationType.CREATE));
+    }
+
+    if (explorable) {
+      addPartitionsToExplore(partitionsToAdd);
+      // TODO: make DDL operations transactional [CDAP-1393]
+    }
+  }
+
+  /**
+   * Checks that there is no partition for a given key yet.
+   *
+   * @return false if there is no such partition, true if the same partition was already added in this transaction
+   * @throws DataSetException if another partition already exists for the key
+   */
+  private boolean isAlreadyAdded(PartitionKey key, String path, Row row) {
+    if (row.isEmpty()) {
+      return false;
+    }
+    if (key.equals(partitionsAddedInSameTx.get(path))) {
+      LOG.warn("Dataset {} already added a partition with key {} in this transaction. " +
+                 "Partitions no longer need to be added in the onFinish() of MapReduce. Please check your app. ",
+               getName(), key.toString());
+      return true;
+    }
+    throw new DataSetException(String.format("Dataset '%s' already has a partition with the same key: %s",
+                                             getName(), key.toString()));
+  }
+
+  private Put createPartitionPut(byte[] rowKey, PartitionKey key, String path, Map<String, String> metadata,
+                                 byte[] creationTime) {
     Put put = new Put(rowKey);
     put.add(RELATIVE_PATH, Bytes.toBytes(path));
-    byte[] nowInMillis = Bytes.toBytes(System.currentTimeMillis());
-    put.add(CREATION_TIME_COL, nowInMillis);
+    put.add(CREATION_TIME_COL, creationTime);
     for (Map.Entry<String, ? extends Comparable> entry : key.getFields().entrySet()) {
       put.add(Bytes.add(FIELD_PREFIX, Bytes.toBytes(entry.getKey())), // "f.<field name>"
               Bytes.toBytes(entry.getValue().toString()));            // "<string rep. of value>"
     }
 
+    for (Map.Entry<String, byte[]> entry : indexColumns.entrySet()) {
+      String fieldName = entry.getKey();
+      put.add(entry.getValue(), FieldTypes.toBytes(key.getField(fieldName), partitioning.getFieldType(fieldName)));
+    }
+
     addMetadataToPut(metadata, put);
     // index each row by its transaction's write pointer
     put.add(WRITE_PTR_COL, tx.getWritePointer());
+    return put;
+  }
 
-    partitionsTable.put(put);
-    partitionsAddedInSameTx.put(path, key);
-    operationsInThisTx.add(new PathOperation(path, PathOperation.OperationType.CREATE));
+  /**
+   * Records the state of the indexes before partitions are added. The index of a field is complete if the field was
+   * already indexed when the first partition was added. If a field is indexed later, its index misses the existing
+   * partitions and is recorded as incomplete. If a field is no longer indexed, its index misses the partitions that
+   * are added from now on, hence its state is removed.
+   */
+  private void updateIndexStates() {
+    Row states = partitionsTable.get(INDEX_STATE_ROW);
+    Put put = new Put(INDEX_STATE_ROW);
+    Boolean hasPartitions = null;
+    for (String fieldName : indexColumns.keySet()) {
+      byte[] stateColumn = indexStateColumn(fieldName);
+      if (states.get(stateColumn) == null) {
+        if (hasPartitions == null) {
+          hasPartitions = hasPartitions();
+        }
+        put.add(stateColumn, hasPartitions ? INDEX_INCOMPLETE : INDEX_COMPLETE);
+      }
+    }
+    if (!put.getValues().isEmpty()) {
+      partitionsTable.put(put);
+    }
+    for (Map.Entry<byte[], byte[]> entry : states.getColumns().entrySet()) {
+      byte[] stateColumn = entry.getKey();
+      String fieldName = Bytes.toString(stateColumn, INDEX_STATE_PREFIX.length,
+                                        stateColumn.length - INDEX_STATE_PREFIX.length);
+      if (Bytes.equals(INDEX_COMPLETE, entry.getValue()) && !indexColumns.containsKey(fieldName)) {
+        partitionsTable.delete(INDEX_STATE_ROW, stateColumn);
+      }
+    }
+  }
 
+  private boolean hasPartitions() {
+    try (Scanner scanner = partitionsTable.scan(null, null)) {
+      for (Row row = scanner.next(); row != null; row = scanner.next()) {
+        if (!Bytes.equals(INDEX_STATE_ROW, row.getRow())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
 
-    if (explorable) {
-      addPartitionToExplore(key, path);
-      // TODO: make DDL operations transactional [CDAP-1393]
+  /**
+   * @return the indexed fields whose indexes cover all partitions
+   */
+  private Set<String> getCompleteIndexes() {
+    Row states = partitionsTable.get(INDEX_STATE_ROW);
+    Set<String> completeIndexes = new HashSet<>();
+    for (String fieldName : indexColumns.keySet()) {
+      if (Bytes.equals(INDEX_COMPLETE, states.get(indexStateColumn(fieldName)))) {
+        completeIndexes.add(fieldName);
+      }
     }
+    return completeIndexes;
   }
 
   @Override
@@ -454,6 +611,25 @@ public class PartitionedFileSetDataset extends AbstractDataset implements Partit
     }
   }
 
+  protected void addPartitionsToExplore(Map<PartitionKey, String> partitions) {
+    if (partitions.isEmpty() || !FileSetProperties.isExploreEnabled(spec.getProperties())) {
+      return;
+    }
+    ExploreFacade exploreFacade = exploreFacadeProvider.get();
+    if (exploreFacade != null) {
+      Map<PartitionKey, String> partitionLocations = new LinkedHashMap<>();
+      for (Map.Entry<PartitionKey, String> partition : partitions.entrySet()) {
+        partitionLocations.put(partition.getKey(), files.getLocation(partition.getValue()).toURI().getPath());
+      }
+      try {
+        exploreFacade.addPartitions(datasetInstanceId, partitionLocations);
+      } catch (Exception e) {
+        throw new DataSetException(String.format(
+          "Unable to add %d partitions to explore table.", partitions.size()), e);
+      }
+    }
+  }
+
   @Override
   public void dropPartition(PartitionKey key) {
     byte[] rowKey = generateRowKey(key, partitioning);
@@ -564,6 +740,26 @@ public class PartitionedFileSetDataset extends AbstractDataset implements Partit
   // if decodeMetadata is false, null is passed as the PartitionMetadata to the PartitionConsumer,
   // for efficiency reasons, since the metadata is not always needed
   protected void getPartitions(@Nullable PartitionFilter filter, PartitionConsumer consumer, boolean decodeMetadata) {
+    CloseableIterator<byte[]> rowKeys = filter == null ? null : getRowKeysFromIndexes(filter);
+    if (rowKeys != null) {
+      try {
+        List<Get> gets = new ArrayList<>(ROWS_PER_BATCH);
+        while (rowKeys.hasNext()) {
+          gets.add(new Get(rowKeys.next()));
+          if (gets.size() == ROWS_PER_BATCH) {
+            consumeRows(partitionsTable.get(gets), filter, consumer, decodeMetadata);
+            gets.clear();
+          }
+        }
+        if (!gets.isEmpty()) {
+          consumeRows(partitionsTable.get(gets), filter, consumer, decodeMetadata);
+        }
+      } finally {
+        rowKeys.close();
+      }
+      return;
+    }
+
     byte[] startKey = generateStartKey(filter);
     byte[] endKey = generateStopKey(filter);
     try (Scanner scanner = partitionsTable.scan(startKey, endKey)) {
@@ -572,27 +768,154 @@ public class PartitionedFileSetDataset extends AbstractDataset implements Partit
         if (row == null) {
           break;
         }
-        PartitionKey key;
-        try {
-          key = parseRowKey(row.getRow(), partitioning);
-        } catch (IllegalArgumentException e) {
-          if (!ignoreInvalidRowsSilently) {
-            LOG.debug(String.format("Failed to parse row key for partitioned file set '%s': %s",
-                                    getName(), Bytes.toStringBinary(row.getRow())));
+        consumeRow(row, filter, consumer, decodeMetadata);
+      }
+    }
+  }
+
+  private void consumeRows(List<Row> rows, @Nullable PartitionFilter filter, PartitionConsumer consumer,
+                           boolean decodeMetadata) {
+    for (Row row : rows) {
+      if (!row.isEmpty()) {
+        consumeRow(row, filter, consumer, decodeMetadata);
+      }
+    }
+  }
+
+  private void consumeRow(Row row, @Nullable PartitionFilter filter, PartitionConsumer consumer,
+                          boolean decodeMetadata) {
+    if (Bytes.equals(INDEX_STATE_ROW, row.getRow())) {
+      return;
+    }
+    PartitionKey key;
+    try {
+      key = parseRowKey(row.getRow(), partitioning);
+    } catch (IllegalArgumentException e) {
+      if (!ignoreInvalidRowsSilently) {
+        LOG.debug(String.format("Failed to parse row key for partitioned file set '%s': %s",
+                                getName(), Bytes.toStringBinary(row.getRow())));
+      }
+      return;
+    }
+    if (filter != null && !filter.match(key)) {
+      return;
+    }
+    byte[] pathBytes = row.get(RELATIVE_PATH);
+    if (pathBytes != null) {
+      consumer.consume(key, Bytes.toString(pathBytes), decodeMetadata ? metadataFromRow(row) : null);
+    }
+  }
+
+  /**
+   * Finds the keys of the partition rows that may match a filter, by looking up the indexes of the fields that the
+   * filter has conditions on. The row key range scan is bounded by the condition on the leading partitioning field,
+   * if there is one. Unless that condition is a range and an index can be looked up for a single value, the range
+   * scan is expected to read fewer rows than an index lookup. Only indexes that cover all partitions are used. If
+   * multiple indexes can be used, only the keys found in the index with the fewest matches are returned. All
+   * conditions of the filter still need to be evaluated for each of the returned rows.
+   *
+   * @return an iterator over the keys of the partition rows, or null if the partitions table must be scanned
+   */
+  @Nullable
+  private CloseableIterator<byte[]> getRowKeysFromIndexes(PartitionFilter filter) {
+    String leadingField = partitioning.getFields().keySet().iterator().next();
+    PartitionFilter.Condition<? extends Comparable> leadingCondition = filter.getCondition(leadingField);
+    if (leadingCondition != null && leadingCondition.isSingleValue()) {
+      return null;
+    }
+
+    Map<String, PartitionFilter.Condition<? extends Comparable>> indexConditions = new LinkedHashMap<>();
+    for (String fieldName : indexColumns.keySet()) {
+      PartitionFilter.Condition<? extends Comparable> condition = filter.getCondition(fieldName);
+      if (condition != null && (leadingCondition == null || condition.isSingleValue())) {
+        indexConditions.put(fieldName, condition);
+      }
+    }
+    if (indexConditions.isEmpty()) {
+      return null;
+    }
+    indexConditions.keySet().retainAll(getCompleteIndexes());
+    if (indexConditions.isEmpty()) {
+      return null;
+    }
+
+    List<CloseableIterator<byte[]>> indexScans = new ArrayList<>(indexConditions.size());
+    for (Map.Entry<String, PartitionFilter.Condition<? extends Comparable>> entry : indexConditions.entrySet()) {
+      String fieldName = entry.getKey();
+      PartitionFilter.Condition<? extends Comparable> condition = entry.getValue();
+      FieldType fieldType = partitioning.getFieldType(fieldName);
+      byte[] start = null;
+      byte[] end = null;
+      if (condition.getLower() != null) {
+        start = toIndexValue(condition.getLower(), fieldName, fieldType);
+      }
+      if (condition.isSingleValue()) {
+        // the index rows of a value have a \0 after the value, hence the scan must stop after value + \1
+        end = Bytes.add(start, new byte[] { 1 });
+      } else if (condition.getUpper() != null) {
+        end = toIndexValue(condition.getUpper(), fieldName, fieldType);
+      }
+      indexScans.add(partitionsTable.scanRowKeysByIndex(indexColumns.get(fieldName), start, end));
+    }
+    return indexScans.size() == 1 ? indexScans.get(0) : readSmallest(indexScans);
+  }
+
+  /**
+   * Reads from the given index scans in turns, until one of them is exhausted. That scan has the fewest matches, and
+   * finding it reads at most as many keys from each of the other scans. All given scans are closed.
+   *
+   * @return an iterator over the keys of the scan that was exhausted first
+   */
+  private CloseableIterator<byte[]> readSmallest(List<CloseableIterator<byte[]>> indexScans) {
+    List<List<byte[]>> rowKeys = new ArrayList<>(indexScans.size());
+    for (int i = 0; i < indexScans.size(); i++) {
+      rowKeys.add(new ArrayList<byte[]>());
+    }
+    try {
+      while (true) {
+        for (int i = 0; i < indexScans.size(); i++) {
+          if (!indexScans.get(i).hasNext()) {
+            final Iterator<byte[]> iterator = rowKeys.get(i).iterator();
+            return new AbstractCloseableIterator<byte[]>() {
+              @Override
+              protected byte[] computeNext() {
+                return iterator.hasNext() ? iterator.next() : endOfData();
+              }
+
+              @Override
+              public void close() {
+                // no-op
+              }
+            };
           }
-          continue;
-        }
-        if (filter != null && !filter.match(key)) {
-          continue;
-        }
-        byte[] pathBytes = row.get(RELATIVE_PATH);
-        if (pathBytes != null) {
-          consumer.consume(key, Bytes.toString(pathBytes), decodeMetadata ? metadataFromRow(row) : null);
+          rowKeys.get(i).add(indexScans.get(i).next());
         }
       }
+    } finally {
+      for (CloseableIterator<byte[]> indexScan : indexScans) {
+        indexScan.close();
+      }
     }
   }
 
+  private byte[] toIndexValue(Comparable value, String fieldName, FieldType fieldType) {
+    if (!FieldTypes.validateType(value, fieldType)) {
+      throw new IllegalArgumentException(
+        String.format("Invalid partition filter: bound for %s field '%s' has incompatible type %s",
+                      fieldType.name(), fieldName, value.getClass().getName()));
+    }
+    return FieldTypes.toBytes(value, fieldType);
+  }
+
+  // package visible for PartitionedFileSetDefinition
+  static byte[] indexColumn(String fieldName) {
+    return Bytes.add(INDEX_PREFIX, Bytes.toBytes(fieldName));
+  }
+
+  private static byte[] indexStateColumn(String fieldName) {
+    return Bytes.add(INDEX_STATE_PREFIX, Bytes.toBytes(fieldName));
+  }
+
   private PartitionMetadata metadataFromRow(Row row) {
     Map<String, String> metadata = new HashMap<>();
     for (Map.Entry<byte[], byte[]> entry : row.getColumns().entrySet()) {
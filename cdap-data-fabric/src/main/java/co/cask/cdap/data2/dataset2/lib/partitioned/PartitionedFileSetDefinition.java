@@ -43,6 +43,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Defines the partitioned dataset type. At this time, the partitions are not managed by the
@@ -78,9 +79,21 @@ public class PartitionedFileSetDefinition extends AbstractDatasetDefinition<Part
   @Override
   public DatasetSpecification configure(String instanceName, DatasetProperties properties) {
     // define the columns for indexing on the partitionsTable
+    StringBuilder indexedColumns = new StringBuilder(INDEXED_COLS);
+    Set<String> indexedFields = PartitionedFileSetProperties.getIndexedFields(properties.getProperties());
+    if (!indexedFields.isEmpty()) {
+      Partitioning partitioning = PartitionedFileSetProperties.getPartitioning(properties.getProperties());
+      for (String fieldName : indexedFields) {
+        if (partitioning == null || !partitioning.getFields().containsKey(fieldName)) {
+          throw new IllegalArgumentException(
+            String.format("Indexed field '%s' is not a field of the partitioning %s", fieldName, partitioning));
+        }
+        indexedColumns.append(',').append(Bytes.toString(PartitionedFileSetDataset.indexColumn(fieldName)));
+      }
+    }
     DatasetProperties indexedTableProperties = DatasetProperties.builder()
       .addAll(properties.getProperties())
-      .add(IndexedTableDefinition.INDEX_COLUMNS_CONF_KEY, INDEXED_COLS)
+      .add(IndexedTableDefinition.INDEX_COLUMNS_CONF_KEY, indexedColumns.toString())
       .build();
     return DatasetSpecification.builder(instanceName, getName())
       .properties(properties.getProperties())
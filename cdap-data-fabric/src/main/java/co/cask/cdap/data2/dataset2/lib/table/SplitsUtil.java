@@ -44,7 +44,7 @@ public class SplitsUtil {
    * Simplest possible implementation of getSplits. Takes the given start and end and divides the key space in
    * between into (almost) even partitions, using a long integer approximation of the keys.
    */
-  static List<KeyRange> primitiveGetSplits(int numSplits, byte[] start, byte[] stop) {
+  public static List<KeyRange> primitiveGetSplits(int numSplits, byte[] start, byte[] stop) {
     // if the range is empty, return no splits
     if (start != null && stop != null && Bytes.compareTo(start, stop) >= 0) {
       return Collections.emptyList();
@@ -17,6 +17,7 @@
 package co.cask.cdap.data2.dataset2.lib.table.hbase;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.batch.Split;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.dataset.DataSetException;
 import co.cask.cdap.api.dataset.DatasetContext;
@@ -25,12 +26,15 @@ import co.cask.cdap.api.dataset.table.ConflictDetection;
 import co.cask.cdap.api.dataset.table.Filter;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
+import co.cask.cdap.api.dataset.table.TableSplit;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data2.dataset2.lib.table.BufferingTable;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import co.cask.cdap.data2.dataset2.lib.table.IncrementValue;
+import co.cask.cdap.data2.dataset2.lib.table.KeyRange;
 import co.cask.cdap.data2.dataset2.lib.table.PutValue;
+import co.cask.cdap.data2.dataset2.lib.table.SplitsUtil;
 import co.cask.cdap.data2.dataset2.lib.table.Update;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.PrefixedNamespaces;
 import co.cask.cdap.data2.util.TableId;
@@ -48,7 +52,10 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HTable;
@@ -61,9 +68,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -174,6 +183,96 @@ public class HBaseTable extends BufferingTable {
     }
   }
 
+  /**
+   * Computes splits along the region boundaries of the underlying HBase table, so that each split carries the
+   * hostnames of the region servers that serve it. If more regions than the desired number of splits intersect the
+   * key range, adjacent regions are grouped into one split. If fewer regions intersect it, the key range of each
+   * region is divided evenly, with the same number of splits for every region, since region sizes are not known.
+   * Dividing a key range can yield fewer splits than asked for, so at most numSplits splits are returned. Falls back
+   * to {@link BufferingTable#getSplits} if the region locations cannot be obtained.
+   */
+  @Override
+  public List<Split> getSplits(int numSplits, byte[] start, byte[] stop) {
+    if (start != null && stop != null && Bytes.compareTo(start, stop) >= 0) {
+      return Collections.emptyList();
+    }
+    NavigableMap<HRegionInfo, ServerName> regions;
+    try {
+      regions = hTable.getRegionLocations();
+    } catch (IOException e) {
+      LOG.warn("Failed to get region locations for table {}. Computing splits without locality.", hTableName, e);
+      return super.getSplits(numSplits, start, stop);
+    }
+
+    // one split per region that intersects with [start, stop), bounded by start and stop
+    List<TableSplit> regionSplits = Lists.newArrayList();
+    for (Map.Entry<HRegionInfo, ServerName> entry : regions.entrySet()) {
+      byte[] regionStart = entry.getKey().getStartKey();
+      byte[] regionStop = entry.getKey().getEndKey();
+      // HBase uses empty keys for the open ends of the first and the last region
+      regionStart = regionStart.length == 0 ? null : regionStart;
+      regionStop = regionStop.length == 0 ? null : regionStop;
+      if (start != null && regionStop != null && Bytes.compareTo(regionStop, start) <= 0) {
+        continue;
+      }
+      if (stop != null && regionStart != null && Bytes.compareTo(regionStart, stop) >= 0) {
+        continue;
+      }
+      byte[] splitStart = regionStart == null || (start != null && Bytes.compareTo(start, regionStart) > 0)
+        ? start : regionStart;
+      byte[] splitStop = regionStop == null || (stop != null && Bytes.compareTo(stop, regionStop) < 0)
+        ? stop : regionStop;
+      String[] locations = entry.getValue() == null ? new String[0] : new String[] { entry.getValue().getHostname() };
+      regionSplits.add(new TableSplit(splitStart, splitStop, locations));
+    }
+    if (regionSplits.isEmpty()) {
+      return super.getSplits(numSplits, start, stop);
+    }
+    if (numSplits <= 0 || regionSplits.size() == numSplits) {
+      return Lists.<Split>newArrayList(regionSplits);
+    }
+    if (regionSplits.size() < numSplits) {
+      return subdivideRegions(regionSplits, numSplits);
+    }
+
+    // group adjacent regions so that at most numSplits splits are returned
+    List<Split> splits = Lists.newArrayListWithCapacity(numSplits);
+    int size = regionSplits.size();
+    for (int i = 0; i < numSplits; i++) {
+      int from = (int) ((long) i * size / numSplits);
+      int to = (int) ((long) (i + 1) * size / numSplits);
+      Set<String> locations = Sets.newLinkedHashSet();
+      for (TableSplit regionSplit : regionSplits.subList(from, to)) {
+        Collections.addAll(locations, regionSplit.getLocations());
+      }
+      splits.add(new TableSplit(regionSplits.get(from).getStart(), regionSplits.get(to - 1).getStop(),
+                                locations.toArray(new String[locations.size()])));
+    }
+    return splits;
+  }
+
+  /**
+   * Divides the key ranges of the given region splits into numSplits splits in total, each with the locations of
+   * the region it is part of. The first regions get one more split if numSplits is not a multiple of the number of
+   * regions.
+   */
+  private List<Split> subdivideRegions(List<TableSplit> regionSplits, int numSplits) {
+    List<Split> splits = Lists.newArrayListWithCapacity(numSplits);
+    int size = regionSplits.size();
+    for (int i = 0; i < size; i++) {
+      TableSplit regionSplit = regionSplits.get(i);
+      int regionNumSplits = numSplits / size + (i < numSplits % size ? 1 : 0);
+      List<KeyRange> ranges = SplitsUtil.primitiveGetSplits(regionNumSplits, regionSplit.getStart(),
+                                                            regionSplit.getStop());
+      for (int j = 0; j < ranges.size(); j++) {
+        // keep the open start of the region, which primitiveGetSplits replaces with the least key
+        byte[] splitStart = j == 0 ? regionSplit.getStart() : ranges.get(j).getStart();
+        splits.add(new TableSplit(splitStart, ranges.get(j).getStop(), regionSplit.getLocations()));
+      }
+    }
+    return splits;
+  }
+
   @Override
   protected void persist(NavigableMap<byte[], NavigableMap<byte[], Update>> buff) throws Exception {
     List<Put> puts = Lists.newArrayList();
@@ -137,6 +137,14 @@ final class MdsKey {
     return key.getKey();
   }
 
+  /**
+   * Returns the prefix of the metadata value row keys of all entities of the given type in the given namespace.
+   */
+  static byte[] getValueRowPrefix(String targetType, String namespaceId) {
+    MDSKey key = new MDSKey.Builder().add(MdsKey.VALUE_ROW_PREFIX).add(targetType).add(namespaceId).build();
+    return key.getKey();
+  }
+
   static byte[] getIndexRowPrefix() {
     MDSKey key = new MDSKey.Builder().add(MdsKey.INDEX_ROW_PREFIX).build();
     return key.getKey();
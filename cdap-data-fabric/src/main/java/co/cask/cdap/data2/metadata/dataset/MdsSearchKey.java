@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.metadata.dataset;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.proto.Id;
+import com.google.common.collect.ImmutableSortedSet;
+
+import java.util.SortedSet;
+
+/**
+ * Key used to store the search index of metadata. The row key is in the format:
+ * [{@link #ROW_PREFIX}][namespace]\0[targetType]\0[index]\0[value row key].
+ *
+ * Unlike the {@link MdsKey} the parts are not length prefixed, so that a scan by row prefix can be used both for
+ * exact and prefix matches of an index. Since the index value is in the row key before the target id, a search
+ * for an index in a namespace and target type is a single range scan.
+ */
+final class MdsSearchKey {
+  private static final byte[] ROW_PREFIX = {'s'};
+  private static final byte[] SEPARATOR = {0};
+
+  /**
+   * All target types that can have metadata, sorted in the order of the row keys.
+   */
+  static final SortedSet<String> TARGET_TYPES = ImmutableSortedSet.of(
+    Id.Application.class.getSimpleName(),
+    Id.Artifact.class.getSimpleName(),
+    Id.DatasetInstance.class.getSimpleName(),
+    Id.Program.class.getSimpleName(),
+    Id.Stream.class.getSimpleName(),
+    Id.Stream.View.class.getSimpleName()
+  );
+
+  /**
+   * Creates the row key of a search index row.
+   *
+   * @param namespaceId namespace of the target
+   * @param targetType type of the target
+   * @param index the index value
+   * @param valueRowKey the row key of the metadata value row that the index refers to
+   */
+  static byte[] getSearchKey(String namespaceId, String targetType, String index, byte[] valueRowKey) {
+    return Bytes.concat(getSearchPrefix(namespaceId, targetType, index, false), valueRowKey);
+  }
+
+  /**
+   * Creates the row prefix for scanning the search index.
+   *
+   * @param namespaceId the namespace to search in
+   * @param targetType the target type to search for
+   * @param index the index value to search for
+   * @param prefixMatch {@code true} to match all index values that start with the given index
+   */
+  static byte[] getSearchPrefix(String namespaceId, String targetType, String index, boolean prefixMatch) {
+    byte[] prefix = Bytes.concat(ROW_PREFIX, Bytes.toBytes(namespaceId), SEPARATOR,
+                                 Bytes.toBytes(targetType), SEPARATOR, Bytes.toBytes(index));
+    return prefixMatch ? prefix : Bytes.add(prefix, SEPARATOR);
+  }
+
+  /**
+   * Creates the prefix of the positions of the entities of a namespace and target type in a paginated search.
+   * The position of an entity is this prefix followed by the prefix of the row keys of its metadata value rows,
+   * so that entities are in the same order as in the search index rows of an exact index value.
+   *
+   * @param namespaceId namespace of the entities
+   * @param targetType type of the entities
+   */
+  static byte[] getPositionPrefix(String namespaceId, String targetType) {
+    return Bytes.concat(Bytes.toBytes(namespaceId), SEPARATOR, Bytes.toBytes(targetType), SEPARATOR);
+  }
+
+  static byte[] getSearchRowPrefix() {
+    return ROW_PREFIX;
+  }
+
+  private MdsSearchKey() {
+  }
+}
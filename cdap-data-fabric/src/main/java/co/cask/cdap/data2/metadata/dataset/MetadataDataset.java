@@ -37,9 +37,11 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Splitter;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
@@ -54,10 +56,13 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
@@ -86,6 +91,7 @@ public class MetadataDataset extends AbstractDataset {
     };
 
   static final String INDEX_COLUMN = "i";          // column for metadata indexes
+  static final String SEARCH_COLUMN = "r";         // column for the value row key in search index rows
 
   public static final String TAGS_KEY = "tags";
   public static final String KEYVALUE_SEPARATOR = ":";
@@ -334,11 +340,19 @@ public class MetadataDataset extends AbstractDataset {
     byte[] startKey = mdsKey.getKey();
     byte[] stopKey = Bytes.stopKeyForPrefix(startKey);
 
+    byte[] valueRowKey = MdsKey.getMDSValueKey(targetId, metadataKey).getKey();
+    String targetType = KeyHelper.getTargetType(targetId);
     Scanner scan = indexedTable.scan(startKey, stopKey);
     try {
       Row next;
       while ((next = scan.next()) != null) {
-        deleteIndexRow(next);
+        String namespacedIndex = next.getString(INDEX_COLUMN);
+        if (deleteIndexRow(next)) {
+          // the index column is of the form [namespace]:[index], delete the corresponding search index row
+          String namespaceId = MdsKey.getNamespaceId(new MDSKey(next.getRow()));
+          String index = namespacedIndex.substring(namespaceId.length() + KEYVALUE_SEPARATOR.length());
+          indexedTable.delete(MdsSearchKey.getSearchKey(namespaceId, targetType, index, valueRowKey));
+        }
       }
     } finally {
       scan.close();
@@ -488,7 +502,7 @@ public class MetadataDataset extends AbstractDataset {
   }
 
   @Nullable
-  private MetadataEntry convertRow(Row row) {
+  private static MetadataEntry convertRow(Row row) {
     byte[] rowKey = row.getRow();
     String targetType = MdsKey.getTargetType(rowKey);
     Id.NamespacedId namespacedId = MdsKey.getNamespacedIdFromKey(targetType, rowKey);
@@ -566,6 +580,260 @@ public class MetadataDataset extends AbstractDataset {
     return results;
   }
 
+  /**
+   * Searches entities that match the specified search query in this dataset, one page at a time.
+   *
+   * @see #search(List, String, String, Set, int, String)
+   */
+  public SearchResults search(String namespaceId, String searchQuery, Set<MetadataSearchTargetType> types,
+                              int limit, @Nullable String cursor) {
+    return search(Collections.singletonList(this), namespaceId, searchQuery, types, limit, cursor);
+  }
+
+  /**
+   * Searches entities that match the specified search query in the specified namespace and
+   * {@link Id.Namespace#SYSTEM} for the specified {@link MetadataSearchTargetType}, one page at a time.
+   * Like {@link #search(String, String, Set)}, an entity matches the query if any of the terms matches its metadata
+   * in any of the given datasets, but every entity is returned only once.
+   *
+   * Entities are returned in the order of their namespace, type and id, and the cursor is the position of the last
+   * returned entity in that order, so every page is read starting at the cursor and only until it is full. If all
+   * terms are exact, the search index rows of the terms are read, which are in the order of the entities for every
+   * namespace and type. Otherwise the metadata value rows of the namespace and type are read, which are in the same
+   * order, and the terms are matched against the indexes of every value.
+   *
+   * @param datasets the datasets to search in, usually the datasets of all {@code MetadataScope}s
+   * @param namespaceId the namespace to search in
+   * @param searchQuery the search query, which could be of two forms: [key]:[value] or just [value] and can have '*'
+   *                    at the end for a prefix search. Multiple terms are separated by spaces
+   * @param types the {@link MetadataSearchTargetType} to restrict the search to, if empty all types are searched
+   * @param limit the maximum number of entities to return
+   * @param cursor the cursor returned by a previous search with the same query to get the next page,
+   *               or {@code null} to get the first page
+   * @return a {@link SearchResults} that contains the matching entities and the cursor to get the next page
+   * @throws IllegalArgumentException if the limit is not positive or the cursor is not a cursor of this search
+   */
+  public static SearchResults search(List<MetadataDataset> datasets, String namespaceId, String searchQuery,
+                                     Set<MetadataSearchTargetType> types, int limit, @Nullable String cursor) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be positive: " + limit);
+    }
+    List<String> terms = new ArrayList<>(new LinkedHashSet<>(getFormattedSearchTerms(searchQuery)));
+    if (terms.isEmpty()) {
+      return new SearchResults(Collections.<Id.NamespacedId>emptyList(), null);
+    }
+    boolean exactTermsOnly = true;
+    for (String term : terms) {
+      exactTermsOnly = exactTermsOnly && !term.endsWith("*");
+    }
+
+    // The position prefixes of the namespaces and types to search, in the order of the positions
+    boolean includeAllTypes = types.isEmpty() || types.contains(MetadataSearchTargetType.ALL);
+    Map<byte[], ImmutablePair<String, String>> groups = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (String namespace : getSearchNamespaces(namespaceId)) {
+      for (String targetType : MdsSearchKey.TARGET_TYPES) {
+        if (includeAllTypes || types.contains(MetadataSearchTargetType.valueOfSerializedForm(targetType))) {
+          groups.put(MdsSearchKey.getPositionPrefix(namespace, targetType), ImmutablePair.of(namespace, targetType));
+        }
+      }
+    }
+
+    byte[] startAfter = cursor == null ? null : Bytes.toBytesBinary(cursor);
+    if (startAfter != null && !isPositionInGroups(startAfter, groups.keySet())) {
+      throw new IllegalArgumentException("Invalid search cursor '" + cursor + "'");
+    }
+
+    List<Id.NamespacedId> results = new ArrayList<>();
+    for (Map.Entry<byte[], ImmutablePair<String, String>> group : groups.entrySet()) {
+      byte[] groupPrefix = group.getKey();
+      byte[] entityStartAfter = null;
+      if (startAfter != null) {
+        if (Bytes.startsWith(startAfter, groupPrefix)) {
+          entityStartAfter = Arrays.copyOfRange(startAfter, groupPrefix.length, startAfter.length);
+        } else if (Bytes.compareTo(startAfter, groupPrefix) > 0) {
+          // The whole group was returned in previous pages
+          continue;
+        }
+      }
+
+      String groupNamespace = group.getValue().getFirst();
+      String targetType = group.getValue().getSecond();
+      List<Scanner> scanners = new ArrayList<>();
+      try {
+        Iterator<byte[]> entityKeys = exactTermsOnly
+          ? getIndexedEntityKeys(datasets, groupNamespace, targetType, terms, entityStartAfter, scanners)
+          : getMatchingEntityKeys(datasets, groupNamespace, targetType, terms, entityStartAfter, scanners);
+        while (entityKeys.hasNext()) {
+          byte[] entityKey = entityKeys.next();
+          results.add(MdsKey.getNamespacedIdFromKey(targetType, entityKey));
+          if (results.size() >= limit) {
+            return new SearchResults(results, Bytes.toStringBinary(Bytes.add(groupPrefix, entityKey)));
+          }
+        }
+      } finally {
+        for (Scanner scanner : scanners) {
+          scanner.close();
+        }
+      }
+    }
+    return new SearchResults(results, null);
+  }
+
+  private static boolean isPositionInGroups(byte[] position, Set<byte[]> groupPrefixes) {
+    for (byte[] groupPrefix : groupPrefixes) {
+      if (position.length > groupPrefix.length && Bytes.startsWith(position, groupPrefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the keys of the distinct entities of the given namespace and type that match any of the given exact
+   * terms in any of the given datasets, and are after the given entity key, in order. The entity key of an entity is
+   * the prefix of its metadata value row keys. Scanners that are still open when this method returns are added to the
+   * given list, to be closed by the caller.
+   */
+  private static Iterator<byte[]> getIndexedEntityKeys(List<MetadataDataset> datasets, String namespaceId,
+                                                       final String targetType, List<String> terms,
+                                                       @Nullable byte[] startAfter, List<Scanner> scanners) {
+    // For exact terms, the rows are in the order of the value row keys, which start with the entity key
+    List<Iterator<byte[]>> iterators = new ArrayList<>();
+    for (String term : terms) {
+      byte[] prefix = getSearchPrefix(namespaceId, targetType, term);
+      byte[] startKey = startAfter == null ? prefix : Bytes.stopKeyForPrefix(Bytes.add(prefix, startAfter));
+      byte[] stopKey = Bytes.stopKeyForPrefix(prefix);
+      for (MetadataDataset dataset : datasets) {
+        final Scanner scanner = dataset.indexedTable.scan(startKey, stopKey);
+        scanners.add(scanner);
+        iterators.add(new AbstractIterator<byte[]>() {
+          @Override
+          protected byte[] computeNext() {
+            Row next;
+            while ((next = scanner.next()) != null) {
+              byte[] valueRowKey = next.get(SEARCH_COLUMN);
+              if (valueRowKey != null) {
+                return getEntityKey(targetType, valueRowKey);
+              }
+            }
+            return endOfData();
+          }
+        });
+      }
+    }
+    return distinct(Iterators.mergeSorted(iterators, Bytes.BYTES_COMPARATOR));
+  }
+
+  /**
+   * Returns the keys of the distinct entities of the given namespace and type that match any of the given terms in
+   * any of the given datasets, and are after the given entity key, in order. The metadata value rows of the entities
+   * are read and matched against the terms, hence this also works for prefix terms, whose search index rows are in
+   * the order of the index values rather than of the entities. Scanners that are still open when this method returns
+   * are added to the given list, to be closed by the caller.
+   */
+  private static Iterator<byte[]> getMatchingEntityKeys(List<MetadataDataset> datasets, String namespaceId,
+                                                        final String targetType, final List<String> terms,
+                                                        @Nullable byte[] startAfter, List<Scanner> scanners) {
+    byte[] prefix = MdsKey.getValueRowPrefix(targetType, namespaceId);
+    byte[] startKey = startAfter == null ? prefix : Bytes.stopKeyForPrefix(startAfter);
+    byte[] stopKey = Bytes.stopKeyForPrefix(prefix);
+    List<Iterator<byte[]>> iterators = new ArrayList<>();
+    for (MetadataDataset dataset : datasets) {
+      final Scanner scanner = dataset.indexedTable.scan(startKey, stopKey);
+      scanners.add(scanner);
+      iterators.add(new AbstractIterator<byte[]>() {
+        private byte[] lastMatched;
+
+        @Override
+        protected byte[] computeNext() {
+          Row next;
+          while ((next = scanner.next()) != null) {
+            byte[] entityKey = getEntityKey(targetType, next.getRow());
+            // Once an entity matched, its other values need not be matched
+            if (Arrays.equals(entityKey, lastMatched)) {
+              continue;
+            }
+            MetadataEntry entry = convertRow(next);
+            if (entry != null && matchesAny(entry, terms)) {
+              lastMatched = entityKey;
+              return entityKey;
+            }
+          }
+          return endOfData();
+        }
+      });
+    }
+    return distinct(Iterators.mergeSorted(iterators, Bytes.BYTES_COMPARATOR));
+  }
+
+  /**
+   * Returns whether any of the given search terms matches any of the indexes of the given metadata entry, the same way
+   * they match the search index rows written by {@link #storeIndexes(Id.NamespacedId, String, Set)}.
+   */
+  private static boolean matchesAny(MetadataEntry entry, List<String> terms) {
+    for (String index : getIndexerForKey(entry.getKey()).getIndexes(entry)) {
+      String value = index.toLowerCase();
+      String keyValue = (entry.getKey() + KEYVALUE_SEPARATOR + index).toLowerCase();
+      for (String term : terms) {
+        if (term.endsWith("*")) {
+          String termPrefix = term.substring(0, term.lastIndexOf("*"));
+          if (value.startsWith(termPrefix) || keyValue.startsWith(termPrefix)) {
+            return true;
+          }
+        } else if (value.equals(term) || keyValue.equals(term)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the distinct elements of the given sorted iterator.
+   */
+  private static Iterator<byte[]> distinct(final Iterator<byte[]> sorted) {
+    return new AbstractIterator<byte[]>() {
+      private byte[] last;
+
+      @Override
+      protected byte[] computeNext() {
+        while (sorted.hasNext()) {
+          byte[] next = sorted.next();
+          if (last == null || !Arrays.equals(last, next)) {
+            last = next;
+            return next;
+          }
+        }
+        return endOfData();
+      }
+    };
+  }
+
+  /**
+   * Returns the entity key of the given metadata value row key.
+   */
+  private static byte[] getEntityKey(String targetType, byte[] valueRowKey) {
+    return MdsKey.getMDSValueKey(MdsKey.getNamespacedIdFromKey(targetType, valueRowKey), null).getKey();
+  }
+
+  private static byte[] getSearchPrefix(String namespaceId, String targetType, String term) {
+    boolean prefixMatch = term.endsWith("*");
+    String index = prefixMatch ? term.substring(0, term.lastIndexOf("*")) : term;
+    return MdsSearchKey.getSearchPrefix(namespaceId, targetType, index, prefixMatch);
+  }
+
+  /**
+   * Returns the namespaces to search in for the given namespace, which includes {@link Id.Namespace#SYSTEM}.
+   */
+  private static List<String> getSearchNamespaces(String namespaceId) {
+    List<String> namespaces = new ArrayList<>();
+    namespaces.add(namespaceId);
+    if (!Id.Namespace.SYSTEM.getId().equals(namespaceId)) {
+      namespaces.add(Id.Namespace.SYSTEM.getId());
+    }
+    return namespaces;
+  }
+
   /**
    * Prepares search terms from the specified search query by
    * <ol>
@@ -580,6 +848,22 @@ public class MetadataDataset extends AbstractDataset {
    * @return formatted search query which is namespaced
    */
   private Iterable<String> getSearchTerms(String namespaceId, String searchQuery) {
+    List<String> searchTerms = new ArrayList<>();
+    for (String formattedSearchTerm : getFormattedSearchTerms(searchQuery)) {
+      for (String namespace : getSearchNamespaces(namespaceId)) {
+        // for non-system namespaces, the system namespace is also included, so entities from system namespace are
+        // surfaced in the search results as well
+        searchTerms.add(namespace + KEYVALUE_SEPARATOR + formattedSearchTerm);
+      }
+    }
+    return searchTerms;
+  }
+
+  /**
+   * Splits the search query into search terms by {@link #SPACE_SEPARATOR_PATTERN}, lower cases them and handles
+   * {@link #KEYVALUE_SEPARATOR}, so searches of the pattern key:value* can be supported.
+   */
+  private static List<String> getFormattedSearchTerms(String searchQuery) {
     List<String> searchTerms = new ArrayList<>();
     for (String term : Splitter.on(SPACE_SEPARATOR_PATTERN).omitEmptyStrings().trimResults().split(searchQuery)) {
       String formattedSearchTerm = term.toLowerCase();
@@ -589,16 +873,12 @@ public class MetadataDataset extends AbstractDataset {
         String[] split = formattedSearchTerm.split(KEYVALUE_SEPARATOR, 2);
         formattedSearchTerm = split[0].trim() + KEYVALUE_SEPARATOR + split[1].trim();
       }
-      searchTerms.add(namespaceId + KEYVALUE_SEPARATOR + formattedSearchTerm);
-      // for non-system namespaces, also add the system namespace, so entities from system namespace are surfaced
-      // in the search results as well
-      if (!Id.Namespace.SYSTEM.getId().equals(namespaceId)) {
-        searchTerms.add(Id.Namespace.SYSTEM.getId() + KEYVALUE_SEPARATOR + formattedSearchTerm);
-      }
+      searchTerms.add(formattedSearchTerm);
     }
     return searchTerms;
   }
 
+
   private void write(Id.NamespacedId targetId, MetadataEntry entry, Indexer indexer) {
     String key = entry.getKey();
     MDSKey mdsValueKey = MdsKey.getMDSValueKey(targetId, key);
@@ -627,6 +907,9 @@ public class MetadataDataset extends AbstractDataset {
       indexedTable.put(getIndexPut(targetId, metadataKey, metadataKey + KEYVALUE_SEPARATOR + index));
       // store just the index value
       indexedTable.put(getIndexPut(targetId, metadataKey, index));
+      // same for the search index used by paginated search
+      indexedTable.put(getSearchIndexPut(targetId, metadataKey, metadataKey + KEYVALUE_SEPARATOR + index));
+      indexedTable.put(getSearchIndexPut(targetId, metadataKey, index));
     }
   }
 
@@ -646,6 +929,23 @@ public class MetadataDataset extends AbstractDataset {
     return put;
   }
 
+  /**
+   * Creates a {@link Put} for a search index row of a metadata index
+   *
+   * @param targetId the {@link Id.NamespacedId} from which the metadata index has to be created
+   * @param metadataKey the key of the metadata entry
+   * @param index the index for this metadata
+   * @return {@link Put} which is a search index row with the value row key in the {@link #SEARCH_COLUMN}
+   */
+  private Put getSearchIndexPut(Id.NamespacedId targetId, String metadataKey, String index) {
+    MDSKey mdsValueKey = MdsKey.getMDSValueKey(targetId, metadataKey);
+    byte[] searchKey = MdsSearchKey.getSearchKey(MdsKey.getNamespaceId(mdsValueKey), KeyHelper.getTargetType(targetId),
+                                                 index.toLowerCase(), mdsValueKey.getKey());
+    Put put = new Put(searchKey);
+    put.add(Bytes.toBytes(SEARCH_COLUMN), mdsValueKey.getKey());
+    return put;
+  }
+
   /**
    * Snapshots the metadata for the given targetId at the given time.
    * @param targetId target id for which metadata needs snapshotting
@@ -718,11 +1018,21 @@ public class MetadataDataset extends AbstractDataset {
         }
       }
     }
+    byte[] searchStartPrefix = MdsSearchKey.getSearchRowPrefix();
+    byte[] searchStopPrefix = Bytes.stopKeyForPrefix(searchStartPrefix);
+    try (Scanner scanner = indexedTable.scan(searchStartPrefix, searchStopPrefix)) {
+      while (count < limit && ((row = scanner.next()) != null)) {
+        if (row.get(SEARCH_COLUMN) != null) {
+          indexedTable.delete(row.getRow());
+          count++;
+        }
+      }
+    }
     return count;
   }
 
   // TODO: CDAP-5663 The entire logic of mapping between Indexers and keys should be made internal to MetadataDataset
-  private Indexer getIndexerForKey(String key) {
+  private static Indexer getIndexerForKey(String key) {
     if ("schema".equals(key)) {
       return new SchemaIndexer();
     }
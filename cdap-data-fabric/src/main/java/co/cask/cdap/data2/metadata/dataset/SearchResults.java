@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.metadata.dataset;
+
+import co.cask.cdap.proto.Id;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * A page of results of a paginated search in the {@link MetadataDataset}.
+ */
+public final class SearchResults {
+  private final List<Id.NamespacedId> results;
+  private final String cursor;
+
+  public SearchResults(List<Id.NamespacedId> results, @Nullable String cursor) {
+    this.results = results;
+    this.cursor = cursor;
+  }
+
+  /**
+   * @return the entities matching the search, in index order
+   */
+  public List<Id.NamespacedId> getResults() {
+    return results;
+  }
+
+  /**
+   * @return the cursor to pass to the next search to get the next page of results, or {@code null} if
+   *         there are no more results
+   */
+  @Nullable
+  public String getCursor() {
+    return cursor;
+  }
+}
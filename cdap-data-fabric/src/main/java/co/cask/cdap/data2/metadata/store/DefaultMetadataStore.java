@@ -28,6 +28,7 @@ import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.data2.metadata.dataset.Metadata;
 import co.cask.cdap.data2.metadata.dataset.MetadataDataset;
 import co.cask.cdap.data2.metadata.dataset.MetadataEntry;
+import co.cask.cdap.data2.metadata.dataset.SearchResults;
 import co.cask.cdap.data2.metadata.indexer.Indexer;
 import co.cask.cdap.data2.metadata.publisher.MetadataChangePublisher;
 import co.cask.cdap.data2.transaction.Transactions;
@@ -36,11 +37,14 @@ import co.cask.cdap.proto.audit.AuditType;
 import co.cask.cdap.proto.metadata.MetadataChangeRecord;
 import co.cask.cdap.proto.metadata.MetadataRecord;
 import co.cask.cdap.proto.metadata.MetadataScope;
+import co.cask.cdap.proto.metadata.MetadataSearchResponse;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecord;
 import co.cask.cdap.proto.metadata.MetadataSearchTargetType;
 import co.cask.tephra.TransactionExecutor;
 import co.cask.tephra.TransactionExecutorFactory;
+import co.cask.tephra.TransactionFailureException;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
@@ -59,6 +63,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nullable;
 
@@ -74,6 +79,7 @@ public class DefaultMetadataStore implements MetadataStore {
   private static final Map<String, String> EMPTY_PROPERTIES = ImmutableMap.of();
   private static final Set<String> EMPTY_TAGS = ImmutableSet.of();
   private static final int BATCH_SIZE = 1000;
+  private static final List<MetadataScope> SEARCH_SCOPES = ImmutableList.of(MetadataScope.USER, MetadataScope.SYSTEM);
 
   private static final Comparator<Map.Entry<Id.NamespacedId, Integer>> SEARCH_RESULT_DESC_SCORE_COMPARATOR =
     new Comparator<Map.Entry<Id.NamespacedId, Integer>>() {
@@ -405,6 +411,45 @@ public class DefaultMetadataStore implements MetadataStore {
     return addMetadataToResults(resultList, systemMetadata, userMetadata);
   }
 
+  @Override
+  public MetadataSearchResponse searchMetadataOnType(final String namespaceId, final String searchQuery,
+                                                     final Set<MetadataSearchTargetType> types, final int limit,
+                                                     @Nullable final String cursor) {
+    // Both scopes are searched in the same transaction, as one stream of entities, so that an entity is returned
+    // only once even if it has metadata in both scopes, and terms can match metadata of different scopes
+    final List<MetadataDataset> datasets = new ArrayList<>();
+    for (MetadataScope scope : SEARCH_SCOPES) {
+      datasets.add(newMetadataDataset(scope));
+    }
+    TransactionExecutor txExecutor = Transactions.createTransactionExecutor(txExecutorFactory, datasets);
+    SearchResults results;
+    try {
+      results = txExecutor.execute(new Callable<SearchResults>() {
+        @Override
+        public SearchResults call() throws Exception {
+          return MetadataDataset.search(datasets, namespaceId, searchQuery, types, limit, cursor);
+        }
+      });
+    } catch (TransactionFailureException e) {
+      // an invalid limit or cursor is propagated as is, so that it can be reported as a bad request
+      Throwables.propagateIfInstanceOf(e.getCause(), IllegalArgumentException.class);
+      throw Throwables.propagate(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    }
+
+    // Fetch metadata for entities in the result list
+    Set<Id.NamespacedId> entityIds = new LinkedHashSet<>(results.getResults());
+    Map<Id.NamespacedId, Metadata> systemMetadata = fetchMetadata(entityIds, MetadataScope.SYSTEM);
+    Map<Id.NamespacedId, Metadata> userMetadata = fetchMetadata(entityIds, MetadataScope.USER);
+    Set<MetadataSearchResultRecord> records = new LinkedHashSet<>();
+    for (Id.NamespacedId entityId : entityIds) {
+      records.add(createSearchResultRecord(entityId, systemMetadata, userMetadata));
+    }
+    return new MetadataSearchResponse(records, results.getCursor());
+  }
+
   private Map<Id.NamespacedId, Metadata> fetchMetadata(final Set<Id.NamespacedId> entityIds, MetadataScope scope) {
     Set<Metadata> metadataSet =
       execute(new TransactionExecutor.Function<MetadataDataset, Set<Metadata>>() {
@@ -425,27 +470,34 @@ public class DefaultMetadataStore implements MetadataStore {
                                                        Map<Id.NamespacedId, Metadata> userMetadata) {
     Set<MetadataSearchResultRecord> result = new LinkedHashSet<>();
     for (Map.Entry<Id.NamespacedId, Integer> entry : results) {
-      ImmutableMap.Builder<MetadataScope, co.cask.cdap.proto.metadata.Metadata> builder = ImmutableMap.builder();
-      // Add system metadata
-      Metadata metadata = systemMetadata.get(entry.getKey());
-      if (metadata != null) {
-        builder.put(MetadataScope.SYSTEM,
-                    new co.cask.cdap.proto.metadata.Metadata(metadata.getProperties(), metadata.getTags()));
-      }
+      result.add(createSearchResultRecord(entry.getKey(), systemMetadata, userMetadata));
+    }
+    return result;
+  }
 
-      // Add user metadata
-      metadata = userMetadata.get(entry.getKey());
-      if (metadata != null) {
-        builder.put(MetadataScope.USER,
-                    new co.cask.cdap.proto.metadata.Metadata(metadata.getProperties(), metadata.getTags()));
-      }
+  private MetadataSearchResultRecord createSearchResultRecord(Id.NamespacedId entityId,
+                                                              Map<Id.NamespacedId, Metadata> systemMetadata,
+                                                              Map<Id.NamespacedId, Metadata> userMetadata) {
+    ImmutableMap.Builder<MetadataScope, co.cask.cdap.proto.metadata.Metadata> builder = ImmutableMap.builder();
+    // Add system metadata
+    Metadata metadata = systemMetadata.get(entityId);
+    if (metadata != null) {
+      builder.put(MetadataScope.SYSTEM,
+                  new co.cask.cdap.proto.metadata.Metadata(metadata.getProperties(), metadata.getTags()));
+    }
 
-      // Create result
-      result.add(new MetadataSearchResultRecord(entry.getKey(), builder.build()));
+    // Add user metadata
+    metadata = userMetadata.get(entityId);
+    if (metadata != null) {
+      builder.put(MetadataScope.USER,
+                  new co.cask.cdap.proto.metadata.Metadata(metadata.getProperties(), metadata.getTags()));
     }
-    return result;
+
+    // Create result
+    return new MetadataSearchResultRecord(entityId, builder.build());
   }
 
+
   @Override
   public Set<MetadataRecord> getSnapshotBeforeTime(final Set<Id.NamespacedId> entityIds, final long timeMillis) {
     return ImmutableSet.<MetadataRecord>builder()
@@ -335,6 +335,19 @@ public class IndexedTableTest {
           assertEmpty(scanner);
         }
       });
+
+      txnl.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          // only read the row keys for the idx value range [idx2, idx5)
+          try (CloseableIterator<byte[]> rowKeys = iTable.scanRowKeysByIndex(idxCol, idx2, idx5)) {
+            Assert.assertArrayEquals(keyB, rowKeys.next());
+            Assert.assertArrayEquals(keyA, rowKeys.next());
+            Assert.assertArrayEquals(keyE, rowKeys.next());
+            Assert.assertFalse(rowKeys.hasNext());
+          }
+        }
+      });
     } finally {
       dsFrameworkUtil.deleteInstance(indexRangedLookupDs);
     }
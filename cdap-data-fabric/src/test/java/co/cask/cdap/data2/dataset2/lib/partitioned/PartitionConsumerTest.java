@@ -17,6 +17,9 @@
 package co.cask.cdap.data2.dataset2.lib.partitioned;
 
 import co.cask.cdap.api.Predicate;
+import co.cask.cdap.api.dataset.DatasetProperties;
+import co.cask.cdap.api.dataset.lib.IndexedTable;
+import co.cask.cdap.api.dataset.lib.IndexedTableDefinition;
 import co.cask.cdap.api.dataset.lib.Partition;
 import co.cask.cdap.api.dataset.lib.PartitionDetail;
 import co.cask.cdap.api.dataset.lib.PartitionFilter;
@@ -28,6 +31,8 @@ import co.cask.cdap.api.dataset.lib.partitioned.ConcurrentPartitionConsumer;
 import co.cask.cdap.api.dataset.lib.partitioned.ConsumablePartition;
 import co.cask.cdap.api.dataset.lib.partitioned.ConsumerConfiguration;
 import co.cask.cdap.api.dataset.lib.partitioned.ConsumerWorkingSet;
+import co.cask.cdap.api.dataset.lib.partitioned.IndexedTablePartitionConsumer;
+import co.cask.cdap.api.dataset.lib.partitioned.IndexedTableWorkingSet;
 import co.cask.cdap.api.dataset.lib.partitioned.PartitionAcceptor;
 import co.cask.cdap.api.dataset.lib.partitioned.PartitionConsumer;
 import co.cask.cdap.api.dataset.lib.partitioned.PartitionConsumerResult;
@@ -924,6 +929,102 @@ public class PartitionConsumerTest {
     });
   }
 
+  @Test
+  public void testIndexedTablePartitionConsumer() throws Exception {
+    final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(pfsInstance);
+    final TransactionAware txAwareDataset = (TransactionAware) dataset;
+
+    Id.DatasetInstance stateInstance = Id.DatasetInstance.from(DatasetFrameworkTestUtil.NAMESPACE_ID, "state");
+    dsFrameworkUtil.createInstance("indexedTable", stateInstance, DatasetProperties.builder()
+      .add(IndexedTableDefinition.INDEX_COLUMNS_CONF_KEY, IndexedTableWorkingSet.INDEX_COLUMN)
+      .build());
+    try {
+      final IndexedTable stateTable = dsFrameworkUtil.getInstance(stateInstance);
+
+      final Set<PartitionKey> partitionKeys = new HashSet<>();
+      for (int i = 0; i < 10; i++) {
+        partitionKeys.add(generateUniqueKey());
+      }
+
+      // consumers with the same name share the same working set
+      ConsumerConfiguration configuration = ConsumerConfiguration.builder().setMaxRetries(1).build();
+      final PartitionConsumer partitionConsumer1 =
+        new IndexedTablePartitionConsumer(dataset, stateTable, "consumer", configuration);
+      final PartitionConsumer partitionConsumer2 =
+        new IndexedTablePartitionConsumer(dataset, stateTable, "consumer", configuration);
+      // a consumer that considers all in progress partitions to be expired
+      final PartitionConsumer expiringConsumer =
+        new IndexedTablePartitionConsumer(dataset, stateTable, "consumer", configuration) {
+          @Override
+          protected long getExpiryBorder() {
+            return Long.MAX_VALUE;
+          }
+        };
+      // a consumer with a different name has its own working set in the same table
+      final PartitionConsumer otherConsumer = new IndexedTablePartitionConsumer(dataset, stateTable, "other");
+
+      dsFrameworkUtil.newInMemoryTransactionExecutor(txAwareDataset).execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          for (PartitionKey partitionKey : partitionKeys) {
+            dataset.getPartitionOutput(partitionKey).addPartition();
+          }
+        }
+      });
+
+      TransactionExecutor txExecutor =
+        dsFrameworkUtil.newInMemoryTransactionExecutor(txAwareDataset, (TransactionAware) stateTable);
+      txExecutor.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          List<PartitionDetail> consumedBy1 = partitionConsumer1.consumePartitions(1).getPartitions();
+          Assert.assertEquals(1, consumedBy1.size());
+
+          // partitionConsumer2 only gets the partitions that are not in progress by partitionConsumer1
+          List<PartitionDetail> consumedBy2 = partitionConsumer2.consumePartitions().getPartitions();
+          Assert.assertEquals(9, consumedBy2.size());
+          Assert.assertTrue(partitionConsumer2.consumePartitions().getPartitions().isEmpty());
+
+          Assert.assertEquals(partitionKeys, toKeys(otherConsumer.consumePartitions().getPartitions()));
+
+          // aborting the partition makes it available again
+          partitionConsumer1.onFinish(consumedBy1, false);
+          try {
+            partitionConsumer1.onFinish(consumedBy1, false);
+            Assert.fail("Expected not to be able to abort a partition that is not IN_PROGRESS");
+          } catch (IllegalStateException expected) {
+          }
+
+          // putting back the partitions of partitionConsumer2 makes them available, without counting as a failure
+          partitionConsumer2.untake(consumedBy2);
+          Assert.assertEquals(partitionKeys, toKeys(partitionConsumer1.consumePartitions().getPartitions()));
+
+          partitionConsumer1.onFinish(consumedBy2, true);
+          try {
+            partitionConsumer1.onFinish(consumedBy2, true);
+            Assert.fail("Expected not to be able to commit a partition that was already committed");
+          } catch (IllegalArgumentException expected) {
+          }
+
+          // the aborted partition has been retried the maximum number of times, so expiring it discards it
+          PartitionConsumerResult result = expiringConsumer.consumePartitions();
+          Assert.assertTrue(result.getPartitions().isEmpty());
+          Assert.assertEquals(toKeys(consumedBy1), toKeys(result.getFailedPartitions()));
+
+          // all partitions are processed, and removed from the working set
+          Assert.assertTrue(partitionConsumer2.consumePartitions().getPartitions().isEmpty());
+          Assert.assertEquals(0, new IndexedTableWorkingSet(stateTable, "consumer").size());
+          Assert.assertEquals(10, new IndexedTableWorkingSet(stateTable, "other").size());
+          // counting the working set stops at the limit
+          Assert.assertEquals(4, new IndexedTableWorkingSet(stateTable, "other").size(4));
+          Assert.assertEquals(10, new IndexedTableWorkingSet(stateTable, "other").size(20));
+        }
+      });
+    } finally {
+      dsFrameworkUtil.deleteInstance(stateInstance);
+    }
+  }
+
   private int counter = 0;
 
   // generates unique partition keys, where the 'i' field is incrementing from 0 upwards on each returned key
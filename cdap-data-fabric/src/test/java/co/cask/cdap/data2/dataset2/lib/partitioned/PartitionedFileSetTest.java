@@ -36,6 +36,7 @@ import co.cask.tephra.TransactionAware;
 import co.cask.tephra.TransactionContext;
 import co.cask.tephra.TransactionExecutor;
 import co.cask.tephra.inmemory.InMemoryTxSystemClient;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -508,6 +509,185 @@ public class PartitionedFileSetTest {
     });
   }
 
+  @Test
+  public void testAddPartitions() throws Exception {
+    final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(pfsInstance);
+    final Map<PartitionKey, String> partitions = new HashMap<>();
+    for (int i = 0; i < 5; i++) {
+      PartitionKey key = generateUniqueKey();
+      partitions.put(key, dataset.getPartitionOutput(key).getRelativePath());
+    }
+    final Map<String, String> metadata = ImmutableMap.of("key", "value");
+
+    dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        dataset.addPartitions(partitions, metadata);
+        // adding the same partitions again in the same transaction is tolerated
+        dataset.addPartitions(partitions, metadata);
+      }
+    });
+
+    dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (Map.Entry<PartitionKey, String> partition : partitions.entrySet()) {
+          PartitionDetail partitionDetail = dataset.getPartition(partition.getKey());
+          Assert.assertNotNull(partitionDetail);
+          Assert.assertEquals(partition.getValue(), partitionDetail.getRelativePath());
+          Assert.assertEquals(metadata, partitionDetail.getMetadata().asMap());
+        }
+
+        // none of the partitions is added if one of them already exists
+        Map<PartitionKey, String> morePartitions = new HashMap<>();
+        PartitionKey newKey = generateUniqueKey();
+        morePartitions.put(newKey, dataset.getPartitionOutput(newKey).getRelativePath());
+        morePartitions.put(Iterables.getFirst(partitions.keySet(), null), "some/path");
+        try {
+          dataset.addPartitions(morePartitions, metadata);
+          Assert.fail("Expected adding an existing partition to fail.");
+        } catch (DataSetException e) {
+          // expected
+        }
+        Assert.assertNull(dataset.getPartition(newKey));
+      }
+    });
+  }
+
+  @Test
+  public void testIndexedFields() throws Exception {
+    Id.DatasetInstance indexedInstance = Id.DatasetInstance.from(DatasetFrameworkTestUtil.NAMESPACE_ID, "indexed");
+    dsFrameworkUtil.createInstance("partitionedFileSet", indexedInstance, PartitionedFileSetProperties.builder()
+      .setPartitioning(PARTITIONING_1)
+      .setIndexedFields("i", "l")
+      .setBasePath("indexedDir")
+      .build());
+    try {
+      final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(indexedInstance);
+      final Set<PartitionKey> keys = new HashSet<>();
+      for (String s : new String[] { "a", "b", "c" }) {
+        for (int i = -5; i < 5; i++) {
+          keys.add(PartitionKey.builder()
+                     .addStringField("s", s)
+                     .addIntField("i", i)
+                     .addLongField("l", (long) (i % 3))
+                     .build());
+        }
+      }
+
+      dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          for (PartitionKey key : keys) {
+            dataset.getPartitionOutput(key).addPartition();
+          }
+        }
+      });
+
+      final List<PartitionFilter> filters = ImmutableList.of(
+        PartitionFilter.builder().addValueCondition("i", 3).build(),
+        PartitionFilter.builder().addValueCondition("i", -3).build(),
+        PartitionFilter.builder().addRangeCondition("i", -2, 4).addValueCondition("l", 1L).build(),
+        PartitionFilter.builder().addValueCondition("s", "b").addRangeCondition("i", null, 0).build(),
+        PartitionFilter.builder().addRangeCondition("l", 0L, null).addRangeCondition("i", 4, null).build(),
+        PartitionFilter.builder().addValueCondition("l", 7L).build(),
+        PartitionFilter.builder().addValueCondition("i", 2).addValueCondition("l", 2L).build(),
+        PartitionFilter.builder().addRangeCondition("s", "b", null).addValueCondition("i", 1).build());
+      validateFilters(dataset, keys, filters);
+
+      // the indexes are updated when partitions are dropped
+      dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          PartitionFilter filter = PartitionFilter.builder().addValueCondition("i", 3).build();
+          for (PartitionDetail partition : dataset.getPartitions(filter)) {
+            dataset.dropPartition(partition.getPartitionKey());
+          }
+          Assert.assertTrue(dataset.getPartitions(filter).isEmpty());
+        }
+      });
+    } finally {
+      dsFrameworkUtil.deleteInstance(indexedInstance);
+    }
+  }
+
+  @Test
+  public void testIndexedFieldOnExistingDataset() throws Exception {
+    Id.DatasetInstance instance = Id.DatasetInstance.from(DatasetFrameworkTestUtil.NAMESPACE_ID, "indexedLater");
+    dsFrameworkUtil.createInstance("partitionedFileSet", instance, PartitionedFileSetProperties.builder()
+      .setPartitioning(PARTITIONING_1)
+      .setBasePath("indexedLaterDir")
+      .build());
+    try {
+      Set<PartitionKey> keys = new HashSet<>();
+      addPartitionsForInts(instance, keys, 0, 5);
+
+      // index a field of the dataset, which already has partitions that are not in the index
+      dsFrameworkUtil.getFramework().updateInstance(instance, PartitionedFileSetProperties.builder()
+        .setPartitioning(PARTITIONING_1)
+        .setIndexedFields("i")
+        .setBasePath("indexedLaterDir")
+        .build());
+      PartitionedFileSet dataset = addPartitionsForInts(instance, keys, 5, 10);
+
+      List<PartitionFilter> filters = ImmutableList.of(
+        PartitionFilter.builder().addValueCondition("i", 1).build(),
+        PartitionFilter.builder().addValueCondition("i", 7).build(),
+        PartitionFilter.builder().addRangeCondition("i", 3, 8).build());
+      validateFilters(dataset, keys, filters);
+    } finally {
+      dsFrameworkUtil.deleteInstance(instance);
+    }
+  }
+
+  // adds partitions for string values "a" and "b" and the int values in the given range
+  private PartitionedFileSet addPartitionsForInts(Id.DatasetInstance instance, Set<PartitionKey> keys,
+                                                  int fromInt, int toInt) throws Exception {
+    final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(instance);
+    final Set<PartitionKey> newKeys = new HashSet<>();
+    for (String s : new String[] { "a", "b" }) {
+      for (int i = fromInt; i < toInt; i++) {
+        newKeys.add(PartitionKey.builder()
+                      .addStringField("s", s)
+                      .addIntField("i", i)
+                      .addLongField("l", (long) (i % 3))
+                      .build());
+      }
+    }
+    dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (PartitionKey key : newKeys) {
+          dataset.getPartitionOutput(key).addPartition();
+        }
+      }
+    });
+    keys.addAll(newKeys);
+    return dataset;
+  }
+
+  private void validateFilters(final PartitionedFileSet dataset, final Set<PartitionKey> keys,
+                               final List<PartitionFilter> filters) throws Exception {
+    dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (PartitionFilter filter : filters) {
+          Set<PartitionKey> expected = new HashSet<>();
+          for (PartitionKey key : keys) {
+            if (filter.match(key)) {
+              expected.add(key);
+            }
+          }
+          Set<PartitionKey> actual = new HashSet<>();
+          for (PartitionDetail partition : dataset.getPartitions(filter)) {
+            actual.add(partition.getPartitionKey());
+          }
+          Assert.assertEquals("Partitions for filter " + filter, expected, actual);
+        }
+      }
+    });
+  }
+
   @Test
   public void testUpdateMetadata() throws Exception {
     final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(pfsInstance);
@@ -36,6 +36,7 @@ import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -444,6 +445,135 @@ public class MetadataDatasetTest {
     dataset.removeProperties(sysArtifact);
   }
 
+  @Test
+  public void testPaginatedSearch() throws Exception {
+    MetadataDataset dataset =
+      getDataset(Id.DatasetInstance.from(DatasetFrameworkTestUtil.NAMESPACE_ID, "testPaginatedSearch"));
+    Id.DatasetInstance dataset2 = Id.DatasetInstance.from("ns1", "ds2");
+    Id.DatasetInstance dataset3 = Id.DatasetInstance.from("ns1", "ds3");
+    dataset.addTags(app1, "common", "tag1");
+    dataset.addTags(flow1, "common", "tag1", "tag2");
+    dataset.addTags(dataset1, "common", "tag2");
+    dataset.addTags(dataset2, "common");
+    dataset.setProperty(dataset2, "key1", "common");
+    dataset.addTags(dataset3, "common");
+    dataset.addTags(appNs2, "common");
+
+    // Fetch all entities with the common tag one page at a time
+    Set<MetadataSearchTargetType> allTypes = ImmutableSet.of();
+    List<Id.NamespacedId> allResults = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      SearchResults results = dataset.search("ns1", "common", allTypes, 2, cursor);
+      Assert.assertTrue(results.getResults().size() <= 2);
+      allResults.addAll(results.getResults());
+      cursor = results.getCursor();
+      pages++;
+    } while (cursor != null);
+    Assert.assertEquals(5, allResults.size());
+    Assert.assertEquals(ImmutableSet.<Id.NamespacedId>of(app1, flow1, dataset1, dataset2, dataset3),
+                        Sets.newHashSet(allResults));
+    Assert.assertTrue(pages >= 3);
+
+    // Type filter is applied in the scan
+    SearchResults results = dataset.search("ns1", "common", ImmutableSet.of(MetadataSearchTargetType.PROGRAM), 10,
+                                           null);
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(flow1), results.getResults());
+    Assert.assertNull(results.getCursor());
+
+    // Like the search without a limit, entities that match any of the terms are returned, each of them once
+    results = dataset.search("ns1", "tag1 tag2", allTypes, 10, null);
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(app1, dataset1, flow1), results.getResults());
+    // 'tags:tag*' matches the tags of app1, flow1 and dataset1, and 'key1:comm*' the property of dataset2
+    results = dataset.search("ns1", "tags:tag* key1:comm*", allTypes, 10, null);
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(app1, dataset1, dataset2, flow1), results.getResults());
+    results = dataset.search("ns1", "tags:tag2 key1:comm*", allTypes, 2, null);
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(dataset1, dataset2), results.getResults());
+    results = dataset.search("ns1", "tags:tag2 key1:comm*", allTypes, 2, results.getCursor());
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(flow1), results.getResults());
+    results = dataset.search("ns1", "key1:value* unknown", allTypes, 10, null);
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(), results.getResults());
+
+    // Removed indexes are not returned
+    dataset.removeTags(flow1, "tag2");
+    results = dataset.search("ns1", "tag2", allTypes, 10, null);
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(dataset1), results.getResults());
+    results = dataset.search("ns1", "tag2*", allTypes, 10, null);
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(dataset1), results.getResults());
+
+    // Exact terms use the search index, which is restored by rebuilding the indexes, as done on upgrade
+    while (dataset.deleteAllIndexes(100) > 0) {
+      // continue deleting
+    }
+    results = dataset.search("ns1", "tag1", allTypes, 10, null);
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(), results.getResults());
+    byte[] startRowKey = dataset.rebuildIndexes(null, 100);
+    while (startRowKey != null) {
+      startRowKey = dataset.rebuildIndexes(startRowKey, 100);
+    }
+    results = dataset.search("ns1", "tag1", allTypes, 10, null);
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(app1, flow1), results.getResults());
+  }
+
+  @Test
+  public void testPaginatedSearchAcrossDatasets() throws Exception {
+    MetadataDataset userDataset =
+      getDataset(Id.DatasetInstance.from(DatasetFrameworkTestUtil.NAMESPACE_ID, "testPaginatedSearchUser"));
+    MetadataDataset systemDataset =
+      getDataset(Id.DatasetInstance.from(DatasetFrameworkTestUtil.NAMESPACE_ID, "testPaginatedSearchSystem"));
+    List<MetadataDataset> datasets = ImmutableList.of(userDataset, systemDataset);
+    Id.DatasetInstance dataset2 = Id.DatasetInstance.from("ns1", "ds2");
+    // The index rows of an entity for a prefix term are not contiguous, and entities have metadata in both datasets
+    userDataset.addTags(dataset1, "alpha", "alpine");
+    systemDataset.addTags(dataset1, "alps");
+    userDataset.addTags(dataset2, "alpha");
+    userDataset.setProperty(dataset2, "owner", "alice");
+    systemDataset.addTags(dataset2, "alpine");
+    systemDataset.addTags(app1, "alpha");
+    userDataset.addTags(flow1, "alpine");
+    systemDataset.addTags(flow1, "alpine");
+    systemDataset.addTags(appNs2, "alpine");
+
+    // Every entity is returned once across all pages, in the order of namespace, type and id
+    for (int limit = 1; limit <= 5; limit++) {
+      Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(app1, dataset1, dataset2, flow1),
+                          searchAllPages(datasets, "alp*", limit));
+      Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(dataset1, dataset2, flow1),
+                          searchAllPages(datasets, "alpine", limit));
+    }
+
+    // Entities that match terms in different datasets, or multiple terms, are returned once
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(dataset1, dataset2),
+                        searchAllPages(datasets, "alps owner:alice", 1));
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(app1, dataset1, dataset2),
+                        searchAllPages(datasets, "alpha alps", 1));
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(dataset1, dataset2),
+                        searchAllPages(datasets, "owner:ali* alps", 1));
+    Assert.assertEquals(ImmutableList.<Id.NamespacedId>of(), searchAllPages(datasets, "owner:bob owner:bo*", 1));
+
+    // A cursor that was not returned by the search is rejected
+    try {
+      MetadataDataset.search(datasets, "ns1", "alpine", ImmutableSet.<MetadataSearchTargetType>of(), 1, "invalid");
+      Assert.fail("Expected the search with an invalid cursor to fail");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private List<Id.NamespacedId> searchAllPages(List<MetadataDataset> datasets, String searchQuery, int limit) {
+    List<Id.NamespacedId> results = new ArrayList<>();
+    String cursor = null;
+    do {
+      SearchResults page = MetadataDataset.search(datasets, "ns1", searchQuery,
+                                                  ImmutableSet.<MetadataSearchTargetType>of(), limit, cursor);
+      Assert.assertTrue(page.getResults().size() <= limit);
+      results.addAll(page.getResults());
+      cursor = page.getCursor();
+    } while (cursor != null);
+    return results;
+  }
+
   @Test
   public void testUpdateSearch() throws Exception {
     dataset.setProperty(flow1, "key1", "value1");
@@ -24,6 +24,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.Closeable;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
@@ -86,6 +87,16 @@ public interface ExploreClient extends Closeable {
    */
   ListenableFuture<Void> addPartition(Id.DatasetInstance datasetInstance, PartitionKey key, String path);
 
+  /**
+   * Add multiple partitions to a dataset's table, with a single statement.
+   *
+   * @param datasetInstance instance of the dataset
+   * @param partitions map from partition key to the file system path of the partition
+   * @return a {@code Future} object that can either successfully complete, or enter a failed state depending on
+   *         the success of the operation.
+   */
+  ListenableFuture<Void> addPartitions(Id.DatasetInstance datasetInstance, Map<PartitionKey, String> partitions);
+
   /**
    * Drop a partition from a dataset's table.
    *
@@ -31,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.SQLException;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -121,6 +122,22 @@ public class ExploreFacade {
     handleExploreFuture(futureSuccess, "add", "partition", datasetInstance.getId());
   }
 
+  /**
+   * Adds multiple partitions to the explore table of a dataset, with a single statement.
+   *
+   * @param datasetInstance dataset instance id.
+   * @param partitions map from partition key to the file system path of the partition.
+   */
+  public void addPartitions(Id.DatasetInstance datasetInstance,
+                            Map<PartitionKey, String> partitions) throws ExploreException, SQLException {
+    if (!exploreEnabled || partitions.isEmpty()) {
+      return;
+    }
+
+    ListenableFuture<Void> futureSuccess = exploreClient.addPartitions(datasetInstance, partitions);
+    handleExploreFuture(futureSuccess, "add", "partitions", datasetInstance.getId());
+  }
+
   public void dropPartition(Id.DatasetInstance datasetInstance,
                             PartitionKey key) throws ExploreException, SQLException {
     if (!exploreEnabled) {
@@ -61,6 +61,7 @@ import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.URL;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -141,6 +142,25 @@ abstract class ExploreHttpClient implements Explore {
                                              key, datasetInstance.toString(), response));
   }
 
+  protected QueryHandle doAddPartitions(Id.DatasetInstance datasetInstance,
+                                        Map<PartitionKey, String> partitions) throws ExploreException {
+    List<Map<String, String>> args = new ArrayList<>(partitions.size());
+    for (Map.Entry<PartitionKey, String> partition : partitions.entrySet()) {
+      Map<String, String> partitionArgs = Maps.newHashMap();
+      PartitionedFileSetArguments.setOutputPartitionKey(partitionArgs, partition.getKey());
+      partitionArgs.put("path", partition.getValue());
+      args.add(partitionArgs);
+    }
+    HttpResponse response = doPost(String.format("namespaces/%s/data/explore/datasets/%s/addPartitions",
+                                                 datasetInstance.getNamespaceId(), datasetInstance.getId()),
+                                   GSON.toJson(args), null);
+    if (response.getResponseCode() == HttpURLConnection.HTTP_OK) {
+      return QueryHandle.fromId(parseResponseAsMap(response, "handle"));
+    }
+    throw new ExploreException(String.format("Cannot add %d partitions to dataset %s. Reason: %s",
+                                             partitions.size(), datasetInstance.toString(), response));
+  }
+
   protected QueryHandle doDropPartition(Id.DatasetInstance datasetInstance, PartitionKey key) throws ExploreException {
     Map<String, String> args = Maps.newHashMap();
     PartitionedFileSetArguments.setOutputPartitionKey(args, key);
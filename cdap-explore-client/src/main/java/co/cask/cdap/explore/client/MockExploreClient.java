@@ -85,6 +85,12 @@ public class MockExploreClient extends AbstractIdleService implements ExploreCli
     return null;
   }
 
+  @Override
+  public ListenableFuture<Void> addPartitions(Id.DatasetInstance datasetInstance,
+                                              Map<PartitionKey, String> partitions) {
+    return null;
+  }
+
   @Override
   public ListenableFuture<Void> dropPartition(Id.DatasetInstance datasetInstance, PartitionKey key) {
     return null;
@@ -54,6 +54,8 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 import javax.ws.rs.POST;
@@ -215,34 +217,12 @@ public class ExploreExecutorHttpHandler extends AbstractHttpHandler {
   public void addPartition(HttpRequest request, HttpResponder responder,
                            @PathParam("namespace-id") String namespaceId, @PathParam("dataset") String datasetName) {
     Id.DatasetInstance datasetInstanceId = Id.DatasetInstance.from(namespaceId, datasetName);
-    Dataset dataset;
-    try (SystemDatasetInstantiator datasetInstantiator = datasetInstantiatorFactory.create()) {
-      dataset = datasetInstantiator.getDataset(datasetInstanceId);
-
-      if (dataset == null) {
-        responder.sendString(HttpResponseStatus.NOT_FOUND, "Cannot load dataset " + datasetInstanceId);
-        return;
-      }
-    } catch (IOException e) {
-      String classNotFoundMessage = isClassNotFoundException(e);
-      if (classNotFoundMessage != null) {
-        JsonObject json = new JsonObject();
-        json.addProperty("handle", QueryHandle.NO_OP.getHandle());
-        responder.sendJson(HttpResponseStatus.OK, json);
-        return;
-      }
-      LOG.error("Exception instantiating dataset {}.", datasetInstanceId, e);
-      responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR, "Exception instantiating dataset " + datasetName);
+    Partitioning partitioning = getPartitioning(datasetInstanceId, responder);
+    if (partitioning == null) {
       return;
     }
 
     try {
-      if (!(dataset instanceof PartitionedFileSet)) {
-        responder.sendString(HttpResponseStatus.BAD_REQUEST, "not a partitioned dataset.");
-        return;
-      }
-      Partitioning partitioning = ((PartitionedFileSet) dataset).getPartitioning();
-
       Reader reader = new InputStreamReader(new ChannelBufferInputStream(request.getContent()));
       Map<String, String> properties = GSON.fromJson(reader, new TypeToken<Map<String, String>>() { }.getType());
       String fsPath = properties.get("path");
@@ -251,15 +231,8 @@ public class ExploreExecutorHttpHandler extends AbstractHttpHandler {
         return;
       }
 
-      PartitionKey partitionKey;
-      try {
-        partitionKey = PartitionedFileSetArguments.getOutputPartitionKey(properties, partitioning);
-      } catch (Exception e) {
-        responder.sendString(HttpResponseStatus.BAD_REQUEST, "invalid partition key: " + e.getMessage());
-        return;
-      }
+      PartitionKey partitionKey = getPartitionKey(properties, partitioning, responder);
       if (partitionKey == null) {
-        responder.sendString(HttpResponseStatus.BAD_REQUEST, "no partition key was given.");
         return;
       }
 
@@ -273,6 +246,46 @@ public class ExploreExecutorHttpHandler extends AbstractHttpHandler {
     }
   }
 
+  @POST
+  @Path("datasets/{dataset}/addPartitions")
+  public void addPartitions(HttpRequest request, HttpResponder responder,
+                            @PathParam("namespace-id") String namespaceId, @PathParam("dataset") String datasetName) {
+    Id.DatasetInstance datasetInstanceId = Id.DatasetInstance.from(namespaceId, datasetName);
+    Partitioning partitioning = getPartitioning(datasetInstanceId, responder);
+    if (partitioning == null) {
+      return;
+    }
+
+    try {
+      Reader reader = new InputStreamReader(new ChannelBufferInputStream(request.getContent()));
+      List<Map<String, String>> partitionsProperties =
+        GSON.fromJson(reader, new TypeToken<List<Map<String, String>>>() { }.getType());
+
+      Map<PartitionKey, String> partitions = new LinkedHashMap<>();
+      for (Map<String, String> properties : partitionsProperties) {
+        String fsPath = properties.get("path");
+        if (fsPath == null) {
+          responder.sendString(HttpResponseStatus.BAD_REQUEST, "path was not specified.");
+          return;
+        }
+
+        PartitionKey partitionKey = getPartitionKey(properties, partitioning, responder);
+        if (partitionKey == null) {
+          return;
+        }
+        partitions.put(partitionKey, fsPath);
+      }
+
+      QueryHandle handle = exploreTableManager.addPartitions(datasetInstanceId, partitions);
+      JsonObject json = new JsonObject();
+      json.addProperty("handle", handle.getHandle());
+      responder.sendJson(HttpResponseStatus.OK, json);
+    } catch (Throwable e) {
+      LOG.error("Got exception:", e);
+      responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+    }
+  }
+
   // this should really be a DELETE request. However, the partition key must be passed in the body
   // of the request, and that does not work with many HTTP clients, including Java's URLConnection.
   @POST
@@ -281,48 +294,18 @@ public class ExploreExecutorHttpHandler extends AbstractHttpHandler {
                             @PathParam("namespace-id") String namespaceId,
                             @PathParam("dataset") String datasetName) {
     Id.DatasetInstance datasetInstanceId = Id.DatasetInstance.from(namespaceId, datasetName);
-    Dataset dataset;
-    try (SystemDatasetInstantiator datasetInstantiator = datasetInstantiatorFactory.create()) {
-
-      dataset = datasetInstantiator.getDataset(datasetInstanceId);
-      if (dataset == null) {
-        responder.sendString(HttpResponseStatus.NOT_FOUND, "Cannot load dataset " + datasetInstanceId);
-        return;
-      }
-    } catch (IOException e) {
-      String classNotFoundMessage = isClassNotFoundException(e);
-      if (classNotFoundMessage != null) {
-        JsonObject json = new JsonObject();
-        json.addProperty("handle", QueryHandle.NO_OP.getHandle());
-        responder.sendJson(HttpResponseStatus.OK, json);
-        return;
-      }
-      LOG.error("Exception instantiating dataset {}.", datasetInstanceId, e);
-      responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR,
-        "Exception instantiating dataset " + datasetInstanceId);
+    Partitioning partitioning = getPartitioning(datasetInstanceId, responder);
+    if (partitioning == null) {
       return;
     }
 
     try {
-      if (!(dataset instanceof PartitionedFileSet)) {
-        responder.sendString(HttpResponseStatus.BAD_REQUEST, "not a partitioned dataset.");
-        return;
-      }
-      Partitioning partitioning = ((PartitionedFileSet) dataset).getPartitioning();
-
       Reader reader = new InputStreamReader(new ChannelBufferInputStream(request.getContent()));
       Map<String, String> properties = GSON.fromJson(reader, new TypeToken<Map<String, String>>() {
       }.getType());
 
-      PartitionKey partitionKey;
-      try {
-        partitionKey = PartitionedFileSetArguments.getOutputPartitionKey(properties, partitioning);
-      } catch (Exception e) {
-        responder.sendString(HttpResponseStatus.BAD_REQUEST, "invalid partition key: " + e.getMessage());
-        return;
-      }
+      PartitionKey partitionKey = getPartitionKey(properties, partitioning, responder);
       if (partitionKey == null) {
-        responder.sendString(HttpResponseStatus.BAD_REQUEST, "no partition key was given.");
         return;
       }
 
@@ -336,6 +319,61 @@ public class ExploreExecutorHttpHandler extends AbstractHttpHandler {
     }
   }
 
+  /**
+   * Loads the given dataset and returns its partitioning. If the dataset cannot be loaded or is not partitioned,
+   * the response is sent and {@code null} is returned.
+   */
+  @Nullable
+  private Partitioning getPartitioning(Id.DatasetInstance datasetInstanceId, HttpResponder responder) {
+    Dataset dataset;
+    try (SystemDatasetInstantiator datasetInstantiator = datasetInstantiatorFactory.create()) {
+      dataset = datasetInstantiator.getDataset(datasetInstanceId);
+
+      if (dataset == null) {
+        responder.sendString(HttpResponseStatus.NOT_FOUND, "Cannot load dataset " + datasetInstanceId);
+        return null;
+      }
+    } catch (IOException e) {
+      String classNotFoundMessage = isClassNotFoundException(e);
+      if (classNotFoundMessage != null) {
+        JsonObject json = new JsonObject();
+        json.addProperty("handle", QueryHandle.NO_OP.getHandle());
+        responder.sendJson(HttpResponseStatus.OK, json);
+        return null;
+      }
+      LOG.error("Exception instantiating dataset {}.", datasetInstanceId, e);
+      responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR,
+                           "Exception instantiating dataset " + datasetInstanceId.getId());
+      return null;
+    }
+
+    if (!(dataset instanceof PartitionedFileSet)) {
+      responder.sendString(HttpResponseStatus.BAD_REQUEST, "not a partitioned dataset.");
+      return null;
+    }
+    return ((PartitionedFileSet) dataset).getPartitioning();
+  }
+
+  /**
+   * Parses the partition key from the given request properties. If there is no valid partition key, the response is
+   * sent and {@code null} is returned.
+   */
+  @Nullable
+  private PartitionKey getPartitionKey(Map<String, String> properties, Partitioning partitioning,
+                                       HttpResponder responder) {
+    PartitionKey partitionKey;
+    try {
+      partitionKey = PartitionedFileSetArguments.getOutputPartitionKey(properties, partitioning);
+    } catch (Exception e) {
+      responder.sendString(HttpResponseStatus.BAD_REQUEST, "invalid partition key: " + e.getMessage());
+      return null;
+    }
+    if (partitionKey == null) {
+      responder.sendString(HttpResponseStatus.BAD_REQUEST, "no partition key was given.");
+    }
+    return partitionKey;
+  }
+
   // returns the cause of the class not found exception if it is one. Otherwise returns null.
   @Nullable
   private static String isClassNotFoundException(Throwable e) {
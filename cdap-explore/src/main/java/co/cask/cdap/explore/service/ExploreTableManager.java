@@ -64,6 +64,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -357,22 +358,40 @@ public class ExploreTableManager {
    */
   public QueryHandle addPartitions(Id.DatasetInstance datasetID,
                                    Set<PartitionDetail> partitionDetails) throws ExploreException, SQLException {
-    if (partitionDetails.isEmpty()) {
+    Map<PartitionKey, String> partitions = new LinkedHashMap<>();
+    for (PartitionDetail partitionDetail : partitionDetails) {
+      partitions.put(partitionDetail.getPartitionKey(), partitionDetail.getRelativePath());
+    }
+    return addPartitions(datasetID, partitions);
+  }
+
+  /**
+   * Adds multiple partitions to the Hive table for the given dataset, with a single statement.
+   *
+   * @param datasetID the ID of the dataset to add partitions to
+   * @param partitions a map of partition key to partition path
+   * @return the query handle for adding partitions to the dataset
+   * @throws ExploreException if there was an exception adding the partitions
+   * @throws SQLException if there was a problem with the add partition statement
+   */
+  public QueryHandle addPartitions(Id.DatasetInstance datasetID,
+                                   Map<PartitionKey, String> partitions) throws ExploreException, SQLException {
+    if (partitions.isEmpty()) {
       return QueryHandle.NO_OP;
     }
     StringBuilder statement = new StringBuilder()
       .append("ALTER TABLE ")
       .append(tableNaming.getTableName(datasetID))
       .append(" ADD");
-    for (PartitionDetail partitionDetail : partitionDetails) {
+    for (Map.Entry<PartitionKey, String> partition : partitions.entrySet()) {
       statement.append(" PARTITION")
-        .append(generateHivePartitionKey(partitionDetail.getPartitionKey()))
+        .append(generateHivePartitionKey(partition.getKey()))
         .append(" LOCATION '")
-        .append(partitionDetail.getRelativePath())
+        .append(partition.getValue())
         .append("'");
     }
 
-    LOG.debug("Adding partitions for dataset {}", datasetID);
+    LOG.debug("Adding {} partitions for dataset {}", partitions.size(), datasetID);
 
     return exploreService.execute(datasetID.getNamespace(), statement.toString());
   }
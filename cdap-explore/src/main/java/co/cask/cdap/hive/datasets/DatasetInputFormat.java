@@ -16,9 +16,15 @@
 
 package co.cask.cdap.hive.datasets;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.batch.RecordScannable;
 import co.cask.cdap.api.data.batch.RecordScanner;
 import co.cask.cdap.api.data.batch.Split;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.dataset.DatasetManagementException;
+import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.lib.ObjectMappedTable;
+import co.cask.cdap.api.dataset.table.Table;
 import com.google.common.base.Throwables;
 import com.google.gson.Gson;
 import org.apache.hadoop.conf.Configuration;
@@ -35,17 +41,22 @@ import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
 
 /**
  * Map reduce input format to read from datasets that implement RecordScannable.
  */
 public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
+  private static final Logger LOG = LoggerFactory.getLogger(DatasetInputFormat.class);
   private static final Gson GSON = new Gson();
 
   @Override
@@ -61,7 +72,7 @@ public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
         JobContext jobContext = ShimLoader.getHadoopShims().newJobContext(job);
         Path[] tablePaths = FileInputFormat.getInputPaths(jobContext);
 
-        List<Split> dsSplits = recordScannable.getSplits();
+        List<Split> dsSplits = getSplits(recordScannable, datasetAccessor, jobConf);
 
         InputSplit[] inputSplits = new InputSplit[dsSplits.size()];
         for (int i = 0; i < dsSplits.size(); i++) {
@@ -72,6 +83,52 @@ public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
     }
   }
 
+  /**
+   * Gets the splits of the dataset. If the dataset is a {@link Table} or an {@link ObjectMappedTable} and the query
+   * restricts the row key, only the splits covering the matching row keys are returned.
+   */
+  private List<Split> getSplits(RecordScannable<?> recordScannable, DatasetAccessor datasetAccessor,
+                                Configuration conf) {
+    if (!(recordScannable instanceof Table) && !(recordScannable instanceof ObjectMappedTable)) {
+      return recordScannable.getSplits();
+    }
+    RowKeyRangeAnalyzer.KeyRange range = getRowKeyRange(datasetAccessor, conf);
+    if (range == null) {
+      return recordScannable.getSplits();
+    }
+    if (range.isEmpty()) {
+      return Collections.emptyList();
+    }
+    LOG.debug("Restricting splits of dataset {} to row keys [{}, {})", datasetAccessor.getDatasetId(),
+              range.getStart() == null ? null : Bytes.toStringBinary(range.getStart()),
+              range.getStop() == null ? null : Bytes.toStringBinary(range.getStop()));
+    if (recordScannable instanceof Table) {
+      return ((Table) recordScannable).getSplits(-1, range.getStart(), range.getStop());
+    }
+    return ((ObjectMappedTable<?>) recordScannable).getSplits(-1, range.getStart(), range.getStop());
+  }
+
+  @Nullable
+  private RowKeyRangeAnalyzer.KeyRange getRowKeyRange(DatasetAccessor datasetAccessor, Configuration conf) {
+    try {
+      DatasetSpecification spec = datasetAccessor.getDatasetSpec();
+      if (spec == null) {
+        return null;
+      }
+      String schemaStr = spec.getProperty(Table.PROPERTY_SCHEMA);
+      String rowFieldName = spec.getProperty(Table.PROPERTY_SCHEMA_ROW_FIELD);
+      if (schemaStr == null || rowFieldName == null) {
+        return null;
+      }
+      Schema.Field rowField = Schema.parseJson(schemaStr).getField(rowFieldName);
+      return rowField == null ? null : RowKeyRangeAnalyzer.analyze(conf, rowFieldName, rowField.getSchema());
+    } catch (IOException | DatasetManagementException e) {
+      LOG.warn("Unable to determine the row key of dataset {}. A full table scan will be performed.",
+               datasetAccessor.getDatasetId(), e);
+      return null;
+    }
+  }
+
   @Override
   public RecordReader<Void, ObjectWritable> getRecordReader(final InputSplit split, JobConf jobConf, Reporter reporter)
     throws IOException {
@@ -113,8 +170,7 @@ public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
 
     @Override
     public String[] getLocations() throws IOException {
-      // TODO: Implement this functionality when DataSets has locality information.
-      return new String[0];
+      return dataSetSplit.getLocations();
     }
 
     @Override
@@ -0,0 +1,228 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.hive.datasets;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.schema.Schema;
+import com.google.common.collect.Lists;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.index.IndexPredicateAnalyzer;
+import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Analyzes the predicate of a Hive query to find the range of row keys of a table that the query can match.
+ * Equality predicates are supported on row keys of any simple type. Range predicates are only supported on string
+ * and bytes row keys, because the encoded keys of other types are not ordered the same way as their values.
+ */
+final class RowKeyRangeAnalyzer {
+  private static final Logger LOG = LoggerFactory.getLogger(RowKeyRangeAnalyzer.class);
+
+  private RowKeyRangeAnalyzer() {
+  }
+
+  /**
+   * Returns the range of row keys matched by the query predicate in the given configuration, or {@code null} if the
+   * predicate does not restrict the row key.
+   *
+   * @param conf configuration of the Hive job
+   * @param rowFieldName name of the row key field in the table schema
+   * @param rowKeySchema schema of the row key field
+   */
+  @Nullable
+  static KeyRange analyze(Configuration conf, String rowFieldName, Schema rowKeySchema) {
+    String serializedExpr = conf.get(TableScanDesc.FILTER_EXPR_CONF_STR);
+    if (serializedExpr == null) {
+      return null;
+    }
+    Schema.Type keyType = rowKeySchema.isNullableSimple() ?
+      rowKeySchema.getNonNullable().getType() : rowKeySchema.getType();
+
+    try {
+      ExprNodeGenericFuncDesc expr;
+      // Hack to deal with the fact that older versions of Hive use
+      // Utilities.deserializeExpression(String, Configuration),
+      // whereas newer versions use Utilities.deserializeExpression(String).
+      try {
+        expr = Utilities.deserializeExpression(serializedExpr);
+      } catch (NoSuchMethodError e) {
+        expr = (ExprNodeGenericFuncDesc) Utilities.class.getMethod(
+          "deserializeExpression", String.class, Configuration.class).invoke(null, serializedExpr, conf);
+      }
+
+      IndexPredicateAnalyzer analyzer = new IndexPredicateAnalyzer();
+      for (CompareOp op : CompareOp.values()) {
+        analyzer.addComparisonOp(op.getOpClassName());
+      }
+      // everything in Hive is lowercase
+      analyzer.clearAllowedColumnNames();
+      analyzer.allowColumnName(rowFieldName.toLowerCase());
+
+      List<IndexSearchCondition> conditions = Lists.newArrayList();
+      analyzer.analyzePredicate(expr, conditions);
+
+      KeyRange range = null;
+      for (IndexSearchCondition condition : conditions) {
+        CompareOp op = CompareOp.from(condition.getComparisonOp());
+        ExprNodeConstantDesc constant = condition.getConstantDesc();
+        byte[] key = constant == null ? null : toRowKey(constant.getValue(), keyType);
+        if (op == null || key == null || (op != CompareOp.EQUAL && !isOrdered(keyType))) {
+          // Not a supported condition
+          continue;
+        }
+        range = (range == null ? new KeyRange(null, null) : range).restrict(op, key);
+      }
+      return range;
+    } catch (Throwable t) {
+      LOG.warn("Exception analyzing query predicate. A full table scan will be performed.", t);
+      return null;
+    }
+  }
+
+  private static boolean isOrdered(Schema.Type keyType) {
+    return keyType == Schema.Type.STRING || keyType == Schema.Type.BYTES;
+  }
+
+  /**
+   * Encodes a constant of the query the same way the row key of a record is encoded by the table.
+   * Returns {@code null} if the constant cannot represent a row key of the given type.
+   */
+  @Nullable
+  private static byte[] toRowKey(@Nullable Object value, Schema.Type keyType) {
+    if (value == null) {
+      return null;
+    }
+    switch (keyType) {
+      case STRING:
+        return value instanceof String ? Bytes.toBytes((String) value) : null;
+      case BYTES:
+        return value instanceof byte[] ? (byte[]) value : null;
+      case BOOLEAN:
+        return value instanceof Boolean ? Bytes.toBytes((Boolean) value) : null;
+      case INT:
+        return value instanceof Integer ? Bytes.toBytes((Integer) value) : null;
+      case LONG:
+        return value instanceof Long || value instanceof Integer ? Bytes.toBytes(((Number) value).longValue()) : null;
+      case FLOAT:
+        return value instanceof Float ? Bytes.toBytes((Float) value) : null;
+      case DOUBLE:
+        return value instanceof Double ? Bytes.toBytes((Double) value) : null;
+    }
+    return null;
+  }
+
+  /**
+   * A range of row keys, with inclusive start and exclusive stop. A {@code null} start or stop means the range is
+   * unbounded on that side.
+   */
+  static final class KeyRange {
+    private final byte[] start;
+    private final byte[] stop;
+
+    KeyRange(@Nullable byte[] start, @Nullable byte[] stop) {
+      this.start = start;
+      this.stop = stop;
+    }
+
+    @Nullable
+    byte[] getStart() {
+      return start;
+    }
+
+    @Nullable
+    byte[] getStop() {
+      return stop;
+    }
+
+    /**
+     * Returns whether no row key can be in this range.
+     */
+    boolean isEmpty() {
+      return start != null && stop != null && Bytes.compareTo(start, stop) >= 0;
+    }
+
+    private KeyRange restrict(CompareOp op, byte[] key) {
+      // the smallest key that is greater than the given key
+      byte[] next = Bytes.add(key, new byte[] { 0 });
+      switch (op) {
+        case EQUAL:
+          return new KeyRange(max(start, key), min(stop, next));
+        case GREATER:
+          return new KeyRange(max(start, next), stop);
+        case EQUAL_OR_GREATER:
+          return new KeyRange(max(start, key), stop);
+        case LESS:
+          return new KeyRange(start, min(stop, key));
+        case EQUAL_OR_LESS:
+          return new KeyRange(start, min(stop, next));
+      }
+      return this;
+    }
+
+    private static byte[] max(@Nullable byte[] current, byte[] key) {
+      return current == null || Bytes.compareTo(current, key) < 0 ? key : current;
+    }
+
+    private static byte[] min(@Nullable byte[] current, byte[] key) {
+      return current == null || Bytes.compareTo(current, key) > 0 ? key : current;
+    }
+  }
+
+  private enum CompareOp {
+    EQUAL(GenericUDFOPEqual.class.getName()),
+    EQUAL_OR_GREATER(GenericUDFOPEqualOrGreaterThan.class.getName()),
+    EQUAL_OR_LESS(GenericUDFOPEqualOrLessThan.class.getName()),
+    GREATER(GenericUDFOPGreaterThan.class.getName()),
+    LESS(GenericUDFOPLessThan.class.getName());
+
+    private final String opClassName;
+
+    CompareOp(String opClassName) {
+      this.opClassName = opClassName;
+    }
+
+    public String getOpClassName() {
+      return opClassName;
+    }
+
+    /**
+     * Returns a {@link CompareOp} by matching the given class name or {@code null} if there is none matching.
+     */
+    @Nullable
+    public static CompareOp from(String opClassName) {
+      for (CompareOp op : values()) {
+        if (op.getOpClassName().equals(opClassName)) {
+          return op;
+        }
+      }
+      return null;
+    }
+  }
+}
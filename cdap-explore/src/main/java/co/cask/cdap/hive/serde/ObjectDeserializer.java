@@ -21,9 +21,19 @@ import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.format.UnexpectedFormatException;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.hive.objectinspector.ObjectInspectorFactory;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.FieldAccessor;
+import co.cask.cdap.internal.io.FieldAccessorFactory;
+import co.cask.cdap.internal.io.ReflectionFieldAccessorFactory;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.reflect.TypeToken;
 import org.apache.hadoop.hive.serde.serdeConstants;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
@@ -33,9 +43,10 @@ import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.StructTypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -43,18 +54,29 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Helper class for translating objects that fit a cdap {@link Schema} into objects
  * that Hive can understand.
  */
 public class ObjectDeserializer {
+  private static final Logger LOG = LoggerFactory.getLogger(ObjectDeserializer.class);
+
   private final List<String> fieldNames;
   private final List<TypeInfo> fieldTypes;
   private final ObjectInspector inspector;
   // we can almost do without the schema. The problem is that everything in Hive is lowercase,
   // but when we look up record fields we need the case sensitive field name.
   private final Schema schema;
+  // record schemas come from the schema given to this deserializer, hence they are looked up by identity
+  private final Cache<Schema, RecordAccessor> recordAccessors;
+  // The factories hold on to the accessors, hence to the record classes, so they are scoped to this deserializer
+  // rather than shared by all instances, which would keep the ClassLoaders of all record classes ever read.
+  // Generated accessor classes are defined in the ClassLoader of the record class, and are reused from there.
+  private final FieldAccessorFactory asmFieldAccessorFactory;
+  private final FieldAccessorFactory reflectionFieldAccessorFactory;
 
   /**
    * Creates an ObjectTranslator that will be able to deserialize objects that fit a {@link Schema} into objects
@@ -92,6 +114,9 @@ public class ObjectDeserializer {
     // determined outside of this class, such as the stream case where timestamp and headers are read elsewhere
     this.inspector = createInspector(fieldNames, fieldTypes);
     this.schema = schema;
+    this.recordAccessors = CacheBuilder.newBuilder().weakKeys().build();
+    this.asmFieldAccessorFactory = new ASMFieldAccessorFactory();
+    this.reflectionFieldAccessorFactory = new ReflectionFieldAccessorFactory();
   }
 
   /**
@@ -104,7 +129,7 @@ public class ObjectDeserializer {
   }
 
   /**
-   * Using reflection, deserialize an object that fits a {@link Schema} into one that can be examined
+   * Deserialize an object that fits a {@link Schema} into one that can be examined
    * by an ObjectInspector.
    *
    * @param obj object that fits a {@link Schema}.
@@ -121,7 +146,7 @@ public class ObjectDeserializer {
   }
 
   /**
-   * Using reflection, flatten an object into a list of fields so it can be examined by an ObjectInspector.
+   * Flatten an object into a list of fields so it can be examined by an ObjectInspector.
    * Assumes the field names and types given as input were derived from the schema of the object.
    *
    * @param obj object that fits a {@link Schema}.
@@ -147,15 +172,11 @@ public class ObjectDeserializer {
       schema = schema.getNonNullable();
     }
 
-    Map<String, Schema.Field> fieldMap = getFieldMap(schema);
+    RecordAccessor recordAccessor = getRecordAccessor(schema, fieldNames);
     List<Object> objectFields = Lists.newArrayListWithCapacity(fieldNames.size());
     for (int i = 0; i < fieldNames.size(); i++) {
-      String hiveName = fieldNames.get(i);
-      TypeInfo fieldType = fieldTypes.get(i);
-      Schema.Field schemaField = fieldMap.get(hiveName);
-      // use the name from the schema field in case it is not all lowercase
-      Object recordField = getRecordField(obj, schemaField.getName());
-      objectFields.add(deserializeField(recordField, fieldType, schemaField.getSchema()));
+      Object recordField = recordAccessor.get(obj, i);
+      objectFields.add(deserializeField(recordField, fieldTypes.get(i), recordAccessor.getSchema(i)));
     }
     return objectFields;
   }
@@ -163,7 +184,8 @@ public class ObjectDeserializer {
   /**
    * Translate a field that fits a {@link Schema} field into a type that Hive understands.
    * For example, a ByteBuffer is allowed by schema but Hive only understands byte arrays, so all ByteBuffers must
-   * be changed into byte arrays. Reflection is used to examine java objects if the expected hive type is a struct.
+   * be changed into byte arrays. Generated field accessors are used to examine java objects if the expected hive type
+   * is a struct.
    *
    * @param field value of the field to deserialize.
    * @param typeInfo type of the field as expected by Hive.
@@ -313,26 +335,87 @@ public class ObjectDeserializer {
     return translatedMap;
   }
 
-  // get a field from the object using the get method if the object is a StructuredRecord,
-  // or using reflection if it is not.
-  private Object getRecordField(Object record, String fieldName)
-    throws NoSuchFieldException, IllegalAccessException {
-    if (record instanceof StructuredRecord) {
-      return ((StructuredRecord) record).get(fieldName);
+  private RecordAccessor getRecordAccessor(final Schema schema,
+                                          final List<String> fieldNames) throws NoSuchFieldException {
+    try {
+      return recordAccessors.get(schema, new Callable<RecordAccessor>() {
+        @Override
+        public RecordAccessor call() throws Exception {
+          return new RecordAccessor(schema, fieldNames);
+        }
+      });
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), NoSuchFieldException.class);
+      throw Throwables.propagate(e.getCause());
     }
-    Class recordClass = record.getClass();
-    Field field = recordClass.getDeclaredField(fieldName);
-    field.setAccessible(true);
-    return field.get(record);
   }
 
-  // get a map from the expected hive name of a field in the schema to the field in the schema.
-  private Map<String, Schema.Field> getFieldMap(Schema schema) {
-    Map<String, Schema.Field> fieldMap = Maps.newHashMap();
-    for (Schema.Field field : schema.getFields()) {
-      fieldMap.put(field.getName().toLowerCase(), field);
+  /**
+   * Reads the fields of records of one {@link Schema} in the order of the Hive columns. Fields of a
+   * {@link StructuredRecord} are read with its get method, fields of any other object are read with
+   * {@link FieldAccessor}s generated once per record class.
+   */
+  private final class RecordAccessor {
+    private final Schema.Field[] schemaFields;
+    private final LoadingCache<Class<?>, FieldAccessor[]> fieldAccessors;
+
+    RecordAccessor(Schema schema, List<String> fieldNames) throws NoSuchFieldException {
+      // everything in Hive is lowercase, but record fields must be looked up with the case sensitive name
+      Map<String, Schema.Field> fieldMap = Maps.newHashMap();
+      for (Schema.Field field : schema.getFields()) {
+        fieldMap.put(field.getName().toLowerCase(), field);
+      }
+      this.schemaFields = new Schema.Field[fieldNames.size()];
+      for (int i = 0; i < schemaFields.length; i++) {
+        schemaFields[i] = fieldMap.get(fieldNames.get(i));
+        if (schemaFields[i] == null) {
+          throw new NoSuchFieldException("Schema has no field for column " + fieldNames.get(i));
+        }
+      }
+      this.fieldAccessors = CacheBuilder.newBuilder().weakKeys().build(new CacheLoader<Class<?>, FieldAccessor[]>() {
+        @Override
+        public FieldAccessor[] load(Class<?> recordClass) throws Exception {
+          TypeToken<?> recordType = TypeToken.of(recordClass);
+          FieldAccessor[] accessors = new FieldAccessor[schemaFields.length];
+          for (int i = 0; i < accessors.length; i++) {
+            accessors[i] = createFieldAccessor(recordType, schemaFields[i].getName());
+          }
+          return accessors;
+        }
+      });
+    }
+
+    Schema getSchema(int idx) {
+      return schemaFields[idx].getSchema();
+    }
+
+    Object get(Object record, int idx) throws NoSuchFieldException {
+      if (record instanceof StructuredRecord) {
+        return ((StructuredRecord) record).get(schemaFields[idx].getName());
+      }
+      try {
+        return fieldAccessors.get(record.getClass())[idx].get(record);
+      } catch (ExecutionException e) {
+        Throwables.propagateIfPossible(e.getCause(), NoSuchFieldException.class);
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+
+    private FieldAccessor createFieldAccessor(TypeToken<?> recordType, String fieldName) throws NoSuchFieldException {
+      try {
+        return asmFieldAccessorFactory.getFieldAccessor(recordType, fieldName);
+      } catch (Exception e) {
+        LOG.debug("Unable to generate accessor for field {} of {}. Using reflection instead.",
+                  fieldName, recordType, e);
+      }
+      try {
+        return reflectionFieldAccessorFactory.getFieldAccessor(recordType, fieldName);
+      } catch (Exception e) {
+        NoSuchFieldException exception = new NoSuchFieldException("No field " + fieldName + " in " + recordType);
+        exception.initCause(e);
+        throw exception;
+      }
     }
-    return fieldMap;
   }
 
   private ObjectInspector createInspector(List<String> fieldNames, List<TypeInfo> fieldTypes) {
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.hive.stream;
 
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.data.file.ReadFilter;
 import co.cask.cdap.data.stream.PositionStreamEvent;
@@ -41,14 +42,20 @@ import java.util.concurrent.TimeUnit;
 final class StreamRecordReader implements RecordReader<Void, ObjectWritable> {
   private static final Logger LOG = LoggerFactory.getLogger(StreamRecordReader.class);
 
+  // buffer of events read in one batch, reused across batches
   private final List<PositionStreamEvent> events;
+  private final int batchSize;
   private final StreamDataFileReader reader;
   private final StreamInputSplit inputSplit;
   private final ReadFilter readFilter;
+  // index of the next event in the buffer to return
+  private int nextEvent;
 
   StreamRecordReader(InputSplit split, JobConf conf) throws IOException {
     this.inputSplit = (StreamInputSplit) split;
-    this.events = Lists.newArrayListWithCapacity(1);
+    this.batchSize = Math.max(1, conf.getInt(Constants.Explore.STREAM_READ_BATCH_SIZE,
+                                             Constants.Explore.DEFAULT_STREAM_READ_BATCH_SIZE));
+    this.events = Lists.newArrayListWithCapacity(batchSize);
     this.reader = createReader(FileSystem.get(conf), inputSplit);
     this.readFilter = new TimeRangeReadFilter(inputSplit.getStartTime(), inputSplit.getEndTime());
   }
@@ -65,21 +72,27 @@ final class StreamRecordReader implements RecordReader<Void, ObjectWritable> {
 
   @Override
   public boolean next(Void key, ObjectWritable value) throws IOException {
-    events.clear();
-    try {
-      if (reader.read(events, 1, 0, TimeUnit.SECONDS, readFilter) <= 0) {
-        return false;
-      }
-      PositionStreamEvent streamEvent = events.get(0);
-      if (streamEvent.getStart() - inputSplit.getStart() >= inputSplit.getLength()) {
+    if (nextEvent >= events.size()) {
+      events.clear();
+      nextEvent = 0;
+      try {
+        if (reader.read(events, batchSize, 0, TimeUnit.SECONDS, readFilter) <= 0) {
+          return false;
+        }
+      } catch (InterruptedException e) {
+        LOG.error("interrupted while reading stream events.", e);
         return false;
       }
-      value.set(streamEvent);
-      return true;
-    } catch (InterruptedException e) {
-      LOG.error("interrupted while reading stream events.", e);
+    }
+    PositionStreamEvent streamEvent = events.get(nextEvent++);
+    if (streamEvent.getStart() - inputSplit.getStart() >= inputSplit.getLength()) {
+      // events are ordered by position, so none of the remaining events belong to this split either
+      events.clear();
+      nextEvent = 0;
       return false;
     }
+    value.set(streamEvent);
+    return true;
   }
 
   @Override
@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.hive.datasets;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.schema.Schema;
+import com.google.common.collect.ImmutableList;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPAnd;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPOr;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link RowKeyRangeAnalyzer}.
+ */
+public class RowKeyRangeAnalyzerTest {
+
+  private static final String ROW_FIELD = "key";
+  private static final Schema STRING_KEY = Schema.of(Schema.Type.STRING);
+
+  @Test
+  public void testNoPredicate() {
+    Assert.assertNull(RowKeyRangeAnalyzer.analyze(new Configuration(), ROW_FIELD, STRING_KEY));
+  }
+
+  @Test
+  public void testEquality() {
+    assertRange(Bytes.toBytes("b"), Bytes.toBytes("b\0"),
+                analyze(compare(new GenericUDFOPEqual(), ROW_FIELD, "b"), STRING_KEY));
+    assertRange(Bytes.toBytes("b"), Bytes.toBytes("b\0"),
+                analyze(compare(new GenericUDFOPEqual(), ROW_FIELD, "b"), Schema.nullableOf(STRING_KEY)));
+
+    // equality is supported for keys of any simple type
+    assertRange(Bytes.toBytes(5), Bytes.add(Bytes.toBytes(5), new byte[] { 0 }),
+                analyze(compare(new GenericUDFOPEqual(), ROW_FIELD, 5), Schema.of(Schema.Type.INT)));
+    assertRange(Bytes.toBytes(5L), Bytes.add(Bytes.toBytes(5L), new byte[] { 0 }),
+                analyze(compare(new GenericUDFOPEqual(), ROW_FIELD, 5), Schema.of(Schema.Type.LONG)));
+  }
+
+  @Test
+  public void testRanges() {
+    assertRange(Bytes.toBytes("b\0"), null, analyze(compare(new GenericUDFOPGreaterThan(), ROW_FIELD, "b"),
+                                                    STRING_KEY));
+    assertRange(Bytes.toBytes("b"), null, analyze(compare(new GenericUDFOPEqualOrGreaterThan(), ROW_FIELD, "b"),
+                                                  STRING_KEY));
+    assertRange(null, Bytes.toBytes("b"), analyze(compare(new GenericUDFOPLessThan(), ROW_FIELD, "b"),
+                                                  STRING_KEY));
+    assertRange(null, Bytes.toBytes("b\0"), analyze(compare(new GenericUDFOPEqualOrLessThan(), ROW_FIELD, "b"),
+                                                    STRING_KEY));
+  }
+
+  @Test
+  public void testAnd() {
+    // both bounds of a range
+    RowKeyRangeAnalyzer.KeyRange range = analyze(and(compare(new GenericUDFOPEqualOrGreaterThan(), ROW_FIELD, "b"),
+                                                     compare(new GenericUDFOPLessThan(), ROW_FIELD, "d")),
+                                                 STRING_KEY);
+    assertRange(Bytes.toBytes("b"), Bytes.toBytes("d"), range);
+    Assert.assertFalse(range.isEmpty());
+
+    // the tightest bound is used
+    assertRange(Bytes.toBytes("c"), Bytes.toBytes("d"),
+                analyze(and(compare(new GenericUDFOPEqualOrGreaterThan(), ROW_FIELD, "b"),
+                            and(compare(new GenericUDFOPLessThan(), ROW_FIELD, "d"),
+                                compare(new GenericUDFOPEqualOrGreaterThan(), ROW_FIELD, "c"))), STRING_KEY));
+
+    // conditions on other columns do not restrict the range
+    assertRange(Bytes.toBytes("b"), Bytes.toBytes("b\0"),
+                analyze(and(compare(new GenericUDFOPEqual(), ROW_FIELD, "b"),
+                            compare(new GenericUDFOPEqual(), "value", "x")), STRING_KEY));
+
+    // contradicting conditions give an empty range
+    range = analyze(and(compare(new GenericUDFOPEqual(), ROW_FIELD, "c"),
+                        compare(new GenericUDFOPLessThan(), ROW_FIELD, "b")), STRING_KEY);
+    Assert.assertNotNull(range);
+    Assert.assertTrue(range.isEmpty());
+  }
+
+  @Test
+  public void testOr() {
+    // a disjunction cannot be represented as a single range
+    Assert.assertNull(analyze(or(compare(new GenericUDFOPEqual(), ROW_FIELD, "a"),
+                                 compare(new GenericUDFOPEqual(), ROW_FIELD, "c")), STRING_KEY));
+    Assert.assertNull(analyze(or(compare(new GenericUDFOPEqual(), ROW_FIELD, "a"),
+                                 compare(new GenericUDFOPEqual(), "value", "x")), STRING_KEY));
+
+    // a disjunction in a conjunction does not prevent the other conditions from restricting the range
+    assertRange(Bytes.toBytes("b"), null,
+                analyze(and(compare(new GenericUDFOPEqualOrGreaterThan(), ROW_FIELD, "b"),
+                            or(compare(new GenericUDFOPEqual(), ROW_FIELD, "c"),
+                               compare(new GenericUDFOPEqual(), ROW_FIELD, "d"))), STRING_KEY));
+  }
+
+  @Test
+  public void testUnsupportedPredicates() {
+    // conditions on other columns only
+    Assert.assertNull(analyze(compare(new GenericUDFOPEqual(), "value", "b"), STRING_KEY));
+
+    // the encoded keys of numbers are not ordered like their values
+    Assert.assertNull(analyze(compare(new GenericUDFOPGreaterThan(), ROW_FIELD, 5), Schema.of(Schema.Type.INT)));
+    Assert.assertNull(analyze(compare(new GenericUDFOPLessThan(), ROW_FIELD, 5L), Schema.of(Schema.Type.LONG)));
+
+    // constants that cannot be a row key of the key type
+    Assert.assertNull(analyze(compare(new GenericUDFOPEqual(), ROW_FIELD, 5), STRING_KEY));
+    Assert.assertNull(analyze(compare(new GenericUDFOPEqual(), ROW_FIELD, "b"), Schema.of(Schema.Type.INT)));
+
+    // a predicate that cannot be deserialized results in a full table scan
+    Configuration conf = new Configuration();
+    conf.set(TableScanDesc.FILTER_EXPR_CONF_STR, "not an expression");
+    Assert.assertNull(RowKeyRangeAnalyzer.analyze(conf, ROW_FIELD, STRING_KEY));
+  }
+
+  @Nullable
+  private RowKeyRangeAnalyzer.KeyRange analyze(ExprNodeGenericFuncDesc expr, Schema rowKeySchema) {
+    Configuration conf = new Configuration();
+    conf.set(TableScanDesc.FILTER_EXPR_CONF_STR, Utilities.serializeExpression(expr));
+    return RowKeyRangeAnalyzer.analyze(conf, ROW_FIELD, rowKeySchema);
+  }
+
+  private void assertRange(@Nullable byte[] expectedStart, @Nullable byte[] expectedStop,
+                           @Nullable RowKeyRangeAnalyzer.KeyRange range) {
+    Assert.assertNotNull(range);
+    Assert.assertArrayEquals(expectedStart, range.getStart());
+    Assert.assertArrayEquals(expectedStop, range.getStop());
+  }
+
+  private ExprNodeGenericFuncDesc compare(GenericUDF op, String column, Object value) {
+    TypeInfo typeInfo = getTypeInfo(value);
+    return function(op, new ExprNodeColumnDesc(typeInfo, column, "t", false),
+                    new ExprNodeConstantDesc(typeInfo, value));
+  }
+
+  private ExprNodeGenericFuncDesc and(ExprNodeDesc left, ExprNodeDesc right) {
+    return function(new GenericUDFOPAnd(), left, right);
+  }
+
+  private ExprNodeGenericFuncDesc or(ExprNodeDesc left, ExprNodeDesc right) {
+    return function(new GenericUDFOPOr(), left, right);
+  }
+
+  private ExprNodeGenericFuncDesc function(GenericUDF udf, ExprNodeDesc left, ExprNodeDesc right) {
+    return new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, udf,
+                                       ImmutableList.<ExprNodeDesc>of(left, right));
+  }
+
+  private TypeInfo getTypeInfo(Object value) {
+    if (value instanceof Integer) {
+      return TypeInfoFactory.intTypeInfo;
+    }
+    if (value instanceof Long) {
+      return TypeInfoFactory.longTypeInfo;
+    }
+    return TypeInfoFactory.stringTypeInfo;
+  }
+}
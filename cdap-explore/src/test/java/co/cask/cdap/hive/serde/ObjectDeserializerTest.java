@@ -18,6 +18,7 @@ package co.cask.cdap.hive.serde;
 
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.format.UnexpectedFormatException;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
 import co.cask.cdap.internal.io.SchemaGenerator;
@@ -384,6 +385,87 @@ public class ObjectDeserializerTest {
     assertSimpleRecordEquals((List<Object>) expected.get(2), (List<Object>) translated.get(2));
   }
 
+  private static final Schema INNER_SCHEMA = Schema.recordOf(
+    "inner",
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("count", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+
+  private static final Schema OUTER_SCHEMA = Schema.recordOf(
+    "outer",
+    Schema.Field.of("inners", Schema.arrayOf(INNER_SCHEMA)),
+    Schema.Field.of("innerMap", Schema.mapOf(Schema.of(Schema.Type.STRING), INNER_SCHEMA)),
+    Schema.Field.of("inner", Schema.nullableOf(INNER_SCHEMA)));
+
+  private static final TypeInfo INNER_TYPE = TypeInfoFactory.getStructTypeInfo(
+    Lists.newArrayList("name", "count"),
+    Lists.<TypeInfo>newArrayList(TypeInfoFactory.stringTypeInfo, TypeInfoFactory.intTypeInfo));
+
+  private static class Inner {
+    private final String name;
+    private final Integer count;
+
+    private Inner(String name, Integer count) {
+      this.name = name;
+      this.count = count;
+    }
+  }
+
+  private static class Outer {
+    private final List<Inner> inners;
+    private final Map<String, Inner> innerMap;
+    private final Inner inner;
+
+    private Outer(List<Inner> inners, Map<String, Inner> innerMap, Inner inner) {
+      this.inners = inners;
+      this.innerMap = innerMap;
+      this.inner = inner;
+    }
+  }
+
+  @Test
+  public void testRecordsInCollectionsAndNulls() throws Exception {
+    ObjectDeserializer translator = new ObjectDeserializer(
+      Lists.newArrayList("inners", "innermap", "inner"),
+      Lists.newArrayList(TypeInfoFactory.getListTypeInfo(INNER_TYPE),
+                         TypeInfoFactory.getMapTypeInfo(TypeInfoFactory.stringTypeInfo, INNER_TYPE),
+                         INNER_TYPE),
+      OUTER_SCHEMA);
+
+    // records in lists and maps, null fields of records and a null record
+    Outer outer = new Outer(Lists.newArrayList(new Inner("a", 1), new Inner(null, null)),
+                            ImmutableMap.of("x", new Inner("b", 2)), null);
+    List<Object> expected = Lists.<Object>newArrayList(
+      Lists.newArrayList(Lists.<Object>newArrayList("a", 1), Lists.<Object>newArrayList(null, null)),
+      ImmutableMap.of("x", Lists.<Object>newArrayList("b", 2)),
+      null);
+    Assert.assertEquals(expected, translator.translateRecord(outer));
+
+    // the same deserializer reads other records of the same classes, and StructuredRecords of the same schemas
+    outer = new Outer(Lists.<Inner>newArrayList(), ImmutableMap.<String, Inner>of(), new Inner("c", 3));
+    expected = Lists.<Object>newArrayList(Lists.newArrayList(), ImmutableMap.of(), Lists.<Object>newArrayList("c", 3));
+    Assert.assertEquals(expected, translator.translateRecord(outer));
+
+    StructuredRecord structuredInner = StructuredRecord.builder(INNER_SCHEMA).set("name", "d").build();
+    StructuredRecord structuredOuter = StructuredRecord.builder(OUTER_SCHEMA)
+      .set("inners", Lists.newArrayList(structuredInner))
+      .set("innerMap", ImmutableMap.of("y", structuredInner))
+      .set("inner", structuredInner)
+      .build();
+    expected = Lists.<Object>newArrayList(
+      Lists.newArrayList(Lists.<Object>newArrayList("d", null)),
+      ImmutableMap.of("y", Lists.<Object>newArrayList("d", null)),
+      Lists.<Object>newArrayList("d", null));
+    Assert.assertEquals(expected, translator.translateRecord(structuredOuter));
+
+    // a null element of a list whose elements are not nullable is not valid
+    try {
+      translator.translateRecord(new Outer(Lists.newArrayList((Inner) null), ImmutableMap.<String, Inner>of(), null));
+      Assert.fail("Expected a null record in a list of non-nullable records to fail");
+    } catch (UnexpectedFormatException expectedException) {
+      // expected
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private void assertSimpleRecordEquals(List<Object> expected, List<Object> actual) {
     // compare the non-array fields
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.hive.stream;
+
+import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.data.stream.PositionStreamEvent;
+import co.cask.cdap.data.stream.StreamDataFileWriter;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.ObjectWritable;
+import org.apache.hadoop.mapred.JobConf;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for reading the events of a stream file in batches with the {@link StreamRecordReader}.
+ */
+public class StreamRecordReaderTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static final int NUM_EVENTS = 10;
+  // the events with timestamps smaller than this belong to the first split
+  private static final int FIRST_SPLIT_EVENTS = 5;
+
+  private static Path eventPath;
+  private static Path indexPath;
+  private static long fileLength;
+  // offset of the split boundary, which is in the middle of the file and not aligned with the start of an event
+  private static long splitOffset;
+
+  @BeforeClass
+  public static void init() throws Exception {
+    File eventFile = TMP_FOLDER.newFile("bucket.0.0.dat");
+    File indexFile = TMP_FOLDER.newFile("bucket.0.0.idx");
+    StreamDataFileWriter writer = new StreamDataFileWriter(Files.newOutputStreamSupplier(eventFile),
+                                                           Files.newOutputStreamSupplier(indexFile), 100L);
+    try {
+      // each event has a different timestamp, so that each event has its own position in the file
+      for (int i = 0; i < NUM_EVENTS; i++) {
+        writer.append(new StreamEvent(ImmutableMap.<String, String>of(), Charsets.UTF_8.encode("Event " + i), i));
+      }
+    } finally {
+      writer.close();
+    }
+    eventPath = new Path(eventFile.toURI());
+    indexPath = new Path(indexFile.toURI());
+    fileLength = eventFile.length();
+
+    List<PositionStreamEvent> events = readEvents(0, fileLength, 1);
+    Assert.assertEquals(NUM_EVENTS, events.size());
+    // the boundary is at the last byte of the last event of the first split
+    splitOffset = events.get(FIRST_SPLIT_EVENTS).getStart() - 1;
+    Assert.assertTrue(splitOffset > events.get(FIRST_SPLIT_EVENTS - 1).getStart());
+  }
+
+  @Test
+  public void testBatchSizeOne() throws Exception {
+    testSplits(1);
+  }
+
+  @Test
+  public void testBatchesWithinSplit() throws Exception {
+    // batches that are refilled several times, and whose last batch ends after the first event past the split end
+    testSplits(3);
+  }
+
+  @Test
+  public void testBatchLargerThanSplit() throws Exception {
+    // the first batch contains all events of the file, including the ones of the next split
+    testSplits(NUM_EVENTS * 10);
+  }
+
+  private void testSplits(int batchSize) throws Exception {
+    List<Long> firstSplit = new ArrayList<>();
+    for (PositionStreamEvent event : readEvents(0, splitOffset, batchSize)) {
+      firstSplit.add(event.getTimestamp());
+    }
+    Assert.assertEquals(ImmutableList.of(0L, 1L, 2L, 3L, 4L), firstSplit);
+
+    List<Long> secondSplit = new ArrayList<>();
+    for (PositionStreamEvent event : readEvents(splitOffset, fileLength - splitOffset, batchSize)) {
+      secondSplit.add(event.getTimestamp());
+    }
+    Assert.assertEquals(ImmutableList.of(5L, 6L, 7L, 8L, 9L), secondSplit);
+  }
+
+  /**
+   * Reads all events of a split, and verifies that the reader keeps returning no events once it reached the end of
+   * the split.
+   */
+  private static List<PositionStreamEvent> readEvents(long start, long length, int batchSize) throws IOException {
+    StreamInputSplit split = new StreamInputSplit(new Path(TMP_FOLDER.getRoot().toURI()), eventPath, indexPath,
+                                                  0L, Long.MAX_VALUE, start, length, null);
+    JobConf conf = new JobConf();
+    conf.setInt(Constants.Explore.STREAM_READ_BATCH_SIZE, batchSize);
+
+    List<PositionStreamEvent> events = new ArrayList<>();
+    StreamRecordReader reader = new StreamRecordReader(split, conf);
+    try {
+      ObjectWritable value = reader.createValue();
+      while (reader.next(null, value)) {
+        PositionStreamEvent event = (PositionStreamEvent) value.get();
+        Assert.assertTrue(event.getStart() >= start && event.getStart() - start < length);
+        events.add(event);
+      }
+      // the events read past the end of the split are not returned by later calls either
+      for (int i = 0; i < NUM_EVENTS; i++) {
+        Assert.assertFalse(reader.next(null, value));
+      }
+    } finally {
+      reader.close();
+    }
+    return events;
+  }
+}
@@ -20,10 +20,12 @@ import co.cask.cdap.common.ServiceBindException;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.conf.SConfiguration;
+import co.cask.cdap.gateway.router.handlers.EndpointLoadHandler;
 import co.cask.cdap.gateway.router.handlers.HttpRequestHandler;
 import co.cask.cdap.gateway.router.handlers.HttpStatusRequestHandler;
 import co.cask.cdap.gateway.router.handlers.IdleEventProcessor;
 import co.cask.cdap.gateway.router.handlers.SecurityAuthenticationHttpHandler;
+import co.cask.cdap.gateway.router.handlers.UpstreamChannelPool;
 import co.cask.cdap.security.auth.AccessTokenTransformer;
 import co.cask.cdap.security.auth.TokenValidator;
 import co.cask.cdap.security.tools.SSLHandlerFactory;
@@ -99,10 +101,12 @@ public class NettyRouter extends AbstractIdleService {
   private final boolean sslEnabled;
   private final SSLHandlerFactory sslHandlerFactory;
   private final int connectionTimeout;
+  private final int maxIdleConnectionsPerEndpoint;
 
   private Timer timer;
   private ServerBootstrap serverBootstrap;
   private ClientBootstrap clientBootstrap;
+  private UpstreamChannelPool upstreamChannelPool;
   private DiscoveryServiceClient discoveryServiceClient;
 
   @Inject
@@ -154,7 +158,9 @@ public class NettyRouter extends AbstractIdleService {
       this.sslHandlerFactory = null;
     }
     this.connectionTimeout = cConf.getInt(Constants.Router.CONNECTION_TIMEOUT_SECS);
+    this.maxIdleConnectionsPerEndpoint = cConf.getInt(Constants.Router.CONNECTION_POOL_MAX_IDLE_PER_ENDPOINT);
     LOG.info("Using connection timeout: {}", connectionTimeout);
+    LOG.info("Using maximum idle connections per endpoint: {}", maxIdleConnectionsPerEndpoint);
     LOG.info("Service to Port Mapping - {}", this.serviceToPortMap);
   }
 
@@ -181,17 +187,29 @@ public class NettyRouter extends AbstractIdleService {
   protected void shutDown() throws Exception {
     LOG.info("Stopping Netty Router...");
 
+    // the fields created in startUp are null if it failed before creating them
     try {
+      if (upstreamChannelPool != null) {
+        upstreamChannelPool.close();
+      }
       if (!channelGroup.close().await(CLOSE_CHANNEL_TIMEOUT_SECS, TimeUnit.SECONDS)) {
         LOG.warn("Timeout when closing all channels.");
       }
     } finally {
-      serverBootstrap.shutdown();
-      clientBootstrap.shutdown();
-      clientBootstrap.releaseExternalResources();
-      serverBootstrap.releaseExternalResources();
+      if (serverBootstrap != null) {
+        serverBootstrap.shutdown();
+      }
+      if (clientBootstrap != null) {
+        clientBootstrap.shutdown();
+        clientBootstrap.releaseExternalResources();
+      }
+      if (serverBootstrap != null) {
+        serverBootstrap.releaseExternalResources();
+      }
       tokenValidator.stopAndWait();
-      timer.stop();
+      if (timer != null) {
+        timer.stop();
+      }
     }
 
     LOG.info("Stopped Netty Router.");
@@ -258,7 +276,7 @@ public class NettyRouter extends AbstractIdleService {
           }
           // for now there's only one hardcoded rule, but if there will be more, we may want it generic and configurable
           pipeline.addLast("http-request-handler",
-                           new HttpRequestHandler(clientBootstrap, serviceLookup, ImmutableList.<ProxyRule>of()));
+                           new HttpRequestHandler(upstreamChannelPool, serviceLookup, ImmutableList.<ProxyRule>of()));
           return pipeline;
         }
       }
@@ -324,11 +342,15 @@ public class NettyRouter extends AbstractIdleService {
         pipeline.addLast("idle-event-generator",
                          new IdleStateHandler(timer, 0, 0, connectionTimeout));
         pipeline.addLast("idle-event-processor", new IdleEventProcessor());
+        // tracks in-flight requests and latency for picking the least loaded endpoint
+        pipeline.addLast("endpoint-load-handler", new EndpointLoadHandler(serviceLookup.getEndpointLoadTracker()));
         return pipeline;
       }
     });
 
     clientBootstrap.setOption("bufferFactory", new DirectChannelBufferFactory());
+    clientBootstrap.setOption("keepAlive", true);
+    upstreamChannelPool = new UpstreamChannelPool(clientBootstrap, maxIdleConnectionsPerEndpoint);
   }
 
   private boolean isSSLEnabled() {
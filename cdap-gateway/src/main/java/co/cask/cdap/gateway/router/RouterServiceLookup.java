@@ -16,8 +16,9 @@
 
 package co.cask.cdap.gateway.router;
 
+import co.cask.cdap.common.discovery.EndpointLoadTracker;
 import co.cask.cdap.common.discovery.EndpointStrategy;
-import co.cask.cdap.common.discovery.RandomEndpointStrategy;
+import co.cask.cdap.common.discovery.LoadAwareEndpointStrategy;
 import co.cask.cdap.common.utils.Networks;
 import com.google.common.base.Objects;
 import com.google.common.cache.CacheBuilder;
@@ -51,11 +52,13 @@ public class RouterServiceLookup {
   private final DiscoveryServiceClient discoveryServiceClient;
   private final LoadingCache<CacheKey, EndpointStrategy> discoverableCache;
   private final RouterPathLookup routerPathLookup;
+  private final EndpointLoadTracker endpointLoadTracker;
 
   @Inject
   public RouterServiceLookup(DiscoveryServiceClient discoveryServiceClient, RouterPathLookup routerPathLookup) {
     this.discoveryServiceClient = discoveryServiceClient;
     this.routerPathLookup = routerPathLookup;
+    this.endpointLoadTracker = new EndpointLoadTracker();
     this.discoverableCache = CacheBuilder.newBuilder()
       .expireAfterAccess(1, TimeUnit.HOURS)
       .build(new CacheLoader<CacheKey, EndpointStrategy>() {
@@ -125,6 +128,14 @@ public class RouterServiceLookup {
     }
   }
 
+  /**
+   * @return the {@link EndpointLoadTracker} used for picking endpoints from the {@link EndpointStrategy}
+   *         returned by this class.
+   */
+  public EndpointLoadTracker getEndpointLoadTracker() {
+    return endpointLoadTracker;
+  }
+
   public void updateServiceMap(Map<Integer, String> serviceMap) {
     serviceMapRef.set(serviceMap);
   }
@@ -178,7 +189,8 @@ public class RouterServiceLookup {
   private EndpointStrategy discover(String discoverName) throws ExecutionException {
     LOG.debug("Looking up service name {}", discoverName);
 
-    EndpointStrategy endpointStrategy = new RandomEndpointStrategy(discoveryServiceClient.discover(discoverName));
+    EndpointStrategy endpointStrategy = new LoadAwareEndpointStrategy(discoveryServiceClient.discover(discoverName),
+                                                                      endpointLoadTracker);
     if (endpointStrategy.pick(300L, TimeUnit.MILLISECONDS) == null) {
       LOG.debug("Discoverable endpoint {} not found", discoverName);
     }
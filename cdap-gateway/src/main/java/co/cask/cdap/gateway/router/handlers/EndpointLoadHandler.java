@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router.handlers;
+
+import co.cask.cdap.common.discovery.EndpointLoadTracker;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+
+import java.net.InetSocketAddress;
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * Records the start and completion of requests sent to an endpoint through an outbound channel into
+ * a {@link EndpointLoadTracker}, so that the router can pick the least loaded endpoint.
+ * It must be placed after the http response decoder in the outbound channel pipeline.
+ */
+public class EndpointLoadHandler extends SimpleChannelHandler {
+
+  private final EndpointLoadTracker loadTracker;
+  // Start time of requests that are waiting for response, in the order they were sent
+  private final Queue<Long> requestStartTimes;
+  private volatile InetSocketAddress endpoint;
+
+  public EndpointLoadHandler(EndpointLoadTracker loadTracker) {
+    this.loadTracker = loadTracker;
+    this.requestStartTimes = new LinkedList<>();
+  }
+
+  @Override
+  public void writeRequested(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+    if (e.getMessage() instanceof HttpRequest) {
+      InetSocketAddress endpoint = getEndpoint(ctx);
+      if (endpoint != null) {
+        synchronized (this) {
+          requestStartTimes.add(System.nanoTime());
+        }
+        loadTracker.requestStarted(endpoint);
+      }
+    }
+    super.writeRequested(ctx, e);
+  }
+
+  @Override
+  public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+    Object message = e.getMessage();
+    boolean completed = (message instanceof HttpResponse && !((HttpResponse) message).isChunked())
+      || (message instanceof HttpChunk && ((HttpChunk) message).isLast());
+    if (completed) {
+      Long startTime;
+      synchronized (this) {
+        startTime = requestStartTimes.poll();
+      }
+      if (startTime != null && endpoint != null) {
+        loadTracker.requestCompleted(endpoint, System.nanoTime() - startTime);
+      }
+    }
+    super.messageReceived(ctx, e);
+  }
+
+  @Override
+  public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+    // Requests that never got a response are no longer in-flight. Their latencies are not sampled.
+    synchronized (this) {
+      if (endpoint != null) {
+        while (requestStartTimes.poll() != null) {
+          loadTracker.requestCompleted(endpoint, -1L);
+        }
+      }
+      requestStartTimes.clear();
+    }
+    super.channelClosed(ctx, e);
+  }
+
+  private InetSocketAddress getEndpoint(ChannelHandlerContext ctx) {
+    if (endpoint == null) {
+      endpoint = (InetSocketAddress) ctx.getChannel().getRemoteAddress();
+    }
+    return endpoint;
+  }
+}
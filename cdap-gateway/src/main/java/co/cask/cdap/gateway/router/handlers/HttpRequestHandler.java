@@ -23,7 +23,6 @@ import co.cask.cdap.gateway.router.RouterServiceLookup;
 import com.google.common.collect.Queues;
 import com.google.common.io.Closeables;
 import org.apache.twill.discovery.Discoverable;
-import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
@@ -61,7 +60,7 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(HttpRequestHandler.class);
 
-  private final ClientBootstrap clientBootstrap;
+  private final UpstreamChannelPool channelPool;
   private final RouterServiceLookup serviceLookup;
   // Data structure is used to clean up the channel futures on connection close.
   private final Map<WrappedDiscoverable, MessageSender> discoveryLookup;
@@ -71,10 +70,10 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
   private MessageSender chunkSender;
   private volatile boolean channelClosed;
 
-  public HttpRequestHandler(ClientBootstrap clientBootstrap,
+  public HttpRequestHandler(UpstreamChannelPool channelPool,
                             RouterServiceLookup serviceLookup,
                             List<ProxyRule> proxyRules) {
-    this.clientBootstrap = clientBootstrap;
+    this.channelPool = channelPool;
     this.serviceLookup = serviceLookup;
     this.discoveryLookup = new HashMap<>();
     this.proxyRules = proxyRules;
@@ -111,32 +110,12 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
       // If no event sender, make new connection, otherwise reuse existing one.
       MessageSender sender =  discoveryLookup.get(discoverable);
       if (sender == null || !sender.isConnected()) {
-        InetSocketAddress address = discoverable.getSocketAddress();
-
-        ChannelFuture future = clientBootstrap.connect(address);
-        final Channel outboundChannel = future.getChannel();
-        outboundChannel.getPipeline().addAfter("request-encoder",
-                                               "outbound-handler", new OutboundHandler(inboundChannel));
-        sender = new MessageSender(inboundChannel, future);
+        ChannelFuture future = channelPool.acquire(discoverable, inboundChannel);
+        sender = new MessageSender(inboundChannel, future, discoverable, channelPool);
         discoveryLookup.put(discoverable, sender);
 
         // Remember the in-flight outbound channel
-        inboundChannel.setAttachment(outboundChannel);
-        outboundChannel.getCloseFuture().addListener(new ChannelFutureListener() {
-          @Override
-          public void operationComplete(ChannelFuture future) throws Exception {
-            inboundChannel.getPipeline().execute(new Runnable() {
-              @Override
-              public void run() {
-                // When the outbound channel closed,
-                // close the inbound channel as well if it carries the in-flight request
-                if (outboundChannel.equals(inboundChannel.getAttachment())) {
-                  closeOnFlush(inboundChannel);
-                }
-              }
-            });
-          }
-        });
+        inboundChannel.setAttachment(future.getChannel());
       }
 
       // Send the message.
@@ -194,7 +173,7 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
 
   @Override
   public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
-    // Close all event sender
+    // Close all event sender, which returns the outbound channels to the pool if they can be reused
     LOG.trace("Channel closed {}", ctx.getChannel());
     for (Closeable c : discoveryLookup.values()) {
       Closeables.closeQuietly(c);
@@ -242,12 +221,17 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
   private static final class MessageSender implements Closeable {
     private final Channel inBoundChannel;
     private final ChannelFuture channelFuture;
+    private final WrappedDiscoverable discoverable;
+    private final UpstreamChannelPool channelPool;
     private final Queue<OutboundMessage> messages;
     private final AtomicBoolean writer;
 
-    private MessageSender(Channel inBoundChannel, ChannelFuture channelFuture) {
+    private MessageSender(Channel inBoundChannel, ChannelFuture channelFuture,
+                          WrappedDiscoverable discoverable, UpstreamChannelPool channelPool) {
       this.inBoundChannel = inBoundChannel;
       this.channelFuture = channelFuture;
+      this.discoverable = discoverable;
+      this.channelPool = channelPool;
       this.messages = Queues.newConcurrentLinkedQueue();
       this.writer = new AtomicBoolean(false);
     }
@@ -308,7 +292,11 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
 
     @Override
     public void close() throws IOException {
-      closeOnFlush(channelFuture.getChannel());
+      if (channelFuture.isSuccess()) {
+        channelPool.release(discoverable, channelFuture.getChannel());
+      } else {
+        closeOnFlush(channelFuture.getChannel());
+      }
     }
   }
 
@@ -34,7 +34,14 @@ import org.slf4j.LoggerFactory;
  */
 public class IdleEventProcessor extends IdleStateAwareChannelHandler {
   private static final Logger LOG = LoggerFactory.getLogger(IdleEventProcessor.class);
-  private boolean requestInProgress;
+  private volatile boolean requestInProgress;
+
+  /**
+   * Returns {@code true} if a request was written to the channel and its response is not yet fully received.
+   */
+  public boolean isRequestInProgress() {
+    return requestInProgress;
+  }
 
   @Override
   public void channelIdle(ChannelHandlerContext ctx, IdleStateEvent e) throws Exception {
@@ -28,28 +28,70 @@ import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 /**
- * Handles requests to and from a discoverable endpoint.
+ * Handles requests to and from a discoverable endpoint. Since outbound channels are pooled by
+ * {@link UpstreamChannelPool}, the inbound channel that the outbound channel serves can change over time.
  */
 public class OutboundHandler extends SimpleChannelUpstreamHandler {
   private static final Logger LOG = LoggerFactory.getLogger(OutboundHandler.class);
 
-  private final Channel inboundChannel;
+  private volatile Channel inboundChannel;
 
   public OutboundHandler(Channel inboundChannel) {
     this.inboundChannel = inboundChannel;
   }
 
+  /**
+   * Sets the inbound channel that responses are written to.
+   *
+   * @param inboundChannel the inbound channel or {@code null} if the outbound channel is not serving any
+   *                       inbound channel
+   */
+  void setInboundChannel(@Nullable Channel inboundChannel) {
+    this.inboundChannel = inboundChannel;
+  }
+
   @Override
   public void messageReceived(ChannelHandlerContext ctx, MessageEvent event) throws Exception {
+    Channel inboundChannel = this.inboundChannel;
+    if (inboundChannel == null) {
+      // Data received on an idle connection. The connection is in unknown state and cannot be reused.
+      LOG.trace("Data received on idle channel {}. Closing the channel.", ctx.getChannel());
+      ctx.getChannel().close();
+      return;
+    }
     // write the channel buffer to inbound channel
     ChannelBuffer wrappedMessage = ChannelBuffers.wrappedBuffer((ChannelBuffer) event.getMessage());
     Channels.write(inboundChannel, wrappedMessage);
     super.messageReceived(ctx, event);
   }
 
+  @Override
+  public void channelClosed(final ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+    final Channel inboundChannel = this.inboundChannel;
+    if (inboundChannel != null) {
+      inboundChannel.getPipeline().execute(new Runnable() {
+        @Override
+        public void run() {
+          // When the outbound channel closed,
+          // close the inbound channel as well if it carries the in-flight request
+          if (ctx.getChannel().equals(inboundChannel.getAttachment())) {
+            HttpRequestHandler.closeOnFlush(inboundChannel);
+          }
+        }
+      });
+    }
+    super.channelClosed(ctx, e);
+  }
+
   @Override
   public void channelInterestChanged(ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+    final Channel inboundChannel = this.inboundChannel;
+    if (inboundChannel == null) {
+      return;
+    }
     inboundChannel.getPipeline().execute(new Runnable() {
       @Override
       public void run() {
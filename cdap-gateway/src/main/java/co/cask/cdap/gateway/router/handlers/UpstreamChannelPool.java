@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router.handlers;
+
+import com.google.common.base.Preconditions;
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.Channels;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A router-wide pool of keep-alive channels to the upstream services, keyed by discoverable endpoint.
+ * A channel is used exclusively by one inbound channel at a time. When the inbound channel closes, the
+ * outbound channels it used are returned to the pool if they have no request in progress, so that the next
+ * client connection doesn't need to establish new connections to the upstream services.
+ *
+ * The number of idle channels per endpoint is bounded. Idle channels are evicted by the
+ * {@link IdleEventProcessor} in the client pipeline after the configured idle timeout.
+ */
+public class UpstreamChannelPool implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UpstreamChannelPool.class);
+
+  private final ClientBootstrap clientBootstrap;
+  private final int maxIdlePerEndpoint;
+  private final ConcurrentMap<WrappedDiscoverable, Deque<Channel>> idleChannels;
+  private volatile boolean closed;
+
+  public UpstreamChannelPool(ClientBootstrap clientBootstrap, int maxIdlePerEndpoint) {
+    Preconditions.checkArgument(maxIdlePerEndpoint >= 0,
+                                "Maximum number of idle channels per endpoint must be >= 0: %s", maxIdlePerEndpoint);
+    this.clientBootstrap = clientBootstrap;
+    this.maxIdlePerEndpoint = maxIdlePerEndpoint;
+    this.idleChannels = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Acquires a channel to the given endpoint for the given inbound channel. It either reuses an idle channel
+   * from the pool or opens a new connection.
+   *
+   * @param discoverable the endpoint to connect to
+   * @param inboundChannel the inbound channel that responses from the endpoint are written to
+   * @return a {@link ChannelFuture} that completes when the outbound channel is connected
+   */
+  public ChannelFuture acquire(WrappedDiscoverable discoverable, Channel inboundChannel) {
+    Deque<Channel> channels = idleChannels.get(discoverable);
+    if (channels != null) {
+      while (true) {
+        Channel channel;
+        synchronized (channels) {
+          // Most recently used first, so that the least used channels get evicted by idle timeout
+          channel = channels.pollFirst();
+        }
+        if (channel == null) {
+          break;
+        }
+        if (channel.isConnected()) {
+          getOutboundHandler(channel).setInboundChannel(inboundChannel);
+          LOG.trace("Reusing channel {} to {}", channel, discoverable.getSocketAddress());
+          return Channels.succeededFuture(channel);
+        }
+      }
+    }
+
+    ChannelFuture future = clientBootstrap.connect(discoverable.getSocketAddress());
+    Channel outboundChannel = future.getChannel();
+    outboundChannel.getPipeline().addAfter("request-encoder", "outbound-handler", new OutboundHandler(inboundChannel));
+    removeOnClose(discoverable, outboundChannel);
+    return future;
+  }
+
+  /**
+   * Releases a channel acquired through {@link #acquire(WrappedDiscoverable, Channel)}. The channel is returned
+   * to the pool if it can be reused, otherwise it is closed.
+   *
+   * @param discoverable the endpoint that the channel is connected to
+   * @param channel the channel to release
+   */
+  public void release(WrappedDiscoverable discoverable, Channel channel) {
+    OutboundHandler outboundHandler = getOutboundHandler(channel);
+    if (outboundHandler != null) {
+      outboundHandler.setInboundChannel(null);
+    }
+    if (!closed && channel.isConnected() && outboundHandler != null && !isRequestInProgress(channel)) {
+      Deque<Channel> channels = getIdleChannels(discoverable);
+      synchronized (channels) {
+        if (channels.size() < maxIdlePerEndpoint) {
+          channels.addFirst(channel);
+          return;
+        }
+      }
+    }
+    HttpRequestHandler.closeOnFlush(channel);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    List<Channel> channelsToClose = new ArrayList<>();
+    for (Deque<Channel> channels : idleChannels.values()) {
+      synchronized (channels) {
+        channelsToClose.addAll(channels);
+        channels.clear();
+      }
+    }
+    for (Channel channel : channelsToClose) {
+      channel.close();
+    }
+  }
+
+  private Deque<Channel> getIdleChannels(WrappedDiscoverable discoverable) {
+    Deque<Channel> channels = idleChannels.get(discoverable);
+    if (channels == null) {
+      channels = new LinkedList<>();
+      Deque<Channel> existing = idleChannels.putIfAbsent(discoverable, channels);
+      if (existing != null) {
+        channels = existing;
+      }
+    }
+    return channels;
+  }
+
+  /**
+   * Removes the channel from the idle pool when it is closed, either by the endpoint or by idle timeout.
+   */
+  private void removeOnClose(final WrappedDiscoverable discoverable, final Channel channel) {
+    channel.getCloseFuture().addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(ChannelFuture future) throws Exception {
+        Deque<Channel> channels = idleChannels.get(discoverable);
+        if (channels != null) {
+          synchronized (channels) {
+            channels.remove(channel);
+          }
+        }
+      }
+    });
+  }
+
+  private boolean isRequestInProgress(Channel channel) {
+    IdleEventProcessor idleEventProcessor = channel.getPipeline().get(IdleEventProcessor.class);
+    return idleEventProcessor != null && idleEventProcessor.isRequestInProgress();
+  }
+
+  private OutboundHandler getOutboundHandler(Channel channel) {
+    return channel.getPipeline().get(OutboundHandler.class);
+  }
+}
@@ -431,6 +431,30 @@ public abstract class NettyRouterTestBase {
     Assert.assertEquals(1, defaultServer1.getNumConnectionsClosed() + defaultServer2.getNumConnectionsClosed());
   }
 
+  @Test(timeout = 10000)
+  public void testUpstreamConnectionReuse() throws Exception {
+    defaultServer2.cancelRegistration();
+
+    String path = "/v2/ping";
+    URI uri = new URI(resolveURI(Constants.Router.GATEWAY_DISCOVERY_NAME, path));
+
+    // Make requests on short-lived client connections; the connection to the backend should be reused
+    int times = 5;
+    for (int i = 0; i < times; i++) {
+      try (Socket socket = getSocketFactory().createSocket(uri.getHost(), uri.getPort())) {
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+        String firstLine = makeRequest(uri, out, socket.getInputStream());
+        Assert.assertEquals("HTTP/1.1 200 OK\r", firstLine);
+      }
+      // Give the router some time to return the backend connection to the pool after the client disconnected
+      TimeUnit.MILLISECONDS.sleep(200);
+    }
+
+    Assert.assertEquals(times, defaultServer1.getNumRequests() + defaultServer2.getNumRequests());
+    Assert.assertEquals(1, defaultServer1.getNumConnectionsOpened() + defaultServer2.getNumConnectionsOpened());
+    Assert.assertEquals(0, defaultServer1.getNumConnectionsClosed() + defaultServer2.getNumConnectionsClosed());
+  }
+
   private String makeRequest(URI uri, PrintWriter out, InputStream inputStream) throws IOException {
 
     //Send request
@@ -44,6 +44,7 @@ import co.cask.cdap.internal.app.runtime.DataSetFieldSetter;
 import co.cask.cdap.internal.app.runtime.MetricsFieldSetter;
 import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
 import co.cask.cdap.internal.app.runtime.ProgramRunners;
+import co.cask.cdap.internal.app.runtime.artifact.ArtifactUnpackCache;
 import co.cask.cdap.internal.app.runtime.plugin.PluginInstantiator;
 import co.cask.cdap.internal.app.runtime.workflow.NameMappedDatasetFramework;
 import co.cask.cdap.internal.app.runtime.workflow.WorkflowProgramInfo;
@@ -96,8 +97,9 @@ final class SparkProgramRunner extends AbstractProgramRunnerWithPlugin
   @Inject
   SparkProgramRunner(CConfiguration cConf, Configuration hConf, TransactionSystemClient txClient,
                      DatasetFramework datasetFramework, MetricsCollectionService metricsCollectionService,
-                     DiscoveryServiceClient discoveryServiceClient, StreamAdmin streamAdmin, Store store) {
-    super(cConf);
+                     DiscoveryServiceClient discoveryServiceClient, StreamAdmin streamAdmin, Store store,
+                     ArtifactUnpackCache unpackCache) {
+    super(unpackCache);
     this.cConf = cConf;
     this.hConf = hConf;
     this.txClient = txClient;